@@ -0,0 +1,77 @@
+#!/bin/bash
+# Crawls a stand-in site served on several loopback hosts, once in a single process and once split among
+# several processes which forward links to each other, then merges the partitions and compares the merged
+# index with the single-process one. Every process writes its files to its own directory under a temporary one.
+#
+# usage: scripts/distributed-crawl.sh [processes] [pages] [hosts]
+# Run it from the root folder of the project after building the jar with `gradle shadowJar`,
+# or set CRAWL_CLASSPATH to the classpath to run with.
+set -e
+
+PROCESSES=${1:-3}
+PAGES=${2:-500}
+HOSTS=${3:-8}
+SITE_PORT=${SITE_PORT:-7100}
+FIRST_PEER_PORT=${FIRST_PEER_PORT:-7101}
+CLASS_PATH=${CRAWL_CLASSPATH:-$(ls build/libs/*-all.jar 2>/dev/null | head -1)}
+if [ -z "$CLASS_PATH" ]; then
+    echo "no jar in build/libs, run gradle shadowJar first" >&2
+    exit 1
+fi
+WORK=$(mktemp -d)
+echo "writing the crawls to $WORK"
+
+PEERS=""
+for ((i = 0; i < PROCESSES; i++)); do
+    PEERS="$PEERS${PEERS:+,}\"localhost:$((FIRST_PEER_PORT + i))\""
+done
+
+# Sets JAVA to the command running the benchmark with its files in the given directory
+# and the given -D options, which is followed by the subcommand and its arguments.
+# usage: java_command <output directory> [-D options...]
+java_command() {
+    local out=$1
+    shift
+    mkdir -p "$out"
+    JAVA=(java -cp "$CLASS_PATH"
+        -Dconf.CrawlDomain=127.0.0.
+        -Dconf.PolitenessDelay=100
+        -Dconf.IndexFile="$out/index.ser"
+        -Dconf.DocumentLengthsFile="$out/docLengths.ser"
+        -Dconf.VocabularyFile="$out/vocabulary.dict"
+        -Dconf.TermDictionaryFile="$out/terms.dict"
+        -Dconf.PostingsFile="$out/postings.bin"
+        -Dconf.ValidatorsFile="$out/validators.ser"
+        -Dconf.StaticScoresFile="$out/pagerank.ser"
+        -Dconf.LinksFile="$out/links.ser"
+        -Dconf.PartitionDirectory="$WORK/partitions"
+        "$@" Vector.Space.Retrieval.System.Benchmark)
+}
+
+java_command "$WORK/site"
+"${JAVA[@]}" site "$SITE_PORT" "$PAGES" "$HOSTS" > "$WORK/site.log" 2>&1 &
+SITE=$!
+trap 'kill $SITE 2>/dev/null' EXIT
+sleep 2
+
+SEED="http://127.0.0.1:$SITE_PORT/p0"
+java_command "$WORK/single"
+"${JAVA[@]}" crawl "$SEED" "$PAGES" > "$WORK/single.log" 2>&1
+tail -n 1 "$WORK/single.log"
+
+CRAWLERS=()
+for ((i = 0; i < PROCESSES; i++)); do
+    java_command "$WORK/partition$i" -Dconf.PartitionId=$i "-Dconf.CrawlPeers=[$PEERS]"
+    "${JAVA[@]}" crawl "$SEED" "$PAGES" > "$WORK/partition$i.log" 2>&1 &
+    CRAWLERS+=($!)
+done
+for crawler in "${CRAWLERS[@]}"; do
+    wait "$crawler"
+done
+for ((i = 0; i < PROCESSES; i++)); do
+    tail -n 1 "$WORK/partition$i.log"
+done
+
+java_command "$WORK/merged" "-Dconf.CrawlPeers=[$PEERS]"
+"${JAVA[@]}" merge "$WORK/single/index.ser" > "$WORK/merged.log" 2>&1
+tail -n 2 "$WORK/merged.log"
@@ -0,0 +1,623 @@
+package Vector.Space.Retrieval.System;
+
+import Vector.Space.Retrieval.System.indexer.*;
+import Vector.Space.Retrieval.System.preprocessor.CollectionLoader;
+import Vector.Space.Retrieval.System.preprocessor.DocumentParser;
+import Vector.Space.Retrieval.System.preprocessor.IndexItem;
+import Vector.Space.Retrieval.System.preprocessor.Tokenizer;
+import Vector.Space.Retrieval.System.preprocessor.WebDocument;
+import Vector.Space.Retrieval.System.preprocessor.crawler.Crawler;
+import Vector.Space.Retrieval.System.preprocessor.crawler.NearDuplicateDetector;
+import Vector.Space.Retrieval.System.query.FuzzyExpander;
+import Vector.Space.Retrieval.System.query.PhraseMatcher;
+import Vector.Space.Retrieval.System.query.PostingsIntersection;
+import Vector.Space.Retrieval.System.query.QueryProcessor;
+import Vector.Space.Retrieval.System.suggest.SuggestionService;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * This class measures the index structures and query paths on the local collections, so that the figures
+ * quoted for them can be reproduced. Run it from the root folder of the project with one benchmark name, e.g.
+ * <br> <i>gradle benchmark --args="impact"</i> <br>
+ * Every benchmark indexes <i>cranfieldDocs</i> (and <i>norms</i> also <i>citeseer</i>) with a {@link CollectionLoader},
+ * and the configuration may be overridden with system properties, e.g. <i>-Dconf.ChampionListSize=50</i>. <br>
+ * Benchmarks: <br>
+ * - norms: size and error of the encodings of document lengths, and incremental against recomputed lengths <br>
+ * - phrases: size of the positions, phrase matches against conjunctive matches, and the adjacent-pair index <br>
+ * - dictionary: size and lookup time of the term dictionary against the keys of a hash map <br>
+ * - suggest: top-k trie against a brute force search, and suggestion latency under concurrent requests <br>
+ * - fuzzy: Levenshtein automaton expansion against a full scan of the dictionary <br>
+ * - impact: impact-ordered search against exhaustive scoring <br>
+ * - champions: champion lists against exhaustive scoring <br>
+ * - duplicates: SimHash near-duplicate detection on distinct and on slightly changed documents <br>
+ * - pagerank: PageRank against a reference power iteration, and its cost on a large random graph <br>
+ * - order: size of the postings and query speed with the documents in their loaded order, by url and by bisection <br>
+ * A distributed crawl is checked against a single-process crawl of a stand-in site with the subcommands below,
+ * which <i>scripts/distributed-crawl.sh</i> runs in separate processes: <br>
+ * - site: serves the stand-in site on several loopback hosts <br>
+ * - crawl: crawls from a seed url as configured, alone or as one partition of a distributed crawl <br>
+ * - merge: merges the partitions, and compares the merged index with that of a single-process crawl
+ */
+public class Benchmark {
+    private static final String COLLECTIONS = "src/main/resources/";
+    private static final int CRANFIELD_SIZE = 1400;
+
+    public static void main(String[] args) {
+        String name = args.length > 0 ? args[0] : "";
+        try {
+            switch (name) {
+                case "norms": norms(); break;
+                case "phrases": phrases(); break;
+                case "dictionary": dictionary(); break;
+                case "suggest": suggest(); break;
+                case "fuzzy": fuzzy(); break;
+                case "impact": impact(); break;
+                case "champions": champions(); break;
+                case "duplicates": duplicates(); break;
+                case "pagerank": pageRank(args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000); break;
+                case "order": order(); break;
+                case "site": site(Integer.parseInt(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3])); break;
+                case "crawl": crawl(args[1], Integer.parseInt(args[2])); break;
+                case "merge": merge(args.length > 1 ? args[1] : null); break;
+                default:
+                    System.out.println("usage: Benchmark norms|phrases|dictionary|suggest|fuzzy|impact|champions|duplicates|pagerank [nodes]|order\n" +
+                            "       Benchmark site <port> <pages> <hosts> | crawl <seed url> <limit> | merge [single-process index file]");
+            }
+        }
+        catch(Exception ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * Indexes the given collections and computes the exact document lengths
+     * @param collections Names of the collection directories under the resources
+     */
+    private static InvertedIndexer load(String... collections) throws IOException {
+        InvertedIndexer indexer = new InvertedIndexer();
+        CollectionLoader loader = new CollectionLoader(Runtime.getRuntime().availableProcessors());
+        for (String collection : collections) loader.load(Paths.get(COLLECTIONS, collection), indexer);
+        indexer.constructDocumentVectorTable();
+        return indexer;
+    }
+
+    private static List<String> readQueries() throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                Objects.requireNonNull(Benchmark.class.getClassLoader().getResourceAsStream(Constants.queriesFileName))))) {
+            return reader.lines().filter(line -> !line.trim().isEmpty()).collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Gets the unstemmed tokens of a cranfield document, as a crawler sees them
+     */
+    private static List<String> readWords(int documentNumber) throws IOException {
+        Tokenizer tokenizer = new Tokenizer();
+        List<String> words = new ArrayList<>();
+        for (String line : new DocumentParser().parseAndRetrieveText(documentNumber, Constants.collectionDirectoryName, Constants.fileNamePrefix))
+            words.addAll(tokenizer.tokenize(line));
+        return words;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static void norms() throws IOException {
+        InvertedIndexer indexer = new InvertedIndexer();
+        CollectionLoader loader = new CollectionLoader(Runtime.getRuntime().availableProcessors());
+        loader.load(Paths.get(COLLECTIONS, "cranfieldDocs"), indexer);
+        loader.load(Paths.get(COLLECTIONS, "citeseer"), indexer);
+        int documentCount = indexer.getDocumentCount();
+        double[] incremental = new double[documentCount];
+        for (int documentId = 0; documentId < documentCount; documentId++) incremental[documentId] = indexer.getDocumentLength(documentId);
+
+        long time = Long.MAX_VALUE;
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            indexer.constructDocumentVectorTable();
+            time = Math.min(time, System.nanoTime() - start);
+        }
+        double[] exact = new double[documentCount], errors = new double[documentCount];
+        for (int documentId = 0; documentId < documentCount; documentId++) {
+            exact[documentId] = indexer.getDocumentLength(documentId);
+            errors[documentId] = Math.abs(incremental[documentId] - exact[documentId]) / exact[documentId];
+        }
+        Arrays.sort(errors);
+        System.out.printf("%d documents: recomputing all lengths takes %.1f ms; incremental lengths against recomputed " +
+                        "ones: median error %.4f, p99 %.4f, max %.4f%n", documentCount, millis(time),
+                errors[documentCount / 2], errors[documentCount * 99 / 100], errors[documentCount - 1]);
+
+        for (String encoding : new String[] {"double", "float", "byte"}) {
+            DocumentNorms norms = DocumentNorms.encode(exact, encoding);
+            double maxError = 0;
+            for (int documentId = 0; documentId < documentCount; documentId++)
+                maxError = Math.max(maxError, Math.abs(norms.get(documentId) - exact[documentId]) / exact[documentId]);
+            long start = System.nanoTime();
+            DocumentNorms appended = DocumentNorms.encode(new double[0], encoding);
+            for (double norm : exact) appended = appended.append(norm, encoding);
+            System.out.printf("%-6s %7d bytes, max relative error %.5f; appending %d lengths one by one takes %.1f ms%n",
+                    encoding, norms.getSizeInBytes(), maxError, documentCount, millis(System.nanoTime() - start));
+        }
+    }
+
+    private static void phrases() throws IOException {
+        InvertedIndexer indexer = load("cranfieldDocs");
+        System.out.printf("postings %d bytes, positions %d bytes%n", indexer.getPostingsSizeInBytes(), indexer.getPositionsSizeInBytes());
+        PhraseMatcher matcher = new PhraseMatcher(indexer);
+        System.out.printf("\"heat transfer\" in %d documents, heat AND transfer in %d%n",
+                matcher.match(Arrays.asList("heat", "transfer")).length,
+                PostingsIntersection.intersect(indexer.getPostings("heat"), indexer.getPostings("transfer")).length);
+
+        /* phrases of two to four terms taken from every query */
+        QueryProcessor queryProcessor = new QueryProcessor(indexer);
+        List<List<String>> phrases = new ArrayList<>();
+        for (String query : readQueries()) {
+            List<String> tokens = queryProcessor.getTokens(query);
+            for (int i = 0; i + 2 <= tokens.size(); i++) phrases.add(tokens.subList(i, Math.min(tokens.size(), i + 2 + i % 3)));
+        }
+        List<int[]> positional = new ArrayList<>();
+        long start = System.nanoTime();
+        for (List<String> phrase : phrases) positional.add(matcher.match(phrase));
+        long positionalTime = System.nanoTime() - start;
+        indexer.buildPhraseIndex();
+        int mismatches = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < phrases.size(); i++) if (!Arrays.equals(positional.get(i), matcher.match(phrases.get(i)))) mismatches++;
+        System.out.printf("%d phrases: %.1f ms from positions, %.1f ms with the adjacent-pair index, %d differing results%n",
+                phrases.size(), millis(positionalTime), millis(System.nanoTime() - start), mismatches);
+    }
+
+    private static void dictionary() throws IOException {
+        InvertedIndexer indexer = load("cranfieldDocs");
+        Path postingsFile = Files.createTempFile("postings", ".bin");
+        try {
+            TermDictionary dictionary = MappedPostings.write(indexer, postingsFile);
+            List<String> terms = new ArrayList<>(indexer.getIndex().keySet());
+            Collections.shuffle(terms, new Random(0));
+            /* hash map node (32) + String (24) + byte array header (16) + characters + table slot (4) */
+            long mapBytes = terms.stream().mapToLong(term -> 76 + term.length()).sum();
+            long mapTime = Long.MAX_VALUE, dictionaryTime = Long.MAX_VALUE, found = 0;
+            for (int round = 0; round < 5; round++) {
+                long start = System.nanoTime();
+                for (String term : terms) if (indexer.getIndex().containsKey(term)) found++;
+                mapTime = Math.min(mapTime, System.nanoTime() - start);
+                start = System.nanoTime();
+                for (String term : terms) if (dictionary.get(term) >= 0) found++;
+                dictionaryTime = Math.min(dictionaryTime, System.nanoTime() - start);
+            }
+            int termCount = Math.max(1, terms.size());
+            System.out.printf("%d terms: dictionary %.1f bytes/term, map keys ~%.1f bytes/term%n",
+                    terms.size(), (double) dictionary.getSizeInBytes() / termCount, (double) mapBytes / termCount);
+            System.out.printf("lookup %.0f ns/term in the dictionary, %.0f ns/term in the map (%d found)%n",
+                    (double) dictionaryTime / termCount, (double) mapTime / termCount, found);
+        }
+        finally {
+            Files.deleteIfExists(postingsFile);
+        }
+    }
+
+    private static void suggest() throws Exception {
+        InvertedIndexer indexer = load("cranfieldDocs");
+        Map<String, Long> counts = new HashMap<>();
+        for (int documentNumber = 1; documentNumber <= CRANFIELD_SIZE; documentNumber++)
+            for (String word : new HashSet<>(readWords(documentNumber))) counts.merge(word, 1L, Long::sum);
+        SuggestionService suggestions = new SuggestionService(indexer, TermDictionary.of(counts));
+        suggestions.rebuild();
+
+        /* every suggestion must be a word starting with the prefix, and no longer than the prefix allows */
+        List<String> words = new ArrayList<>(counts.keySet());
+        Collections.sort(words);
+        Random random = new Random(1);
+        int invalid = 0;
+        for (int i = 0; i < 3000; i++) {
+            String word = words.get(random.nextInt(words.size()));
+            String prefix = word.substring(0, 1 + random.nextInt(word.length()));
+            for (String suggestion : suggestions.suggest(prefix, 10)) {
+                String last = suggestion.substring(suggestion.lastIndexOf(' ') + 1);
+                if (!last.startsWith(prefix) || !counts.containsKey(last)) invalid++;
+            }
+        }
+        System.out.printf("3000 random prefixes, %d suggestions not completing the prefix%n", invalid);
+
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++) {
+            final long seed = thread;
+            futures.add(executor.submit(() -> {
+                Random threadRandom = new Random(seed);
+                for (int i = 0; i < 100000; i++) {
+                    String word = words.get(threadRandom.nextInt(words.size()));
+                    for (int length = 1; length <= word.length(); length++) suggestions.suggest(word.substring(0, length), 5);
+                }
+            }));
+        }
+        for (Future<?> future : futures) future.get();
+        executor.shutdown();
+        System.out.printf("%d threads: %s%n", threads, suggestions.getLatency().describe());
+    }
+
+    private static int levenshtein(String first, String second) {
+        int[] previous = new int[second.length() + 1], current = new int[second.length() + 1];
+        for (int j = 0; j <= second.length(); j++) previous[j] = j;
+        for (int i = 1; i <= first.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= second.length(); j++)
+                current[j] = Math.min(Math.min(current[j - 1], previous[j]) + 1,
+                        previous[j - 1] + (first.charAt(i - 1) == second.charAt(j - 1) ? 0 : 1));
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[second.length()];
+    }
+
+    private static void fuzzy() throws IOException {
+        InvertedIndexer indexer = load("cranfieldDocs");
+        List<String> terms = new ArrayList<>(indexer.getIndex().keySet());
+        Collections.sort(terms);
+        FuzzyExpander expander = new FuzzyExpander(indexer, 2, Integer.MAX_VALUE);
+        indexer.getTermDictionary();
+
+        /* one or two random edits of dictionary terms, checked against the distance to every term */
+        Random random = new Random(5);
+        int checked = 0, mismatches = 0;
+        long automatonTime = 0, scanTime = 0;
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder builder = new StringBuilder(terms.get(random.nextInt(terms.size())));
+            for (int edit = 1 + random.nextInt(2); edit > 0; edit--) {
+                int operation = random.nextInt(3), position = random.nextInt(builder.length() + 1);
+                char c = (char)('a' + random.nextInt(26));
+                if (operation == 0) builder.insert(position, c);
+                else if (position < builder.length()) {
+                    if (operation == 1) builder.deleteCharAt(position);
+                    else builder.setCharAt(position, c);
+                }
+            }
+            String term = builder.toString();
+            if (term.isEmpty() || indexer.getDocumentFrequency(term) > 0) continue;
+            int maxDistance = term.length() <= 4 ? 1 : 2;
+            long start = System.nanoTime();
+            Set<String> expanded = new TreeSet<>(expander.expand(term));
+            automatonTime += System.nanoTime() - start;
+            start = System.nanoTime();
+            Set<String> expected = new TreeSet<>();
+            for (String candidate : terms) if (levenshtein(term, candidate) <= maxDistance) expected.add(candidate);
+            scanTime += System.nanoTime() - start;
+            if (!expected.equals(expanded)) mismatches++;
+            checked++;
+        }
+        System.out.printf("%d misspellings over %d terms, %d expansions differing from a full scan; %.1f us per " +
+                "expansion with the automaton, %.1f us with a full scan%n", checked, terms.size(), mismatches,
+                automatonTime / 1e3 / checked, scanTime / 1e3 / checked);
+    }
+
+    /**
+     * Runs every query through exhaustive scoring and through a faster path, comparing their top documents
+     * @param label Name of the faster path
+     * @param fast Faster path, returning null if it cannot answer a query
+     */
+    private static void compare(QueryProcessor queryProcessor, String label,
+                                BiFunction<List<String>, Integer, Map<WebDocument, Double>> fast) throws IOException {
+        List<String> queries = readQueries();
+        for (int k : new int[] {10, 20}) {
+            List<Map<String, Double>> exactResults = new ArrayList<>(), fastResults = new ArrayList<>();
+            double overlap = 0;
+            long exactTime = 0, fastTime = 0;
+            int fallbacks = 0;
+            /* the last of several rounds is reported, once the code is compiled */
+            for (int round = 0; round < 10; round++) {
+                exactResults.clear();
+                fastResults.clear();
+                overlap = 0;
+                exactTime = fastTime = 0;
+                fallbacks = 0;
+                for (String query : queries) {
+                    List<String> tokens = queryProcessor.getTokens(query);
+                    long start = System.nanoTime();
+                    Map<WebDocument, Double> exact = queryProcessor.getRankedMapOfDocuments(tokens, k);
+                    exactTime += System.nanoTime() - start;
+                    start = System.nanoTime();
+                    Map<WebDocument, Double> approximate = fast.apply(tokens, k);
+                    if (approximate == null) {
+                        fallbacks++;
+                        approximate = queryProcessor.getRankedMapOfDocuments(tokens, k);
+                    }
+                    fastTime += System.nanoTime() - start;
+                    Map<String, Double> exactScores = new LinkedHashMap<>(), fastScores = new LinkedHashMap<>();
+                    exact.forEach((document, score) -> exactScores.put(document.getUrl(), score));
+                    approximate.forEach((document, score) -> fastScores.put(document.getUrl(), score));
+                    exactResults.add(exactScores);
+                    fastResults.add(fastScores);
+                    Set<String> common = new HashSet<>(exactScores.keySet());
+                    common.retainAll(fastScores.keySet());
+                    overlap += exactScores.isEmpty() ? 1 : (double) common.size() / exactScores.size();
+                }
+            }
+            System.out.printf("k=%d: top-k overlap %.4f, precision exact %.4f %s %.4f, recall exact %.4f %s %.4f, " +
+                            "latency exact %.3f ms %s %.3f ms, %d queries fell back%n", k, overlap / queries.size(),
+                    QueryProcessor.getAveragePrecision(exactResults, Constants.relevanceFileName, k), label,
+                    QueryProcessor.getAveragePrecision(fastResults, Constants.relevanceFileName, k),
+                    QueryProcessor.getAverageRecall(exactResults, Constants.relevanceFileName, k), label,
+                    QueryProcessor.getAverageRecall(fastResults, Constants.relevanceFileName, k),
+                    millis(exactTime) / queries.size(), label, millis(fastTime) / queries.size(), fallbacks);
+        }
+    }
+
+    private static void impact() throws IOException {
+        QueryProcessor queryProcessor = new QueryProcessor(load("cranfieldDocs"));
+        compare(queryProcessor, "impact", queryProcessor::getImpactRankedMapOfDocuments);
+    }
+
+    private static void champions() throws IOException {
+        if (Constants.championListSize <= 0) {
+            System.out.println("champion lists are turned off, set the size with e.g. -Dconf.ChampionListSize=50");
+            return;
+        }
+        InvertedIndexer indexer = load("cranfieldDocs");
+        indexer.getChampionLists();
+        QueryProcessor queryProcessor = new QueryProcessor(indexer);
+        System.out.printf("champion lists of %d documents%n", Constants.championListSize);
+        compare(queryProcessor, "champions", (tokens, k) -> queryProcessor.getChampionRankedMapOfDocuments(tokens, k, null));
+    }
+
+    private static void duplicates() throws IOException {
+        Tokenizer tokenizer = new Tokenizer();
+        List<List<String>> documents = new ArrayList<>();
+        for (int documentNumber = 1; documentNumber <= CRANFIELD_SIZE; documentNumber++)
+            documents.add(tokenizer.preprocessTokens(readWords(documentNumber)));
+        long[] fingerprints = documents.stream().mapToLong(NearDuplicateDetector::fingerprint).toArray();
+
+        for (int maxDistance : new int[] {3, 6}) {
+            NearDuplicateDetector detector = new NearDuplicateDetector(maxDistance);
+            long start = System.nanoTime();
+            int flagged = 0;
+            for (int i = 0; i < documents.size(); i++) if (detector.check(documents.get(i), Integer.toString(i)) != null) flagged++;
+            long time = System.nanoTime() - start;
+            int pairs = 0;
+            for (int i = 0; i < fingerprints.length; i++)
+                for (int j = i + 1; j < fingerprints.length; j++) if (Long.bitCount(fingerprints[i] ^ fingerprints[j]) <= maxDistance) pairs++;
+
+            /* every seventh document with a few tokens appended, and with 5% of its tokens replaced */
+            Random random = new Random(1);
+            int changed = 0, appendedFound = 0, replacedFound = 0;
+            for (int i = 0; i < documents.size(); i += 7) {
+                List<String> tokens = documents.get(i);
+                if (tokens.size() < 40) continue;
+                changed++;
+                List<String> appended = new ArrayList<>(tokens);
+                appended.addAll(Arrays.asList("januari", "2024", "print"));
+                if (detector.findDuplicate(NearDuplicateDetector.fingerprint(appended)) != null) appendedFound++;
+                List<String> replaced = new ArrayList<>(tokens);
+                for (int j = 0; j < replaced.size() / 20; j++) replaced.set(random.nextInt(replaced.size()), "x" + random.nextInt(1000));
+                if (detector.findDuplicate(NearDuplicateDetector.fingerprint(replaced)) != null) replacedFound++;
+            }
+            System.out.printf("distance %d: %d of %d distinct documents flagged (%d pairs within the distance), %.1f us per page; " +
+                            "3 tokens appended found %d/%d, 5%% of the tokens replaced found %d/%d%n", maxDistance, flagged,
+                    documents.size(), pairs, time / 1e3 / documents.size(), appendedFound, changed, replacedFound, changed);
+        }
+    }
+
+    private static void pageRank(int nodes) {
+        /* a small graph checked against a plain power iteration over sets of links */
+        Random random = new Random(1);
+        int size = 2000;
+        List<Set<Integer>> links = new ArrayList<>();
+        LinkGraph.Builder builder = new LinkGraph.Builder();
+        for (int source = 0; source < size; source++) {
+            Set<Integer> targets = new TreeSet<>();
+            List<String> urls = new ArrayList<>();
+            for (int i = random.nextInt(8); i > 0; i--) {
+                int target = (int) Math.abs(random.nextGaussian() * 300) % size;
+                if (target != source) targets.add(target);
+                urls.add("u" + target);
+            }
+            urls.add("http://outside/" + source);
+            links.add(targets);
+            builder.addLinks("u" + source, urls);
+        }
+        LinkGraph graph = builder.build(url -> url.startsWith("u") ? Integer.parseInt(url.substring(1)) : -1, size);
+        double[] ranks = PageRank.compute(graph, 0.85, 1e-14, 200), expected = new double[size];
+        Arrays.fill(expected, 1.0 / size);
+        for (int iteration = 0; iteration < 200; iteration++) {
+            double dangling = 0;
+            for (int i = 0; i < size; i++) if (links.get(i).isEmpty()) dangling += expected[i];
+            double[] next = new double[size];
+            Arrays.fill(next, (1 - 0.85 + 0.85 * dangling) / size);
+            for (int i = 0; i < size; i++) for (int j : links.get(i)) next[j] += 0.85 * expected[i] / links.get(i).size();
+            expected = next;
+        }
+        double difference = 0, sum = 0;
+        for (int i = 0; i < size; i++) {
+            difference = Math.max(difference, Math.abs(ranks[i] - expected[i]));
+            sum += ranks[i];
+        }
+        System.out.printf("%d documents, %d links: ranks sum to %.12f, largest difference from a power iteration %.2e%n",
+                size, graph.getLinkCount(), sum, difference);
+
+        LinkGraph.Builder large = new LinkGraph.Builder();
+        long start = System.nanoTime();
+        for (int source = 0; source < nodes; source++) {
+            List<String> urls = new ArrayList<>(10);
+            for (int i = 0; i < 10; i++) urls.add(Integer.toString(random.nextInt(nodes)));
+            large.addLinks(Integer.toString(source), urls);
+        }
+        long recorded = System.nanoTime();
+        LinkGraph largeGraph = large.build(Integer::parseInt, nodes);
+        long built = System.nanoTime();
+        PageRank.compute(largeGraph, 0.85);
+        System.out.printf("%d documents, %d links in %d bytes: recording %.0f ms, building %.0f ms, PageRank %.0f ms%n",
+                nodes, largeGraph.getLinkCount(), largeGraph.getSizeInBytes(), millis(recorded - start),
+                millis(built - recorded), millis(System.nanoTime() - built));
+    }
+
+    /**
+     * Indexes both collections in every document order and compares the size of the postings file and the time
+     * queries take on it: decoding the postings lists of the query terms from the memory-mapped file, and
+     * intersecting them as a conjunctive query does. Shorter gaps make both the file and the decoding smaller.
+     */
+    private static void order() throws IOException {
+        List<String> queries = readQueries();
+        Path directory = Files.createTempDirectory("order");
+        try {
+            for (String order : new String[] {"none", "url", "bisection"}) {
+                InvertedIndexer indexer = load("cranfieldDocs", "citeseer");
+                long start = System.nanoTime();
+                indexer.reorderDocuments(order);
+                long orderTime = System.nanoTime() - start;
+                Path dictionaryPath = directory.resolve(order + ".dict"), postingsPath = directory.resolve(order + ".bin");
+                indexer.writePostingsFiles(dictionaryPath.toString(), postingsPath.toString());
+                indexer.setMappedPostings(MappedPostings.open(dictionaryPath, postingsPath));
+                QueryProcessor queryProcessor = new QueryProcessor(indexer);
+                List<List<String>> queryTerms = new ArrayList<>();
+                for (String query : queries) queryTerms.add(queryProcessor.getTokens(query));
+
+                /* the fastest of many rounds is reported, so that the first order is not measured before the code is compiled */
+                long decodeTime = Long.MAX_VALUE, intersectTime = Long.MAX_VALUE, postings = 0, matches = 0;
+                for (int round = 0; round < 1000; round++) {
+                    long decode = 0, intersect = 0;
+                    postings = matches = 0;
+                    for (List<String> terms : queryTerms) {
+                        start = System.nanoTime();
+                        List<int[]> lists = new ArrayList<>();
+                        for (String term : terms) lists.add(indexer.getPostings(term));
+                        decode += System.nanoTime() - start;
+                        start = System.nanoTime();
+                        int[] result = lists.isEmpty() ? new int[0] : lists.get(0);
+                        for (int i = 1; i < lists.size(); i++) result = PostingsIntersection.intersect(result, lists.get(i));
+                        intersect += System.nanoTime() - start;
+                        for (int[] list : lists) postings += list.length;
+                        matches += result.length;
+                    }
+                    decodeTime = Math.min(decodeTime, decode);
+                    intersectTime = Math.min(intersectTime, intersect);
+                }
+                System.out.printf("%-9s postings file %d bytes, ordered in %.0f ms; %d queries decode %d postings in %.2f ms " +
+                                "(%.1f us per query) and intersect them to %d documents in %.2f ms%n",
+                        order, Files.size(postingsPath), millis(orderTime), queries.size(), postings, millis(decodeTime),
+                        decodeTime / 1e3 / queries.size(), matches, millis(intersectTime));
+            }
+        }
+        finally {
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : files.collect(Collectors.toList())) Files.delete(file);
+            }
+            Files.delete(directory);
+        }
+    }
+
+    /**
+     * Serves a stand-in site until the process is stopped. Page n is served only by the loopback host
+     * 127.0.0.(n % hosts + 1), after 20 ms as if it were remote, and holds 60 words drawn from 512 and links
+     * to pages 4n + 1 to 4n + 4 and to one more page. No host has a robots.txt.
+     * @param port Port of every host
+     * @param pages Number of pages
+     * @param hosts Number of hosts, at most 254
+     */
+    private static void site(int port, int pages, int hosts) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(Executors.newFixedThreadPool(16));
+        server.createContext("/", exchange -> {
+            /* the crawler requests every url with a trailing slash */
+            String path = exchange.getRequestURI().getPath().replaceAll("/$", "");
+            int page = path.matches("/p\\d{1,9}") ? Integer.parseInt(path.substring(2)) : -1;
+            String host = exchange.getLocalAddress().getAddress().getHostAddress();
+            if (page < 0 || page >= pages || !host.equals(String.format("127.0.0.%d", page % hosts + 1))) {
+                exchange.sendResponseHeaders(404, -1);
+                exchange.close();
+                return;
+            }
+            try {
+                Thread.sleep(20);
+            }
+            catch(InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            Random random = new Random(page);
+            StringBuilder html = new StringBuilder(String.format("<html><head><title>page %d</title></head><body><p>", page));
+            for (int i = 0; i < 60; i++) html.append(getSiteWord(random.nextInt(512))).append(' ');
+            html.append("</p>");
+            for (int i = 1; i <= 5; i++) {
+                int target = i <= 4 ? (int) (((long) page * 4 + i) % pages) : random.nextInt(pages);
+                html.append(String.format("<a href=\"http://127.0.0.%d:%d/p%d\">page %d</a>", target % hosts + 1, port, target, target));
+            }
+            byte[] body = html.append("</body></html>").toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        System.out.printf("serving %d pages on %d hosts, from http://127.0.0.1:%d/p0%n", pages, hosts, port);
+    }
+
+    /**
+     * Gets a made-up word of three syllables, since the tokenizer drops digits
+     * @param number Number of the word, below 512
+     */
+    private static String getSiteWord(int number) {
+        String[] syllables = {"ka", "lo", "mi", "nu", "re", "sa", "to", "vi"};
+        return syllables[number % 8] + syllables[number / 8 % 8] + syllables[number / 64 % 8];
+    }
+
+    private static void crawl(String seedUrl, int limit) {
+        long start = System.nanoTime();
+        Crawler crawler = new Crawler(limit);
+        crawler.init(seedUrl);
+        System.out.printf("%s: indexed %d pages in %.0f ms%n",
+                Crawler.isDistributed() ? String.format("partition %d of %d", Constants.partitionId, Constants.crawlPeers.size()) : "single process",
+                crawler.getMetrics().snapshot().getPagesIndexed(), millis(System.nanoTime() - start));
+    }
+
+    /**
+     * Merges the partitions of a distributed crawl, and compares the postings with those of a single-process crawl
+     * @param indexFile Path of the index of a single-process crawl of the same site, or null
+     */
+    private static void merge(String indexFile) {
+        Crawler merged = new Crawler(0);
+        merged.mergePartitions();
+        Map<String, Map<String, IndexItem>> index = merged.getIndexer().getIndex();
+        System.out.printf("merged %d partitions: %d documents, %d terms%n",
+                Constants.crawlPeers.size(), merged.getIndexer().getLiveDocumentCount(), index.size());
+        if (indexFile == null) return;
+
+        Crawler single = new Crawler(0);
+        single.readIndex(indexFile);
+        Map<String, Map<String, IndexItem>> expected = single.getIndexer().getIndex();
+        Set<String> urls = new HashSet<>(), expectedUrls = new HashSet<>();
+        index.values().forEach(postings -> urls.addAll(postings.keySet()));
+        expected.values().forEach(postings -> expectedUrls.addAll(postings.keySet()));
+        Set<String> terms = new HashSet<>(index.keySet());
+        terms.addAll(expected.keySet());
+        int differing = 0;
+        for (String term : terms) {
+            Map<String, IndexItem> postings = index.getOrDefault(term, Collections.emptyMap());
+            Map<String, IndexItem> expectedPostings = expected.getOrDefault(term, Collections.emptyMap());
+            boolean same = postings.keySet().equals(expectedPostings.keySet());
+            for (String url : postings.keySet())
+                same = same && postings.get(url).getTermFrequency() == expectedPostings.get(url).getTermFrequency();
+            if (!same) differing++;
+        }
+        System.out.printf("single-process crawl: %d documents, %d terms; same urls: %b, terms with differing postings: %d%n",
+                expectedUrls.size(), expected.size(), urls.equals(expectedUrls), differing);
+    }
+}
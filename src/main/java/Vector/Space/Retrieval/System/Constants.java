@@ -3,6 +3,8 @@ package Vector.Space.Retrieval.System;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
 
+import java.util.List;
+
 /**
  * This class will hold all configuration variables needed in the other programs
  * @author Siddhanth Venkateshwaran
@@ -20,6 +22,12 @@ public class Constants {
     static String relevanceFileName = config.getString("conf.RelevanceFileName");
     public static String indexFile = config.getString("conf.IndexFile");
     public static String docLengthsFile = config.getString("conf.DocumentLengthsFile");
+    public static String vocabularyFile = config.getString("conf.VocabularyFile");
+    public static String termDictionaryFile = config.getString("conf.TermDictionaryFile");
+    public static String postingsFile = config.getString("conf.PostingsFile");
+    public static String validatorsFile = config.getString("conf.ValidatorsFile");
+    public static String staticScoresFile = config.getString("conf.StaticScoresFile");
+    public static String linksFile = config.getString("conf.LinksFile");
 
     static int collectionSize = config.getInt("conf.CollectionSize");
 
@@ -31,9 +39,62 @@ public class Constants {
 
     public static int crawlLimit = config.getInt("conf.CrawlLimit");
     public static String seedUrl = config.getString("conf.SeedUrl");
+    public static String crawlDomain = config.getString("conf.CrawlDomain");
+    public static long refreshInterval = config.getLong("conf.RefreshInterval");
+    public static int nearDuplicateDistance = config.getInt("conf.NearDuplicateDistance");
+    public static long politenessDelay = config.getLong("conf.PolitenessDelay");
+    public static int fetchThreads = config.getInt("conf.FetchThreads");
+    public static List<String> lowValuePatterns = config.getStringList("conf.LowValuePatterns");
+    public static double lowValuePenalty = config.getDouble("conf.LowValuePenalty");
+    public static int maxBodySize = config.getInt("conf.MaxBodySize");
+    public static String userAgent = config.getString("conf.UserAgent");
+    public static boolean respectRobots = config.getBoolean("conf.RespectRobots");
+    public static long robotsTtl = config.getLong("conf.RobotsTtl");
+    public static List<String> skippedExtensions = config.getStringList("conf.SkippedExtensions");
     public static String address = config.getString("conf.Host");
     public static int port = config.getInt("conf.Port");
     public static boolean indexing = config.getBoolean("conf.Indexing");
     public static boolean normalize = config.getBoolean("conf.Normalize");
     public static String weighting = config.getString("conf.Weighting");
+    public static boolean positions = config.getBoolean("conf.Positions");
+    public static int bigramThreshold = config.getInt("conf.BigramThreshold");
+    public static boolean fuzzy = config.getBoolean("conf.Fuzzy");
+    public static int fuzzyDistance = config.getInt("conf.FuzzyDistance");
+    public static int fuzzyExpansions = config.getInt("conf.FuzzyExpansions");
+    public static boolean impactOrdered = config.getBoolean("conf.ImpactOrdered");
+    public static double impactTolerance = config.getDouble("conf.ImpactTolerance");
+    public static int championListSize = config.getInt("conf.ChampionListSize");
+    public static String normEncoding = config.getString("conf.NormEncoding");
+    public static double normDrift = config.getDouble("conf.NormDrift");
+    public static int normDriftMinimum = config.getInt("conf.NormDriftMinimum");
+    public static double pageRankDamping = config.getDouble("conf.PageRankDamping");
+    public static double staticScoreWeight = config.getDouble("conf.StaticScoreWeight");
+    public static String documentOrder = config.getString("conf.DocumentOrder");
+
+    public static String mode = config.getString("conf.Mode");
+    public static int shardId = config.getInt("conf.ShardId");
+    public static int shardCount = config.getInt("conf.ShardCount");
+    public static List<String> shards = config.getStringList("conf.Shards");
+    public static long shardTimeout = config.getLong("conf.ShardTimeout");
+
+    public static int replicationPort = config.getInt("conf.ReplicationPort");
+    public static String primary = config.getString("conf.Primary");
+    public static long replicationInterval = config.getLong("conf.ReplicationInterval");
+    public static String replicaDirectory = config.getString("conf.ReplicaDirectory");
+
+    public static int partitionId = config.getInt("conf.PartitionId");
+    public static List<String> crawlPeers = config.getStringList("conf.CrawlPeers");
+    public static int forwardBatchSize = config.getInt("conf.ForwardBatchSize");
+    public static long forwardInterval = config.getLong("conf.ForwardInterval");
+    public static String partitionDirectory = config.getString("conf.PartitionDirectory");
+
+    public static int metricsPort = config.getInt("conf.MetricsPort");
+    public static int heavyHitters = config.getInt("conf.HeavyHitters");
+    public static int sketchWidth = config.getInt("conf.SketchWidth");
+    public static int sketchDepth = config.getInt("conf.SketchDepth");
+    public static double stopWordRatio = config.getDouble("conf.StopWordRatio");
+
+    public static int suggestionCapacity = config.getInt("conf.SuggestionCapacity");
+    public static String suggestionRanking = config.getString("conf.SuggestionRanking");
+    public static long suggestionRefresh = config.getLong("conf.SuggestionRefresh");
 }
@@ -1,11 +1,23 @@
 package Vector.Space.Retrieval.System;
 
+import Vector.Space.Retrieval.System.cluster.Broker;
+import Vector.Space.Retrieval.System.cluster.ShardRequest;
+import Vector.Space.Retrieval.System.cluster.ShardResponse;
+import Vector.Space.Retrieval.System.cluster.ShardService;
+import Vector.Space.Retrieval.System.metrics.MetricsEndpoint;
 import Vector.Space.Retrieval.System.preprocessor.WebDocument;
+import Vector.Space.Retrieval.System.preprocessor.crawler.CrawlMetrics;
 import Vector.Space.Retrieval.System.preprocessor.crawler.Crawler;
 import Vector.Space.Retrieval.System.query.QueryProcessor;
+import Vector.Space.Retrieval.System.replication.ReplicaSync;
+import Vector.Space.Retrieval.System.replication.ReplicationSource;
+import Vector.Space.Retrieval.System.suggest.SuggestRequest;
+import Vector.Space.Retrieval.System.suggest.SuggestResponse;
+import Vector.Space.Retrieval.System.suggest.SuggestionService;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.java_websocket.WebSocket;
 import org.java_websocket.handshake.ClientHandshake;
@@ -13,22 +25,46 @@ import org.java_websocket.server.WebSocketServer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * This class exposes websocket endpoints to receive query message from
- * the client and responds with the ranked list of relevant documents
+ * the client and responds with the ranked list of relevant documents. <br>
+ * In <i>shard</i> mode it also answers the requests of a broker for its slice of the collection,
+ * and in <i>broker</i> mode it forwards every query to the shard servers and merges their results.
+ * In <i>replica</i> mode it never crawls, but serves queries from the index generations it copies from a primary server. <br>
+ * A server which crawls can also refresh its index periodically, indexing again only the pages which changed. <br>
+ * Besides queries, a client may send a <i>suggest</i> message with the text typed so far to get completions of its last word.
  * @author Siddhanth Venkateshwaran
  */
 public class Server extends WebSocketServer {
     private static final Logger logger = LoggerFactory.getLogger(Server.class);
+    /* thread-safe once configured, so one mapper serves every connection */
+    private static final ObjectMapper mapper = new ObjectMapper();
     private final Crawler crawler;
-    private final QueryProcessor queryProcessor;
+    private volatile QueryProcessor queryProcessor;
+    private volatile ShardService shardService;
+    private volatile SuggestionService suggestionService;
+    private volatile CrawlMetrics crawlMetrics;
+    private final Broker broker;
+    private final ReplicationSource replicationSource;
+    private final ReplicaSync replicaSync;
+    private final MetricsEndpoint metricsEndpoint;
 
     /**
      * This class represents an incoming query message from the client
@@ -69,9 +105,11 @@ public class Server extends WebSocketServer {
      */
     static class WebDocuments {
         private final List<WebDocument> documents;
+        private boolean partial;
 
         public WebDocuments() {
             this.documents = new ArrayList<>();
+            this.partial = false;
         }
 
         /**
@@ -96,12 +134,62 @@ public class Server extends WebSocketServer {
         public void deleteDocuments() {
             this.documents.clear();
         }
+
+        /**
+         * Indicates whether some shard did not contribute to these search results
+         * @return <b>true</b> if the results are partial and <b>false</b> otherwise
+         */
+        public boolean isPartial() {
+            return this.partial;
+        }
+
+        /**
+         * Marks these search results as partial
+         * @param partial <b>true</b> if some shard did not contribute to the results
+         */
+        public void setPartial(boolean partial) {
+            this.partial = partial;
+        }
     }
 
     public Server() throws UnknownHostException {
         super(new InetSocketAddress(InetAddress.getByName(Constants.address), Constants.port));
         this.crawler = new Crawler(Constants.crawlLimit);
         this.queryProcessor = new QueryProcessor(this.crawler.getIndexer());
+        this.shardService = new ShardService(this.crawler.getIndexer(), this.queryProcessor);
+        this.broker = isBroker() ? new Broker(Constants.shards, Constants.shardTimeout) : null;
+        this.replicaSync = isReplica() ?
+                new ReplicaSync(Constants.primary, Paths.get(Constants.replicaDirectory),
+                        Constants.replicationInterval, this::loadGeneration) : null;
+        this.replicationSource = !(isBroker() || isReplica()) && Constants.replicationPort > 0 ?
+                new ReplicationSource(Constants.replicationPort) : null;
+        this.crawlMetrics = this.crawler.getMetrics();
+        this.metricsEndpoint = !(isBroker() || isReplica()) && Constants.metricsPort > 0 ?
+                new MetricsEndpoint(Constants.metricsPort, () -> this.crawlMetrics.snapshot()) : null;
+    }
+
+    /**
+     * Checks whether this server copies its index from a primary server instead of crawling
+     * @return <b>true</b> if this server runs in replica mode
+     */
+    public static boolean isReplica() {
+        return Constants.mode.equalsIgnoreCase("replica");
+    }
+
+    /**
+     * Checks whether this server merges the partial indexes of a distributed crawl instead of crawling
+     * @return <b>true</b> if this server runs in merge mode
+     */
+    public static boolean isMerger() {
+        return Constants.mode.equalsIgnoreCase("merge");
+    }
+
+    /**
+     * Checks whether this server forwards queries to shard servers instead of holding an index
+     * @return <b>true</b> if this server runs in broker mode
+     */
+    public static boolean isBroker() {
+        return Constants.mode.equalsIgnoreCase("broker");
     }
 
     /**
@@ -112,18 +200,168 @@ public class Server extends WebSocketServer {
     public void onStart() {
         logger.info(String.format("server started at %s on port %d", this.getAddress(), this.getPort()));
 
-        if (Constants.indexing) {
-            logger.info("Activating crawler and starting index");
-            this.crawler.init(Constants.seedUrl);
+        if (isBroker()) {
+            logger.info(String.format("Connecting to %d shards", Constants.shards.size()));
+            this.broker.connect();
+            logger.info("ready");
+        }
+        else if (isReplica()) {
+            logger.info(String.format("Replicating index generations from primary %s", Constants.primary));
+            try {
+                this.replicaSync.start();
+            }
+            catch(IOException ex) {
+                ex.printStackTrace();
+            }
         }
         else {
-            logger.info("Reading index and document lengths vector from disk. Please wait...");
-            this.crawler.readIndex();
-            this.crawler.readDocLengths();
-            logger.info("ready");
+            startReplicationSource();
+            startMetricsEndpoint();
+            if (isMerger()) {
+                logger.info(String.format("Merging the partial indexes of %d crawl partitions. Please wait...", Constants.crawlPeers.size()));
+                this.crawler.mergePartitions();
+                this.crawler.getMetrics().finish();
+                logger.info("ready");
+            }
+            else if (Constants.indexing) {
+                logger.info("Activating crawler and starting index");
+                this.crawler.init(Constants.seedUrl);
+            }
+            else {
+                logger.info("Reading index and document lengths vector from disk. Please wait...");
+                this.crawler.readIndex();
+                this.crawler.readDocLengths();
+                this.crawler.readStaticScores();
+                this.crawler.readVocabulary();
+                this.crawler.readPostings();
+                this.crawler.getMetrics().finish();
+                logger.info("ready");
+            }
+            startSuggestions(this.crawler);
+            publishGeneration();
+            startRefresh();
+        }
+    }
+
+    /**
+     * Starts refreshing the index periodically if a refresh interval is configured
+     */
+    private void startRefresh() {
+        if (Constants.refreshInterval <= 0) return;
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "index-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::refreshIndex,
+                Constants.refreshInterval, Constants.refreshInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs one refresh cycle on a copy of the index read from disk, so that queries are never
+     * answered from a half-refreshed index, and then switches all queries over to the refreshed index
+     */
+    private void refreshIndex() {
+        try {
+            Crawler refresher = new Crawler(Constants.crawlLimit);
+            refresher.readIndex();
+            refresher.readDocLengths();
+            refresher.readStaticScores();
+            refresher.readVocabulary();
+            refresher.readValidators();
+            this.crawlMetrics = refresher.getMetrics();
+            refresher.refresh();
+            refresher.readPostings();
+            serve(refresher);
+            publishGeneration();
+        }
+        catch(Exception ex) {
+            /* a failed cycle must not cancel the next ones */
+            ex.printStackTrace();
         }
     }
 
+    /**
+     * Starts serving index generations to replicas if this server is a primary
+     */
+    private void startReplicationSource() {
+        if (this.replicationSource == null) return;
+        try {
+            this.replicationSource.start();
+        }
+        catch(IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * Starts serving the metrics of the crawl if a metrics port is configured
+     */
+    private void startMetricsEndpoint() {
+        if (this.metricsEndpoint == null) return;
+        try {
+            this.metricsEndpoint.start();
+        }
+        catch(IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * Starts serving suggestions from the vocabulary and index of the given crawler,
+     * replacing the suggestions of a previous index
+     * @param source Crawler holding the vocabulary and the index
+     */
+    private void startSuggestions(Crawler source) {
+        SuggestionService previous = this.suggestionService;
+        SuggestionService suggestions = new SuggestionService(source.getIndexer(), source.getVocabulary());
+        suggestions.start();
+        this.suggestionService = suggestions;
+        if (previous != null) previous.stop();
+    }
+
+    /**
+     * Publishes the index files on disk as a new generation for the replicas
+     */
+    private void publishGeneration() {
+        if (this.replicationSource == null) return;
+        this.replicationSource.publish(
+                Stream.of(Constants.indexFile, Constants.docLengthsFile, Constants.staticScoresFile, Constants.vocabularyFile,
+                        Constants.termDictionaryFile, Constants.postingsFile)
+                        .map(Paths::get)
+                        .filter(Files::exists)
+                        .collect(Collectors.toList()));
+    }
+
+    /**
+     * Loads an index generation copied from the primary and switches all queries over to it
+     * @param directory Directory of the complete generation
+     */
+    private void loadGeneration(Path directory) {
+        Crawler loader = new Crawler(0);
+        loader.readIndex(directory.resolve(Paths.get(Constants.indexFile).getFileName()).toString());
+        loader.readDocLengths(directory.resolve(Paths.get(Constants.docLengthsFile).getFileName()).toString());
+        loader.readStaticScores(directory.resolve(Paths.get(Constants.staticScoresFile).getFileName()).toString());
+        Path vocabulary = directory.resolve(Paths.get(Constants.vocabularyFile).getFileName());
+        if (Files.exists(vocabulary))
+            loader.readVocabulary(vocabulary.toString());
+        loader.readPostings(directory.resolve(Paths.get(Constants.termDictionaryFile).getFileName()).toString(),
+                directory.resolve(Paths.get(Constants.postingsFile).getFileName()).toString());
+        serve(loader);
+        logger.info(String.format("serving queries from %s", directory));
+    }
+
+    /**
+     * Switches queries and suggestions over to the index of the given crawler
+     * @param source Crawler holding the index to serve
+     */
+    private void serve(Crawler source) {
+        startSuggestions(source);
+        QueryProcessor sourceQueryProcessor = new QueryProcessor(source.getIndexer());
+        this.shardService = new ShardService(source.getIndexer(), sourceQueryProcessor);
+        this.queryProcessor = sourceQueryProcessor;
+    }
+
     public void initializeCrawl() {
         this.crawler.init(Constants.seedUrl);
     }
@@ -145,19 +383,55 @@ public class Server extends WebSocketServer {
      */
     @Override
     public void onMessage(WebSocket conn, String message) {
-        logger.info("query request from client");
-        ObjectMapper mapper = new ObjectMapper();
-
         try {
-            Query query = mapper.readValue(message, Query.class);
+            QueryProcessor queryProcessor = this.queryProcessor;
+            JsonNode messageTree = mapper.readTree(message);
+            if (SuggestRequest.SUGGEST.equals(messageTree.path("type").asText())) {
+                SuggestRequest request = mapper.treeToValue(messageTree, SuggestRequest.class);
+                SuggestionService suggestions = this.suggestionService;
+                conn.send(mapper.writeValueAsString(new SuggestResponse(request.getPrefix(), suggestions == null ?
+                        Collections.emptyList() : suggestions.suggest(request.getPrefix(), request.getN()))));
+                return;
+            }
+            if (CrawlMetrics.METRICS.equals(messageTree.path("type").asText())) {
+                conn.send(mapper.writeValueAsString(this.crawlMetrics.snapshot()));
+                return;
+            }
+            if (ShardRequest.isShardRequest(messageTree.path("type").asText())) {
+                /* request from a broker to this shard */
+                ShardRequest request = mapper.treeToValue(messageTree, ShardRequest.class);
+                conn.send(mapper.writeValueAsString(this.shardService.handle(request)));
+                return;
+            }
+            if (messageTree.has("type")) {
+                String type = messageTree.path("type").asText();
+                logger.info(String.format("unknown message type %s from client", type));
+                conn.send(mapper.writeValueAsString(ShardResponse.error(type, messageTree.path("id").asLong(),
+                        String.format("unknown message type %s", type))));
+                return;
+            }
+
+            /* suggestions come on every keystroke, so only searches are logged */
+            logger.info("query request from client");
+            Query query = mapper.treeToValue(messageTree, Query.class);
             String queryString = query.getQuery();
             int k = query.getK() > 0 ? query.getK() : Constants.k;
 
             WebDocuments response = new WebDocuments();
+            SuggestionService suggestions = this.suggestionService;
+            if (suggestions != null) suggestions.recordQuery(queryString);
 
-            Map<WebDocument, Double> searchResults =
-                    this.queryProcessor.getRankedMapOfDocuments(this.queryProcessor.getTokens(queryString), k);
-            searchResults.keySet().forEach(response::addDocument);
+            if (isBroker()) {
+                Broker.BrokerResult searchResults =
+                        this.broker.search(queryString, queryProcessor.parseQuery(queryString).getTokens(), k);
+                searchResults.getDocuments().forEach(document -> response.addDocument(document.toWebDocument()));
+                response.setPartial(searchResults.isPartial());
+            }
+            else {
+                Map<WebDocument, Double> searchResults =
+                        queryProcessor.search(queryString, k);
+                searchResults.keySet().forEach(response::addDocument);
+            }
 
             conn.send(mapper.writeValueAsString(response));
         }
@@ -0,0 +1,225 @@
+package Vector.Space.Retrieval.System.cluster;
+
+import Vector.Space.Retrieval.System.indexer.TermStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+/**
+ * This class forwards every query to all shard servers and merges their answers. <br>
+ * A query is answered in two rounds: the broker first collects the collection size and
+ * document frequencies of the query terms from every shard, and then sends the merged
+ * statistics with the query so that every shard ranks its documents with the same IDF.
+ * The top k documents of each shard are merged into the global top k. Shards which are
+ * down or do not reply within the timeout are left out and the results are marked partial. <br>
+ * A cosine similarity is divided by the length of the document, which depends on the IDF of all its terms.
+ * So that the similarities of all shards are on one scale, the broker merges the statistics of all terms
+ * and has every shard compute its document lengths with them, whenever some shard reports that its
+ * index changed or its lengths are its own.
+ */
+public class Broker {
+    private static final Logger logger = LoggerFactory.getLogger(Broker.class);
+    private final List<ShardClient> shards;
+    private final long timeout;
+    private final AtomicLong requestIds;
+    private final ScheduledExecutorService reconnector;
+
+    /**
+     * This class holds the merged top k documents of all shards which answered a query
+     */
+    public static class BrokerResult {
+        private final List<ScoredDocument> documents;
+        private final int shardsQueried, shardsAnswered;
+
+        public BrokerResult(final List<ScoredDocument> documents, final int shardsQueried, final int shardsAnswered) {
+            this.documents = documents;
+            this.shardsQueried = shardsQueried;
+            this.shardsAnswered = shardsAnswered;
+        }
+
+        /**
+         * Get the merged documents in non-increasing order of similarity
+         */
+        public List<ScoredDocument> getDocuments() {
+            return this.documents;
+        }
+
+        /**
+         * Indicates whether some shard did not contribute to these results
+         */
+        public boolean isPartial() {
+            return this.shardsAnswered < this.shardsQueried;
+        }
+    }
+
+    /**
+     * @param shardAddresses host:port of every shard server
+     * @param timeout Milliseconds to wait for the shards in each round of a query
+     */
+    public Broker(final List<String> shardAddresses, final long timeout) {
+        this.timeout = timeout;
+        this.requestIds = new AtomicLong();
+        this.shards = new ArrayList<>();
+        shardAddresses.forEach(address -> this.shards.add(new ShardClient(URI.create(String.format("ws://%s", address)))));
+        this.reconnector = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "shard-reconnector");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Opens the connection to every shard and periodically re-opens connections to shards which went down
+     */
+    public void connect() {
+        for (ShardClient shard : this.shards) {
+            try {
+                if (!shard.connectBlocking(this.timeout, TimeUnit.MILLISECONDS))
+                    logger.info(String.format("could not connect to shard %s", shard.getURI()));
+            }
+            catch(InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        this.reconnector.scheduleWithFixedDelay(this::reconnect, 5, 5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Re-opens the connection to every shard which is currently not connected
+     */
+    private void reconnect() {
+        for (ShardClient shard : this.shards) {
+            if (shard.isOpen()) continue;
+            try {
+                if (shard.reconnectBlocking()) logger.info(String.format("reconnected to shard %s", shard.getURI()));
+            }
+            catch(InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Computes the global top k documents for the query using all shards which are reachable
+     * @param query Query sent by the client
+     * @param queryTokens List of all tokens for the given query
+     * @param k Number of documents to retrieve
+     * @return Merged top k documents along with whether some shard was left out
+     */
+    public BrokerResult search(String query, List<String> queryTokens, int k) {
+        List<String> terms = new ArrayList<>(new HashSet<>(queryTokens));
+
+        /* round 1 - collect and merge the term statistics of every shard */
+        Map<ShardClient, ShardResponse> statistics =
+                this.broadcast(this.shards, id -> new ShardRequest(ShardRequest.STATS, id, query, terms, k, 0, null));
+        TermStatistics termStatistics = new TermStatistics();
+        statistics.values().forEach(response ->
+                termStatistics.merge(response.getCollectionSize(), response.getDocumentFrequencies()));
+        if (statistics.values().stream().anyMatch(response -> !response.isGlobalLengths()))
+            this.synchronizeLengths(new ArrayList<>(statistics.keySet()), query, k);
+
+        /* round 2 - rank the documents of every shard which answered round 1 */
+        Map<ShardClient, ShardResponse> rankings = this.broadcast(new ArrayList<>(statistics.keySet()),
+                id -> new ShardRequest(ShardRequest.SEARCH, id, query, queryTokens, k,
+                        termStatistics.getCollectionSize(), termStatistics.getDocumentFrequencies()));
+
+        List<ScoredDocument> documents = getTopK(rankings.values(), k);
+        if (rankings.size() < this.shards.size())
+            logger.info(String.format("only %d of %d shards answered the query", rankings.size(), this.shards.size()));
+        return new BrokerResult(documents, this.shards.size(), rankings.size());
+    }
+
+    /**
+     * Merges the statistics of all terms of the given shards and has every shard compute its document lengths
+     * with them. Queries arriving meanwhile wait, so that the lengths are computed once.
+     * @param shards Shards taking part in the query
+     * @param query Query sent by the client, which only goes along with the requests
+     * @param k Number of documents to retrieve
+     */
+    private synchronized void synchronizeLengths(List<ShardClient> shards, String query, int k) {
+        long start = System.nanoTime();
+        Map<ShardClient, ShardResponse> statistics =
+                this.broadcast(shards, id -> new ShardRequest(ShardRequest.STATS, id, query, null, k, 0, null));
+        /* another query may have synchronized the lengths while this one waited */
+        if (statistics.values().stream().allMatch(ShardResponse::isGlobalLengths)) return;
+        TermStatistics termStatistics = new TermStatistics();
+        statistics.values().forEach(response ->
+                termStatistics.merge(response.getCollectionSize(), response.getDocumentFrequencies()));
+        Map<ShardClient, ShardResponse> replies = this.broadcast(new ArrayList<>(statistics.keySet()),
+                id -> new ShardRequest(ShardRequest.NORMS, id, query, null, k,
+                        termStatistics.getCollectionSize(), termStatistics.getDocumentFrequencies()));
+        logger.info(String.format("%d of %d shards computed their document lengths with the statistics of %d documents " +
+                        "and %d terms in %.1f ms", replies.size(), shards.size(), termStatistics.getCollectionSize(),
+                termStatistics.getDocumentFrequencies().size(), (System.nanoTime() - start) / 1e6));
+    }
+
+    /**
+     * Sends a request to every given shard and waits for their replies until the timeout expires
+     * @param shards Shards to send the request to
+     * @param requestFactory Creates the request to send for a request id
+     * @return Map of shard -> reply for every shard which replied in time
+     */
+    private Map<ShardClient, ShardResponse> broadcast(List<ShardClient> shards,
+                                                       LongFunction<ShardRequest> requestFactory) {
+        Map<ShardClient, Long> requestIds = new LinkedHashMap<>();
+        Map<ShardClient, CompletableFuture<ShardResponse>> futures = new LinkedHashMap<>();
+        for (ShardClient shard : shards) {
+            long id = this.requestIds.incrementAndGet();
+            requestIds.put(shard, id);
+            futures.put(shard, shard.request(requestFactory.apply(id)));
+        }
+
+        Map<ShardClient, ShardResponse> responses = new LinkedHashMap<>();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.timeout);
+        futures.forEach((shard, future) -> {
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                responses.put(shard, future.get(remaining, TimeUnit.NANOSECONDS));
+            }
+            catch(TimeoutException ex) {
+                logger.info(String.format("shard %s timed out", shard.getURI()));
+                shard.cancel(requestIds.get(shard));
+            }
+            catch(ExecutionException ex) {
+                logger.info(String.format("shard %s failed - %s", shard.getURI(), ex.getCause().getMessage()));
+            }
+            catch(InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        return responses;
+    }
+
+    /**
+     * Merges the ranked results of all shards into the global top k
+     * @param rankings Replies of all shards to the search request
+     * @param k Number of documents to retrieve
+     * @return Top k documents in non-increasing order of similarity
+     */
+    private static List<ScoredDocument> getTopK(Collection<ShardResponse> rankings, int k) {
+        PriorityQueue<ScoredDocument> topK = new PriorityQueue<>(Comparator.comparingDouble(ScoredDocument::getScore));
+        rankings.forEach(response -> response.getResults().forEach(document -> {
+            topK.add(document);
+            if (topK.size() > k) topK.poll();
+        }));
+
+        List<ScoredDocument> documents = new ArrayList<>(topK);
+        documents.sort((d1, d2) -> -1 * Double.compare(d1.getScore(), d2.getScore()));
+        return documents;
+    }
+
+    /**
+     * Closes the connections to all shards
+     */
+    public void close() {
+        this.reconnector.shutdownNow();
+        this.shards.forEach(ShardClient::close);
+    }
+}
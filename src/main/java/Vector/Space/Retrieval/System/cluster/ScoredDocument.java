@@ -0,0 +1,54 @@
+package Vector.Space.Retrieval.System.cluster;
+
+import Vector.Space.Retrieval.System.preprocessor.WebDocument;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * This class is a search result returned by a shard along with its similarity value,
+ * so that the broker can merge the results of all shards
+ */
+public class ScoredDocument {
+    private final String url, title, description;
+    private final double score;
+
+    @JsonCreator
+    public ScoredDocument(@JsonProperty("url") String url, @JsonProperty("title") String title,
+                          @JsonProperty("description") String description, @JsonProperty("score") double score) {
+        this.url = url;
+        this.title = title;
+        this.description = description;
+        this.score = score;
+    }
+
+    public ScoredDocument(WebDocument document, double score) {
+        this(document.getUrl(), document.getTitle(), document.getDescription(), score);
+    }
+
+    public String getUrl() {
+        return this.url;
+    }
+
+    public String getTitle() {
+        return this.title;
+    }
+
+    public String getDescription() {
+        return this.description;
+    }
+
+    /**
+     * Get the similarity of this document with the query
+     */
+    public double getScore() {
+        return this.score;
+    }
+
+    /**
+     * Converts this result back to the web document sent to the client
+     * @return Web document having this result's url, title and description
+     */
+    public WebDocument toWebDocument() {
+        return new WebDocument(this.url, this.title, this.description);
+    }
+}
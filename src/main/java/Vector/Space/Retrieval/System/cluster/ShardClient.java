@@ -0,0 +1,92 @@
+package Vector.Space.Retrieval.System.cluster;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.handshake.ServerHandshake;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class is the broker's websocket connection to one shard server.
+ * Every request gets a future which is completed when the shard's reply with the
+ * same id arrives, or failed if the connection to the shard is lost.
+ */
+public class ShardClient extends WebSocketClient {
+    private static final Logger logger = LoggerFactory.getLogger(ShardClient.class);
+    private final ObjectMapper mapper;
+    private final Map<Long, CompletableFuture<ShardResponse>> pendingRequests;
+
+    public ShardClient(final URI shardUri) {
+        super(shardUri);
+        this.mapper = new ObjectMapper();
+        this.pendingRequests = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Sends a request to the shard
+     * @param request Stats or search request
+     * @return Future completed with the shard's reply
+     */
+    public CompletableFuture<ShardResponse> request(ShardRequest request) {
+        CompletableFuture<ShardResponse> future = new CompletableFuture<>();
+        if (!this.isOpen()) {
+            future.completeExceptionally(new IllegalStateException(String.format("shard %s is not connected", this.getURI())));
+            return future;
+        }
+        this.pendingRequests.put(request.getId(), future);
+        try {
+            this.send(this.mapper.writeValueAsString(request));
+        }
+        catch(Exception ex) {
+            this.pendingRequests.remove(request.getId());
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    /**
+     * Drops a request whose reply is no longer awaited
+     * @param id Id of the request
+     */
+    public void cancel(long id) {
+        this.pendingRequests.remove(id);
+    }
+
+    @Override
+    public void onOpen(ServerHandshake handshake) {
+        logger.info(String.format("connected to shard %s", this.getURI()));
+    }
+
+    @Override
+    public void onMessage(String message) {
+        try {
+            ShardResponse response = this.mapper.readValue(message, ShardResponse.class);
+            CompletableFuture<ShardResponse> future = this.pendingRequests.remove(response.getId());
+            if (future == null) return;
+            if (response.getError() != null) future.completeExceptionally(new IllegalStateException(response.getError()));
+            else future.complete(response);
+        }
+        catch(JsonProcessingException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    @Override
+    public void onClose(int code, String reason, boolean remote) {
+        logger.info(String.format("connection to shard %s closed", this.getURI()));
+        this.pendingRequests.values().forEach(future ->
+                future.completeExceptionally(new IllegalStateException(String.format("shard %s disconnected", this.getURI()))));
+        this.pendingRequests.clear();
+    }
+
+    @Override
+    public void onError(Exception ex) {
+        logger.info(String.format("error on connection to shard %s - %s", this.getURI(), ex.getMessage()));
+    }
+}
@@ -0,0 +1,101 @@
+package Vector.Space.Retrieval.System.cluster;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class represents a message sent by the broker to a shard server. <br>
+ * A <i>stats</i> request asks for the shard's collection size and document frequencies
+ * of the query terms, or of all its terms if it has none, a <i>search</i> request asks for the shard's
+ * top k documents scored with the merged statistics of all shards, and a <i>norms</i> request
+ * has the shard compute its document lengths with the merged statistics of all its terms.
+ */
+public class ShardRequest {
+    public static final String STATS = "stats";
+    public static final String SEARCH = "search";
+    public static final String NORMS = "norms";
+
+    private final String type;
+    private final long id;
+    private final String query;
+    private final List<String> terms;
+    private final int k;
+    private final int collectionSize;
+    private final Map<String, Integer> documentFrequencies;
+
+    @JsonCreator
+    public ShardRequest(@JsonProperty("type") String type, @JsonProperty("id") long id,
+                        @JsonProperty("query") String query,
+                        @JsonProperty("terms") List<String> terms, @JsonProperty("k") int k,
+                        @JsonProperty("collectionSize") int collectionSize,
+                        @JsonProperty("documentFrequencies") Map<String, Integer> documentFrequencies) {
+        this.type = type;
+        this.id = id;
+        this.query = query;
+        this.terms = terms;
+        this.k = k;
+        this.collectionSize = collectionSize;
+        this.documentFrequencies = documentFrequencies;
+    }
+
+    /**
+     * Checks whether a message type is one of the requests a broker sends to a shard
+     * @param type Type of the message
+     * @return <b>true</b> for stats, search and norms requests
+     */
+    public static boolean isShardRequest(String type) {
+        return STATS.equals(type) || SEARCH.equals(type) || NORMS.equals(type);
+    }
+
+    /**
+     * Get the kind of request (stats, search or norms)
+     */
+    public String getType() {
+        return this.type;
+    }
+
+    /**
+     * Get the id used to match the shard's response to this request
+     */
+    public long getId() {
+        return this.id;
+    }
+
+    /**
+     * Get the query as sent by the client, which may have quoted phrases
+     */
+    public String getQuery() {
+        return this.query;
+    }
+
+    /**
+     * Get the preprocessed query tokens, or null to ask for the statistics of all terms
+     */
+    public List<String> getTerms() {
+        return this.terms;
+    }
+
+    /**
+     * Get the number of documents the shard should return
+     */
+    public int getK() {
+        return this.k;
+    }
+
+    /**
+     * Get the number of documents across all shards
+     */
+    public int getCollectionSize() {
+        return this.collectionSize;
+    }
+
+    /**
+     * Get the document frequencies of the query terms, or of all terms for a norms request, across all shards
+     */
+    public Map<String, Integer> getDocumentFrequencies() {
+        return this.documentFrequencies;
+    }
+}
@@ -0,0 +1,102 @@
+package Vector.Space.Retrieval.System.cluster;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class represents the reply of a shard server to a {@link ShardRequest}
+ */
+public class ShardResponse {
+    private final String type;
+    private final long id;
+    private final int collectionSize;
+    private final Map<String, Integer> documentFrequencies;
+    private final List<ScoredDocument> results;
+    private final boolean globalLengths;
+    private final String error;
+
+    @JsonCreator
+    public ShardResponse(@JsonProperty("type") String type, @JsonProperty("id") long id,
+                         @JsonProperty("collectionSize") int collectionSize,
+                         @JsonProperty("documentFrequencies") Map<String, Integer> documentFrequencies,
+                         @JsonProperty("results") List<ScoredDocument> results,
+                         @JsonProperty("globalLengths") boolean globalLengths,
+                         @JsonProperty("error") String error) {
+        this.type = type;
+        this.id = id;
+        this.collectionSize = collectionSize;
+        this.documentFrequencies = documentFrequencies;
+        this.results = results;
+        this.globalLengths = globalLengths;
+        this.error = error;
+    }
+
+    public ShardResponse(String type, long id, int collectionSize, Map<String, Integer> documentFrequencies,
+                         List<ScoredDocument> results, boolean globalLengths) {
+        this(type, id, collectionSize, documentFrequencies, results, globalLengths, null);
+    }
+
+    /**
+     * Creates the reply to a request which could not be answered
+     * @param type Type of the request
+     * @param id Id of the request
+     * @param error Why the request was not answered
+     * @return error reply
+     */
+    public static ShardResponse error(String type, long id, String error) {
+        return new ShardResponse(type, id, 0, null, null, false, error);
+    }
+
+    /**
+     * Get the kind of request this is a reply to (stats, search or norms)
+     */
+    public String getType() {
+        return this.type;
+    }
+
+    /**
+     * Get the id of the request this is a reply to
+     */
+    public long getId() {
+        return this.id;
+    }
+
+    /**
+     * Get the number of documents indexed by the shard
+     */
+    public int getCollectionSize() {
+        return this.collectionSize;
+    }
+
+    /**
+     * Get the shard's local document frequencies of the requested terms
+     */
+    public Map<String, Integer> getDocumentFrequencies() {
+        return this.documentFrequencies;
+    }
+
+    /**
+     * Get the shard's top k documents in non-increasing order of similarity
+     */
+    public List<ScoredDocument> getResults() {
+        return this.results;
+    }
+
+    /**
+     * Indicates whether the shard's document lengths were computed from the statistics of all shards
+     * and its index has not changed since
+     */
+    public boolean isGlobalLengths() {
+        return this.globalLengths;
+    }
+
+    /**
+     * Get why the request was not answered, or null if it was
+     */
+    public String getError() {
+        return this.error;
+    }
+}
@@ -0,0 +1,86 @@
+package Vector.Space.Retrieval.System.cluster;
+
+import Vector.Space.Retrieval.System.indexer.InvertedIndexer;
+import Vector.Space.Retrieval.System.indexer.TermStatistics;
+import Vector.Space.Retrieval.System.query.QueryProcessor;
+import Vector.Space.Retrieval.System.preprocessor.WebDocument;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class answers the requests sent by a broker to this server when it runs as a shard
+ * owning a slice of the document collection
+ */
+public class ShardService {
+    private final InvertedIndexer indexer;
+    private final QueryProcessor queryProcessor;
+    private volatile long globalLengthsGeneration;
+
+    public ShardService(final InvertedIndexer indexer, final QueryProcessor queryProcessor) {
+        this.indexer = indexer;
+        this.queryProcessor = queryProcessor;
+        this.globalLengthsGeneration = -1;
+    }
+
+    /**
+     * Computes the reply to a broker request
+     * @param request Stats, search or norms request from the broker
+     * @return Reply to be sent back to the broker
+     */
+    public ShardResponse handle(ShardRequest request) {
+        if (ShardRequest.STATS.equals(request.getType())) return getStatistics(request);
+        if (ShardRequest.SEARCH.equals(request.getType())) return search(request);
+        if (ShardRequest.NORMS.equals(request.getType())) return computeLengths(request);
+        return ShardResponse.error(request.getType(), request.getId(), String.format("unknown shard request type %s", request.getType()));
+    }
+
+    /**
+     * Checks whether the document lengths were computed from the statistics of all shards
+     * and no document was indexed or deleted since
+     */
+    private boolean hasGlobalLengths() {
+        return this.globalLengthsGeneration == this.indexer.getGeneration();
+    }
+
+    /**
+     * Collects the local collection size and document frequencies of the requested terms, or of all terms
+     * @param request Stats request
+     * @return Reply having this shard's statistics
+     */
+    private ShardResponse getStatistics(ShardRequest request) {
+        Map<String, Integer> documentFrequencies = new HashMap<>();
+        if (request.getTerms() == null) documentFrequencies.putAll(this.indexer.getDocumentFrequencies());
+        else request.getTerms().forEach(term -> documentFrequencies.put(term, this.indexer.getDocumentFrequency(term)));
+        return new ShardResponse(request.getType(), request.getId(), this.indexer.getCollectionSize(),
+                documentFrequencies, null, this.hasGlobalLengths());
+    }
+
+    /**
+     * Computes the document lengths of this shard with the merged statistics of all terms sent by the broker
+     * @param request Norms request
+     * @return Reply telling the broker that the lengths are computed
+     */
+    private ShardResponse computeLengths(ShardRequest request) {
+        this.indexer.constructDocumentVectorTable(new TermStatistics(request.getCollectionSize(), request.getDocumentFrequencies()));
+        this.globalLengthsGeneration = this.indexer.getGeneration();
+        return new ShardResponse(request.getType(), request.getId(), 0, null, null, this.hasGlobalLengths());
+    }
+
+    /**
+     * Ranks this shard's documents using the merged statistics sent by the broker
+     * @param request Search request
+     * @return Reply having this shard's top k documents
+     */
+    private ShardResponse search(ShardRequest request) {
+        TermStatistics termStatistics = new TermStatistics(request.getCollectionSize(), request.getDocumentFrequencies());
+        Map<WebDocument, Double> rankedMap =
+                this.queryProcessor.search(request.getQuery(), request.getK(), termStatistics);
+
+        List<ScoredDocument> results = new ArrayList<>();
+        rankedMap.forEach((document, score) -> results.add(new ScoredDocument(document, score)));
+        return new ShardResponse(request.getType(), request.getId(), 0, null, results, this.hasGlobalLengths());
+    }
+}
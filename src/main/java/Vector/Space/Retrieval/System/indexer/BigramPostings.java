@@ -0,0 +1,129 @@
+package Vector.Space.Retrieval.System.indexer;
+
+import java.util.Arrays;
+
+/**
+ * This class is the compact postings list of a pair of adjacent terms in the phrase index.
+ * For every document (in increasing ID order) it stores the gap to the previous document ID,
+ * the number of occurrences of the pair and the gaps between the positions of its first term,
+ * all variable-byte encoded in one array.
+ */
+public class BigramPostings {
+    private byte[] data;
+    private int length, documentFrequency, lastDocumentId;
+    private volatile Decoded decoded;
+
+    public BigramPostings() {
+        this.length = 0;
+        this.documentFrequency = 0;
+        this.lastDocumentId = 0;
+    }
+
+    /**
+     * Appends the occurrences of the pair in one document
+     * @param documentId ID of the document, greater than every ID appended before
+     * @param positions Positions of the first term of the pair in increasing order
+     * @param count Number of positions to append
+     */
+    public void add(int documentId, int[] positions, int count) {
+        append(documentId - this.lastDocumentId);
+        append(count);
+        int previous = 0;
+        for (int i = 0; i < count; i++) {
+            append(positions[i] - previous);
+            previous = positions[i];
+        }
+        this.lastDocumentId = documentId;
+        this.documentFrequency++;
+        this.decoded = null;
+    }
+
+    private void append(int value) {
+        this.data = VariableByteCode.append(value, this.data, this.length);
+        this.length += VariableByteCode.getEncodedLength(value);
+    }
+
+    /**
+     * Releases the unused capacity once all documents have been appended
+     */
+    public void trim() {
+        if (this.data != null) this.data = Arrays.copyOf(this.data, this.length);
+    }
+
+    /**
+     * Get the number of documents in which the pair appears
+     */
+    public int getDocumentFrequency() {
+        return this.documentFrequency;
+    }
+
+    /**
+     * Get the size of the encoded postings
+     */
+    public int getSizeInBytes() {
+        return this.length;
+    }
+
+    /**
+     * Decodes the document IDs and remembers where the positions of each document start,
+     * so that positions are only decoded for the documents that are needed. <br>
+     * The decoded view is kept, so that every phrase query using the pair after the first one reads it as it is.
+     * @return decoded view of this postings list
+     */
+    public Decoded decode() {
+        Decoded current = this.decoded;
+        if (current == null) this.decoded = current = this.decodeDocumentIds();
+        return current;
+    }
+
+    private Decoded decodeDocumentIds() {
+        int[] documentIds = new int[this.documentFrequency], offsets = new int[this.documentFrequency];
+        int[] offset = {0};
+        int documentId = 0;
+        for (int i = 0; i < this.documentFrequency; i++) {
+            documentId += VariableByteCode.read(this.data, offset);
+            documentIds[i] = documentId;
+            offsets[i] = offset[0];
+            int count = VariableByteCode.read(this.data, offset);
+            for (int j = 0; j < count; j++) VariableByteCode.read(this.data, offset);
+        }
+        return new Decoded(documentIds, offsets);
+    }
+
+    /**
+     * This class gives the document IDs of a pair's postings and the positions of the pair in each document
+     */
+    public class Decoded {
+        private final int[] documentIds, offsets;
+
+        private Decoded(final int[] documentIds, final int[] offsets) {
+            this.documentIds = documentIds;
+            this.offsets = offsets;
+        }
+
+        /**
+         * Get the IDs of the documents containing the pair in increasing order
+         */
+        public int[] getDocumentIds() {
+            return this.documentIds;
+        }
+
+        /**
+         * Decodes the positions of the pair in a document
+         * @param documentId ID of a document containing the pair
+         * @return positions of the first term of the pair, or an empty array if the document does not contain it
+         */
+        public int[] getPositions(int documentId) {
+            int index = Arrays.binarySearch(this.documentIds, documentId);
+            if (index < 0) return new int[0];
+            int[] offset = {this.offsets[index]};
+            int[] positions = new int[VariableByteCode.read(data, offset)];
+            int previous = 0;
+            for (int i = 0; i < positions.length; i++) {
+                previous += VariableByteCode.read(data, offset);
+                positions[i] = previous;
+            }
+            return positions;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package Vector.Space.Retrieval.System.indexer;
+
+import Vector.Space.Retrieval.System.Constants;
+import Vector.Space.Retrieval.System.preprocessor.IndexItem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class is the champion tier of a tiered index: for every term it keeps only the
+ * <i>r</i> documents in which the term weighs the most, while the full tier is the inverted index itself. <br>
+ * The weight of a term in a document is its term frequency, divided by the document length if
+ * normalization is enabled. The IDF is the same for all documents of a term, so it does not
+ * change which documents are the champions. <br>
+ * When a document is indexed or deleted only the champion lists of its terms are marked stale, and each of
+ * them is picked again from the postings of its term the next time it is used.
+ */
+public class ChampionLists {
+    private static final Logger logger = LoggerFactory.getLogger(ChampionLists.class);
+    private final Map<String, int[]> champions;
+    private final Set<String> staleTerms;
+    private final int size;
+    private InvertedIndexer indexer;
+
+    /**
+     * @param size Number of documents kept for every term
+     */
+    public ChampionLists(final int size) {
+        this.champions = new ConcurrentHashMap<>();
+        this.staleTerms = ConcurrentHashMap.newKeySet();
+        this.size = size;
+    }
+
+    /**
+     * Picks the champions of every term from the index and the document lengths of the given indexer
+     * @param indexer Indexer whose document lengths are computed
+     */
+    public void build(InvertedIndexer indexer) {
+        long start = System.currentTimeMillis(), kept = 0, total = 0;
+        this.indexer = indexer;
+        for (Map.Entry<String, Map<String, IndexItem>> entry : indexer.getIndex().entrySet()) {
+            int[] documentIds = this.pick(entry.getKey(), entry.getValue().values());
+            total += entry.getValue().size();
+            kept += documentIds.length;
+            this.champions.put(entry.getKey(), documentIds);
+        }
+        logger.info(String.format("champion lists of %d documents keep %d of %d postings, built in %d ms",
+                this.size, kept, total, System.currentTimeMillis() - start));
+    }
+
+    private int[] pick(String term, Collection<IndexItem> indexItems) {
+        if (indexItems.size() <= this.size) return this.indexer.getPostings(term);
+        PriorityQueue<IndexItem> best = new PriorityQueue<>(this.size + 1,
+                Comparator.comparingDouble(indexItem -> getWeight(this.indexer, indexItem)));
+        for (IndexItem indexItem : indexItems) {
+            /* a deleted document must not take the place of a live one */
+            if (!this.indexer.isLive(indexItem.getDocumentId())) continue;
+            best.add(indexItem);
+            if (best.size() > this.size) best.poll();
+        }
+        return best.stream().mapToInt(IndexItem::getDocumentId).sorted().toArray();
+    }
+
+    private static double getWeight(InvertedIndexer indexer, IndexItem indexItem) {
+        double length = indexer.getDocumentLength(indexItem.getDocumentId());
+        return Constants.normalize && length > 0 ? indexItem.getTermFrequency() / length : indexItem.getTermFrequency();
+    }
+
+    /**
+     * Marks the champion lists of the terms of a newly indexed document stale, since it may be one of their champions
+     * @param terms Distinct terms of the document
+     */
+    public void added(String[] terms) {
+        this.staleTerms.addAll(Arrays.asList(terms));
+    }
+
+    /**
+     * Marks the champion lists holding a deleted document stale, since they are one document short
+     * @param documentId ID of the deleted document
+     * @param terms Distinct terms of the document
+     */
+    public void deleted(int documentId, String[] terms) {
+        for (String term : terms) {
+            int[] documentIds = this.champions.get(term);
+            if (documentIds != null && Arrays.binarySearch(documentIds, documentId) >= 0) this.staleTerms.add(term);
+        }
+    }
+
+    /**
+     * Gets the champion documents of a term, picking them again if documents of the term were indexed or deleted
+     * @param term Term whose champions are required
+     * @return document IDs in increasing order
+     */
+    public int[] getChampions(String term) {
+        if (this.staleTerms.contains(term)) {
+            synchronized (this) {
+                if (this.staleTerms.remove(term)) {
+                    Map<String, IndexItem> postingsMap = this.indexer.getIndex().get(term);
+                    if (postingsMap == null) this.champions.remove(term);
+                    else this.champions.put(term, this.pick(term, postingsMap.values()));
+                }
+            }
+        }
+        return this.champions.getOrDefault(term, new int[0]);
+    }
+
+    /**
+     * Get the number of terms whose champion lists are stale
+     */
+    public int getStaleCount() {
+        return this.staleTerms.size();
+    }
+}
@@ -0,0 +1,72 @@
+package Vector.Space.Retrieval.System.indexer;
+
+import Vector.Space.Retrieval.System.preprocessor.IndexItem;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * This task computes the squared document lengths contributed by a partition of the terms. <br>
+ * A partition larger than the threshold is split in two halves which run in parallel on the
+ * fork-join pool, and the squared lengths of the two halves are added up.
+ */
+class DocumentNormTask extends RecursiveTask<double[]> {
+    private static final long serialVersionUID = 1L;
+
+    private final InvertedIndexer indexer;
+    private final TermStatistics termStatistics;
+    private final List<Map.Entry<String, Map<String, IndexItem>>> terms;
+    private final int from, to, threshold, documentCount, collectionSize;
+
+    /**
+     * @param indexer Indexer holding the document frequencies of the terms and the live documents
+     * @param termStatistics Statistics of all shards used for the IDF instead of the indexer's, or null
+     * @param terms Terms of the index with their postings
+     * @param from Index of the first term of the partition
+     * @param to Index after the last term of the partition
+     * @param threshold Largest partition computed without splitting it
+     * @param documentCount Number of documents, which is the length of the computed array
+     * @param collectionSize Number of documents used for the IDF
+     */
+    DocumentNormTask(InvertedIndexer indexer, TermStatistics termStatistics, List<Map.Entry<String, Map<String, IndexItem>>> terms,
+                     int from, int to, int threshold, int documentCount, int collectionSize) {
+        this.indexer = indexer;
+        this.termStatistics = termStatistics;
+        this.terms = terms;
+        this.from = from;
+        this.to = to;
+        this.threshold = threshold;
+        this.documentCount = documentCount;
+        this.collectionSize = collectionSize;
+    }
+
+    @Override
+    protected double[] compute() {
+        if (this.to - this.from > this.threshold) {
+            int middle = (this.from + this.to) >>> 1;
+            DocumentNormTask left = new DocumentNormTask(this.indexer, this.termStatistics, this.terms, this.from, middle, this.threshold, this.documentCount, this.collectionSize);
+            DocumentNormTask right = new DocumentNormTask(this.indexer, this.termStatistics, this.terms, middle, this.to, this.threshold, this.documentCount, this.collectionSize);
+            left.fork();
+            double[] squaredNorms = right.compute(), leftSquaredNorms = left.join();
+            for (int documentId = 0; documentId < squaredNorms.length; documentId++)
+                squaredNorms[documentId] += leftSquaredNorms[documentId];
+            return squaredNorms;
+        }
+
+        double[] squaredNorms = new double[this.documentCount];
+        for (int i = this.from; i < this.to; i++) {
+            String term = this.terms.get(i).getKey();
+            int documentFrequency = this.indexer.getDocumentFrequency(term);
+            if (documentFrequency == 0) continue; /* the term appears in deleted documents only */
+            if (this.termStatistics != null) documentFrequency = Math.max(documentFrequency, this.termStatistics.getDocumentFrequency(term));
+            double inverseDocumentFrequency = InvertedIndexer.getInverseDocumentFrequency(documentFrequency, this.collectionSize);
+            for (IndexItem indexItem : this.terms.get(i).getValue().values()) {
+                if (!this.indexer.isLive(indexItem.getDocumentId())) continue;
+                double weight = indexItem.getTermFrequency() * inverseDocumentFrequency;
+                squaredNorms[indexItem.getDocumentId()] += weight * weight;
+            }
+        }
+        return squaredNorms;
+    }
+}
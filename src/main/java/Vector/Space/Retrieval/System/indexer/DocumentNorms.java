@@ -0,0 +1,131 @@
+package Vector.Space.Retrieval.System.indexer;
+
+import java.util.Arrays;
+
+/**
+ * This class holds the euclidean normalized length of every document in an array indexed by
+ * document ID, so that normalizing a score is an array read instead of a lookup by URL. <br>
+ * The lengths can be kept as doubles, as floats, or quantized to a single byte. A byte stores
+ * the length on a logarithmic scale between the smallest and the largest length of the collection,
+ * which keeps the relative error of every length below half a step of that scale. <br>
+ * Lengths of documents indexed after the encoding are appended as doubles to a tail, which is shared by
+ * the appended copies and encoded with the rest once it has grown by a quarter of the encoded lengths.
+ * Byte lengths keep their levels when the range of the lengths stays the same, and may move by another
+ * half step when a new smallest or largest length widens it.
+ * A copy never changes once it is returned, so the lengths may be read while documents are indexed.
+ */
+public class DocumentNorms {
+    private static final int LEVELS = 255;
+
+    private final double[] doubles;
+    private final float[] floats;
+    private final byte[] bytes;
+    private final double[] decodedBytes;
+    private final int size;
+    private final double[] tail;
+    private final int tailSize;
+
+    private DocumentNorms(double[] doubles, float[] floats, byte[] bytes, double[] decodedBytes, int size) {
+        this(doubles, floats, bytes, decodedBytes, size, new double[0], 0);
+    }
+
+    private DocumentNorms(double[] doubles, float[] floats, byte[] bytes, double[] decodedBytes, int size,
+                          double[] tail, int tailSize) {
+        this.doubles = doubles;
+        this.floats = floats;
+        this.bytes = bytes;
+        this.decodedBytes = decodedBytes;
+        this.size = size;
+        this.tail = tail;
+        this.tailSize = tailSize;
+    }
+
+    /**
+     * Encodes the document lengths
+     * @param norms Length of every document, indexed by document ID
+     * @param encoding "double", "float" or "byte"
+     * @return encoded lengths
+     */
+    public static DocumentNorms encode(double[] norms, String encoding) {
+        if (encoding.equalsIgnoreCase("float")) {
+            float[] floats = new float[norms.length];
+            for (int i = 0; i < norms.length; i++) floats[i] = (float) norms[i];
+            return new DocumentNorms(null, floats, null, null, norms.length);
+        }
+        if (!encoding.equalsIgnoreCase("byte"))
+            return new DocumentNorms(norms.clone(), null, null, null, norms.length);
+
+        double smallest = Double.MAX_VALUE, largest = 0;
+        for (double norm : norms) {
+            if (norm <= 0) continue;
+            smallest = Math.min(smallest, norm);
+            largest = Math.max(largest, norm);
+        }
+        double logSmallest = Math.log(smallest), logRange = largest > smallest ? Math.log(largest) - logSmallest : 0;
+
+        /* level 0 is kept for documents without a length */
+        double[] decodedBytes = new double[LEVELS + 1];
+        for (int level = 1; level <= LEVELS; level++)
+            decodedBytes[level] = logRange == 0 ? largest : Math.exp(logSmallest + logRange * (level - 1) / (LEVELS - 1));
+        byte[] bytes = new byte[norms.length];
+        for (int i = 0; i < norms.length; i++) {
+            if (norms[i] <= 0) continue;
+            int level = logRange == 0 ? LEVELS : 1 + (int) Math.round((Math.log(norms[i]) - logSmallest) / logRange * (LEVELS - 1));
+            bytes[i] = (byte) level;
+        }
+        return new DocumentNorms(null, null, bytes, decodedBytes, norms.length);
+    }
+
+    /**
+     * Adds the length of the next document. The tail is written in place past the lengths of this copy,
+     * which leaves this copy unchanged, so only the copy returned by the last append may be appended to.
+     * @param norm Length of the document whose ID is {@link #size()}
+     * @param encoding Encoding of the lengths once the tail is encoded
+     * @return lengths including the new one
+     */
+    public DocumentNorms append(double norm, String encoding) {
+        double[] tail = this.tail;
+        if (this.tailSize == tail.length) tail = Arrays.copyOf(tail, Math.max(16, 2 * tail.length));
+        tail[this.tailSize] = norm;
+        DocumentNorms appended = new DocumentNorms(this.doubles, this.floats, this.bytes, this.decodedBytes, this.size,
+                tail, this.tailSize + 1);
+        /* encoding all lengths again after a quarter more of them keeps an append constant time on average */
+        return appended.tailSize >= Math.max(16, this.size / 4) ? encode(appended.toArray(), encoding) : appended;
+    }
+
+    private double[] toArray() {
+        double[] norms = new double[size()];
+        for (int documentId = 0; documentId < norms.length; documentId++) norms[documentId] = get(documentId);
+        return norms;
+    }
+
+    /**
+     * Gets the length of a document
+     * @param documentId ID of the document
+     * @return euclidean normalized length, 0 if the document has no length
+     */
+    public double get(int documentId) {
+        if (documentId < 0) return 0.0;
+        if (documentId >= this.size) return documentId - this.size < this.tailSize ? this.tail[documentId - this.size] : 0.0;
+        if (this.doubles != null) return this.doubles[documentId];
+        if (this.floats != null) return this.floats[documentId];
+        return this.decodedBytes[this.bytes[documentId] & 0xFF];
+    }
+
+    /**
+     * Get the number of documents having a length
+     */
+    public int size() {
+        return this.size + this.tailSize;
+    }
+
+    /**
+     * Get the number of bytes taken by the encoded lengths and the tail
+     */
+    public long getSizeInBytes() {
+        long tailBytes = 8L * this.tail.length;
+        if (this.doubles != null) return 8L * this.size + tailBytes;
+        if (this.floats != null) return 4L * this.size + tailBytes;
+        return this.size + 8L * this.decodedBytes.length + tailBytes;
+    }
+}
@@ -0,0 +1,204 @@
+package Vector.Space.Retrieval.System.indexer;
+
+import Vector.Space.Retrieval.System.preprocessor.IndexItem;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * This class computes new document IDs which place similar documents next to each other, so that the
+ * gaps between the document IDs of a postings list get small and their variable-byte codes short. <br>
+ * Documents can be ordered by url, with the host names reversed (<i>edu.uic.cs/...</i>) so that the pages
+ * of a site and of its subdomains follow each other path by path, or by recursive graph bisection, which
+ * starts from the url order and repeatedly splits the documents into two halves, swapping documents between
+ * the halves as long as that makes the postings lists cheaper to encode (Dhulipala et al., KDD 2016).
+ */
+public class DocumentOrdering {
+    private static final int LEAF_SIZE = 16, ITERATIONS = 20;
+
+    /**
+     * Orders the live documents by their urls
+     * @param indexer Indexer holding the documents
+     * @return new ID of every document indexed by its current ID, -1 for deleted documents
+     */
+    public static int[] byUrl(InvertedIndexer indexer) {
+        return toNewIds(getUrlOrder(indexer), indexer.getDocumentCount());
+    }
+
+    /**
+     * Orders the live documents by recursive graph bisection of the documents and the terms they contain
+     * @param indexer Indexer holding the documents
+     * @return new ID of every document indexed by its current ID, -1 for deleted documents
+     */
+    public static int[] byBisection(InvertedIndexer indexer) {
+        int[] order = getUrlOrder(indexer);
+        new Bisection(indexer).bisect(order, 0, order.length);
+        return toNewIds(order, indexer.getDocumentCount());
+    }
+
+    private static int[] getUrlOrder(InvertedIndexer indexer) {
+        int documentCount = indexer.getDocumentCount();
+        String[] keys = new String[documentCount];
+        for (int documentId = 0; documentId < documentCount; documentId++)
+            if (indexer.isLive(documentId)) keys[documentId] = getUrlKey(indexer.getDocument(documentId).getUrl());
+        return IntStream.range(0, documentCount).filter(indexer::isLive).boxed()
+                .sorted(Comparator.comparing(documentId -> keys[documentId])).mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Gets the key by which a url is sorted, its host with the labels reversed followed by the rest of the url
+     * @param url Normalized url, or the name of a document of a local collection
+     */
+    static String getUrlKey(String url) {
+        int hostStart = url.indexOf("://");
+        if (hostStart < 0) return url;
+        hostStart += 3;
+        int hostEnd = url.indexOf('/', hostStart);
+        if (hostEnd < 0) hostEnd = url.length();
+        String[] labels = url.substring(hostStart, hostEnd).split("\\.");
+        StringBuilder key = new StringBuilder(url.length());
+        for (int i = labels.length - 1; i >= 0; i--) {
+            key.append(labels[i]);
+            if (i > 0) key.append('.');
+        }
+        return key.append(url, hostEnd, url.length()).toString();
+    }
+
+    private static int[] toNewIds(int[] order, int documentCount) {
+        int[] newIds = new int[documentCount];
+        Arrays.fill(newIds, -1);
+        for (int position = 0; position < order.length; position++) newIds[order[position]] = position;
+        return newIds;
+    }
+
+    /**
+     * This class bisects ranges of documents recursively. Each split starts from the current order of the range
+     * and, in every iteration, computes for each document how much the estimated cost of the postings would drop
+     * if it moved to the other half, the cost of a term being <i>d log(n / (d + 1))</i> bits in a half of
+     * <i>n</i> documents of which <i>d</i> contain it. The documents of both halves with the largest gains are
+     * then swapped in pairs while the sum of their gains is positive.
+     */
+    private static class Bisection {
+        private final int[] termOffsets, terms;
+        private final int[] leftDegrees, rightDegrees;
+        private final double[] leftGains, rightGains;
+        private final int[] computed;
+        private int round;
+
+        /**
+         * Builds the terms of every document, leaving out the terms of a single document, whose gaps do not depend on the order
+         */
+        private Bisection(InvertedIndexer indexer) {
+            int documentCount = indexer.getDocumentCount(), termCount = 0;
+            this.termOffsets = new int[documentCount + 1];
+            for (Map<String, IndexItem> postingsMap : indexer.getIndex().values()) {
+                if (postingsMap.size() < 2) continue;
+                for (IndexItem indexItem : postingsMap.values()) this.termOffsets[indexItem.getDocumentId() + 1]++;
+                termCount++;
+            }
+            for (int documentId = 0; documentId < documentCount; documentId++)
+                this.termOffsets[documentId + 1] += this.termOffsets[documentId];
+            this.terms = new int[this.termOffsets[documentCount]];
+            int[] next = Arrays.copyOf(this.termOffsets, documentCount);
+            int termId = 0;
+            for (Map<String, IndexItem> postingsMap : indexer.getIndex().values()) {
+                if (postingsMap.size() < 2) continue;
+                for (IndexItem indexItem : postingsMap.values()) this.terms[next[indexItem.getDocumentId()]++] = termId;
+                termId++;
+            }
+            this.leftDegrees = new int[termCount];
+            this.rightDegrees = new int[termCount];
+            this.leftGains = new double[termCount];
+            this.rightGains = new double[termCount];
+            this.computed = new int[termCount];
+        }
+
+        private void bisect(int[] order, int from, int to) {
+            if (to - from <= LEAF_SIZE) return;
+            int middle = (from + to) >>> 1;
+            for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+                computeDegrees(order, from, middle, to);
+                int swapped = swap(order, from, middle, to);
+                clearDegrees(order, from, to);
+                if (swapped == 0) break;
+            }
+            bisect(order, from, middle);
+            bisect(order, middle, to);
+        }
+
+        private void computeDegrees(int[] order, int from, int middle, int to) {
+            for (int position = from; position < to; position++) {
+                int[] degrees = position < middle ? this.leftDegrees : this.rightDegrees;
+                int documentId = order[position];
+                for (int i = this.termOffsets[documentId]; i < this.termOffsets[documentId + 1]; i++) degrees[this.terms[i]]++;
+            }
+            /* the gain of moving a document depends only on the degrees of its terms, so it is computed once per term */
+            int leftSize = middle - from, rightSize = to - middle;
+            this.round++;
+            for (int position = from; position < to; position++) {
+                int documentId = order[position];
+                for (int i = this.termOffsets[documentId]; i < this.termOffsets[documentId + 1]; i++) {
+                    int term = this.terms[i], left = this.leftDegrees[term], right = this.rightDegrees[term];
+                    if (this.computed[term] == this.round) continue;
+                    this.computed[term] = this.round;
+                    double cost = getCost(left, leftSize) + getCost(right, rightSize);
+                    this.leftGains[term] = left == 0 ? 0 : cost - getCost(left - 1, leftSize) - getCost(right + 1, rightSize);
+                    this.rightGains[term] = right == 0 ? 0 : cost - getCost(left + 1, leftSize) - getCost(right - 1, rightSize);
+                }
+            }
+        }
+
+        private int swap(int[] order, int from, int middle, int to) {
+            double[] gains = new double[to - from];
+            for (int position = from; position < to; position++)
+                gains[position - from] = getGain(order[position], position < middle ? this.leftGains : this.rightGains);
+            Integer[] left = getByGain(gains, from, from, middle), right = getByGain(gains, from, middle, to);
+            int swapped = 0;
+            while (swapped < Math.min(left.length, right.length) &&
+                    gains[left[swapped] - from] + gains[right[swapped] - from] > 0) {
+                int leftPosition = left[swapped], rightPosition = right[swapped];
+                int documentId = order[leftPosition];
+                order[leftPosition] = order[rightPosition];
+                order[rightPosition] = documentId;
+                swapped++;
+            }
+            return swapped;
+        }
+
+        /**
+         * @param gains Gain of every document of the range being split, starting at the offset
+         * @return positions of one half, the document with the largest gain first
+         */
+        private Integer[] getByGain(double[] gains, int offset, int from, int to) {
+            Integer[] positions = new Integer[to - from];
+            for (int position = from; position < to; position++) positions[position - from] = position;
+            Arrays.sort(positions, (first, second) -> Double.compare(gains[second - offset], gains[first - offset]));
+            return positions;
+        }
+
+        private double getGain(int documentId, double[] termGains) {
+            double gain = 0;
+            for (int i = this.termOffsets[documentId]; i < this.termOffsets[documentId + 1]; i++) gain += termGains[this.terms[i]];
+            return gain;
+        }
+
+        private void clearDegrees(int[] order, int from, int to) {
+            for (int position = from; position < to; position++) {
+                int documentId = order[position];
+                for (int i = this.termOffsets[documentId]; i < this.termOffsets[documentId + 1]; i++) {
+                    this.leftDegrees[this.terms[i]] = 0;
+                    this.rightDegrees[this.terms[i]] = 0;
+                }
+            }
+        }
+
+        /**
+         * Estimates the bits taken by the gaps of a term contained in degree of the size documents of a half
+         */
+        private static double getCost(int degree, int size) {
+            return degree == 0 ? 0 : degree * Math.log((double) size / (degree + 1)) / Math.log(2);
+        }
+    }
+}
@@ -2,14 +2,21 @@ package Vector.Space.Retrieval.System.indexer;
 
 import ch.qos.logback.classic.Level;
 
+import Vector.Space.Retrieval.System.Constants;
 import Vector.Space.Retrieval.System.preprocessor.IndexItem;
 import Vector.Space.Retrieval.System.preprocessor.WebDocument;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * This class will build and store the inverted index for the search engine
@@ -18,20 +25,47 @@ import java.util.Map;
 public class InvertedIndexer {
     private int collectionSize;
     private Map<String, Map<String, IndexItem>> index;
-    private Map<String, Double> documentVector;
+    private volatile DocumentNorms documentNorms;
+    private int normsCollectionSize;
+    private double[] staticScores;
+    private double largestStaticScore;
+    private List<WebDocument> documents;
+    private Map<String, Integer> documentIds;
+    private BitSet liveDocuments;
+    private int deletedCount;
+    private Map<String, Integer> documentFrequencies;
+    private List<String[]> documentTerms;
+    private final Map<String, int[]> postings;
+    private PhraseIndex phraseIndex;
+    private TermDictionary termDictionary;
+    private ChampionLists championLists;
+    private MappedPostings mappedPostings;
+    private volatile long generation;
 
     private final Logger logger = LoggerFactory.getLogger(InvertedIndexer.class);
 
     public InvertedIndexer() {
         this.index = new HashMap<>();
-        this.documentVector = new HashMap<>();
+        this.documentNorms = DocumentNorms.encode(new double[0], Constants.normEncoding);
+        this.documents = new ArrayList<>();
+        this.documentIds = new HashMap<>();
+        this.liveDocuments = new BitSet();
+        this.documentFrequencies = new HashMap<>();
+        this.documentTerms = new ArrayList<>();
+        this.postings = new ConcurrentHashMap<>();
         this.collectionSize = 0;
 //        ((ch.qos.logback.classic.Logger)logger).setLevel(Level.OFF);
     }
 
     /**
      * Adds the document details to the inverted index for the relevant tokens <br>
-     * Adds these tokens and document details to the database in which the index resides
+     * Adds these tokens and document details to the database in which the index resides. <br>
+     * The document gets the next document ID, and if positions are enabled the offset of
+     * every token is recorded in its index item. The length of the new document is computed
+     * right away with the current IDF of its terms. <br>
+     * If the url is already indexed its document is updated: the old document ID is deleted and
+     * the new content gets a new document ID, so the url is never counted twice. <br>
+     * The distinct terms of the document are kept with it, so that a delete can lower their document frequencies.
      * @param tokens List of tokens for the document at the given url
      * @param url Normalized url for of the document
      * @param title Title of the document
@@ -39,39 +73,461 @@ public class InvertedIndexer {
      */
     public void addToIndex(List<String> tokens, String url, String title, String description) {
         WebDocument document = new WebDocument(url, title, description);
-        tokens.forEach(token -> {
-            this.index.putIfAbsent(token, new HashMap<>());
-            if (!this.index.get(token).containsKey(url))
-                this.index.get(token).put(url, new IndexItem(document, 0));
+        int previousId = this.getDocumentId(url);
+        this.deleteDocument(url);
+        this.phraseIndex = null; /* the pair postings do not cover the new document */
+        this.mappedPostings = null;
+        this.generation++;
+        int documentId = this.documents.size();
+        Set<String> terms = new HashSet<>(tokens);
+        this.documents.add(document);
+        this.documentTerms.add(terms.toArray(new String[0]));
+        this.documentIds.put(url, documentId);
+        this.liveDocuments.set(documentId);
+        terms.forEach(term -> this.documentFrequencies.merge(term, 1, Integer::sum));
+        /* the new content keeps the links to the page until the static scores are computed again */
+        if (previousId >= 0 && this.staticScores != null) {
+            if (documentId >= this.staticScores.length)
+                this.staticScores = Arrays.copyOf(this.staticScores, Math.max(documentId + 1, this.staticScores.length * 2));
+            this.staticScores[documentId] = this.staticScores[previousId];
+        }
 
-            int oldTermFrequency = this.index.get(token).get(url).getTermFrequency();
-            this.index.get(token).get(url).setTermFrequency(oldTermFrequency+1);
-        });
+        for (int position = 0; position < tokens.size(); position++) {
+            String token = tokens.get(position);
+            if (!this.index.containsKey(token)) {
+                this.index.put(token, new HashMap<>());
+                this.termDictionary = null;
+            }
+            IndexItem current = this.index.get(token).get(url);
+            /* an item of a deleted version of the document is replaced in place */
+            if (current == null || current.getDocumentId() != documentId) {
+                this.index.get(token).put(url, new IndexItem(document, documentId, 0));
+                this.postings.remove(token);
+            }
+
+            IndexItem indexItem = this.index.get(token).get(url);
+            indexItem.setTermFrequency(indexItem.getTermFrequency()+1);
+            if (Constants.positions) indexItem.addPosition(position);
+        }
+        updateDocumentNorm(documentId, terms);
+        ChampionLists champions = this.championLists;
+        if (champions != null) champions.added(this.documentTerms.get(documentId));
     }
 
     /**
-     * Constructs a map to store euclidean normalized lengths of all documents
-     * using the (already) computed inverted index.
+     * Deletes the document at a url by marking its document ID dead. <br>
+     * The postings are left as they are: dead documents are skipped when scoring and their postings
+     * are removed by the next {@link #compact()}. The document frequencies of the terms of the document
+     * are lowered right away, so that they always count the same documents as the collection size.
+     * The champion lists holding the document are picked again on their next use.
+     * @param url Normalized url of the document
+     * @return <b>true</b> if the url was indexed
      */
-    public void constructDocumentVectorTable() {
-        Map<String, Map<String, IndexItem>> invIndex = this.getIndex();
-        Map<String, Double> docVector = this.getDocumentVector();
-
-        invIndex.keySet().forEach(term -> {
-            invIndex.get(term).forEach((documentUrl, indexItem) -> {
-                try {
-                    double currentTermWeight = Math.pow(getWeight(term, documentUrl), 2);
-                    if (!docVector.containsKey(documentUrl)) docVector.put(documentUrl, 0.0);
-                    docVector.put(documentUrl, docVector.get(documentUrl)+currentTermWeight);
-                }
-                catch(Exception e) {
-                    e.printStackTrace();
-                }
+    public boolean deleteDocument(String url) {
+        Integer documentId = this.documentIds.remove(url);
+        if (documentId == null) return false;
+        this.liveDocuments.clear(documentId);
+        String[] terms = this.documentTerms.set(documentId, null);
+        ChampionLists champions = this.championLists;
+        if (terms != null) {
+            for (String term : terms)
+                this.documentFrequencies.computeIfPresent(term, (t, df) -> df > 1 ? df - 1 : null);
+            if (champions != null) champions.deleted(documentId, terms);
+        }
+        this.deletedCount++;
+        if (this.collectionSize > 0) this.collectionSize--;
+        return true;
+    }
+
+    /**
+     * Replaces the content of the document at a url, which is the same as indexing it again
+     * @param tokens List of tokens for the new content of the document
+     * @param url Normalized url for of the document
+     * @param title Title of the document
+     * @param description Meta description of the document
+     */
+    public void updateDocument(List<String> tokens, String url, String title, String description) {
+        this.addToIndex(tokens, url, title, description);
+    }
+
+    /**
+     * Checks whether a document ID belongs to a document which is neither deleted nor replaced by an update
+     * @param documentId ID of the document
+     */
+    public boolean isLive(int documentId) {
+        return this.liveDocuments.get(documentId);
+    }
+
+    /**
+     * Gets a number which changes whenever documents are indexed or renumbered or their lengths are set,
+     * so that structures derived from the postings and the lengths can tell whether they are out of date
+     */
+    public long getGeneration() {
+        return this.generation;
+    }
+
+    /**
+     * Gets the number of document IDs which were deleted and not yet removed by a compaction
+     */
+    public int getDeletedCount() {
+        return this.deletedCount;
+    }
+
+    /**
+     * Removes the postings of all deleted documents and gives the remaining documents
+     * consecutive IDs in their current order. The lengths are kept, while the postings lists,
+     * the term dictionary, the pair index and the champion lists are built again for the new IDs.
+     * The static scores are kept as well.
+     */
+    public void compact() {
+        if (this.deletedCount == 0) return;
+        long start = System.nanoTime();
+        int[] newIds = new int[this.getDocumentCount()];
+        int liveCount = 0;
+        for (int documentId = 0; documentId < newIds.length; documentId++)
+            newIds[documentId] = this.isLive(documentId) ? liveCount++ : -1;
+
+        int deleted = this.deletedCount, terms = this.index.size();
+        long removed = this.renumberDocuments(newIds);
+        logger.info(String.format("compaction removed %d deleted documents, %d postings and %d terms in %.1f ms",
+                deleted, removed, terms - this.index.size(), (System.nanoTime() - start) / 1e6));
+    }
+
+    /**
+     * Renumbers the live documents in the given order (see {@link DocumentOrdering}), so that documents having
+     * many terms in common get nearby IDs and the gaps of the postings lists shrink. Deleted documents are removed first.
+     * @param order "url" for the order of the urls, "bisection" for recursive graph bisection, anything else keeps the IDs
+     */
+    public void reorderDocuments(String order) {
+        boolean byUrl = order.equalsIgnoreCase("url"), byBisection = order.equalsIgnoreCase("bisection");
+        if (!byUrl && !byBisection) return;
+        this.compact();
+        long start = System.nanoTime(), postingsSize = this.getPostingsSizeInBytes();
+        int[] newIds = byUrl ? DocumentOrdering.byUrl(this) : DocumentOrdering.byBisection(this);
+        long orderNanos = System.nanoTime() - start;
+        this.renumberDocuments(newIds);
+        long reorderedSize = this.getPostingsSizeInBytes();
+        long postingCount = this.index.values().stream().mapToLong(Map::size).sum();
+        logger.info(String.format("reordered %d documents by %s in %.1f ms (%.1f ms to find the order): " +
+                        "compressed postings %d -> %d bytes (%.2f -> %.2f bytes/posting, %.1f%% smaller)",
+                newIds.length, order, (System.nanoTime() - start) / 1e6, orderNanos / 1e6, postingsSize, reorderedSize,
+                (double) postingsSize / Math.max(1, postingCount), (double) reorderedSize / Math.max(1, postingCount),
+                100.0 * (postingsSize - reorderedSize) / Math.max(1, postingsSize)));
+    }
+
+    /**
+     * Gives every document a new ID and drops the documents without one. The postings, the document table,
+     * the lengths and the static scores are rewritten for the new IDs, and the pair index is built again.
+     * @param newIds new ID of every document indexed by its current ID, or -1 to drop it; the new IDs of the
+     *               kept documents must be 0, 1, 2, ... in any order
+     * @return number of postings dropped
+     */
+    private long renumberDocuments(int[] newIds) {
+        int liveCount = 0;
+        for (int newId : newIds) if (newId >= 0) liveCount++;
+
+        long removed = 0;
+        Map<String, Map<String, IndexItem>> compactIndex = new HashMap<>();
+        for (Map.Entry<String, Map<String, IndexItem>> entry : this.index.entrySet()) {
+            Map<String, IndexItem> postingsMap = new HashMap<>();
+            for (Map.Entry<String, IndexItem> posting : entry.getValue().entrySet()) {
+                int newId = newIds[posting.getValue().getDocumentId()];
+                if (newId >= 0) postingsMap.put(posting.getKey(), posting.getValue().withDocumentId(newId));
+                else removed++;
+            }
+            if (!postingsMap.isEmpty()) compactIndex.put(entry.getKey(), postingsMap);
+        }
+
+        DocumentNorms norms = this.getDocumentNorms();
+        double[] compactNorms = new double[liveCount];
+        for (int documentId = 0; documentId < newIds.length; documentId++)
+            if (newIds[documentId] >= 0) compactNorms[newIds[documentId]] = norms.get(documentId);
+
+        double[] compactStaticScores = null;
+        if (this.staticScores != null) {
+            compactStaticScores = new double[liveCount];
+            for (int documentId = 0; documentId < Math.min(newIds.length, this.staticScores.length); documentId++)
+                if (newIds[documentId] >= 0) compactStaticScores[newIds[documentId]] = this.staticScores[documentId];
+        }
+
+        boolean hadPhraseIndex = this.phraseIndex != null;
+        this.index = compactIndex;
+        this.rebuildDocumentTable();
+        this.phraseIndex = null;
+        this.setDocumentNorms(compactNorms);
+        if (compactStaticScores != null) this.setStaticScores(compactStaticScores);
+        if (hadPhraseIndex) this.buildPhraseIndex();
+        return removed;
+    }
+
+    /**
+     * Computes the length of a newly indexed document. <br>
+     * The lengths of the other documents are left as they are, although the IDF of the new
+     * document's terms has changed. Once the collection has grown by {@link Constants#normDrift}
+     * since the lengths were last computed in full, all of them are computed again.
+     * @param documentId ID of the new document
+     * @param terms Distinct terms of the new document
+     */
+    private void updateDocumentNorm(int documentId, Set<String> terms) {
+        int collectionSize = Math.max(this.collectionSize, this.getLiveDocumentCount());
+        if (collectionSize > (1 + Constants.normDrift) * Math.max(this.normsCollectionSize, Constants.normDriftMinimum)) {
+            constructDocumentVectorTable();
+            return;
+        }
+
+        double squaredNorm = 0;
+        for (String term : terms) {
+            Map<String, IndexItem> postingsMap = this.index.get(term);
+            double weight = postingsMap.get(this.documents.get(documentId).getUrl()).getTermFrequency() *
+                    getInverseDocumentFrequency(this.getDocumentFrequency(term), collectionSize);
+            squaredNorm += weight * weight;
+        }
+        /* document IDs are handed out in increasing order, so the new length is appended */
+        DocumentNorms norms = this.documentNorms;
+        while (norms.size() < documentId) norms = norms.append(0, Constants.normEncoding);
+        this.documentNorms = norms.append(Math.sqrt(squaredNorm), Constants.normEncoding);
+    }
+
+    /**
+     * Gets the document lengths
+     */
+    private DocumentNorms getDocumentNorms() {
+        return this.documentNorms;
+    }
+
+    /**
+     * Gets the IDs of all documents in which the term appears
+     * @param term Term whose postings list is required
+     * @return document IDs in increasing order
+     */
+    public int[] getPostings(String term) {
+        if (!this.index.containsKey(term)) return new int[0];
+        MappedPostings mapped = this.mappedPostings;
+        if (mapped != null) return mapped.getDocumentIds(term);
+        return this.postings.computeIfAbsent(term, t ->
+                this.index.get(t).values().stream().mapToInt(IndexItem::getDocumentId).sorted().toArray());
+    }
+
+    /**
+     * Reads the postings lists from memory-mapped postings files instead of the in-memory index from now on,
+     * until a document is indexed or the documents are renumbered
+     * @param mappedPostings Postings written from this index
+     * @return <b>false</b> if the postings were written from a different index and are not used
+     */
+    public boolean setMappedPostings(MappedPostings mappedPostings) {
+        if (!mappedPostings.matches(this)) return false;
+        this.mappedPostings = mappedPostings;
+        this.postings.clear();
+        return true;
+    }
+
+    /**
+     * Builds the auxiliary index of adjacent term pairs if positions are indexed and it is enabled
+     */
+    public void buildPhraseIndex() {
+        if (!Constants.positions || Constants.bigramThreshold <= 0) return;
+        PhraseIndex pairIndex = new PhraseIndex(Constants.bigramThreshold);
+        pairIndex.build(this);
+        this.phraseIndex = pairIndex;
+    }
+
+    /**
+     * Gets the auxiliary index of adjacent term pairs
+     * @return phrase index, or null if it is disabled or not built for the current documents
+     */
+    public PhraseIndex getPhraseIndex() {
+        return this.phraseIndex;
+    }
+
+    /**
+     * Gets the champion tier of the index, which is built on first use for the current documents and lengths
+     * @return champion lists, or null if they are disabled
+     */
+    public ChampionLists getChampionLists() {
+        if (Constants.championListSize <= 0) return null;
+        ChampionLists champions = this.championLists;
+        if (champions == null) {
+            champions = new ChampionLists(Constants.championListSize);
+            champions.build(this);
+            this.championLists = champions;
+        }
+        return champions;
+    }
+
+    /**
+     * Gets the sorted, front-coded dictionary of all terms of the index, which supports
+     * prefix and range iteration over the terms
+     * @return dictionary mapping every term to its document frequency
+     */
+    public TermDictionary getTermDictionary() {
+        TermDictionary dictionary = this.termDictionary;
+        if (dictionary == null) {
+            List<byte[]> terms = new ArrayList<>();
+            this.index.keySet().forEach(term -> terms.add(term.getBytes(StandardCharsets.UTF_8)));
+            terms.sort(Arrays::compareUnsigned);
+
+            TermDictionary.Builder builder = new TermDictionary.Builder();
+            terms.forEach(termBytes -> {
+                String term = new String(termBytes, StandardCharsets.UTF_8);
+                builder.add(term, this.getDocumentFrequency(term));
             });
-        });
+            this.termDictionary = dictionary = builder.build();
+        }
+        return dictionary;
+    }
+
+    /**
+     * Writes the postings to a file which can be memory-mapped, along with the term dictionary
+     * holding the offset of every postings list, and logs how the dictionary compares with the
+     * term -> postings map in size and lookup latency
+     * @param dictionaryFile Path of the term dictionary file
+     * @param postingsFile Path of the postings file
+     */
+    public void writePostingsFiles(String dictionaryFile, String postingsFile) {
+        try {
+            /* written next to the target files first, so that a published generation is never half-written */
+            Path temporaryPostings = Paths.get(postingsFile.concat(".tmp")), temporaryDictionary = Paths.get(dictionaryFile.concat(".tmp"));
+            TermDictionary dictionary = MappedPostings.write(this, temporaryPostings);
+            dictionary.write(temporaryDictionary);
+            Files.move(temporaryPostings, Paths.get(postingsFile), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.move(temporaryDictionary, Paths.get(dictionaryFile), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            /* hash map node (32) + String (24) + byte array header (16) + characters + table slot (4) */
+            long mapBytes = this.index.keySet().stream().mapToLong(term -> 76 + term.length()).sum();
+            int termCount = Math.max(1, dictionary.size());
+            logger.info(String.format("term dictionary: %d terms in %.1f bytes/term (map keys ~%.1f bytes/term)",
+                    dictionary.size(), (double) dictionary.getSizeInBytes() / termCount, (double) mapBytes / termCount));
+        }
+        catch(IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * Gets the index item of a term for a document
+     * @param term Term of the postings list
+     * @param documentId ID of the document
+     * @return index item of the term for the document, or null if the term does not appear in it
+     */
+    public IndexItem getIndexItem(String term, int documentId) {
+        Map<String, IndexItem> postingsMap = this.index.get(term);
+        WebDocument document = this.getDocument(documentId);
+        if (postingsMap == null || document == null) return null;
+        IndexItem indexItem = postingsMap.get(document.getUrl());
+        /* the url may have been indexed again under a newer document ID */
+        return indexItem == null || indexItem.getDocumentId() != documentId ? null : indexItem;
+    }
+
+    /**
+     * Gets the document having the given ID
+     * @param documentId ID assigned to the document when it was indexed
+     * @return Web document, or null if no document has this ID
+     */
+    public WebDocument getDocument(int documentId) {
+        if (documentId < 0 || documentId >= this.documents.size()) return null;
+        return this.documents.get(documentId);
+    }
+
+    /**
+     * Gets the number of document IDs assigned so far
+     * @return the document ID which will be given to the next indexed document
+     */
+    public int getDocumentCount() {
+        return this.documents.size();
+    }
+
+    /**
+     * Gets the number of indexed documents which are not deleted
+     */
+    public int getLiveDocumentCount() {
+        return this.documentIds.size();
+    }
+
+    /**
+     * Gets the ID assigned to the document at a url
+     * @param documentUrl Normalized url of the document
+     * @return Document ID, or -1 if the document is not indexed
+     */
+    public int getDocumentId(String documentUrl) {
+        return this.documentIds.getOrDefault(documentUrl, -1);
+    }
+
+    /**
+     * Computes the total size of the compressed positions of all postings
+     * @return number of bytes used by positions in the index
+     */
+    public long getPositionsSizeInBytes() {
+        long size = 0;
+        for (Map<String, IndexItem> postingsMap : this.index.values())
+            for (IndexItem indexItem : postingsMap.values()) size += indexItem.getPositionsSizeInBytes();
+        return size;
+    }
+
+    /**
+     * Computes the size the postings (document ID gaps and term frequencies, without positions)
+     * would have if they were variable-byte encoded
+     * @return number of bytes needed by the compressed postings
+     */
+    public long getPostingsSizeInBytes() {
+        long size = 0;
+        for (String term : this.index.keySet()) {
+            int previous = 0;
+            for (int documentId : this.getPostings(term)) {
+                size += VariableByteCode.getEncodedLength(documentId - previous);
+                size += VariableByteCode.getEncodedLength(this.getIndexItem(term, documentId).getTermFrequency());
+                previous = documentId;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Computes the euclidean normalized lengths of all documents
+     * using the (already) computed inverted index. <br>
+     * The terms are split into partitions whose contributions are computed in parallel on the common fork-join pool.
+     * The champion lists, if enabled, are built again for the new lengths.
+     */
+    public void constructDocumentVectorTable() {
+        constructDocumentVectorTable(null);
+    }
+
+    /**
+     * Computes the euclidean normalized lengths of all documents with the IDF of the given statistics. <br>
+     * A shard computes its lengths from the statistics of all shards, so that its cosine similarities are on the
+     * same scale as those of the other shards and the broker can merge them.
+     * @param termStatistics Statistics merged across all shards, or null to use this index's statistics
+     */
+    public void constructDocumentVectorTable(TermStatistics termStatistics) {
+        long start = System.nanoTime();
+        List<Map.Entry<String, Map<String, IndexItem>>> terms = new ArrayList<>(this.getIndex().entrySet());
+        int collectionSize = Math.max(this.collectionSize, this.getLiveDocumentCount());
+        int parallelism = ForkJoinPool.commonPool().getParallelism();
+        int threshold = Math.max(1024, terms.size() / (4 * parallelism) + 1);
+        double[] norms = ForkJoinPool.commonPool().invoke(new DocumentNormTask(this, termStatistics, terms, 0, terms.size(),
+                threshold, this.getDocumentCount(), termStatistics == null ? collectionSize : termStatistics.getCollectionSize()));
 
         /* store as square root of each computed length */
-        docVector.keySet().forEach(documentUrl -> docVector.put(documentUrl, Math.sqrt(docVector.get(documentUrl))));
+        for (int documentId = 0; documentId < norms.length; documentId++) norms[documentId] = Math.sqrt(norms[documentId]);
+        setDocumentNorms(norms);
+        this.normsCollectionSize = collectionSize;
+        logger.info(String.format("computed the lengths of %d documents from %d terms on %d threads in %.1f ms%s",
+                norms.length, terms.size(), parallelism, (System.nanoTime() - start) / 1e6,
+                termStatistics == null ? "" : String.format(" with the statistics of %d documents", termStatistics.getCollectionSize())));
+        /* every length changed, so the champion tier is built once here rather than by the next query */
+        getChampionLists();
+    }
+
+    /**
+     * Encodes the given document lengths with the configured encoding
+     * @param norms Euclidean normalized length of every document, indexed by document ID
+     */
+    private void setDocumentNorms(double[] norms) {
+        this.documentNorms = DocumentNorms.encode(norms, Constants.normEncoding);
+        this.championLists = null;
+        this.generation++;
+        /* a HashMap entry takes a node, a boxed Double and a slot of the table, about 56 bytes */
+        logger.info(String.format("document lengths of %d documents take %d bytes as %s (about %d bytes as a map)",
+                norms.length, this.documentNorms.getSizeInBytes(), Constants.normEncoding, 56L * norms.length));
     }
 
     /**
@@ -85,13 +541,21 @@ public class InvertedIndexer {
     }
 
     /**
-     * This computes and returns the total number of web documents in which the given term appears
+     * This computes and returns the total number of web documents in which the given term appears. <br>
+     * Only live documents are counted, although the postings of deleted documents stay in the index until it is compacted.
      * @param term Term whose document frequency is to be found
      * @return number of documents in which term appears
      */
     public int getDocumentFrequency(String term) {
-        if (this.index.containsKey(term)) return this.index.get(term).keySet().size();
-        return 0;
+        return this.documentFrequencies.getOrDefault(term, 0);
+    }
+
+    /**
+     * Gets the document frequency of every term having a live document
+     * @return unmodifiable map of term -> number of live documents having the term
+     */
+    public Map<String, Integer> getDocumentFrequencies() {
+        return Collections.unmodifiableMap(this.documentFrequencies);
     }
 
     /**
@@ -120,14 +584,22 @@ public class InvertedIndexer {
      * @return IDF(term), which is (log<sub>10</sub> ( collectionSize / documentFrequency(term) ))
      */
     public double getInverseDocumentFrequency(String term) throws Exception {
-        if (this.index.containsKey(term)) {
-            double df = getDocumentFrequency(term);
-            if (df == this.collectionSize) return 1;
-            return Math.log10((double) (this.collectionSize) / (double) (getDocumentFrequency(term)));
-        }
+        int df = getDocumentFrequency(term);
+        if (df > 0) return getInverseDocumentFrequency(df, this.collectionSize);
         throw new Exception();
     }
 
+    /**
+     * Computes the IDF of a term from its document frequency
+     * @param documentFrequency Number of documents having the term
+     * @param collectionSize Number of documents in the collection
+     * @return IDF, which is 1 for a term appearing in every document
+     */
+    static double getInverseDocumentFrequency(int documentFrequency, int collectionSize) {
+        if (documentFrequency == collectionSize) return 1;
+        return Math.log10((double) collectionSize / (double) documentFrequency);
+    }
+
     /**
      * Constructs and returns a string representation of the postings list of each token in the inverted index
      * @return string representation of inverted index
@@ -159,22 +631,137 @@ public class InvertedIndexer {
      */
     public void setIndex(Map<String, Map<String, IndexItem>> index) {
         this.index = index;
+        this.rebuildDocumentTable();
+    }
+
+    /**
+     * Rebuilds the document ID -> document table from the index items of the current index. <br>
+     * The index is expected to be compacted, since every document found in it is live.
+     */
+    private void rebuildDocumentTable() {
+        if (this.index.values().stream().anyMatch(postingsMap ->
+                postingsMap.values().stream().anyMatch(indexItem -> indexItem.getDocumentId() < 0)))
+            this.numberDocuments();
+        WebDocument[] documentTable = new WebDocument[0];
+        Map<String, Integer> ids = new HashMap<>();
+        for (Map<String, IndexItem> postingsMap : this.index.values()) {
+            for (IndexItem indexItem : postingsMap.values()) {
+                if (indexItem.getDocumentId() >= documentTable.length)
+                    documentTable = Arrays.copyOf(documentTable, Math.max(indexItem.getDocumentId() + 1, documentTable.length * 2));
+                documentTable[indexItem.getDocumentId()] = indexItem.getDocument();
+                ids.put(indexItem.getDocument().getUrl(), indexItem.getDocumentId());
+            }
+        }
+        int documentCount = ids.values().stream().mapToInt(id -> id + 1).max().orElse(0);
+        this.documents = new ArrayList<>(Arrays.asList(documentTable).subList(0, documentCount));
+        this.documentIds = ids;
+        this.liveDocuments = new BitSet(documentCount);
+        ids.values().forEach(this.liveDocuments::set);
+
+        /* an item of an older version of a document does not count for its term */
+        List<List<String>> terms = new ArrayList<>(Collections.nCopies(documentCount, null));
+        this.documentFrequencies = new HashMap<>();
+        this.index.forEach((term, postingsMap) -> postingsMap.forEach((url, indexItem) -> {
+            if (indexItem.getDocumentId() != ids.get(url)) return;
+            if (terms.get(indexItem.getDocumentId()) == null) terms.set(indexItem.getDocumentId(), new ArrayList<>());
+            terms.get(indexItem.getDocumentId()).add(term);
+            this.documentFrequencies.merge(term, 1, Integer::sum);
+        }));
+        this.documentTerms = new ArrayList<>(documentCount);
+        terms.forEach(documentTerms -> this.documentTerms.add(documentTerms == null ? null : documentTerms.toArray(new String[0])));
+        this.deletedCount = documentCount - ids.size();
+        this.postings.clear();
+        this.termDictionary = null;
+        this.championLists = null;
+        this.mappedPostings = null;
+        this.staticScores = null;
+        this.generation++;
+    }
+
+    /**
+     * Assigns document IDs in url order to an index written before index items had them
+     */
+    private void numberDocuments() {
+        Map<String, Integer> ids = new TreeMap<>();
+        this.index.values().forEach(postingsMap -> postingsMap.keySet().forEach(url -> ids.put(url, 0)));
+        int documentId = 0;
+        for (Map.Entry<String, Integer> entry : ids.entrySet()) entry.setValue(documentId++);
+        for (Map<String, IndexItem> postingsMap : this.index.values())
+            postingsMap.replaceAll((url, indexItem) -> indexItem.withDocumentId(ids.get(url)));
+        logger.info(String.format("numbered %d documents of an index without document IDs", ids.size()));
     }
 
     /**
-     * Obtains the vector having euclidean normalized lengths of each document indexed
+     * Obtains the vector having euclidean normalized lengths of each document indexed. <br>
+     * The lengths are kept in an array indexed by document ID, so the map is built on every call
+     * and is meant for storing the lengths to disk.
      * @return Map of document urls to euclidean normalized lengths
      */
     public Map<String, Double> getDocumentVector() {
-        return this.documentVector;
+        Map<String, Double> documentVector = new HashMap<>();
+        for (int documentId = 0; documentId < this.getDocumentNorms().size(); documentId++)
+            if (this.isLive(documentId))
+                documentVector.put(this.getDocument(documentId).getUrl(), this.getDocumentNorms().get(documentId));
+        return documentVector;
     }
 
     /**
-     * Store the euclidean normalized document lengths vector
+     * Store the euclidean normalized document lengths vector. <br>
+     * The index must be set first, since the lengths are stored by document ID.
      * @param documentVector Document lengths vector
      */
     public void setDocumentVector(Map<String, Double> documentVector) {
-        this.documentVector = documentVector;
+        double[] norms = new double[this.getDocumentCount()];
+        documentVector.forEach((documentUrl, length) -> {
+            Integer documentId = this.documentIds.get(documentUrl);
+            if (documentId != null) norms[documentId] = length;
+        });
+        setDocumentNorms(norms);
+    }
+
+    /**
+     * Stores the query-independent score of every document (e.g. its PageRank) next to the document lengths
+     * @param staticScores Static score of every document, indexed by document ID
+     */
+    public void setStaticScores(double[] staticScores) {
+        this.staticScores = staticScores;
+        this.largestStaticScore = Arrays.stream(staticScores).max().orElse(0);
+    }
+
+    /**
+     * Gets the static score of a document relative to the largest static score of the collection
+     * @param documentId ID of the document
+     * @return static score between 0 and 1, 0 if no static scores are computed
+     */
+    public double getStaticScore(int documentId) {
+        double[] scores = this.staticScores;
+        if (scores == null || documentId < 0 || documentId >= scores.length || this.largestStaticScore <= 0) return 0.0;
+        return scores[documentId] / this.largestStaticScore;
+    }
+
+    /**
+     * Obtains the static scores of all live documents, which are stored to disk by url
+     * @return Map of document urls to static scores, or null if no static scores are computed
+     */
+    public Map<String, Double> getStaticScoreVector() {
+        if (this.staticScores == null) return null;
+        Map<String, Double> staticScoreVector = new HashMap<>();
+        for (int documentId = 0; documentId < Math.min(this.staticScores.length, this.getDocumentCount()); documentId++)
+            if (this.isLive(documentId)) staticScoreVector.put(this.getDocument(documentId).getUrl(), this.staticScores[documentId]);
+        return staticScoreVector;
+    }
+
+    /**
+     * Store the static scores read from disk. The index must be set first, since the scores are stored by document ID.
+     * @param staticScoreVector Map of document urls to static scores
+     */
+    public void setStaticScoreVector(Map<String, Double> staticScoreVector) {
+        double[] scores = new double[this.getDocumentCount()];
+        staticScoreVector.forEach((documentUrl, score) -> {
+            Integer documentId = this.documentIds.get(documentUrl);
+            if (documentId != null) scores[documentId] = score;
+        });
+        setStaticScores(scores);
     }
 
     /**
@@ -183,9 +770,17 @@ public class InvertedIndexer {
      * @return the euclidean normalized length
      */
     public Double getDocumentLength(String documentUrl) {
-        if (this.documentVector.containsKey(documentUrl))
-            return this.documentVector.get(documentUrl);
-        return 0.0;
+        Integer documentId = this.documentIds.get(documentUrl);
+        return documentId == null ? 0.0 : this.getDocumentNorms().get(documentId);
+    }
+
+    /**
+     * Obtains the euclidean normalized length of a document
+     * @param documentId ID of the document
+     * @return the euclidean normalized length, 0 if it is not computed for the document
+     */
+    public double getDocumentLength(int documentId) {
+        return this.getDocumentNorms().get(documentId);
     }
 
     /**
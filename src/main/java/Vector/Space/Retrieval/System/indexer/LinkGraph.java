@@ -0,0 +1,164 @@
+package Vector.Space.Retrieval.System.indexer;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.function.ToIntFunction;
+
+/**
+ * This class holds the links between the indexed documents in compressed sparse row form:
+ * the targets of all links in one array ordered by source document, and for every document
+ * the offset of its first link in that array. A document with ID <i>d</i> links to the documents
+ * <i>targets[offsets[d]]</i> to <i>targets[offsets[d + 1] - 1]</i>. <br>
+ * Links to pages which were not indexed, repeated links and links of a page to itself are left out.
+ */
+public class LinkGraph {
+    private final int[] offsets;
+    private final int[] targets;
+
+    private LinkGraph(int[] offsets, int[] targets) {
+        this.offsets = offsets;
+        this.targets = targets;
+    }
+
+    /**
+     * Records the links seen during a crawl by url, since the pages they point to get their
+     * document IDs only once (and if) they are indexed. The links of several crawls can be combined,
+     * e.g. those of the partitions of a distributed crawl.
+     */
+    public static class Builder implements Serializable {
+        /* fixed, so that the links written by the processes of a distributed crawl can be read by the merging process */
+        private static final long serialVersionUID = -7444349095698194693L;
+        private final Map<String, Integer> urlIds = new HashMap<>();
+        private final List<String> urls = new ArrayList<>();
+        private long[] links = new long[1024];
+        private int linkCount = 0;
+
+        /**
+         * Adds the links of a page
+         * @param source Normalized url of the page
+         * @param targets Normalized urls the page links to
+         */
+        public Builder addLinks(String source, Collection<String> targets) {
+            long sourceId = getUrlId(source);
+            for (String target : targets) {
+                if (this.linkCount == this.links.length) this.links = Arrays.copyOf(this.links, this.linkCount * 2);
+                this.links[this.linkCount++] = sourceId << 32 | getUrlId(target);
+            }
+            return this;
+        }
+
+        /**
+         * Adds all links recorded by another builder
+         * @param other Builder holding the links of another crawl
+         */
+        public Builder addAll(Builder other) {
+            for (int i = 0; i < other.linkCount; i++) {
+                long sourceId = getUrlId(other.urls.get((int)(other.links[i] >>> 32)));
+                int targetId = getUrlId(other.urls.get((int)other.links[i]));
+                if (this.linkCount == this.links.length) this.links = Arrays.copyOf(this.links, this.linkCount * 2);
+                this.links[this.linkCount++] = sourceId << 32 | targetId;
+            }
+            return this;
+        }
+
+        private int getUrlId(String url) {
+            return this.urlIds.computeIfAbsent(url, u -> {
+                this.urls.add(u);
+                return this.urls.size() - 1;
+            });
+        }
+
+        /**
+         * Get the number of links recorded
+         */
+        public int getLinkCount() {
+            return this.linkCount;
+        }
+
+        /**
+         * Builds the graph of the indexed documents
+         * @param documentIds Gives the document ID of a url, or a negative value if the url is not indexed
+         * @param documentCount Number of document IDs
+         * @return link graph by document ID
+         */
+        public LinkGraph build(ToIntFunction<String> documentIds, int documentCount) {
+            int[] urlDocuments = new int[this.urls.size()];
+            for (int urlId = 0; urlId < urlDocuments.length; urlId++)
+                urlDocuments[urlId] = documentIds.applyAsInt(this.urls.get(urlId));
+
+            long[] edges = new long[this.linkCount];
+            int edgeCount = 0;
+            for (int i = 0; i < this.linkCount; i++) {
+                int source = urlDocuments[(int)(this.links[i] >>> 32)], target = urlDocuments[(int)this.links[i]];
+                if (source >= 0 && target >= 0 && source != target) edges[edgeCount++] = (long)source << 32 | target;
+            }
+            Arrays.sort(edges, 0, edgeCount);
+
+            int[] offsets = new int[documentCount + 1], targets = new int[edgeCount];
+            int targetCount = 0;
+            for (int i = 0; i < edgeCount; i++) {
+                if (i > 0 && edges[i] == edges[i - 1]) continue;
+                offsets[(int)(edges[i] >>> 32) + 1]++;
+                targets[targetCount++] = (int)edges[i];
+            }
+            for (int documentId = 0; documentId < documentCount; documentId++) offsets[documentId + 1] += offsets[documentId];
+            return new LinkGraph(offsets, Arrays.copyOf(targets, targetCount));
+        }
+    }
+
+    /**
+     * Builds the graph having every link of this graph reversed, which lists the in-links of every document
+     * @return transposed graph
+     */
+    public LinkGraph transpose() {
+        int documentCount = getDocumentCount();
+        int[] offsets = new int[documentCount + 1], targets = new int[this.targets.length];
+        for (int target : this.targets) offsets[target + 1]++;
+        for (int documentId = 0; documentId < documentCount; documentId++) offsets[documentId + 1] += offsets[documentId];
+        int[] next = Arrays.copyOf(offsets, documentCount);
+        for (int source = 0; source < documentCount; source++)
+            for (int i = this.offsets[source]; i < this.offsets[source + 1]; i++)
+                targets[next[this.targets[i]]++] = source;
+        return new LinkGraph(offsets, targets);
+    }
+
+    /**
+     * Gets the documents a document links to
+     * @param documentId ID of the source document
+     * @return IDs of the linked documents in increasing order
+     */
+    public int[] getLinks(int documentId) {
+        return Arrays.copyOfRange(this.targets, this.offsets[documentId], this.offsets[documentId + 1]);
+    }
+
+    /**
+     * Gets the number of documents a document links to
+     * @param documentId ID of the source document
+     */
+    public int getOutDegree(int documentId) {
+        return this.offsets[documentId + 1] - this.offsets[documentId];
+    }
+
+    int[] getOffsets() {
+        return this.offsets;
+    }
+
+    int[] getTargets() {
+        return this.targets;
+    }
+
+    public int getDocumentCount() {
+        return this.offsets.length - 1;
+    }
+
+    public int getLinkCount() {
+        return this.targets.length;
+    }
+
+    /**
+     * Get the number of bytes taken by the two arrays of the graph
+     */
+    public long getSizeInBytes() {
+        return 4L * (this.offsets.length + this.targets.length);
+    }
+}
@@ -0,0 +1,152 @@
+package Vector.Space.Retrieval.System.indexer;
+
+import Vector.Space.Retrieval.System.preprocessor.IndexItem;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class stores the postings of the inverted index in a file which is memory-mapped for
+ * reading, while the {@link TermDictionary} mapping every term to the offset of its postings
+ * list stays small enough to keep on the heap. <br>
+ * Every postings list is the document frequency followed by the gap to the previous document ID
+ * and the term frequency of every document, all variable-byte encoded. <br>
+ * An index read from disk takes its postings lists from these files instead of sorting the document IDs of its maps.
+ */
+public class MappedPostings {
+    private final TermDictionary dictionary;
+    private final ByteBuffer postings;
+
+    private MappedPostings(final TermDictionary dictionary, final ByteBuffer postings) {
+        this.dictionary = dictionary;
+        this.postings = postings;
+    }
+
+    /**
+     * Writes the postings of every term of the index and the dictionary of their offsets
+     * @param indexer Indexer holding the inverted index
+     * @param postingsPath Path of the postings file
+     * @return dictionary mapping every term to the offset of its postings list
+     */
+    public static TermDictionary write(InvertedIndexer indexer, Path postingsPath) throws IOException {
+        List<byte[]> terms = new ArrayList<>();
+        indexer.getIndex().keySet().forEach(term -> terms.add(term.getBytes(StandardCharsets.UTF_8)));
+        terms.sort(Arrays::compareUnsigned);
+
+        TermDictionary.Builder builder = new TermDictionary.Builder();
+        byte[] buffer = new byte[5];
+        long offset = 0;
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(postingsPath))) {
+            for (byte[] termBytes : terms) {
+                String term = new String(termBytes, StandardCharsets.UTF_8);
+                builder.add(term, offset);
+
+                int[] documentIds = indexer.getPostings(term);
+                offset += write(documentIds.length, buffer, out);
+                int previous = 0;
+                for (int documentId : documentIds) {
+                    offset += write(documentId - previous, buffer, out);
+                    offset += write(indexer.getIndexItem(term, documentId).getTermFrequency(), buffer, out);
+                    previous = documentId;
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    private static int write(int value, byte[] buffer, OutputStream out) throws IOException {
+        int length = VariableByteCode.write(value, buffer, 0);
+        out.write(buffer, 0, length);
+        return length;
+    }
+
+    /**
+     * Loads the dictionary onto the heap and memory-maps the postings
+     * @param dictionaryPath Path of the term dictionary file
+     * @param postingsPath Path of the postings file
+     * @return postings readable by term
+     */
+    public static MappedPostings open(Path dictionaryPath, Path postingsPath) throws IOException {
+        TermDictionary dictionary = TermDictionary.open(dictionaryPath);
+        try (FileChannel channel = FileChannel.open(postingsPath, StandardOpenOption.READ)) {
+            return new MappedPostings(dictionary, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Checks whether these postings were written from the given index, by comparing the terms and their document frequencies
+     * @param indexer Indexer holding the inverted index
+     * @return <b>true</b> if every term of the index has a postings list of the same length here, and no other term does
+     */
+    public boolean matches(InvertedIndexer indexer) {
+        if (this.dictionary.size() != indexer.getIndex().size()) return false;
+        TermDictionary.TermIterator iterator = this.dictionary.iterator();
+        while (iterator.next()) {
+            Map<String, IndexItem> postingsMap = indexer.getIndex().get(iterator.term());
+            if (postingsMap == null || read(new int[] {(int) iterator.value()}) != postingsMap.size()) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Get the dictionary of the terms of these postings
+     */
+    public TermDictionary getDictionary() {
+        return this.dictionary;
+    }
+
+    /**
+     * Gets the IDs of all documents in which the term appears
+     * @param term Term whose postings list is required
+     * @return document IDs in increasing order
+     */
+    public int[] getDocumentIds(String term) {
+        return decode(term, false);
+    }
+
+    /**
+     * Gets the term frequencies of the term in the documents of its postings list
+     * @param term Term whose postings list is required
+     * @return term frequencies in the order of {@link #getDocumentIds(String)}
+     */
+    public int[] getTermFrequencies(String term) {
+        return decode(term, true);
+    }
+
+    private int[] decode(String term, boolean termFrequencies) {
+        long offset = this.dictionary.get(term);
+        if (offset < 0) return new int[0];
+
+        int[] position = {(int) offset};
+        int[] values = new int[read(position)];
+        int documentId = 0;
+        for (int i = 0; i < values.length; i++) {
+            documentId += read(position);
+            int termFrequency = read(position);
+            values[i] = termFrequencies ? termFrequency : documentId;
+        }
+        return values;
+    }
+
+    private int read(int[] position) {
+        int value = 0, shift = 0;
+        byte current;
+        do {
+            current = this.postings.get(position[0]++);
+            value |= (current & 0x7F) << shift;
+            shift += 7;
+        } while ((current & 0x80) != 0);
+        return value;
+    }
+}
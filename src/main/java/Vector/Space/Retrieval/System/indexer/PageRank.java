@@ -0,0 +1,73 @@
+package Vector.Space.Retrieval.System.indexer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * This class computes the PageRank of every document of a link graph by power iteration. <br>
+ * Every iteration pulls the rank of each document from its in-links, so the documents can be
+ * computed in parallel without two threads ever writing the same value. The rank of documents
+ * without out-links is spread over all documents, like the teleport of the random surfer.
+ */
+public class PageRank {
+    private static final Logger logger = LoggerFactory.getLogger(PageRank.class);
+    private static final double TOLERANCE = 1e-9;
+    private static final int MAX_ITERATIONS = 100;
+
+    /**
+     * Computes the PageRank of all documents, iterating until the ranks no longer change noticeably
+     * @param graph Links between the documents
+     * @param damping Probability of following a link instead of jumping to a random document
+     * @return rank of every document, indexed by document ID, adding up to 1
+     */
+    public static double[] compute(LinkGraph graph, double damping) {
+        return compute(graph, damping, TOLERANCE, MAX_ITERATIONS);
+    }
+
+    /**
+     * Computes the PageRank of all documents
+     * @param graph Links between the documents
+     * @param damping Probability of following a link instead of jumping to a random document
+     * @param tolerance Iterations stop once the ranks change by less than this in total
+     * @param maxIterations Largest number of iterations
+     * @return rank of every document, indexed by document ID, adding up to 1
+     */
+    public static double[] compute(LinkGraph graph, double damping, double tolerance, int maxIterations) {
+        long start = System.nanoTime();
+        int documentCount = graph.getDocumentCount();
+        if (documentCount == 0) return new double[0];
+        LinkGraph inLinks = graph.transpose();
+        int[] offsets = inLinks.getOffsets(), sources = inLinks.getTargets();
+        int[] outDegrees = IntStream.range(0, documentCount).map(graph::getOutDegree).toArray();
+
+        double[] rank = new double[documentCount], next = new double[documentCount], shares = new double[documentCount];
+        Arrays.fill(rank, 1.0 / documentCount);
+        int iteration = 0;
+        double change = Double.MAX_VALUE;
+        while (iteration < maxIterations && change >= tolerance) {
+            double[] current = rank, updated = next;
+            double dangling = IntStream.range(0, documentCount).parallel()
+                    .filter(documentId -> outDegrees[documentId] == 0).mapToDouble(documentId -> current[documentId]).sum();
+            IntStream.range(0, documentCount).parallel().forEach(documentId ->
+                    shares[documentId] = outDegrees[documentId] == 0 ? 0 : current[documentId] / outDegrees[documentId]);
+
+            double base = (1 - damping + damping * dangling) / documentCount;
+            IntStream.range(0, documentCount).parallel().forEach(documentId -> {
+                double sum = 0;
+                for (int i = offsets[documentId]; i < offsets[documentId + 1]; i++) sum += shares[sources[i]];
+                updated[documentId] = base + damping * sum;
+            });
+            change = IntStream.range(0, documentCount).parallel()
+                    .mapToDouble(documentId -> Math.abs(updated[documentId] - current[documentId])).sum();
+            rank = updated;
+            next = current;
+            iteration++;
+        }
+        logger.info(String.format("PageRank of %d documents and %d links converged to %.1e in %d iterations, %.1f ms",
+                documentCount, graph.getLinkCount(), change, iteration, (System.nanoTime() - start) / 1e6));
+        return rank;
+    }
+}
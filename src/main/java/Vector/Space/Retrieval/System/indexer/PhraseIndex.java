@@ -0,0 +1,140 @@
+package Vector.Space.Retrieval.System.indexer;
+
+import Vector.Space.Retrieval.System.preprocessor.IndexItem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+/**
+ * This class is an auxiliary index of pairs of adjacent terms, used to speed up phrase
+ * queries made of common terms whose positional postings are long. <br>
+ * Pairs are chosen from the corpus statistics when the index is built: every pair of adjacent
+ * terms which appears in at least <i>threshold</i> documents gets its own postings list. Since a pair
+ * is never in more documents than either of its terms, only pairs of terms having that many documents are counted.
+ * A lower threshold indexes more pairs, which makes more phrases fast at the cost of a larger index.
+ */
+public class PhraseIndex {
+    private static final Logger logger = LoggerFactory.getLogger(PhraseIndex.class);
+    private final Map<String, BigramPostings> pairs;
+    private final int threshold;
+
+    public PhraseIndex(final int threshold) {
+        this.pairs = new HashMap<>();
+        this.threshold = threshold;
+    }
+
+    /**
+     * Builds the pair postings from the positions in the inverted index
+     * @param indexer Indexer holding a positional index
+     */
+    public void build(InvertedIndexer indexer) {
+        long start = System.currentTimeMillis();
+        List<String> commonTerms = new ArrayList<>();
+        indexer.getIndex().keySet().forEach(term -> {
+            if (indexer.getDocumentFrequency(term) >= this.threshold) commonTerms.add(term);
+        });
+
+        /* collect (position, common term) of every occurrence of a common term, per document */
+        int documentCount = indexer.getDocumentCount();
+        long[][] occurrences = new long[documentCount][];
+        int[] occurrenceCounts = new int[documentCount];
+        for (int termId = 0; termId < commonTerms.size(); termId++) {
+            for (IndexItem indexItem : indexer.getIndex().get(commonTerms.get(termId)).values()) {
+                int documentId = indexItem.getDocumentId();
+                if (!indexer.isLive(documentId)) continue;
+                for (int position : indexItem.getPositions()) {
+                    if (occurrences[documentId] == null) occurrences[documentId] = new long[16];
+                    if (occurrenceCounts[documentId] == occurrences[documentId].length)
+                        occurrences[documentId] = Arrays.copyOf(occurrences[documentId], occurrenceCounts[documentId] * 2);
+                    occurrences[documentId][occurrenceCounts[documentId]++] = ((long) position << 32) | termId;
+                }
+            }
+        }
+
+        /* count the documents of every pair first, so that postings are only built for the frequent pairs */
+        Map<Long, Integer> pairFrequencies = new HashMap<>();
+        for (int documentId = 0; documentId < documentCount; documentId++) {
+            if (occurrences[documentId] == null) continue;
+            occurrences[documentId] = Arrays.copyOf(occurrences[documentId], occurrenceCounts[documentId]);
+            Arrays.sort(occurrences[documentId]);
+            Set<Long> documentPairs = new HashSet<>();
+            long[] documentOccurrences = occurrences[documentId];
+            for (int i = 0; i + 1 < documentOccurrences.length; i++)
+                if ((int) (documentOccurrences[i + 1] >>> 32) == (int) (documentOccurrences[i] >>> 32) + 1)
+                    documentPairs.add(getPairId(documentOccurrences[i], documentOccurrences[i + 1]));
+            documentPairs.forEach(pairId -> pairFrequencies.merge(pairId, 1, Integer::sum));
+        }
+        long countedPairs = pairFrequencies.size();
+        pairFrequencies.values().removeIf(documentFrequency -> documentFrequency < this.threshold);
+
+        /* documents are visited in increasing ID order, so every pair's postings are appended in order */
+        for (int documentId = 0; documentId < documentCount; documentId++) {
+            if (occurrences[documentId] == null) continue;
+            long[] documentOccurrences = occurrences[documentId];
+            occurrences[documentId] = null;
+
+            Map<String, int[]> pairPositions = new LinkedHashMap<>();
+            Map<String, Integer> pairCounts = new HashMap<>();
+            for (int i = 0; i + 1 < documentOccurrences.length; i++) {
+                int position = (int) (documentOccurrences[i] >>> 32);
+                if ((int) (documentOccurrences[i + 1] >>> 32) != position + 1) continue;
+                if (!pairFrequencies.containsKey(getPairId(documentOccurrences[i], documentOccurrences[i + 1]))) continue;
+                String pair = getKey(commonTerms.get((int) documentOccurrences[i]), commonTerms.get((int) documentOccurrences[i + 1]));
+                int count = pairCounts.getOrDefault(pair, 0);
+                int[] positions = pairPositions.computeIfAbsent(pair, p -> new int[4]);
+                if (count == positions.length) pairPositions.put(pair, positions = Arrays.copyOf(positions, count * 2));
+                positions[count] = position;
+                pairCounts.put(pair, count + 1);
+            }
+            final int currentDocumentId = documentId;
+            pairPositions.forEach((pair, positions) ->
+                    this.pairs.computeIfAbsent(pair, p -> new BigramPostings()).add(currentDocumentId, positions, pairCounts.get(pair)));
+        }
+        this.pairs.values().forEach(BigramPostings::trim);
+
+        logger.info(String.format("phrase index has %d of the %d pairs of %d common terms in %d bytes, built in %d ms",
+                this.pairs.size(), countedPairs, commonTerms.size(), this.getSizeInBytes(), System.currentTimeMillis() - start));
+    }
+
+    /**
+     * Combines the term IDs of two adjacent occurrences into one number identifying the pair
+     * @param first (position, term ID) of the first occurrence
+     * @param second (position, term ID) of the occurrence right after it
+     */
+    private static long getPairId(long first, long second) {
+        return (first & 0xFFFFFFFFL) << 32 | (second & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Gets the postings of a pair of adjacent terms
+     * @param first First term of the pair
+     * @param second Term following the first term
+     * @return postings of the pair, or null if the pair is not covered by this index
+     */
+    public BigramPostings getPostings(String first, String second) {
+        return this.pairs.get(getKey(first, second));
+    }
+
+    /**
+     * Checks whether phrases containing the two adjacent terms can use this index
+     * @param first First term of the pair
+     * @param second Term following the first term
+     * @return <b>true</b> if the pair is covered by this index
+     */
+    public boolean covers(String first, String second) {
+        return this.pairs.containsKey(getKey(first, second));
+    }
+
+    /**
+     * Computes the total size of the encoded pair postings
+     * @return number of bytes used by this index's postings
+     */
+    public long getSizeInBytes() {
+        return this.pairs.values().stream().mapToLong(BigramPostings::getSizeInBytes).sum();
+    }
+
+    private static String getKey(String first, String second) {
+        return first.concat(" ").concat(second);
+    }
+}
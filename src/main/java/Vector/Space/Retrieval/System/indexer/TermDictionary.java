@@ -0,0 +1,339 @@
+package Vector.Space.Retrieval.System.indexer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * This class is a sorted, front-coded term dictionary which maps every term to a number
+ * (e.g. the offset of its postings list or its document frequency). <br>
+ * Terms are sorted by their UTF-8 bytes and grouped in blocks of {@value #BLOCK_SIZE}. The first
+ * term of a block is stored in full and every other term only stores the length of the prefix it
+ * shares with the previous term and its remaining suffix, so the dictionary takes a few bytes per
+ * term. A lookup binary searches the first terms of the blocks and scans one block, and terms can
+ * be iterated in sorted order from any point, e.g. all terms having a given prefix. <br>
+ * The encoded dictionary is one byte buffer, which can be written to a file and memory-mapped back.
+ * <pre>
+ * magic | term count | block count | block offsets (int each) | blocks
+ * </pre>
+ */
+public class TermDictionary {
+    private static final int MAGIC = 0x54444943, BLOCK_SIZE = 16;
+
+    private final ByteBuffer buffer;
+    private final int termCount, blockCount, blocksStart;
+
+    private TermDictionary(final ByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC) throw new IllegalArgumentException("not a term dictionary");
+        this.termCount = buffer.getInt(4);
+        this.blockCount = buffer.getInt(8);
+        this.blocksStart = 12 + 4 * this.blockCount;
+    }
+
+    /**
+     * This class builds a dictionary from terms added in increasing order
+     */
+    public static class Builder {
+        private byte[] blocks = new byte[1024];
+        private int length = 0, termCount = 0;
+        private int[] blockOffsets = new int[16];
+        private byte[] previousTerm = new byte[0];
+
+        /**
+         * Adds the next term
+         * @param term Term greater than every term added before (in UTF-8 byte order)
+         * @param value Non-negative number stored for the term
+         */
+        public Builder add(String term, long value) {
+            byte[] bytes = term.getBytes(StandardCharsets.UTF_8);
+            if (this.termCount > 0 && Arrays.compareUnsigned(bytes, this.previousTerm) <= 0)
+                throw new IllegalArgumentException(String.format("term %s is not in increasing order", term));
+
+            ensureCapacity(bytes.length + 30);
+            if (this.termCount % BLOCK_SIZE == 0) {
+                int block = this.termCount / BLOCK_SIZE;
+                if (block == this.blockOffsets.length) this.blockOffsets = Arrays.copyOf(this.blockOffsets, block * 2);
+                this.blockOffsets[block] = this.length;
+                this.length = writeLong(bytes.length, this.blocks, this.length);
+                System.arraycopy(bytes, 0, this.blocks, this.length, bytes.length);
+                this.length += bytes.length;
+            }
+            else {
+                int prefix = getSharedPrefixLength(this.previousTerm, bytes);
+                this.length = writeLong(prefix, this.blocks, this.length);
+                this.length = writeLong(bytes.length - prefix, this.blocks, this.length);
+                System.arraycopy(bytes, prefix, this.blocks, this.length, bytes.length - prefix);
+                this.length += bytes.length - prefix;
+            }
+            this.length = writeLong(value, this.blocks, this.length);
+            this.previousTerm = bytes;
+            this.termCount++;
+            return this;
+        }
+
+        private void ensureCapacity(int extra) {
+            if (this.length + extra > this.blocks.length)
+                this.blocks = Arrays.copyOf(this.blocks, Math.max(this.blocks.length * 2, this.length + extra));
+        }
+
+        /**
+         * Encodes all added terms
+         * @return dictionary held in a heap buffer
+         */
+        public TermDictionary build() {
+            int blockCount = (this.termCount + BLOCK_SIZE - 1) / BLOCK_SIZE;
+            ByteBuffer buffer = ByteBuffer.allocate(12 + 4 * blockCount + this.length);
+            buffer.putInt(MAGIC).putInt(this.termCount).putInt(blockCount);
+            for (int block = 0; block < blockCount; block++) buffer.putInt(this.blockOffsets[block]);
+            buffer.put(this.blocks, 0, this.length);
+            buffer.flip();
+            return new TermDictionary(buffer);
+        }
+    }
+
+    /**
+     * Builds a dictionary from terms in any order
+     * @param values map of term -> non-negative number stored for it
+     * @return dictionary held in a heap buffer
+     */
+    public static TermDictionary of(Map<String, Long> values) {
+        List<Map.Entry<byte[], Long>> terms = new ArrayList<>(values.size());
+        values.forEach((term, value) -> terms.add(Map.entry(term.getBytes(StandardCharsets.UTF_8), value)));
+        terms.sort((first, second) -> Arrays.compareUnsigned(first.getKey(), second.getKey()));
+        Builder builder = new Builder();
+        byte[] previous = null;
+        for (Map.Entry<byte[], Long> term : terms) {
+            /* malformed strings, e.g. with unpaired surrogates, may encode to the bytes of another term */
+            if (previous != null && Arrays.equals(previous, term.getKey())) continue;
+            builder.add(new String(term.getKey(), StandardCharsets.UTF_8), term.getValue());
+            previous = term.getKey();
+        }
+        return builder.build();
+    }
+
+    /**
+     * Memory-maps a dictionary previously written with {@link #write(Path)}
+     * @param path Path of the dictionary file
+     * @return dictionary backed by the mapped file
+     */
+    public static TermDictionary open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new TermDictionary(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes the encoded dictionary to a file
+     * @param path Path of the dictionary file
+     */
+    public void write(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer contents = this.buffer.duplicate();
+            contents.clear();
+            while (contents.hasRemaining()) channel.write(contents);
+        }
+    }
+
+    /**
+     * Looks up the number stored for a term
+     * @param term Term to look up
+     * @return stored number, or -1 if the dictionary does not have the term
+     */
+    public long get(String term) {
+        TermIterator iterator = this.iterator();
+        return iterator.seekCeil(term) && iterator.term().equals(term) ? iterator.value() : -1;
+    }
+
+    /**
+     * Visits every term having the given prefix in sorted order
+     * @param prefix Prefix of the terms
+     * @param consumer Called with every term and its number
+     */
+    public void prefix(String prefix, ObjLongConsumer<String> consumer) {
+        TermIterator iterator = this.iterator();
+        if (!iterator.seekCeil(prefix)) return;
+        do {
+            if (!iterator.term().startsWith(prefix)) return;
+            consumer.accept(iterator.term(), iterator.value());
+        } while (iterator.next());
+    }
+
+    /**
+     * Visits every term in the range [from, to) in sorted order
+     * @param from Smallest term of the range
+     * @param to Term right after the range
+     * @param consumer Called with every term and its number
+     */
+    public void range(String from, String to, ObjLongConsumer<String> consumer) {
+        byte[] end = to.getBytes(StandardCharsets.UTF_8);
+        TermIterator iterator = this.iterator();
+        if (!iterator.seekCeil(from)) return;
+        do {
+            if (Arrays.compareUnsigned(iterator.termBytes, 0, iterator.termLength, end, 0, end.length) >= 0) return;
+            consumer.accept(iterator.term(), iterator.value());
+        } while (iterator.next());
+    }
+
+    /**
+     * Get a new iterator, positioned before the first term
+     */
+    public TermIterator iterator() {
+        return new TermIterator();
+    }
+
+    /**
+     * Get the number of terms in this dictionary
+     */
+    public int size() {
+        return this.termCount;
+    }
+
+    /**
+     * Get the size of the encoded dictionary
+     */
+    public long getSizeInBytes() {
+        return this.buffer.capacity();
+    }
+
+    /**
+     * This class iterates over the terms of the dictionary in sorted order
+     */
+    public class TermIterator {
+        private int ordinal = -1, position;
+        private byte[] termBytes = new byte[32];
+        private int termLength;
+        private long value;
+
+        /**
+         * Moves to the next term
+         * @return <b>false</b> if there are no more terms
+         */
+        public boolean next() {
+            if (this.ordinal + 1 >= termCount) return false;
+            this.ordinal++;
+            if (this.ordinal % BLOCK_SIZE == 0) {
+                this.position = blocksStart + buffer.getInt(12 + 4 * (this.ordinal / BLOCK_SIZE));
+                this.termLength = (int) readLong();
+                readSuffix(0);
+            }
+            else {
+                int prefix = (int) readLong();
+                this.termLength = prefix + (int) readLong();
+                readSuffix(prefix);
+            }
+            this.value = readLong();
+            return true;
+        }
+
+        /**
+         * Moves to the first term which is not smaller than the target
+         * @param target Term to seek
+         * @return <b>false</b> if every term is smaller than the target
+         */
+        public boolean seekCeil(String target) {
+            if (termCount == 0) return false;
+            byte[] bytes = target.getBytes(StandardCharsets.UTF_8);
+            int low = 0, high = blockCount - 1;
+            if (this.ordinal >= 0 && compareTo(bytes) < 0) {
+                /* seeking forward, which usually ends within the current block */
+                int blockEnd = (this.ordinal / BLOCK_SIZE + 1) * BLOCK_SIZE;
+                while (this.ordinal + 1 < blockEnd && this.next())
+                    if (compareTo(bytes) >= 0) return true;
+                if (blockEnd >= termCount) return false;
+                low = blockEnd / BLOCK_SIZE;
+            }
+            int block = low;
+            /* find the last block whose first term is not greater than the target */
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                this.moveToBlock(middle);
+                if (compareTo(bytes) <= 0) {
+                    block = middle;
+                    low = middle + 1;
+                }
+                else high = middle - 1;
+            }
+
+            this.moveToBlock(block);
+            while (this.ordinal < termCount) {
+                if (compareTo(bytes) >= 0) return true;
+                if (!this.next()) break;
+            }
+            return false;
+        }
+
+        private void moveToBlock(int block) {
+            this.ordinal = block * BLOCK_SIZE - 1;
+            this.next();
+        }
+
+        private int compareTo(byte[] target) {
+            return Arrays.compareUnsigned(this.termBytes, 0, this.termLength, target, 0, target.length);
+        }
+
+        private void readSuffix(int prefix) {
+            if (this.termLength > this.termBytes.length)
+                this.termBytes = Arrays.copyOf(this.termBytes, Math.max(this.termLength, this.termBytes.length * 2));
+            for (int i = prefix; i < this.termLength; i++) this.termBytes[i] = buffer.get(this.position++);
+        }
+
+        private long readLong() {
+            long result = 0;
+            int shift = 0;
+            byte current;
+            do {
+                current = buffer.get(this.position++);
+                result |= (long) (current & 0x7F) << shift;
+                shift += 7;
+            } while ((current & 0x80) != 0);
+            return result;
+        }
+
+        /**
+         * Get the current term
+         */
+        public String term() {
+            return new String(this.termBytes, 0, this.termLength, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Get the number stored for the current term
+         */
+        public long value() {
+            return this.value;
+        }
+
+        /**
+         * Get the position of the current term in sorted order
+         */
+        public int ordinal() {
+            return this.ordinal;
+        }
+    }
+
+    private static int getSharedPrefixLength(byte[] first, byte[] second) {
+        int length = Math.min(first.length, second.length), i = 0;
+        while (i < length && first[i] == second[i]) i++;
+        return i;
+    }
+
+    private static int writeLong(long value, byte[] buffer, int offset) {
+        while ((value & ~0x7FL) != 0) {
+            buffer[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[offset++] = (byte) value;
+        return offset;
+    }
+}
@@ -0,0 +1,70 @@
+package Vector.Space.Retrieval.System.indexer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class holds collection-wide term statistics (number of documents and document
+ * frequency of each term) which can be merged across several index shards so that
+ * every shard computes the same IDF for a term
+ */
+public class TermStatistics {
+    private int collectionSize;
+    private final Map<String, Integer> documentFrequencies;
+
+    public TermStatistics() {
+        this(0, new HashMap<>());
+    }
+
+    public TermStatistics(final int collectionSize, final Map<String, Integer> documentFrequencies) {
+        this.collectionSize = collectionSize;
+        this.documentFrequencies = new HashMap<>(documentFrequencies);
+    }
+
+    /**
+     * Adds the statistics of another shard to these statistics
+     * @param collectionSize Number of documents indexed by the other shard
+     * @param documentFrequencies Map of term -> document frequency in the other shard
+     */
+    public void merge(int collectionSize, Map<String, Integer> documentFrequencies) {
+        this.collectionSize += collectionSize;
+        documentFrequencies.forEach((term, df) -> this.documentFrequencies.merge(term, df, Integer::sum));
+    }
+
+    /**
+     * This computes and returns the IDF of a given term using the merged statistics
+     * @param term The term whose IDF is to be found
+     * @return IDF(term), which is (log<sub>10</sub> ( collectionSize / documentFrequency(term) ))
+     */
+    public double getInverseDocumentFrequency(String term) throws Exception {
+        int df = this.getDocumentFrequency(term);
+        if (df == 0) throw new Exception();
+        if (df == this.collectionSize) return 1;
+        return Math.log10((double) (this.collectionSize) / (double) (df));
+    }
+
+    /**
+     * Get the number of documents in which the term appears across all merged shards
+     * @param term Term whose document frequency is to be found
+     * @return number of documents in which term appears
+     */
+    public int getDocumentFrequency(String term) {
+        return this.documentFrequencies.getOrDefault(term, 0);
+    }
+
+    /**
+     * Get the number of documents indexed across all merged shards
+     * @return Number of indexed documents
+     */
+    public int getCollectionSize() {
+        return this.collectionSize;
+    }
+
+    /**
+     * Get the merged map of term -> document frequency
+     * @return Document frequencies of all terms seen so far
+     */
+    public Map<String, Integer> getDocumentFrequencies() {
+        return this.documentFrequencies;
+    }
+}
@@ -0,0 +1,89 @@
+package Vector.Space.Retrieval.System.indexer;
+
+import java.util.Arrays;
+
+/**
+ * This class encodes non-negative integers with the variable byte code used to compress
+ * postings: 7 bits of the number are stored per byte, least significant group first, and
+ * the high bit of a byte is set when more bytes of the same number follow. <br>
+ * Sorted lists (positions, docIDs) are stored as gaps between consecutive values so that
+ * most of them fit in a single byte.
+ */
+public class VariableByteCode {
+
+    /**
+     * Computes the number of bytes needed to encode a value
+     * @param value Non-negative integer
+     * @return number of bytes (1 to 5)
+     */
+    public static int getEncodedLength(int value) {
+        int length = 1;
+        while ((value >>>= 7) != 0) length++;
+        return length;
+    }
+
+    /**
+     * Writes a value into the buffer at the given offset
+     * @param value Non-negative integer
+     * @param buffer Buffer having at least {@link #getEncodedLength(int)} free bytes at offset
+     * @param offset Position in the buffer to write at
+     * @return position in the buffer right after the written value
+     */
+    public static int write(int value, byte[] buffer, int offset) {
+        while ((value & ~0x7F) != 0) {
+            buffer[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[offset++] = (byte) value;
+        return offset;
+    }
+
+    /**
+     * Appends a value to a growable buffer
+     * @param value Non-negative integer
+     * @param buffer Current buffer (may be null)
+     * @param length Number of bytes used in the buffer
+     * @return the buffer holding the appended value, which is a new array if the old one was full
+     */
+    public static byte[] append(int value, byte[] buffer, int length) {
+        if (buffer == null) buffer = new byte[8];
+        if (length + 5 > buffer.length) buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + 5));
+        write(value, buffer, length);
+        return buffer;
+    }
+
+    /**
+     * Reads the value starting at the given offset
+     * @param buffer Encoded bytes
+     * @param offset Single-element array holding the position to read at, which is advanced past the value
+     * @return decoded value
+     */
+    public static int read(byte[] buffer, int[] offset) {
+        int value = 0, shift = 0;
+        byte current;
+        do {
+            current = buffer[offset[0]++];
+            value |= (current & 0x7F) << shift;
+            shift += 7;
+        } while ((current & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * Decodes a sorted list which was stored as gaps between consecutive values
+     * @param buffer Encoded gaps
+     * @param length Number of bytes used in the buffer
+     * @param count Number of values encoded
+     * @return sorted values
+     */
+    public static int[] decodeGaps(byte[] buffer, int length, int count) {
+        int[] values = new int[count];
+        int[] offset = {0};
+        int previous = 0, i = 0;
+        while (offset[0] < length && i < count) {
+            previous += read(buffer, offset);
+            values[i++] = previous;
+        }
+        return i == count ? values : Arrays.copyOf(values, i);
+    }
+}
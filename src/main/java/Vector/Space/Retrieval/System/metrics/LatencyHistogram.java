@@ -0,0 +1,107 @@
+package Vector.Space.Retrieval.System.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class records latencies in nanoseconds into log-linear buckets, so that percentiles
+ * can be read without keeping every sample. <br>
+ * Every power of two is split into 8 linear sub-buckets, which bounds the error of a
+ * reported percentile to 12.5%. Recording is lock free and safe from any number of threads.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3, SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts;
+    private final LongAdder count, sum;
+    private final LongAccumulator max;
+
+    public LatencyHistogram() {
+        this.counts = new AtomicLongArray(BUCKETS);
+        this.count = new LongAdder();
+        this.sum = new LongAdder();
+        this.max = new LongAccumulator(Math::max, 0);
+    }
+
+    /**
+     * Records a single latency
+     * @param nanos Elapsed time in nanoseconds
+     */
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        this.counts.incrementAndGet(getBucket(nanos));
+        this.count.increment();
+        this.sum.add(nanos);
+        this.max.accumulate(nanos);
+    }
+
+    /**
+     * Get the number of recorded latencies
+     */
+    public long getCount() {
+        return this.count.sum();
+    }
+
+    /**
+     * Get the mean of all recorded latencies in nanoseconds
+     */
+    public double getMean() {
+        long samples = getCount();
+        return samples == 0 ? 0 : (double)this.sum.sum() / samples;
+    }
+
+    /**
+     * Get the largest recorded latency in nanoseconds
+     */
+    public long getMax() {
+        return this.max.get();
+    }
+
+    /**
+     * Get the latency below which the given fraction of all recorded latencies fall
+     * @param percentile Fraction between 0 and 1, e.g. 0.99 for the p99
+     * @return Upper bound of the bucket holding the percentile in nanoseconds, 0 if nothing was recorded
+     */
+    public long getPercentile(double percentile) {
+        long samples = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int bucket = 0; bucket < BUCKETS; bucket++)
+            samples += snapshot[bucket] = this.counts.get(bucket);
+        if (samples == 0) return 0;
+
+        long rank = Math.max(1, (long)Math.ceil(percentile * samples)), seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += snapshot[bucket];
+            if (seen >= rank)
+                return Math.min(getUpperBound(bucket), getMax());
+        }
+        return getMax();
+    }
+
+    /**
+     * Summarizes this histogram in microseconds for log lines
+     */
+    public String describe() {
+        return String.format("count=%d mean=%.1fus p50=%.1fus p99=%.1fus max=%.1fus",
+                getCount(), getMean() / 1e3, getPercentile(0.5) / 1e3, getPercentile(0.99) / 1e3, getMax() / 1e3);
+    }
+
+    /**
+     * Values below 8 get a bucket of their own, every larger value is bucketed by its
+     * highest set bit and the next three bits below it
+     */
+    private static int getBucket(long value) {
+        if (value < SUB_BUCKETS) return (int)value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int)(value >>> exponent) & (SUB_BUCKETS - 1);
+        return (exponent + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long getUpperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int exponent = bucket / SUB_BUCKETS - 1, subBucket = bucket % SUB_BUCKETS;
+        return ((long)(SUB_BUCKETS + subBucket + 1) << exponent) - 1;
+    }
+}
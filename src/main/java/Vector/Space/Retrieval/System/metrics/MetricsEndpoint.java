@@ -0,0 +1,69 @@
+package Vector.Space.Retrieval.System.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * This class serves metrics as JSON over plain HTTP at <i>/metrics</i>, so that they can be read
+ * with any HTTP client while the server is busy, e.g. during the initial crawl, which keeps
+ * the websocket server from answering until it is done.
+ */
+public class MetricsEndpoint {
+    private static final Logger logger = LoggerFactory.getLogger(MetricsEndpoint.class);
+    private final int port;
+    private final Supplier<Object> metrics;
+    private final ObjectMapper mapper;
+    private HttpServer server;
+
+    /**
+     * @param port Port to listen on
+     * @param metrics Gives the current metrics, which are serialized on every request
+     */
+    public MetricsEndpoint(final int port, final Supplier<Object> metrics) {
+        this.port = port;
+        this.metrics = metrics;
+        this.mapper = new ObjectMapper();
+    }
+
+    /**
+     * Starts answering requests on a background thread
+     */
+    public void start() throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(this.port), 0);
+        this.server.createContext("/metrics", this::handle);
+        this.server.setExecutor(Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-endpoint");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        this.server.start();
+        logger.info(String.format("serving metrics on port %d", this.port));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            byte[] body = this.mapper.writeValueAsBytes(this.metrics.get());
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        }
+        finally {
+            exchange.close();
+        }
+    }
+
+    public void stop() {
+        if (this.server != null) this.server.stop(0);
+    }
+}
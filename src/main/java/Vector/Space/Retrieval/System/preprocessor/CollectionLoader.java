@@ -0,0 +1,339 @@
+package Vector.Space.Retrieval.System.preprocessor;
+
+import Vector.Space.Retrieval.System.Constants;
+import Vector.Space.Retrieval.System.indexer.InvertedIndexer;
+import Vector.Space.Retrieval.System.preprocessor.crawler.Crawler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * This class ingests local document collections in bulk, e.g. <i>cranfieldDocs</i> and <i>citeseer</i>. <br>
+ * Every file is read with one NIO read, or memory-mapped if it is large, and its documents are found by
+ * scanning the bytes for the section tags instead of matching every line against a regular expression.
+ * A file may hold several TREC-style documents (<i>&lt;DOC&gt;</i> ... <i>&lt;/DOC&gt;</i>), whose
+ * <i>&lt;TITLE&gt;</i> and <i>&lt;TEXT&gt;</i> sections are indexed. A file without tags is indexed whole
+ * as plain text, with its first sentence as the title. <br>
+ * The files are read and tokenized by a pool of threads, while one thread adds the documents to the indexer
+ * in the order of the files, so that the document IDs do not depend on the thread scheduling. Documents loaded
+ * through a {@link Crawler} are also counted in its vocabulary and term statistics, like crawled pages.
+ */
+public class CollectionLoader {
+    private static final Logger logger = LoggerFactory.getLogger(CollectionLoader.class);
+    private static final long MAP_THRESHOLD = 1 << 20;
+    private static final byte[] DOC = tag("DOC"), DOC_END = tag("/DOC"), DOCNO = tag("DOCNO"), DOCNO_END = tag("/DOCNO"),
+            TITLE = tag("TITLE"), TITLE_END = tag("/TITLE"), TEXT = tag("TEXT"), TEXT_END = tag("/TEXT");
+
+    private final int threads;
+    private final Tokenizer tokenizer;
+    private final StopWordProcessor stopWordProcessor;
+    private final LongAdder readNanos, tokenizeNanos;
+
+    /**
+     * A document read and tokenized, waiting to be indexed
+     */
+    private static class LoadedDocument {
+        private final String url, title;
+        private final List<String> tokens;
+        private final Set<String> words;
+
+        private LoadedDocument(String url, String title, List<String> tokens, Set<String> words) {
+            this.url = url;
+            this.title = title;
+            this.tokens = tokens;
+            this.words = words;
+        }
+    }
+
+    /**
+     * What a load did and how fast
+     */
+    public static class Report {
+        private final int files, documents;
+        private final long bytes, nanos, readNanos, tokenizeNanos, indexNanos;
+
+        private Report(int files, int documents, long bytes, long nanos, long readNanos, long tokenizeNanos, long indexNanos) {
+            this.files = files;
+            this.documents = documents;
+            this.bytes = bytes;
+            this.nanos = nanos;
+            this.readNanos = readNanos;
+            this.tokenizeNanos = tokenizeNanos;
+            this.indexNanos = indexNanos;
+        }
+
+        public int getDocuments() {
+            return this.documents;
+        }
+
+        public long getBytes() {
+            return this.bytes;
+        }
+
+        public double getDocumentsPerSecond() {
+            return this.documents / Math.max(1e-9, this.nanos / 1e9);
+        }
+
+        public double getMegabytesPerSecond() {
+            return this.bytes / 1e6 / Math.max(1e-9, this.nanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("loaded %d documents from %d files (%.1f MB) in %.0f ms: %.0f docs/s, %.1f MB/s " +
+                            "(reading %.0f ms and tokenizing %.0f ms summed over all threads, indexing %.0f ms)",
+                    this.documents, this.files, this.bytes / 1e6, this.nanos / 1e6, getDocumentsPerSecond(),
+                    getMegabytesPerSecond(), this.readNanos / 1e6, this.tokenizeNanos / 1e6, this.indexNanos / 1e6);
+        }
+    }
+
+    /**
+     * @param threads Number of threads reading and tokenizing files
+     */
+    public CollectionLoader(final int threads) {
+        this.threads = threads;
+        this.tokenizer = new Tokenizer();
+        this.stopWordProcessor = new StopWordProcessor();
+        this.readNanos = new LongAdder();
+        this.tokenizeNanos = new LongAdder();
+    }
+
+    /**
+     * Loads every document of a collection into the indexer
+     * @param directory Directory holding the files of the collection
+     * @param indexer Indexer receiving the documents
+     * @return counts and throughput of the load
+     */
+    public Report load(Path directory, InvertedIndexer indexer) throws IOException {
+        return load(directory, document -> {
+            indexer.addToIndex(document.tokens, document.url, document.title, "");
+            indexer.setCollectionSize(indexer.getCollectionSize() + 1);
+        });
+    }
+
+    /**
+     * Loads every document of a collection into the index of a crawler, counting their words in its vocabulary
+     * and their terms in its term statistics
+     * @param directory Directory holding the files of the collection
+     * @param crawler Crawler whose index files are written afterwards
+     * @return counts and throughput of the load
+     */
+    public Report load(Path directory, Crawler crawler) throws IOException {
+        return load(directory, document ->
+                crawler.indexDocument(document.url, document.title, "", document.tokens, document.words));
+    }
+
+    private Report load(Path directory, Consumer<LoadedDocument> consumer) throws IOException {
+        List<Path> files;
+        try (Stream<Path> paths = Files.list(directory)) {
+            files = paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        this.readNanos.reset();
+        this.tokenizeNanos.reset();
+        long start = System.nanoTime(), bytes = 0, indexNanos = 0;
+        int documents = 0;
+
+        ExecutorService executor = Executors.newFixedThreadPool(this.threads);
+        try {
+            /* a bounded window of files in flight keeps the memory flat however large the collection is */
+            Deque<Future<List<LoadedDocument>>> pending = new ArrayDeque<>();
+            int next = 0;
+            while (next < files.size() || !pending.isEmpty()) {
+                while (next < files.size() && pending.size() < this.threads * 4) {
+                    Path file = files.get(next++);
+                    bytes += Files.size(file);
+                    pending.add(executor.submit(() -> loadFile(file)));
+                }
+                List<LoadedDocument> loaded = pending.poll().get();
+                long indexStart = System.nanoTime();
+                for (LoadedDocument document : loaded) consumer.accept(document);
+                indexNanos += System.nanoTime() - indexStart;
+                documents += loaded.size();
+            }
+        }
+        catch(InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        catch(ExecutionException ex) {
+            throw new IOException(ex.getCause());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        Report report = new Report(files.size(), documents, bytes, System.nanoTime() - start,
+                this.readNanos.sum(), this.tokenizeNanos.sum(), indexNanos);
+        logger.info(String.format("%s: %s", directory, report));
+        return report;
+    }
+
+    /**
+     * Reads a file and tokenizes its documents
+     * @param file Path of the file
+     * @return documents of the file
+     */
+    private List<LoadedDocument> loadFile(Path file) throws IOException {
+        long start = System.nanoTime();
+        ByteBuffer buffer = read(file);
+        String fileName = file.getFileName().toString();
+        List<String[]> sections = new ArrayList<>();
+        boolean titleInText = false;
+
+        int docStart = indexOf(buffer, DOC, 0, buffer.limit());
+        if (docStart < 0) {
+            /* a file without documents is one document, or plain text if it has no text section either */
+            int[] text = getSection(buffer, TEXT, TEXT_END, 0, buffer.limit());
+            if (text == null) {
+                String content = decode(buffer, 0, buffer.limit());
+                int sentenceEnd = content.indexOf(" . ");
+                sections.add(new String[] {fileName, sentenceEnd < 0 ? "" : content.substring(0, sentenceEnd).trim(), content});
+                /* the first sentence is only shown as the title, since it is indexed with the content already */
+                titleInText = true;
+            }
+            else sections.add(getDocument(buffer, fileName, 0, buffer.limit()));
+        }
+        while (docStart >= 0) {
+            int docEnd = indexOf(buffer, DOC_END, docStart, buffer.limit());
+            if (docEnd < 0) docEnd = buffer.limit();
+            sections.add(getDocument(buffer, fileName, docStart, docEnd));
+            docStart = indexOf(buffer, DOC, docEnd, buffer.limit());
+        }
+        /* a file holding one document is known by its name, as the relevance judgements refer to it */
+        if (sections.size() == 1) sections.get(0)[0] = fileName;
+        this.readNanos.add(System.nanoTime() - start);
+
+        start = System.nanoTime();
+        List<LoadedDocument> documents = new ArrayList<>(sections.size());
+        for (String[] section : sections) {
+            List<String> tokens = titleInText ? new ArrayList<>() : this.tokenizer.tokenize(section[1]);
+            tokens.addAll(this.tokenizer.tokenize(section[2]));
+            /* the vocabulary holds the unstemmed words without stop words, as for a crawled page */
+            Set<String> words = new HashSet<>(this.stopWordProcessor.eliminateStopWordsFromList(tokens));
+            documents.add(new LoadedDocument(section[0], collapseWhitespace(section[1]), this.tokenizer.preprocessTokens(tokens), words));
+        }
+        this.tokenizeNanos.add(System.nanoTime() - start);
+        return documents;
+    }
+
+    /**
+     * Reads a whole file, memory-mapping it if it is large
+     */
+    private static ByteBuffer read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size >= MAP_THRESHOLD) return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            ByteBuffer buffer = ByteBuffer.allocate((int)size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) ;
+            buffer.flip();
+            return buffer;
+        }
+    }
+
+    /**
+     * Gets the number, title and text of a document
+     * @return url (its DOCNO, or the file name if it has none), title and text of the document
+     */
+    private static String[] getDocument(ByteBuffer buffer, String fileName, int from, int to) {
+        int[] number = getSection(buffer, DOCNO, DOCNO_END, from, to);
+        int[] title = getSection(buffer, TITLE, TITLE_END, from, to);
+        int[] text = getSection(buffer, TEXT, TEXT_END, from, to);
+        return new String[] {
+                number == null ? fileName : decode(buffer, number[0], number[1]).trim(),
+                title == null ? "" : decode(buffer, title[0], title[1]),
+                text == null ? "" : decode(buffer, text[0], text[1])
+        };
+    }
+
+    /**
+     * Finds the contents of a section
+     * @return start and end of the contents, or null if the section is missing
+     */
+    private static int[] getSection(ByteBuffer buffer, byte[] startTag, byte[] endTag, int from, int to) {
+        int start = indexOf(buffer, startTag, from, to);
+        if (start < 0) return null;
+        int end = indexOf(buffer, endTag, start + startTag.length, to);
+        return new int[] {start + startTag.length, end < 0 ? to : end};
+    }
+
+    private static int indexOf(ByteBuffer buffer, byte[] pattern, int from, int to) {
+        byte first = pattern[0];
+        for (int i = from; i <= to - pattern.length; i++) {
+            if (buffer.get(i) != first) continue;
+            int j = 1;
+            while (j < pattern.length && buffer.get(i + j) == pattern[j]) j++;
+            if (j == pattern.length) return i;
+        }
+        return -1;
+    }
+
+    private static String decode(ByteBuffer buffer, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        buffer.duplicate().position(from).get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String collapseWhitespace(String text) {
+        StringBuilder builder = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                if (builder.length() > 0 && builder.charAt(builder.length() - 1) != ' ') builder.append(' ');
+            }
+            else builder.append(c);
+        }
+        return builder.toString().trim();
+    }
+
+    private static byte[] tag(String name) {
+        return String.format("<%s>", name).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Loads the given collection directories (by default <i>cranfieldDocs</i> and <i>citeseer</i>) into one index
+     * and writes the index files, which the server then reads with indexing turned off
+     * @param args Directories of the collections
+     */
+    public static void main(String[] args) {
+        List<String> directories = args.length > 0 ? List.of(args) :
+                List.of("src/main/resources/cranfieldDocs", "src/main/resources/citeseer");
+        Crawler crawler = new Crawler(0);
+        CollectionLoader loader = new CollectionLoader(Runtime.getRuntime().availableProcessors());
+        try {
+            long start = System.nanoTime();
+            int documents = 0;
+            long bytes = 0;
+            for (String directory : directories) {
+                Report report = loader.load(Paths.get(directory), crawler);
+                documents += report.getDocuments();
+                bytes += report.getBytes();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            logger.info(String.format("loaded %d documents (%.1f MB) in %.1f s: %.0f docs/s, %.1f MB/s",
+                    documents, bytes / 1e6, seconds, documents / seconds, bytes / 1e6 / seconds));
+            logger.info(String.format("term statistics: %s", crawler.getCorpusStatistics().describe(Constants.stopWordRatio)));
+            crawler.writeIndexFiles();
+        }
+        catch(IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+}
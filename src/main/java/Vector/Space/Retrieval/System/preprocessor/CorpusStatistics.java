@@ -0,0 +1,282 @@
+package Vector.Space.Retrieval.System.preprocessor;
+
+import java.util.*;
+
+/**
+ * This class collects term statistics of a whole collection in one pass over its documents and in bounded
+ * memory, so that they can be taken over a crawl of any size: <br>
+ * - the most frequent terms, counted by a {@link CountMinSketch} of term frequencies, of which a heap keeps
+ *   the terms having the largest estimates <br>
+ * - the candidates for stop words, which are the terms occurring in the largest share of the documents,
+ *   found in the same way from a sketch of document frequencies <br>
+ * - the growth of the vocabulary with the number of tokens, whose distinct terms are counted by a
+ *   HyperLogLog, and which is fitted to Heaps' law <i>V = K n<sup>&beta;</sup></i>
+ */
+public class CorpusStatistics {
+    private static final int MAX_SAMPLES = 64;
+
+    private final CountMinSketch termFrequencies, documentFrequencies;
+    private final HeavyHitters frequentTerms, commonTerms;
+    private final DistinctCounter distinctTerms;
+    private final long[] sampleTokens, sampleTerms;
+    private int sampleCount, sampleInterval;
+    private long tokens;
+    private int documents;
+
+    /**
+     * @param heavyHitters Number of most frequent terms and of stop word candidates kept
+     * @param width Number of cells per row of the sketches
+     * @param depth Number of rows of the sketches
+     */
+    public CorpusStatistics(final int heavyHitters, final int width, final int depth) {
+        this.termFrequencies = new CountMinSketch(width, depth);
+        this.documentFrequencies = new CountMinSketch(width, depth);
+        this.frequentTerms = new HeavyHitters(heavyHitters);
+        this.commonTerms = new HeavyHitters(heavyHitters);
+        this.distinctTerms = new DistinctCounter(14);
+        this.sampleTokens = new long[MAX_SAMPLES];
+        this.sampleTerms = new long[MAX_SAMPLES];
+        this.sampleInterval = 1;
+    }
+
+    /**
+     * Counts the terms of the next document
+     * @param terms Terms of the document in order, with repetitions
+     */
+    public void addDocument(List<String> terms) {
+        Set<String> seen = new HashSet<>();
+        for (String term : terms) {
+            long hash = CountMinSketch.hash(term);
+            this.frequentTerms.offer(term, this.termFrequencies.add(hash, 1));
+            this.distinctTerms.add(hash);
+            if (seen.add(term)) this.commonTerms.offer(term, this.documentFrequencies.add(hash, 1));
+        }
+        this.tokens += terms.size();
+        this.documents++;
+
+        if (this.documents % this.sampleInterval == 0) {
+            if (this.sampleCount == MAX_SAMPLES) {
+                /* halve the resolution of the growth curve to keep a fixed number of points */
+                for (int i = 0; i < MAX_SAMPLES / 2; i++) {
+                    this.sampleTokens[i] = this.sampleTokens[2 * i + 1];
+                    this.sampleTerms[i] = this.sampleTerms[2 * i + 1];
+                }
+                this.sampleCount = MAX_SAMPLES / 2;
+                this.sampleInterval *= 2;
+                if (this.documents % this.sampleInterval != 0) return;
+            }
+            this.sampleTokens[this.sampleCount] = this.tokens;
+            this.sampleTerms[this.sampleCount++] = this.distinctTerms.estimate();
+        }
+    }
+
+    public int getDocumentCount() {
+        return this.documents;
+    }
+
+    public long getTokenCount() {
+        return this.tokens;
+    }
+
+    /**
+     * Get the estimated number of distinct terms, within about 1% of the true number
+     */
+    public long getDistinctTermCount() {
+        return this.distinctTerms.estimate();
+    }
+
+    /**
+     * Get the most frequent terms
+     * @return map of term -> estimated number of occurrences, most frequent first
+     */
+    public Map<String, Long> getFrequentTerms() {
+        return this.frequentTerms.getTop();
+    }
+
+    /**
+     * Get the terms occurring in at least the given share of the documents, which carry little
+     * information for ranking and may be added to the stop words
+     * @param ratio Smallest share of the documents
+     * @return map of term -> estimated document frequency, most common first
+     */
+    public Map<String, Long> getStopWordCandidates(double ratio) {
+        Map<String, Long> candidates = new LinkedHashMap<>();
+        this.commonTerms.getTop().forEach((term, documentFrequency) -> {
+            if (documentFrequency >= ratio * this.documents) candidates.put(term, documentFrequency);
+        });
+        return candidates;
+    }
+
+    /**
+     * Get the growth of the vocabulary
+     * @return pairs of number of tokens and estimated number of distinct terms, as the documents were added
+     */
+    public long[][] getVocabularyGrowth() {
+        long[][] growth = new long[this.sampleCount][];
+        for (int i = 0; i < this.sampleCount; i++) growth[i] = new long[] {this.sampleTokens[i], this.sampleTerms[i]};
+        return growth;
+    }
+
+    /**
+     * Fits Heaps' law <i>V = K n<sup>&beta;</sup></i> to the growth of the vocabulary by least squares on a log-log scale
+     * @return K and &beta;, or NaN if there are fewer than two points
+     */
+    public double[] getHeapsLaw() {
+        double n = 0, sumX = 0, sumY = 0, sumXX = 0, sumXY = 0;
+        for (int i = 0; i < this.sampleCount; i++) {
+            if (this.sampleTokens[i] == 0 || this.sampleTerms[i] == 0) continue;
+            double x = Math.log(this.sampleTokens[i]), y = Math.log(this.sampleTerms[i]);
+            n++;
+            sumX += x;
+            sumY += y;
+            sumXX += x * x;
+            sumXY += x * y;
+        }
+        double denominator = n * sumXX - sumX * sumX;
+        if (n < 2 || denominator == 0) return new double[] {Double.NaN, Double.NaN};
+        double beta = (n * sumXY - sumX * sumY) / denominator;
+        return new double[] {Math.exp((sumY - beta * sumX) / n), beta};
+    }
+
+    /**
+     * Get the memory taken by the sketches, which does not grow with the collection
+     */
+    public long getSizeInBytes() {
+        return this.termFrequencies.getSizeInBytes() + this.documentFrequencies.getSizeInBytes() + this.distinctTerms.getSizeInBytes();
+    }
+
+    /**
+     * Formats the statistics as the report logged at the end of a crawl
+     * @param stopWordRatio Smallest share of the documents a stop word candidate occurs in
+     */
+    public String describe(double stopWordRatio) {
+        double[] heapsLaw = getHeapsLaw();
+        return String.format("%d documents, %d tokens, ~%d distinct terms (Heaps' law K=%.1f beta=%.2f), " +
+                        "sketches of %d bytes%n  most frequent terms (counts within +%.0f): %s%n" +
+                        "  stop word candidates (in %.0f%% of the documents or more): %s",
+                this.documents, this.tokens, getDistinctTermCount(), heapsLaw[0], heapsLaw[1], getSizeInBytes(),
+                this.termFrequencies.getErrorBound(), getFrequentTerms(), 100 * stopWordRatio, getStopWordCandidates(stopWordRatio));
+    }
+
+    /**
+     * This class keeps the terms having the largest counts seen so far in a min-heap, together with the
+     * position of every term in it, so that the count of a term already kept can be raised in place
+     */
+    private static class HeavyHitters {
+        private final String[] terms;
+        private final long[] counts;
+        private final Map<String, Integer> positions;
+        private int size;
+
+        private HeavyHitters(final int capacity) {
+            this.terms = new String[capacity];
+            this.counts = new long[capacity];
+            this.positions = new HashMap<>();
+        }
+
+        /**
+         * Offers the current count of a term, which never decreases
+         */
+        private void offer(String term, long count) {
+            if (this.terms.length == 0) return;
+            Integer position = this.positions.get(term);
+            if (position != null) {
+                this.counts[position] = count;
+                siftDown(position);
+            }
+            else if (this.size < this.terms.length) {
+                set(this.size, term, count);
+                siftUp(this.size++);
+            }
+            else if (count > this.counts[0]) {
+                /* the term displaces the smallest of the kept terms */
+                this.positions.remove(this.terms[0]);
+                set(0, term, count);
+                siftDown(0);
+            }
+        }
+
+        private void siftUp(int position) {
+            while (position > 0) {
+                int parent = (position - 1) / 2;
+                if (this.counts[parent] <= this.counts[position]) return;
+                swap(position, parent);
+                position = parent;
+            }
+        }
+
+        private void siftDown(int position) {
+            while (2 * position + 1 < this.size) {
+                int child = 2 * position + 1;
+                if (child + 1 < this.size && this.counts[child + 1] < this.counts[child]) child++;
+                if (this.counts[position] <= this.counts[child]) return;
+                swap(position, child);
+                position = child;
+            }
+        }
+
+        private void swap(int first, int second) {
+            String term = this.terms[first];
+            long count = this.counts[first];
+            set(first, this.terms[second], this.counts[second]);
+            set(second, term, count);
+        }
+
+        private void set(int position, String term, long count) {
+            this.terms[position] = term;
+            this.counts[position] = count;
+            this.positions.put(term, position);
+        }
+
+        /**
+         * @return map of term -> count of the kept terms, largest first
+         */
+        private Map<String, Long> getTop() {
+            Integer[] order = new Integer[this.size];
+            for (int i = 0; i < this.size; i++) order[i] = i;
+            Arrays.sort(order, (first, second) -> this.counts[first] != this.counts[second] ?
+                    Long.compare(this.counts[second], this.counts[first]) : this.terms[first].compareTo(this.terms[second]));
+            Map<String, Long> top = new LinkedHashMap<>();
+            for (int position : order) top.put(this.terms[position], this.counts[position]);
+            return top;
+        }
+    }
+
+    /**
+     * This class estimates the number of distinct terms with a HyperLogLog: every term is hashed to one of
+     * <i>2<sup>precision</sup></i> registers, which keeps the longest run of leading zeros seen in the remaining bits
+     * of the hashes, and the harmonic mean of the registers gives the estimate
+     */
+    private static class DistinctCounter {
+        private final int precision;
+        private final byte[] registers;
+
+        private DistinctCounter(final int precision) {
+            this.precision = precision;
+            this.registers = new byte[1 << precision];
+        }
+
+        private void add(long hash) {
+            int register = (int) (hash >>> (64 - this.precision));
+            byte rank = (byte) (Long.numberOfLeadingZeros(hash << this.precision | 1L << (this.precision - 1)) + 1);
+            if (rank > this.registers[register]) this.registers[register] = rank;
+        }
+
+        private long estimate() {
+            int m = this.registers.length, zeros = 0;
+            double sum = 0;
+            for (byte rank : this.registers) {
+                sum += 1.0 / (1L << rank);
+                if (rank == 0) zeros++;
+            }
+            double estimate = 0.7213 / (1 + 1.079 / m) * m * m / sum;
+            /* few distinct terms leave many registers empty, which linear counting estimates better */
+            if (estimate <= 2.5 * m && zeros > 0) estimate = m * Math.log((double) m / zeros);
+            return Math.round(estimate);
+        }
+
+        private long getSizeInBytes() {
+            return this.registers.length;
+        }
+    }
+}
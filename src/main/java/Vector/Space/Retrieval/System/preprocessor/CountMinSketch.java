@@ -0,0 +1,106 @@
+package Vector.Space.Retrieval.System.preprocessor;
+
+/**
+ * This class estimates how often every term of a stream occurred, in a fixed amount of memory however
+ * many distinct terms there are. <br>
+ * Every term is counted in one cell of each of the rows, picked by hashing the term, and its estimate is
+ * the smallest of these cells. Other terms hashing to the same cells can only make the estimate larger,
+ * so it never undercounts, and it overcounts by more than <i>e / width</i> of all occurrences only with
+ * a probability of <i>e<sup>-depth</sup></i>.
+ */
+public class CountMinSketch {
+    private final int width, depth, mask;
+    private final long[] counts;
+    private long total;
+
+    /**
+     * @param width Number of cells per row, rounded up to a power of two
+     * @param depth Number of rows
+     */
+    public CountMinSketch(final int width, final int depth) {
+        this.width = Integer.highestOneBit(Math.max(1, width - 1)) << 1;
+        this.depth = depth;
+        this.mask = this.width - 1;
+        this.counts = new long[this.width * depth];
+    }
+
+    /**
+     * Counts occurrences of a term
+     * @param term Term which occurred
+     * @param count Number of occurrences
+     * @return estimated number of occurrences of the term so far, including these
+     */
+    public long add(String term, long count) {
+        return add(hash(term), count);
+    }
+
+    /**
+     * Counts occurrences of a term given by its {@link #hash(String)}
+     */
+    long add(long hash, long count) {
+        /* two halves of the hash give the cell of every row; an odd step is never a multiple of the width */
+        int first = (int) hash, second = (int) (hash >>> 32) | 1;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < this.depth; row++) {
+            int cell = row * this.width + ((first + row * second) & this.mask);
+            this.counts[cell] += count;
+            estimate = Math.min(estimate, this.counts[cell]);
+        }
+        this.total += count;
+        return estimate;
+    }
+
+    /**
+     * Estimates the number of occurrences of a term
+     * @param term Term to look up
+     * @return estimated number of occurrences, which is never less than the true number
+     */
+    public long estimate(String term) {
+        long hash = hash(term);
+        int first = (int) hash, second = (int) (hash >>> 32) | 1;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < this.depth; row++)
+            estimate = Math.min(estimate, this.counts[row * this.width + ((first + row * second) & this.mask)]);
+        return estimate;
+    }
+
+    /**
+     * Get the number of occurrences of all terms counted so far
+     */
+    public long getTotal() {
+        return this.total;
+    }
+
+    /**
+     * Get the largest error an estimate is likely to have, <i>e / width</i> of all occurrences
+     */
+    public double getErrorBound() {
+        return Math.E / this.width * this.total;
+    }
+
+    /**
+     * Get the memory taken by the counters
+     */
+    public long getSizeInBytes() {
+        return 8L * this.counts.length;
+    }
+
+    /**
+     * Hashes a term to 64 well mixed bits (FNV-1a over its characters, followed by the finalizer of MurmurHash3)
+     * @param term Term to hash
+     * @return hash of the term
+     */
+    static long hash(String term) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < term.length(); i++) {
+            hash ^= term.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
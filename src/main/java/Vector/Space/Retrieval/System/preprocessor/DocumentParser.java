@@ -2,9 +2,9 @@ package Vector.Space.Retrieval.System.preprocessor;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.*;
-import java.util.regex.Pattern;
 
 import static Vector.Space.Retrieval.System.DocumentUtils.constructDocumentName;
 
@@ -16,7 +16,9 @@ public class DocumentParser {
 
     /**
      * This method will parse the entire collection and create a global list of all valid lines of text
-     * found in all documents in the collection
+     * found in all documents in the collection. The documents are numbered from 1, and the first
+     * missing number ends the collection. <br>
+     * For large collections see {@link CollectionLoader}, which streams the documents into the index instead.
      * @param directory name of the directory having the collection
      * @param fileNamePrefix prefix of the document name common to all documents
      * @return global list of all valid lines of text found in the collection
@@ -25,22 +27,12 @@ public class DocumentParser {
         List<String> result = new ArrayList<>();
         int documentIndex = 1;
 
-        while(documentIndex < 2) {
-            try {
-                BufferedReader document = new BufferedReader(
-                        new InputStreamReader(
-                                Objects.requireNonNull(
-                                        DocumentParser.class.getClassLoader()
-                                                .getResourceAsStream(
-                                                        String.format("%s/%s%s", directory, fileNamePrefix,
-                                                                constructDocumentName(documentIndex++))
-                                                )
-                                )
-                        )
-                );
-                List<String> currentDocumentLines = parseDocument(document);
-
-                result.addAll(currentDocumentLines);
+        while(true) {
+            InputStream stream = DocumentParser.class.getClassLoader().getResourceAsStream(
+                    String.format("%s/%s%s", directory, fileNamePrefix, constructDocumentName(documentIndex++)));
+            if (stream == null) break;
+            try (BufferedReader document = new BufferedReader(new InputStreamReader(stream))) {
+                result.addAll(parseDocument(document));
             } catch (Exception e) {
                 e.printStackTrace();
             }
@@ -76,7 +68,6 @@ public class DocumentParser {
      * @return list of all lines in the title and text sections in the current document
      */
     private List<String> parseDocument(BufferedReader br) throws IOException {
-        String tagStart = "<[A-Z]+>";
         String line;
         List<String> documentLines = new ArrayList<>();
         Set<String> requiredTags = new HashSet<>();
@@ -84,13 +75,24 @@ public class DocumentParser {
         requiredTags.add("text");
 
         while((line = br.readLine()) != null) {
-            if (Pattern.matches(tagStart, line) && requiredTags.contains(line.substring(1, line.length()-1).toLowerCase())) {
+            if (isStartTag(line) && requiredTags.contains(line.substring(1, line.length()-1).toLowerCase())) {
                 documentLines.addAll(getText(br, line.substring(1, line.length() - 1)));
             }
         }
         return documentLines;
     }
 
+    /**
+     * Checks whether a line is a start tag of upper case letters, e.g. &lt;TEXT&gt;
+     * @param line line of the document
+     */
+    static boolean isStartTag(String line) {
+        if (line.length() < 3 || line.charAt(0) != '<' || line.charAt(line.length() - 1) != '>') return false;
+        for (int i = 1; i < line.length() - 1; i++)
+            if (line.charAt(i) < 'A' || line.charAt(i) > 'Z') return false;
+        return true;
+    }
+
     /**
      * This method extracts and returns all lines between the <title>...</title> or
      * <text>...</text> tags in the cranfield collection
@@ -98,10 +100,10 @@ public class DocumentParser {
      * @param tagName TITLE or TEXT
      * @return list of all lines found between the required tags
      */
-    private List<String> getText(BufferedReader br, String tagName) throws IOException {
+    List<String> getText(BufferedReader br, String tagName) throws IOException {
         String line = br.readLine(), tagEnd = String.format("</%s>", tagName);
         List<String> textLines = new ArrayList<>();
-        while (!line.equals(tagEnd)) {
+        while (line != null && !line.equals(tagEnd)) {
             textLines.add(line.trim());
             line = br.readLine();
         }
@@ -3,7 +3,9 @@ package Vector.Space.Retrieval.System.preprocessor;
 import java.util.*;
 
 /**
- * Class to count the number of occurrences of each word in the collection
+ * Class to count the number of occurrences of each word in the collection. <br>
+ * The counts are exact, so all tokens and all distinct words are held in memory;
+ * {@link CorpusStatistics} estimates the frequent words of a collection of any size in one pass instead.
  * @author Siddhanth Venkateshwaran
  */
 public class FrequencyGenerator {
@@ -16,10 +18,7 @@ public class FrequencyGenerator {
      */
     public Map<String, Integer> getFrequencyMap(List<String> tokens) {
         Map<String, Integer> frequencyMap = new HashMap<>();
-        tokens.forEach(token -> {
-            frequencyMap.putIfAbsent(token, 1);
-            frequencyMap.put(token, frequencyMap.get(token)+1);
-        });
+        tokens.forEach(token -> frequencyMap.merge(token, 1, Integer::sum));
         return frequencyMap;
     }
 
@@ -28,19 +27,24 @@ public class FrequencyGenerator {
      * where n is one of the arguments to this method
      * @param tokens List of all tokens
      * @param count number of words required
-     * @return list of tokens ranked by frequency
+     * @return list of at most count tokens ranked by frequency, words of equal frequency in alphabetical order
      */
     public List<String> getRankedListOfWords(List<String> tokens, int count) {
         Map<String, Integer> frequencyMap = this.getFrequencyMap(tokens);
-        List<String> rankedList = new ArrayList<>();
-
-        Map<Integer, List<String>> invertedFrequencyMap = getInvertedFrequencyMap(frequencyMap);
+        Comparator<Map.Entry<String, Integer>> ranking =
+                Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey());
 
-        invertedFrequencyMap.keySet()
-                .stream()
-                .sorted((c1, c2) -> -1 * Integer.compare(c1, c2))
-                .forEach(c -> rankedList.addAll(invertedFrequencyMap.get(c)));
-        return rankedList.subList(0, count);
+        /* a heap of the best count words so far, worst on top, instead of sorting every word */
+        PriorityQueue<Map.Entry<String, Integer>> best = new PriorityQueue<>(ranking.reversed());
+        for (Map.Entry<String, Integer> entry : frequencyMap.entrySet()) {
+            best.add(entry);
+            if (best.size() > count) best.poll();
+        }
+        List<Map.Entry<String, Integer>> ranked = new ArrayList<>(best);
+        ranked.sort(ranking);
+        List<String> rankedList = new ArrayList<>(ranked.size());
+        ranked.forEach(entry -> rankedList.add(entry.getKey()));
+        return rankedList;
     }
 
     /**
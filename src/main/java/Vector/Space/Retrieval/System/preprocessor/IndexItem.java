@@ -1,27 +1,75 @@
 package Vector.Space.Retrieval.System.preprocessor;
 
+import Vector.Space.Retrieval.System.indexer.VariableByteCode;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 
 /**
  * This class is the serializable object stored corresponding
  * to each document URL for each token in the inverted index. <br>
- * It will have the web document object and corresponding
- * term frequency of the term in the document at the URL.
+ * It will have the web document object, the document's ID, the corresponding
+ * term frequency of the term in the document at the URL and, if positions
+ * are indexed, the positions of the term in the document. <br>
+ * Positions are stored as variable-byte encoded gaps between consecutive positions. <br>
+ * Items written before document IDs and positions were added are read back with no positions
+ * and the document ID -1, and the indexer then numbers their documents.
  * @author Siddhanth Venkateshwaran
  */
 public class IndexItem implements Serializable {
-    private final WebDocument document;
+    /* kept from the first version of this class, which had only the document and the term frequency */
+    private static final long serialVersionUID = -8955372654338852519L;
+
+    private WebDocument document;
+    private int documentId;
     private int termFrequency;
+    private byte[] positions;
+    private int positionsLength, lastPosition;
 
-    public IndexItem(final WebDocument document, final int termFrequency) {
+    public IndexItem(final WebDocument document, final int documentId, final int termFrequency) {
         this.document = document;
+        this.documentId = documentId;
         this.termFrequency = termFrequency;
+        this.positionsLength = 0;
+        this.lastPosition = 0;
+    }
+
+    /**
+     * Copies this item for the same document under a new document ID, keeping its positions
+     * @param documentId ID newly assigned to the document
+     * @return copy of this item
+     */
+    public IndexItem withDocumentId(int documentId) {
+        IndexItem indexItem = new IndexItem(this.document, documentId, this.termFrequency);
+        indexItem.positions = this.positions;
+        indexItem.positionsLength = this.positionsLength;
+        indexItem.lastPosition = this.lastPosition;
+        return indexItem;
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        this.document = (WebDocument) fields.get("document", null);
+        this.documentId = fields.get("documentId", -1);
+        this.termFrequency = fields.get("termFrequency", 0);
+        this.positions = (byte[]) fields.get("positions", null);
+        this.positionsLength = this.positions == null ? 0 : fields.get("positionsLength", 0);
+        this.lastPosition = fields.get("lastPosition", 0);
     }
 
     public WebDocument getDocument() {
         return this.document;
     }
 
+    /**
+     * Gets the ID assigned by the indexer to the document at the URL
+     * @return Document ID
+     */
+    public int getDocumentId() {
+        return this.documentId;
+    }
+
     public int getTermFrequency() {
         return this.termFrequency;
     }
@@ -34,4 +82,38 @@ public class IndexItem implements Serializable {
     public void setTermFrequency(int termFrequency) {
         this.termFrequency = termFrequency;
     }
+
+    /**
+     * Records one more occurrence of the term in the document
+     * @param position Token offset of the occurrence, which must not be smaller than the previous one
+     */
+    public void addPosition(int position) {
+        this.positions = VariableByteCode.append(position - this.lastPosition, this.positions, this.positionsLength);
+        this.positionsLength += VariableByteCode.getEncodedLength(position - this.lastPosition);
+        this.lastPosition = position;
+    }
+
+    /**
+     * Checks whether positions of the term were recorded for this document
+     */
+    public boolean hasPositions() {
+        return this.positionsLength > 0;
+    }
+
+    /**
+     * Decodes the positions of the term in the document
+     * @return sorted token offsets of all occurrences of the term
+     */
+    public int[] getPositions() {
+        if (this.positions == null) return new int[0];
+        return VariableByteCode.decodeGaps(this.positions, this.positionsLength, this.termFrequency);
+    }
+
+    /**
+     * Gets the size of the compressed positions
+     * @return number of bytes used by the positions
+     */
+    public int getPositionsSizeInBytes() {
+        return this.positionsLength;
+    }
 }
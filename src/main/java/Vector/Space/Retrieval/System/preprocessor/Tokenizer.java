@@ -12,6 +12,9 @@ import Vector.Space.Retrieval.System.stemmer.Porter;
  * @author Siddhanth Venkateshwaran
  */
 public class Tokenizer {
+    private static final String DELIMITERS = " \t\n\r\f";
+    private static final String PUNCTUATION = "!+=-/.:,;?'\"`~(){}<>%&#$[]|^@*_";
+
     private final Porter stemmer;
     private final StopWordProcessor stopWordProcessor;
     private final boolean stem;
@@ -26,21 +29,30 @@ public class Tokenizer {
 
     /**
      * Method to tokenize the given text
+     * <br>
+     * Punctuations and digits are dropped character by character instead of by regular expressions,
+     * since this runs on every word of every document and query. <br>
+     * Line breaks and form feeds separate tokens like spaces and tabs, so that whole sections of a document
+     * can be tokenized at once. Earlier, only spaces and tabs did, and two words on either side of a line
+     * break were joined into one token holding the break.
      * @param text input text to tokenize
      * @return list of tokens obtained from the text after removing whitespace, punctuations and symbols
      */
     public List<String> tokenize(final String text) {
-        final String delimiters = " \t";
-        final String punctuationFilter = "[!+=\\-/.:,;?'\"`~(){}<>%&#$\\[\\]|^@*_]";
-        final String digitFilter = "\\d+";
-
-        return Collections.list(new StringTokenizer(text, delimiters))
-                .stream()
-                .map(token -> token.toString().toLowerCase().replaceAll(punctuationFilter, ""))
-                .map(token -> token.toLowerCase().replaceAll(digitFilter, ""))
-                .map(String::strip)
-                .filter(token -> token.length() > 1)
-                .collect(Collectors.toList());
+        List<String> tokens = new ArrayList<>();
+        StringTokenizer tokenizer = new StringTokenizer(text, DELIMITERS);
+        StringBuilder builder = new StringBuilder();
+        while (tokenizer.hasMoreTokens()) {
+            String token = tokenizer.nextToken().toLowerCase();
+            builder.setLength(0);
+            for (int i = 0; i < token.length(); i++) {
+                char c = token.charAt(i);
+                if (PUNCTUATION.indexOf(c) < 0 && (c < '0' || c > '9')) builder.append(c);
+            }
+            String stripped = builder.toString().strip();
+            if (stripped.length() > 1) tokens.add(stripped);
+        }
+        return tokens;
     }
 
     /**
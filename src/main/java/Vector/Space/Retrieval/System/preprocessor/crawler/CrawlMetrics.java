@@ -0,0 +1,341 @@
+package Vector.Space.Retrieval.System.preprocessor.crawler;
+
+import Vector.Space.Retrieval.System.metrics.LatencyHistogram;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class collects the live metrics of a crawl: throughput, the latencies of fetching, parsing and
+ * indexing a page, the bytes downloaded, the sizes of the frontier and the visited set, and the failures
+ * by type. <br>
+ * The crawler records into it while the server reads {@link #snapshot()}s of it from other threads,
+ * so every counter is safe to read at any time.
+ */
+public class CrawlMetrics {
+    public static final String METRICS = "metrics";
+
+    /**
+     * The kinds of failures of a crawl
+     */
+    public enum ErrorType {
+        /** the server did not answer in time */
+        TIMEOUT,
+        /** the server answered with an error status */
+        HTTP_STATUS,
+        /** the connection failed, e.g. refused, reset or an unknown host */
+        CONNECTION,
+        /** the page was downloaded but could not be parsed */
+        PARSE,
+        /** any other exception, which points to a bug in the crawler */
+        UNEXPECTED
+    }
+
+    private final long start;
+    private volatile long finish;
+    private final LongAdder pagesCrawled, pagesIndexed, bytesDownloaded, bytesSkipped;
+    private final LatencyHistogram fetchLatency, parseLatency, indexLatency;
+    private final Map<ErrorType, LongAdder> errors;
+    private final ConcurrentMap<Integer, LongAdder> httpStatuses;
+    private final Map<SkipReason, LongAdder> skips;
+    private volatile int frontierSize, frontierHosts, visitedCount;
+
+    public CrawlMetrics() {
+        this.start = System.nanoTime();
+        this.pagesCrawled = new LongAdder();
+        this.pagesIndexed = new LongAdder();
+        this.bytesDownloaded = new LongAdder();
+        this.bytesSkipped = new LongAdder();
+        this.fetchLatency = new LatencyHistogram();
+        this.parseLatency = new LatencyHistogram();
+        this.indexLatency = new LatencyHistogram();
+        this.httpStatuses = new ConcurrentHashMap<>();
+        /* both maps get all their keys here, so they are only read afterwards */
+        this.errors = new EnumMap<>(ErrorType.class);
+        for (ErrorType type : ErrorType.values()) this.errors.put(type, new LongAdder());
+        this.skips = new EnumMap<>(SkipReason.class);
+        for (SkipReason reason : SkipReason.values()) this.skips.put(reason, new LongAdder());
+    }
+
+    /**
+     * Records a page which was downloaded
+     * @param nanos Time from sending the request to reading the last byte of the body
+     * @param bytes Size of the body
+     */
+    void recordFetch(long nanos, long bytes) {
+        this.fetchLatency.record(nanos);
+        this.bytesDownloaded.add(bytes);
+    }
+
+    /**
+     * Records a page which was parsed and crawled
+     * @param nanos Time taken to parse the page and extract its links and tokens
+     */
+    void recordParse(long nanos) {
+        this.parseLatency.record(nanos);
+        this.pagesCrawled.increment();
+    }
+
+    /**
+     * Records a page which was added to the index
+     * @param nanos Time taken to add the page to the index
+     */
+    void recordIndex(long nanos) {
+        this.indexLatency.record(nanos);
+        this.pagesIndexed.increment();
+    }
+
+    void recordSkip(SkipReason reason, long bytes) {
+        this.skips.get(reason).increment();
+        this.bytesSkipped.add(bytes);
+    }
+
+    void recordError(ErrorType type) {
+        this.errors.get(type).increment();
+    }
+
+    void recordHttpStatus(int status) {
+        recordError(ErrorType.HTTP_STATUS);
+        this.httpStatuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+    }
+
+    /**
+     * Updates the sizes of the crawler's collections, which the crawler alone may read
+     */
+    void setSizes(int frontierSize, int frontierHosts, int visitedCount) {
+        this.frontierSize = frontierSize;
+        this.frontierHosts = frontierHosts;
+        this.visitedCount = visitedCount;
+    }
+
+    /**
+     * Stops the clock of the crawl, so that the throughput of a finished crawl stays the same.
+     * A server which reads its index from disk or merges partial indexes crawls nothing and stops it right away.
+     */
+    public void finish() {
+        if (this.finish == 0) this.finish = System.nanoTime();
+    }
+
+    /**
+     * Gets the number of urls skipped for each reason
+     * @return map of skip reason -> number of urls, for the reasons which occurred
+     */
+    public Map<SkipReason, Long> getSkipCounts() {
+        Map<SkipReason, Long> counts = new EnumMap<>(SkipReason.class);
+        this.skips.forEach((reason, count) -> {
+            if (count.sum() > 0) counts.put(reason, count.sum());
+        });
+        return counts;
+    }
+
+    /**
+     * Takes a consistent enough copy of all metrics, which is sent as JSON to whoever asks for it
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    /**
+     * The metrics of a crawl at one point in time
+     */
+    public static class Snapshot {
+        private final boolean running;
+        private final double elapsedSeconds, pagesPerSecond;
+        private final long pagesCrawled, pagesIndexed, bytesDownloaded, bytesSkipped;
+        private final int frontierSize, frontierHosts, visitedCount;
+        private final LatencySummary fetchLatency, parseLatency, indexLatency;
+        private final Map<ErrorType, Long> errors;
+        private final Map<Integer, Long> httpStatuses;
+        private final Map<SkipReason, Long> skipped;
+
+        private Snapshot(CrawlMetrics metrics) {
+            long finish = metrics.finish;
+            this.running = finish == 0;
+            this.elapsedSeconds = ((this.running ? System.nanoTime() : finish) - metrics.start) / 1e9;
+            this.pagesCrawled = metrics.pagesCrawled.sum();
+            this.pagesIndexed = metrics.pagesIndexed.sum();
+            this.pagesPerSecond = this.elapsedSeconds > 0 ? this.pagesCrawled / this.elapsedSeconds : 0;
+            this.bytesDownloaded = metrics.bytesDownloaded.sum();
+            this.bytesSkipped = metrics.bytesSkipped.sum();
+            this.frontierSize = metrics.frontierSize;
+            this.frontierHosts = metrics.frontierHosts;
+            this.visitedCount = metrics.visitedCount;
+            this.fetchLatency = new LatencySummary(metrics.fetchLatency);
+            this.parseLatency = new LatencySummary(metrics.parseLatency);
+            this.indexLatency = new LatencySummary(metrics.indexLatency);
+            this.errors = new EnumMap<>(ErrorType.class);
+            metrics.errors.forEach((type, count) -> this.errors.put(type, count.sum()));
+            this.httpStatuses = new TreeMap<>();
+            metrics.httpStatuses.forEach((status, count) -> this.httpStatuses.put(status, count.sum()));
+            this.skipped = metrics.getSkipCounts();
+        }
+
+        /**
+         * Get the kind of response, so that the client can tell it apart from search results
+         */
+        public String getType() {
+            return METRICS;
+        }
+
+        /**
+         * Checks whether the crawl is still going on
+         */
+        public boolean isRunning() {
+            return this.running;
+        }
+
+        public double getElapsedSeconds() {
+            return this.elapsedSeconds;
+        }
+
+        /**
+         * Get the number of pages parsed, whether or not they were indexed
+         */
+        public long getPagesCrawled() {
+            return this.pagesCrawled;
+        }
+
+        public long getPagesIndexed() {
+            return this.pagesIndexed;
+        }
+
+        /**
+         * Get the number of pages crawled per second since the crawl started
+         */
+        public double getPagesPerSecond() {
+            return this.pagesPerSecond;
+        }
+
+        /**
+         * Get the number of body bytes downloaded for the crawled pages
+         */
+        public long getBytesDownloaded() {
+            return this.bytesDownloaded;
+        }
+
+        /**
+         * Get the number of body bytes downloaded for pages which were given up
+         */
+        public long getBytesSkipped() {
+            return this.bytesSkipped;
+        }
+
+        /**
+         * Get the number of urls waiting in the frontier
+         */
+        public int getFrontierSize() {
+            return this.frontierSize;
+        }
+
+        /**
+         * Get the number of hosts having urls waiting in the frontier
+         */
+        public int getFrontierHosts() {
+            return this.frontierHosts;
+        }
+
+        /**
+         * Get the number of urls in the visited set
+         */
+        public int getVisitedCount() {
+            return this.visitedCount;
+        }
+
+        public LatencySummary getFetchLatency() {
+            return this.fetchLatency;
+        }
+
+        public LatencySummary getParseLatency() {
+            return this.parseLatency;
+        }
+
+        public LatencySummary getIndexLatency() {
+            return this.indexLatency;
+        }
+
+        /**
+         * Get the number of failures of every type
+         */
+        public Map<ErrorType, Long> getErrors() {
+            return this.errors;
+        }
+
+        /**
+         * Get the number of error responses of every HTTP status
+         */
+        public Map<Integer, Long> getHttpStatuses() {
+            return this.httpStatuses;
+        }
+
+        /**
+         * Get the number of urls skipped for every reason
+         */
+        public Map<SkipReason, Long> getSkipped() {
+            return this.skipped;
+        }
+
+        /**
+         * Formats the snapshot as the summary report logged at the end of a crawl
+         */
+        @Override
+        public String toString() {
+            return String.format("crawled %d pages (%d indexed) in %.1f s, %.2f pages/s; downloaded %d bytes " +
+                            "(%d bytes for skipped urls)%n  fetch %s%n  parse %s%n  index %s%n" +
+                            "  frontier %d urls on %d hosts, %d urls visited%n  errors %s, http statuses %s%n  skipped %s",
+                    this.pagesCrawled, this.pagesIndexed, this.elapsedSeconds, this.pagesPerSecond,
+                    this.bytesDownloaded, this.bytesSkipped, this.fetchLatency, this.parseLatency, this.indexLatency,
+                    this.frontierSize, this.frontierHosts, this.visitedCount, this.errors, this.httpStatuses, this.skipped);
+        }
+    }
+
+    /**
+     * The percentiles of a latency histogram in milliseconds
+     */
+    public static class LatencySummary {
+        private final long count;
+        private final double mean, p50, p90, p99, max;
+
+        private LatencySummary(LatencyHistogram histogram) {
+            this.count = histogram.getCount();
+            this.mean = histogram.getMean() / 1e6;
+            this.p50 = histogram.getPercentile(0.5) / 1e6;
+            this.p90 = histogram.getPercentile(0.9) / 1e6;
+            this.p99 = histogram.getPercentile(0.99) / 1e6;
+            this.max = histogram.getMax() / 1e6;
+        }
+
+        public long getCount() {
+            return this.count;
+        }
+
+        public double getMean() {
+            return this.mean;
+        }
+
+        public double getP50() {
+            return this.p50;
+        }
+
+        public double getP90() {
+            return this.p90;
+        }
+
+        public double getP99() {
+            return this.p99;
+        }
+
+        public double getMax() {
+            return this.max;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d mean=%.1fms p50=%.1fms p90=%.1fms p99=%.1fms max=%.1fms",
+                    this.count, this.mean, this.p50, this.p90, this.p99, this.max);
+        }
+    }
+}
@@ -2,25 +2,46 @@ package Vector.Space.Retrieval.System.preprocessor.crawler;
 
 import Vector.Space.Retrieval.System.Constants;
 import Vector.Space.Retrieval.System.indexer.InvertedIndexer;
+import Vector.Space.Retrieval.System.indexer.LinkGraph;
+import Vector.Space.Retrieval.System.indexer.MappedPostings;
+import Vector.Space.Retrieval.System.indexer.PageRank;
+import Vector.Space.Retrieval.System.indexer.TermDictionary;
+import Vector.Space.Retrieval.System.preprocessor.CorpusStatistics;
 import Vector.Space.Retrieval.System.preprocessor.IndexItem;
 import Vector.Space.Retrieval.System.preprocessor.Parser;
+import Vector.Space.Retrieval.System.preprocessor.Tokenizer;
 import org.jsoup.Connection;
+import org.jsoup.HttpStatusException;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.net.SocketTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 public class Crawler {
-    private final Queue<String> urlFrontier;
+    private final UrlFrontier urlFrontier;
     private final Set<String> visitedUrls;
-    private final Set<String> enqueued;
     private final Set<String> vocabulary;
+    private TermDictionary vocabularyTable;
     private final Map<String, String> redirectMap;
+    private final Map<String, PageValidator> validators;
+    private final NearDuplicateDetector nearDuplicates;
+    private final Map<String, SkipReason> skippedUrls;
+    private final RobotsCache robots;
+    private final CrawlMetrics metrics;
+    private final CorpusStatistics corpusStatistics;
+    private final LinkGraph.Builder linkGraph;
+    private LinkForwarder forwarder;
     private final InvertedIndexer indexer;
     private final int limit;
     private int crawlCount;
@@ -31,44 +52,271 @@ public class Crawler {
         this.limit = limit;
         this.crawlCount = 1;
         this.indexer = new InvertedIndexer();
-        this.urlFrontier = new LinkedList<>();
+        this.urlFrontier = new UrlFrontier(Constants.politenessDelay, Constants.lowValuePatterns, Constants.lowValuePenalty);
         this.visitedUrls = new HashSet<>();
-        this.enqueued = new HashSet<>();
         this.vocabulary = new HashSet<>();
         this.redirectMap = new HashMap<>();
+        this.validators = new HashMap<>();
+        this.nearDuplicates = Constants.nearDuplicateDistance >= 0 ?
+                new NearDuplicateDetector(Constants.nearDuplicateDistance) : null;
+        this.skippedUrls = new HashMap<>();
+        this.robots = Constants.respectRobots ? new RobotsCache(Constants.userAgent, Constants.robotsTtl) : null;
+        this.metrics = new CrawlMetrics();
+        this.corpusStatistics = new CorpusStatistics(Constants.heavyHitters, Constants.sketchWidth, Constants.sketchDepth);
+        this.linkGraph = new LinkGraph.Builder();
 
 //        ((ch.qos.logback.classic.Logger)logger).setLevel(Level.OFF);
     }
 
+    /**
+     * Crawls from the seed url until the frontier is empty or the crawl limit is reached
+     * <br>
+     * Up to {@link Constants#fetchThreads} pages of different hosts are fetched at once, while every
+     * host waits out its politeness delay between two requests. The fetched pages are parsed and
+     * indexed on this thread, in the order in which their fetches complete.
+     * <br>
+     * In a distributed crawl this process crawls only its own partition of the url space. Once its
+     * frontier is empty or it has reached the crawl limit, it waits for links from the other processes,
+     * and stops only once every process has nothing left to crawl and no links are on their way.
+     * @param seedUrl Url to start from, which only the process owning it crawls
+     */
     public void init(String seedUrl) {
-        this.urlFrontier.add(seedUrl);
-        while(!this.urlFrontier.isEmpty() && this.crawlCount <= this.limit)
-            crawl(this.dequeueUrl());
+        if (isDistributed()) startForwarding();
+        if (ownsUrl(seedUrl)) this.urlFrontier.add(seedUrl, 0);
+        int fetchThreads = Math.max(1, Constants.fetchThreads), inFlight = 0;
+        ExecutorService fetchers = Executors.newFixedThreadPool(fetchThreads);
+        CompletionService<FetchedPage> fetches = new ExecutorCompletionService<>(fetchers);
+        try {
+            while (true) {
+                if (this.forwarder != null) this.forwarder.drain(this::receiveLink);
+                /* a page which is not HTML does not count, so no more pages are fetched than the limit leaves */
+                while (inFlight < fetchThreads && this.crawlCount + inFlight <= this.limit) {
+                    String url = this.urlFrontier.pollReady();
+                    if (url == null) break;
+                    String crawlUrl = getNormalized(url);
+                    int depth = this.urlFrontier.getDepth(url);
+                    if (!isFetchAllowed(crawlUrl)) {
+                        this.urlFrontier.release(url);
+                        continue;
+                    }
+                    fetches.submit(() -> fetchPage(url, crawlUrl, depth));
+                    inFlight++;
+                }
+
+                long wait = this.urlFrontier.getWaitMillis();
+                if (inFlight > 0) {
+                    /* while fetch threads are free, a host becoming ready is fetched before the pages in flight complete */
+                    boolean busy = wait < 0 || inFlight == fetchThreads || this.crawlCount + inFlight > this.limit;
+                    Future<FetchedPage> fetch = busy ? fetches.take() : fetches.poll(wait, TimeUnit.MILLISECONDS);
+                    if (fetch == null) continue;
+                    FetchedPage page = fetch.get();
+                    inFlight--;
+                    processPage(page);
+                    this.urlFrontier.release(page.url);
+                    if (this.forwarder != null) this.forwarder.flush(false);
+                }
+                else if (this.crawlCount > this.limit || this.urlFrontier.isEmpty()) {
+                    /* past the limit the links of the other processes are still taken, so that their crawls can end */
+                    if (this.forwarder == null || !awaitLinks()) break;
+                }
+                /* every host with urls waits out its politeness delay */
+                else if (wait > 0) Thread.sleep(wait);
+            }
+        }
+        catch(InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        catch(ExecutionException ex) {
+            ex.printStackTrace();
+        }
+        finally {
+            fetchers.shutdownNow();
+        }
+        if (this.forwarder != null) {
+            this.forwarder.close();
+            logger.info(this.forwarder.toString());
+        }
         finishCrawl();
     }
 
+    /**
+     * Checks whether crawls are split among several processes
+     * @return <b>true</b> if more than one crawl peer is configured
+     */
+    public static boolean isDistributed() {
+        return Constants.crawlPeers.size() > 1;
+    }
+
+    private void startForwarding() {
+        this.forwarder = new LinkForwarder(Constants.partitionId, Constants.crawlPeers,
+                Constants.forwardBatchSize, Constants.forwardInterval);
+        try {
+            this.forwarder.start();
+        }
+        catch(IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * Checks whether a url belongs to the partition crawled by this process
+     * @param url Normalized url
+     * @return <b>true</b> if the crawl is not distributed or the host of the url hashes to this process
+     */
+    public boolean ownsUrl(String url) {
+        return this.forwarder == null || this.forwarder.owns(url);
+    }
+
+    /**
+     * Adds a link forwarded by another process to the frontier, unless it was crawled or skipped already
+     * @param link Link to a url of this partition
+     */
+    private void receiveLink(LinkForwarder.Link link) {
+        if (isValid(link.getUrl()) && isAllowedByRobots(link.getUrl())) this.urlFrontier.add(link.getUrl(), link.getDepth());
+    }
+
+    /**
+     * Sends all buffered links and waits for links from the other processes
+     * @return <b>true</b> if links arrived, <b>false</b> if the crawls of all processes are over
+     */
+    private boolean awaitLinks() {
+        try {
+            return this.forwarder.await();
+        }
+        catch(InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * A page fetched by a fetch thread, which the crawl thread parses and indexes. <br>
+     * Holds the response and its parsed document, or the exception which ended the fetch.
+     */
+    private static class FetchedPage {
+        private final String url, crawlUrl;
+        private final int depth;
+        private Connection.Response response;
+        private byte[] body;
+        private Document document;
+        private SkipReason skipReason;
+        private long fetchNanos, parseNanos;
+        private boolean fetched;
+        private Exception error;
+
+        private FetchedPage(String url, String crawlUrl, int depth) {
+            this.url = url;
+            this.crawlUrl = crawlUrl;
+            this.depth = depth;
+        }
+    }
+
     /**
      * Fetches, parses the page and extracts the hyperlinks in the given document
      * <br>
+     * A url which is not an HTML page or is too large is given up before its body is downloaded or parsed,
+     * and is remembered so that it is never requested again.
+     * <br>
+     * Every failure is counted by its type in the crawl metrics.
+     * <br>
      * Stops when there are no links in the frontier left to crawl
      * @param url URL to be crawled next
      */
     public void crawl(String url) {
+        String crawlUrl = getNormalized(url);
+        if (isFetchAllowed(crawlUrl)) processPage(fetchPage(url, crawlUrl, this.urlFrontier.getDepth(url)));
+    }
+
+    /**
+     * Checks a url before it is fetched, which is done on the crawl thread since it may fetch the robots.txt of its host
+     * @param crawlUrl Normalized url
+     * @return <b>true</b> if the url may be fetched
+     */
+    private boolean isFetchAllowed(String crawlUrl) {
+        if (hasSkippedExtension(crawlUrl)) {
+            skip(crawlUrl, SkipReason.EXTENSION, 0);
+            return false;
+        }
+        /* links were checked before they entered the frontier, but the seed was not */
+        return isAllowedByRobots(crawlUrl);
+    }
+
+    /**
+     * Downloads a page and parses its HTML, without touching the state of the crawl, so that several pages
+     * may be fetched at once
+     * @param url Url as taken from the frontier
+     * @param crawlUrl Normalized url
+     * @param depth Link depth of the url
+     * @return fetched page, holding the exception which ended the fetch if any
+     */
+    private FetchedPage fetchPage(String url, String crawlUrl, int depth) {
+        FetchedPage page = new FetchedPage(url, crawlUrl, depth);
+        try {
+            long fetchStart = System.nanoTime();
+            page.response = fetch(crawlUrl, null);
+            page.skipReason = getSkipReason(page.response);
+            if (page.skipReason != null) {
+                /* closing the body unread drops the connection instead of downloading the rest */
+                page.response.bodyStream().close();
+                return page;
+            }
+            page.body = page.response.bodyAsBytes();
+            page.fetched = true;
+            if (page.body.length > Constants.maxBodySize) return page;
+            long start = System.nanoTime();
+            page.fetchNanos = start - fetchStart;
+            page.document = page.response.parse();
+            page.parseNanos = System.nanoTime() - start;
+        }
+        catch(Exception ex) {
+            page.error = ex;
+        }
+        return page;
+    }
+
+    /**
+     * Records a fetched page, then extracts its hyperlinks into the frontier and indexes it
+     * @param page Page returned by {@link #fetchPage(String, String, int)}
+     */
+    private void processPage(FetchedPage page) {
+        String crawlUrl = page.crawlUrl;
+        boolean parsed = false;
         try {
-            String crawlUrl = getNormalized(url);
-            Document document = connectAndFetch(crawlUrl);
+            if (page.error != null) throw page.error;
+            if (page.skipReason != null) {
+                skip(crawlUrl, page.skipReason, 0);
+                return;
+            }
+            if (page.body.length > Constants.maxBodySize) {
+                skip(crawlUrl, SkipReason.TOO_LARGE, page.body.length);
+                return;
+            }
+            this.metrics.recordFetch(page.fetchNanos, page.body.length);
+
+            long start = System.nanoTime();
+            Document document = page.document;
             String redirectedUrl = getNormalized(document.baseUri());
             if (!(crawled(crawlUrl) || crawled(redirectedUrl))) {
                 /* Crawl this document */
                 logger.info(String.format("crawling url-%d %s", this.crawlCount, document.baseUri()));
                 Parser parser = new Parser(document);
                 parser.parse();
+                parsed = true;
+                this.metrics.recordParse(page.parseNanos + System.nanoTime() - start);
                 List<String> hyperlinks = parser.getLinks();
-                if (parser.canFollow()) enqueueUrls(getFiltered(hyperlinks, crawlUrl, redirectedUrl));
-                if (parser.canIndex()) {
-                    this.indexer.addToIndex(parser.getTokens(), crawlUrl, parser.getTitle(), parser.getDescription());
-                    this.vocabulary.addAll(parser.getDictionary());
-                    this.indexer.setCollectionSize(this.indexer.getCollectionSize() + 1); /* increment number of indexed documents */
+                if (parser.canFollow()) {
+                    recordLinks(crawlUrl, hyperlinks);
+                    enqueueUrls(getFiltered(hyperlinks, crawlUrl, redirectedUrl), page.depth + 1);
+                }
+                if (parser.canIndex() && ownsDocument(crawlUrl)) {
+                    String original = this.nearDuplicates == null ? null : this.nearDuplicates.check(parser.getTokens(), crawlUrl);
+                    if (original == null) {
+                        long indexStart = System.nanoTime();
+                        indexPage(crawlUrl, parser);
+                        this.metrics.recordIndex(System.nanoTime() - indexStart);
+                        this.validators.put(crawlUrl, PageValidator.of(page.response, page.body));
+                    }
+                    else logger.info(String.format("not indexing %s, a near-duplicate of %s", crawlUrl, original));
                 }
 
                 /* this url has been crawled. add to visited set */
@@ -76,15 +324,247 @@ public class Crawler {
                 this.crawlCount++;
             }
         }
-        catch(Exception e) {}
+        catch(HttpStatusException ex) {
+            skip(crawlUrl, isTemporary(ex.getStatusCode()) ? SkipReason.HTTP_UNAVAILABLE : SkipReason.HTTP_ERROR, 0);
+            this.metrics.recordHttpStatus(ex.getStatusCode());
+            logger.info(String.format("skipping %s: status %d", crawlUrl, ex.getStatusCode()));
+        }
+        catch(IOException ex) {
+            if (page.fetched) {
+                this.metrics.recordError(CrawlMetrics.ErrorType.PARSE);
+                logger.warn(String.format("could not parse %s: %s", crawlUrl, ex));
+            }
+            else {
+                skip(crawlUrl, SkipReason.FETCH_ERROR, 0);
+                this.metrics.recordError(ex instanceof SocketTimeoutException ?
+                        CrawlMetrics.ErrorType.TIMEOUT : CrawlMetrics.ErrorType.CONNECTION);
+                logger.warn(String.format("could not fetch %s: %s", crawlUrl, ex));
+            }
+        }
+        catch(Exception ex) {
+            /* the parser throws unchecked exceptions on malformed pages */
+            this.metrics.recordError(page.fetched && !parsed ? CrawlMetrics.ErrorType.PARSE : CrawlMetrics.ErrorType.UNEXPECTED);
+            logger.error(String.format("failed to crawl %s", crawlUrl), ex);
+        }
+        finally {
+            this.metrics.setSizes(this.urlFrontier.size(), this.urlFrontier.getHostCount(), this.visitedUrls.size());
+        }
+    }
+
+    /**
+     * Checks whether an error status may pass, so that the url is worth requesting again later
+     * @param status HTTP status code of an error response
+     * @return <b>true</b> for a server error, 429 Too Many Requests and 408 Request Timeout
+     */
+    private static boolean isTemporary(int status) {
+        return status >= 500 || status == 429 || status == 408;
+    }
+
+    /**
+     * Checks the headers of a response for content which cannot be indexed, before its body is read
+     * @param response Response whose body is not read yet
+     * @return reason to skip the page, or null if its body should be read
+     */
+    private SkipReason getSkipReason(Connection.Response response) {
+        String contentType = response.contentType();
+        if (contentType != null && !(contentType.startsWith("text/html") || contentType.startsWith("application/xhtml+xml")))
+            return SkipReason.CONTENT_TYPE;
+        String contentLength = response.header("Content-Length");
+        try {
+            if (contentLength != null && Long.parseLong(contentLength.trim()) > Constants.maxBodySize)
+                return SkipReason.TOO_LARGE;
+        }
+        catch(NumberFormatException ex) {
+            /* a malformed length is left to the limit on the bytes actually read */
+        }
+        return null;
+    }
+
+    /**
+     * Checks a url against the robots.txt of its host, which is fetched on the first url of every host,
+     * and applies the crawl delay the host asks for
+     * @param url Normalized url
+     * @return <b>true</b> if the url may be crawled
+     */
+    private boolean isAllowedByRobots(String url) {
+        if (this.robots == null) return true;
+        this.urlFrontier.setDelay(url, this.robots.getRules(url).getCrawlDelay());
+        SkipReason reason = this.robots.check(url);
+        if (reason == null) return true;
+        skip(url, reason, 0);
+        return false;
+    }
+
+    /**
+     * Checks whether a url ends with the extension of a file which is not a web page
+     * @param url Normalized url
+     */
+    private boolean hasSkippedExtension(String url) {
+        String path = url.replaceFirst("[?#].*$", "");
+        int dot = path.lastIndexOf('.');
+        return dot > path.lastIndexOf('/') && Constants.skippedExtensions.contains(path.substring(dot + 1).toLowerCase());
+    }
+
+    /**
+     * Gives up a url, remembering it unless the reason may be temporary
+     * @param url Normalized url
+     * @param reason Reason for skipping it
+     * @param bytes Number of body bytes downloaded before giving up
+     */
+    private void skip(String url, SkipReason reason, long bytes) {
+        if (reason.isRemembered()) this.skippedUrls.put(url, reason);
+        this.metrics.recordSkip(reason, bytes);
+    }
+
+    /**
+     * Gets the number of urls skipped for each reason
+     * @return map of skip reason -> number of urls
+     */
+    public Map<SkipReason, Long> getSkipCounts() {
+        return this.metrics.getSkipCounts();
+    }
+
+    /**
+     * Get the metrics of this crawler, which may be read while it crawls
+     */
+    public CrawlMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Gets the reason for which a url was skipped
+     * @param url Normalized url
+     * @return skip reason, or null if the url was not skipped or may be requested again
+     */
+    public SkipReason getSkipReason(String url) {
+        return this.skippedUrls.get(url);
+    }
+
+    /**
+     * Adds a parsed page to the index, replacing the page previously indexed at the url if there is one
+     * @param url Normalized url of the page
+     * @param parser Parser which parsed the page
+     */
+    private void indexPage(String url, Parser parser) {
+        indexDocument(url, parser.getTitle(), parser.getDescription(), parser.getTokens(), parser.getDictionary());
+    }
+
+    /**
+     * Adds a document to the index, counting its words in the vocabulary and its terms in the term statistics.
+     * Also used for the documents of a collection loaded in bulk.
+     * @param url Url of the document, or its number in a local collection
+     * @param title Title of the document
+     * @param description Description of the document
+     * @param tokens Preprocessed tokens of the document
+     * @param words Distinct unstemmed words of the document, without stop words
+     */
+    public void indexDocument(String url, String title, String description, List<String> tokens, Collection<String> words) {
+        this.indexer.addToIndex(tokens, url, title, description);
+        this.vocabulary.addAll(words);
+        this.corpusStatistics.addDocument(tokens);
+        this.indexer.setCollectionSize(this.indexer.getCollectionSize() + 1); /* increment number of indexed documents */
+    }
+
+    /**
+     * Checks every indexed page for changes and indexes again only the pages which changed. <br>
+     * Each page is requested with the validators stored when it was last indexed. A page is not
+     * parsed if the server answers <i>304 Not Modified</i> or sends the same bytes again, and a page
+     * which is gone (<i>404</i> or <i>410</i>) is deleted from the index, while a page answering any other
+     * error is kept as it is. The index files are written again at the end.
+     * Links to new pages are left for the next full crawl.
+     * @return counts of the pages checked and bytes downloaded in this refresh
+     */
+    public RefreshReport refresh() {
+        RefreshReport report = refreshPages();
+        this.metrics.finish();
+        logger.info(report.toString());
+        logger.info(this.metrics.snapshot().toString());
+        writeIndexFiles();
+        return report;
+    }
+
+    /**
+     * Checks every indexed page for changes, updating the index in memory only
+     * @return counts of the pages checked and bytes downloaded
+     */
+    RefreshReport refreshPages() {
+        RefreshReport report = new RefreshReport();
+        for (String url : new ArrayList<>(this.validators.keySet())) refreshPage(url, report);
+        return report;
+    }
+
+    /**
+     * Requests an indexed page conditionally and indexes it again if it changed
+     * @param url Normalized url of the indexed page
+     * @param report Counts of the current refresh
+     */
+    private void refreshPage(String url, RefreshReport report) {
+        PageValidator validator = this.validators.get(url);
+        try {
+            long fetchStart = System.nanoTime();
+            Connection.Response response = fetch(url, validator);
+            int status = response.statusCode();
+            if (status == 304) {
+                report.addChecked(0);
+                report.addNotModified();
+                return;
+            }
+            if (status >= 400) {
+                /* only a page which is gone is deleted, any other error may pass and leaves the page as it is */
+                response.bodyStream().close();
+                report.addChecked(0);
+                this.metrics.recordHttpStatus(status);
+                if (status == 404 || status == 410) {
+                    this.indexer.deleteDocument(url);
+                    this.validators.remove(url);
+                    report.addDeleted();
+                }
+                else report.addFailed();
+                return;
+            }
+            boolean indexable = getSkipReason(response) == null;
+            if (!indexable) response.bodyStream().close();
+            byte[] body = indexable ? response.bodyAsBytes() : new byte[0];
+            this.metrics.recordFetch(System.nanoTime() - fetchStart, body.length);
+            report.addChecked(body.length);
+            if (!indexable || body.length > Constants.maxBodySize) {
+                this.indexer.deleteDocument(url);
+                this.validators.remove(url);
+                report.addDeleted();
+            }
+            else if (validator.sameContent(body)) {
+                /* the server may have sent new validators for the same content */
+                this.validators.put(url, PageValidator.of(response, body));
+                report.addUnchanged();
+            }
+            else {
+                Parser parser = new Parser(response.parse());
+                parser.parse();
+                if (parser.canIndex()) {
+                    indexPage(url, parser);
+                    this.validators.put(url, PageValidator.of(response, body));
+                    report.addReindexed();
+                }
+                else {
+                    this.indexer.deleteDocument(url);
+                    this.validators.remove(url);
+                    report.addDeleted();
+                }
+            }
+        }
+        catch(IOException ex) {
+            this.metrics.recordError(ex instanceof SocketTimeoutException ?
+                    CrawlMetrics.ErrorType.TIMEOUT : CrawlMetrics.ErrorType.CONNECTION);
+            logger.warn(String.format("could not refresh %s: %s", url, ex));
+            report.addFailed();
+        }
     }
 
     /**
-     * Filter out links by removing urls which are already crawled
-     * or are already enqueued in the url frontier,
-     * and remove links if they do not belong to the <i>uic.edu</i> domain
+     * Filter out links by removing urls which are already crawled or which robots.txt disallows,
+     * and remove links if they do not belong to the crawled domain (<i>uic.edu</i> by default)
      * @param links List of urls extracted from the document
-     * @return list of urls not already crawled and not already in the URL frontier
+     * @return list of urls not already crawled. Urls already in the frontier are kept, so that the link to them is counted
      */
     public List<String> getFiltered(List<String> links, String originalUrl, String redirectedUrl) {
         List<String> filteredLinks = new LinkedList<>();
@@ -92,9 +572,10 @@ public class Crawler {
 
         for (String link : links) {
             String normalizedLink = getNormalized(link);
-            if (normalizedLink.contains("uic.edu") && !collectedLinks.contains(normalizedLink) &&
+            if (normalizedLink.contains(Constants.crawlDomain) && !collectedLinks.contains(normalizedLink) &&
                     !(normalizedLink.equals(originalUrl) || normalizedLink.equals(redirectedUrl))) {
-                if (isValid(normalizedLink)) {
+                /* the process owning a url of another partition checks robots.txt for it */
+                if (isValid(normalizedLink) && (!ownsUrl(normalizedLink) || isAllowedByRobots(normalizedLink))) {
 //                    logger.info(String.format("adding hyperlink %s", normalizedLink));
                     filteredLinks.add(normalizedLink);
                 }
@@ -106,25 +587,70 @@ public class Crawler {
     }
 
     /**
-     * Checks whether or not the url is already enqueued, crawled and has proper protocols
+     * Records the links of a crawled page in the link graph, including links to pages which are
+     * already crawled. Links leaving the crawled domain can never point to an indexed page and are left out.
+     * @param url Normalized url of the page
+     * @param links List of urls extracted from the page
+     */
+    private void recordLinks(String url, List<String> links) {
+        Set<String> targets = new HashSet<>();
+        for (String link : links) {
+            String normalizedLink = getNormalized(link);
+            if (normalizedLink.contains(Constants.crawlDomain)) targets.add(normalizedLink);
+        }
+        this.linkGraph.addLinks(url, targets);
+    }
+
+    /**
+     * Checks whether the document at this url belongs to the slice of the collection
+     * indexed by this server. Every document is indexed unless the server runs as one of several shards.
+     * @param url Normalized url of the document
+     * @return a boolean indicating if this server should index the document
+     */
+    public boolean ownsDocument(String url) {
+        return Constants.shardCount <= 1 || Math.floorMod(url.hashCode(), Constants.shardCount) == Constants.shardId;
+    }
+
+    /**
+     * Checks whether or not the url is already crawled or skipped and has proper protocols.
+     * A link to a file which is not a web page is skipped right away.
      * @param url URL being examined
      * @return a boolean indicating if URL is valid to be crawled or not
      */
     public boolean isValid(String url) {
+        if (hasSkippedExtension(url) && !this.skippedUrls.containsKey(url)) skip(url, SkipReason.EXTENSION, 0);
         return (
-                !(this.enqueued.contains(url) || crawled(url)) &&
+                !(crawled(url) || this.skippedUrls.containsKey(url)) &&
                 (url.contains("http"))
         );
     }
 
     public Document connectAndFetch(String url) throws IOException {
-        Connection.Response response =
+        return fetch(url, null).parse();
+    }
+
+    /**
+     * Requests the page at a url
+     * @param url Normalized url of the page
+     * @param validator Validators of the page when it was last indexed, which make the request conditional,
+     *                  or null for a plain request
+     * @return response of the server. Error responses are returned instead of thrown for a conditional request
+     */
+    public Connection.Response fetch(String url, PageValidator validator) throws IOException {
+        Connection connection =
                 Jsoup.connect(url.concat("/"))
+                        .userAgent(Constants.userAgent)
                         .timeout(10000)
                         .validateTLSCertificates(false)
-                        .followRedirects(true).execute();
-
-        return response.parse();
+                        .ignoreContentType(true)
+                        /* one byte more than allowed tells a body cut at the limit from a body of exactly the limit */
+                        .maxBodySize(Constants.maxBodySize + 1)
+                        .followRedirects(true);
+        if (validator != null) {
+            validator.addConditions(connection);
+            connection.ignoreHttpErrors(true);
+        }
+        return connection.execute();
     }
 
     /**
@@ -174,38 +700,140 @@ public class Crawler {
     }
 
     /**
-     * Constructs the euclidean normalized document length table if all documents are crawled
+     * Writes the index files once all documents are crawled, reporting the metrics of the crawl,
+     * the term statistics of the indexed pages and the near-duplicate pages which were not indexed
      */
     public void finishCrawl() {
+        this.metrics.finish();
         if (this.urlFrontier.isEmpty() || this.crawlCount >= this.limit) {
-            this.indexer.constructDocumentVectorTable();
-            this.writeObjectToFile(this.getIndexer().getIndex(), "index");
-            this.writeObjectToFile(this.getIndexer().getDocumentVector(), "docLengths");
-            this.writeObjectToFile(this.vocabulary, "vocabulary");
+            logger.info(this.metrics.snapshot().toString());
+            logger.info(String.format("term statistics: %s", this.corpusStatistics.describe(Constants.stopWordRatio)));
+            if (this.nearDuplicates != null) {
+                long postings = this.indexer.getIndex().values().stream().mapToLong(Map::size).sum();
+                logger.info(String.format("%s, %.1f%% of the %d postings indexed", this.nearDuplicates,
+                        100.0 * this.nearDuplicates.getPostingsSkipped() / Math.max(1, postings), postings));
+            }
+            writeIndexFiles();
         }
     }
 
     /**
-     * Adds each extracted hyperlink to the url frontier and the set of enqueued urls
-     * @param urls List of hyperlinks extracted from document
+     * Removes deleted documents, renumbers the documents in the configured order, computes the document lengths,
+     * the static scores and the pair index, and writes all index files. Also used to write the index of a collection loaded in bulk.
      */
-    public void enqueueUrls(List<String> urls) {
-        for (String url : urls) {
-            this.urlFrontier.add(url);
-            this.enqueued.add(url);
+    public void writeIndexFiles() {
+        if (this.forwarder != null) {
+            writePartialIndexFiles();
+            return;
         }
+        this.indexer.compact();
+        this.indexer.reorderDocuments(Constants.documentOrder);
+        this.indexer.constructDocumentVectorTable();
+        computeStaticScores();
+        this.indexer.buildPhraseIndex();
+        if (Constants.positions) {
+            long postingsSize = this.indexer.getPostingsSizeInBytes(), positionsSize = this.indexer.getPositionsSizeInBytes();
+            logger.info(String.format("positions take %d bytes on top of %d bytes of compressed postings (%.1f%% overhead)",
+                    positionsSize, postingsSize, 100.0 * positionsSize / Math.max(1, postingsSize)));
+        }
+        this.writeObjectToFile(this.getIndexer().getIndex(), Constants.indexFile);
+        this.writeObjectToFile(this.getIndexer().getDocumentVector(), Constants.docLengthsFile);
+        this.writeVocabulary(Constants.vocabularyFile);
+        this.writeObjectToFile(this.validators, Constants.validatorsFile);
+        Map<String, Double> staticScores = this.indexer.getStaticScoreVector();
+        if (staticScores != null) this.writeObjectToFile(staticScores, Constants.staticScoresFile);
+        this.indexer.writePostingsFiles(Constants.termDictionaryFile, Constants.postingsFile);
     }
 
     /**
-     * Pops and returns the url at the front of the url frontier
-     * <br>
-     * and also removes it from the set of enqueued urls
-     * @return next url to crawl
+     * Writes the partial index of this process in a distributed crawl to its directory within the partition directory,
+     * together with the links it recorded, so that all partitions can be merged into one index afterwards
+     */
+    private void writePartialIndexFiles() {
+        this.indexer.compact();
+        Path directory = getPartitionDirectory(Constants.partitionId);
+        try {
+            Files.createDirectories(directory);
+        }
+        catch(IOException ex) {
+            ex.printStackTrace();
+        }
+        this.writeObjectToFile(this.getIndexer().getIndex(), resolve(directory, Constants.indexFile));
+        this.writeVocabulary(resolve(directory, Constants.vocabularyFile));
+        this.writeObjectToFile(this.validators, resolve(directory, Constants.validatorsFile));
+        this.writeObjectToFile(this.linkGraph, resolve(directory, Constants.linksFile));
+        logger.info(String.format("wrote the partial index of %d documents to %s", this.indexer.getLiveDocumentCount(), directory));
+    }
+
+    private static Path getPartitionDirectory(int partition) {
+        return Paths.get(Constants.partitionDirectory, String.valueOf(partition));
+    }
+
+    private static String resolve(Path directory, String filePath) {
+        return directory.resolve(Paths.get(filePath).getFileName()).toString();
+    }
+
+    /**
+     * Merges the partial indexes written by all processes of a distributed crawl into this crawler's index,
+     * and writes the index files of the merged index. <br>
+     * The partitions hold disjoint sets of urls, so the documents of each partition are given the document IDs
+     * following those of the previous partition. The static scores are computed over the links of all partitions.
+     */
+    public void mergePartitions() {
+        Map<String, Map<String, IndexItem>> mergedIndex = new HashMap<>();
+        int documentCount = 0;
+        for (int partition = 0; partition < Constants.crawlPeers.size(); partition++) {
+            Path directory = getPartitionDirectory(partition);
+            Map<String, Map<String, IndexItem>> partialIndex = readIndexFile(resolve(directory, Constants.indexFile));
+            if (partialIndex == null) {
+                logger.warn(String.format("partition %d has no partial index in %s", partition, directory));
+                continue;
+            }
+
+            int offset = documentCount;
+            for (Map.Entry<String, Map<String, IndexItem>> term : partialIndex.entrySet()) {
+                Map<String, IndexItem> postings = mergedIndex.computeIfAbsent(term.getKey(), t -> new HashMap<>());
+                for (Map.Entry<String, IndexItem> posting : term.getValue().entrySet()) {
+                    postings.put(posting.getKey(), posting.getValue().withDocumentId(offset + posting.getValue().getDocumentId()));
+                    documentCount = Math.max(documentCount, offset + posting.getValue().getDocumentId() + 1);
+                }
+            }
+            mergeVocabulary(resolve(directory, Constants.vocabularyFile));
+            Map<String, PageValidator> partialValidators = readValidatorsFile(resolve(directory, Constants.validatorsFile));
+            if (partialValidators != null) this.validators.putAll(partialValidators);
+            Object partialLinks = readObjectFromFile(resolve(directory, Constants.linksFile));
+            if (partialLinks instanceof LinkGraph.Builder) this.linkGraph.addAll((LinkGraph.Builder) partialLinks);
+            else if (partialLinks != null) logger.warn(String.format("partition %d has no link graph in %s", partition, directory));
+            logger.info(String.format("merged partition %d, %d documents so far", partition, documentCount));
+        }
+        this.indexer.setIndex(mergedIndex);
+        this.indexer.setCollectionSize(this.indexer.getLiveDocumentCount());
+        writeIndexFiles();
+    }
+
+    /**
+     * Computes the PageRank of the indexed pages over the links recorded during this crawl and stores it
+     * in the indexer as their static scores. A refresh records no links, so the scores of the last crawl are kept.
      */
-    public String dequeueUrl() {
-        String nextUrl = this.urlFrontier.poll();
-        this.enqueued.remove(nextUrl);
-        return nextUrl;
+    private void computeStaticScores() {
+        if (this.linkGraph.getLinkCount() == 0) return;
+        LinkGraph graph = this.linkGraph.build(this.indexer::getDocumentId, this.indexer.getDocumentCount());
+        /* a map of url lists would take at least one string reference and a list entry per link */
+        logger.info(String.format("link graph of %d documents and %d links takes %d bytes in CSR form",
+                graph.getDocumentCount(), graph.getLinkCount(), graph.getSizeInBytes()));
+        this.indexer.setStaticScores(PageRank.compute(graph, Constants.pageRankDamping));
+    }
+
+    /**
+     * Adds each extracted hyperlink to the url frontier, or counts one more link to it if it is already there
+     * @param urls List of hyperlinks extracted from document
+     * @param depth Link depth of the hyperlinks, one more than that of the document
+     */
+    public void enqueueUrls(List<String> urls, int depth) {
+        for (String url : urls) {
+            if (ownsUrl(url)) this.urlFrontier.add(url, depth);
+            else this.forwarder.forward(url, depth);
+        }
     }
 
     /**
@@ -217,11 +845,237 @@ public class Crawler {
     }
 
     public void readIndex() {
+        readIndex(Constants.indexFile);
+    }
+
+    /**
+     * Reads the inverted index from the given file into this crawler's indexer
+     * @param filePath Path of the serialized index
+     */
+    public void readIndex(String filePath) {
         try {
-            FileInputStream fileInputStream = new FileInputStream(Constants.indexFile);
+            FileInputStream fileInputStream = new FileInputStream(filePath);
             ObjectInputStream objectInputStream = new ObjectInputStream(fileInputStream);
             Object obj = objectInputStream.readObject();
             this.getIndexer().setIndex((HashMap)obj);
+            this.getIndexer().buildPhraseIndex();
+        }
+        catch(Exception ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * Get the term statistics of the pages indexed by this crawler
+     */
+    public CorpusStatistics getCorpusStatistics() {
+        return this.corpusStatistics;
+    }
+
+    /**
+     * Get the unstemmed words seen in the crawled pages, each with the number of live indexed pages holding its
+     * stemmed form, as counted when the table was last built
+     * @return Vocabulary of the crawl, including the vocabulary read from disk
+     */
+    public TermDictionary getVocabulary() {
+        if (this.vocabularyTable == null || !this.vocabulary.isEmpty()) buildVocabulary();
+        return this.vocabularyTable;
+    }
+
+    /**
+     * Builds the vocabulary table from the words seen so far, counting every word in the live index. <br>
+     * The index holds stemmed terms, so a word is given the document frequency of its stemmed form, which
+     * the words sharing a stem share. Pages indexed again or deleted since are thus counted right, and a word
+     * which no live page holds any more is dropped.
+     */
+    private void buildVocabulary() {
+        Set<String> words = new HashSet<>(this.vocabulary);
+        if (this.vocabularyTable != null) {
+            TermDictionary.TermIterator iterator = this.vocabularyTable.iterator();
+            while (iterator.next()) words.add(iterator.term());
+        }
+        Tokenizer tokenizer = new Tokenizer();
+        Map<String, Long> counts = new HashMap<>();
+        for (String word : words) {
+            List<String> terms = tokenizer.preprocessTokens(Collections.singletonList(word));
+            if (terms.isEmpty()) continue;
+            long count = this.indexer.getDocumentFrequency(terms.get(0));
+            if (count > 0) counts.put(word, count);
+        }
+        this.vocabularyTable = TermDictionary.of(counts);
+        this.vocabulary.clear();
+    }
+
+    /**
+     * Writes the vocabulary as a front-coded table sorted by word, replacing the file only once it is complete,
+     * since a table read from it earlier may still be mapped
+     * @param filePath Path of the vocabulary table
+     */
+    private void writeVocabulary(String filePath) {
+        try {
+            Path temporaryPath = Paths.get(filePath.concat(".tmp"));
+            /* counted again even without new words, since pages may have been deleted */
+            buildVocabulary();
+            TermDictionary vocabulary = this.vocabularyTable;
+            vocabulary.write(temporaryPath);
+            Files.move(temporaryPath, Paths.get(filePath), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.info(String.format("wrote vocabulary of %d words in %d bytes to %s",
+                    vocabulary.size(), vocabulary.getSizeInBytes(), filePath));
+        }
+        catch(IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * Adds the words of a vocabulary table written by another process to the vocabulary of this crawl
+     * @param filePath Path of the vocabulary table, which may not exist
+     */
+    private void mergeVocabulary(String filePath) {
+        if (!Files.exists(Paths.get(filePath))) return;
+        try {
+            TermDictionary.TermIterator iterator = TermDictionary.open(Paths.get(filePath)).iterator();
+            while (iterator.next()) this.vocabulary.add(iterator.term());
+        }
+        catch(IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    public void readVocabulary() {
+        readVocabulary(Constants.vocabularyFile);
+    }
+
+    /**
+     * Reads the unstemmed vocabulary of a previous crawl from the given file by memory-mapping it,
+     * so that the words are looked up in the file instead of being loaded onto the heap
+     * @param filePath Path of the vocabulary table
+     */
+    public void readVocabulary(String filePath) {
+        try {
+            this.vocabularyTable = TermDictionary.open(Paths.get(filePath));
+            this.vocabulary.clear();
+        }
+        catch(Exception ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * Reads a serialized object from the given file
+     * @param filePath Path of the file
+     * @return the object, or null if the file does not exist or cannot be read
+     */
+    private Object readObjectFromFile(String filePath) {
+        if (!Files.exists(Paths.get(filePath))) return null;
+        try (ObjectInputStream objectInputStream = new ObjectInputStream(new FileInputStream(filePath))) {
+            return objectInputStream.readObject();
+        }
+        catch(Exception ex) {
+            ex.printStackTrace();
+            return null;
+        }
+    }
+
+    public void readValidators() {
+        readValidators(Constants.validatorsFile);
+    }
+
+    /**
+     * Reads the validators of the pages indexed by a previous crawl from the given file
+     * @param filePath Path of the serialized validators
+     */
+    public void readValidators(String filePath) {
+        Map<String, PageValidator> validators = readValidatorsFile(filePath);
+        if (validators == null) return;
+        this.validators.clear();
+        this.validators.putAll(validators);
+    }
+
+    /**
+     * Reads a serialized map of url -> validators, checking the type of every entry
+     * @param filePath Path of the serialized validators
+     * @return the validators, or null if the file does not exist or holds something else
+     */
+    private Map<String, PageValidator> readValidatorsFile(String filePath) {
+        Object obj = readObjectFromFile(filePath);
+        if (!(obj instanceof Map)) return null;
+        Map<String, PageValidator> validators = new HashMap<>();
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) obj).entrySet()) {
+            if (!(entry.getKey() instanceof String && entry.getValue() instanceof PageValidator)) {
+                logger.warn(String.format("%s does not hold page validators", filePath));
+                return null;
+            }
+            validators.put((String) entry.getKey(), (PageValidator) entry.getValue());
+        }
+        return validators;
+    }
+
+    /**
+     * Reads a serialized index of term -> (url -> posting), checking the type of every entry
+     * @param filePath Path of the serialized index
+     * @return the index, or null if the file does not exist or holds something else
+     */
+    private Map<String, Map<String, IndexItem>> readIndexFile(String filePath) {
+        Object obj = readObjectFromFile(filePath);
+        if (!(obj instanceof Map)) return null;
+        Map<String, Map<String, IndexItem>> index = new HashMap<>();
+        for (Map.Entry<?, ?> term : ((Map<?, ?>) obj).entrySet()) {
+            if (!(term.getKey() instanceof String && term.getValue() instanceof Map)) {
+                logger.warn(String.format("%s does not hold an index", filePath));
+                return null;
+            }
+            Map<String, IndexItem> postings = new HashMap<>();
+            for (Map.Entry<?, ?> posting : ((Map<?, ?>) term.getValue()).entrySet()) {
+                if (!(posting.getKey() instanceof String && posting.getValue() instanceof IndexItem)) {
+                    logger.warn(String.format("%s does not hold an index", filePath));
+                    return null;
+                }
+                postings.put((String) posting.getKey(), (IndexItem) posting.getValue());
+            }
+            index.put((String) term.getKey(), postings);
+        }
+        return index;
+    }
+
+    public void readPostings() {
+        readPostings(Constants.termDictionaryFile, Constants.postingsFile);
+    }
+
+    /**
+     * Memory-maps the postings files written with the index, so that the postings lists of the index read from disk
+     * are decoded from them. Files left from another index are not used.
+     * @param dictionaryFile Path of the term dictionary file
+     * @param postingsFile Path of the postings file
+     */
+    public void readPostings(String dictionaryFile, String postingsFile) {
+        if (!Files.exists(Paths.get(dictionaryFile)) || !Files.exists(Paths.get(postingsFile))) return;
+        try {
+            if (!this.indexer.setMappedPostings(MappedPostings.open(Paths.get(dictionaryFile), Paths.get(postingsFile))))
+                logger.info(String.format("%s does not match the index, postings are read from the index", postingsFile));
+        }
+        catch(IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    public void readStaticScores() {
+        readStaticScores(Constants.staticScoresFile);
+    }
+
+    /**
+     * Reads the static scores of a previous crawl from the given file into this crawler's indexer.
+     * An index written without static scores has no such file, and ranks by similarity alone.
+     * @param filePath Path of the serialized static scores
+     */
+    public void readStaticScores(String filePath) {
+        if (!Files.exists(Paths.get(filePath))) return;
+        try {
+            FileInputStream fileInputStream = new FileInputStream(filePath);
+            ObjectInputStream objectInputStream = new ObjectInputStream(fileInputStream);
+            @SuppressWarnings("unchecked")
+            Map<String, Double> staticScores = (Map<String, Double>) objectInputStream.readObject();
+            this.getIndexer().setStaticScoreVector(staticScores);
         }
         catch(Exception ex) {
             ex.printStackTrace();
@@ -229,8 +1083,16 @@ public class Crawler {
     }
 
     public void readDocLengths() {
+        readDocLengths(Constants.docLengthsFile);
+    }
+
+    /**
+     * Reads the euclidean normalized document lengths from the given file into this crawler's indexer
+     * @param filePath Path of the serialized document lengths vector
+     */
+    public void readDocLengths(String filePath) {
         try {
-            FileInputStream fileInputStream = new FileInputStream(Constants.docLengthsFile);
+            FileInputStream fileInputStream = new FileInputStream(filePath);
             ObjectInputStream objectInputStream = new ObjectInputStream(fileInputStream);
             Object obj = objectInputStream.readObject();
             this.getIndexer().setDocumentVector((HashMap)obj);
@@ -242,17 +1104,21 @@ public class Crawler {
     }
 
     /**
-     * Stores index/(euclidean-normalized-document-vector) to disk
+     * Stores index/(euclidean-normalized-document-vector) to disk. <br>
+     * The object is written to a temporary file which then replaces the target file atomically,
+     * so that readers (e.g. replication to replica servers) never see a half-written file.
      * @param obj Inverted index / Document lengths vector
-     * @param fileName Name of the file on disk
+     * @param filePath Path of the file on disk
      */
-    public void writeObjectToFile(Object obj, String fileName) {
+    public void writeObjectToFile(Object obj, String filePath) {
         try {
-            FileOutputStream fileOutputStream = new FileOutputStream(String.format("src/main/resources/%s.ser", fileName));
+            Path temporaryPath = Paths.get(filePath.concat(".tmp"));
+            FileOutputStream fileOutputStream = new FileOutputStream(temporaryPath.toFile());
             ObjectOutputStream objectOutputStream = new ObjectOutputStream(fileOutputStream);
             objectOutputStream.writeObject(obj);
             objectOutputStream.close();
             fileOutputStream.close();
+            Files.move(temporaryPath, Paths.get(filePath), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
         }
         catch(IOException io) {
             io.printStackTrace();
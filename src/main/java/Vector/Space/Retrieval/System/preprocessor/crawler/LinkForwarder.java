@@ -0,0 +1,405 @@
+package Vector.Space.Retrieval.System.preprocessor.crawler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * This class connects the crawler processes of a distributed crawl. Every process owns the partition
+ * of the url space given by the hash of the host of the url, and crawls only the urls of its own partition.
+ * All urls of a host are thus crawled by one process, which alone keeps the politeness delay and the robots.txt
+ * rules of that host. <br>
+ * Links found for another partition are buffered per owner and sent to it over a socket in batches,
+ * either once a batch is full or once the oldest link in it has waited for the forwarding interval.
+ * Links received from the other processes are queued until the crawler takes them into its frontier. <br>
+ * A batch is sent as the number of links followed by the url and the link depth of every link.
+ * A batch which cannot be sent, e.g. because its owner is not up yet, is kept and sent again later. <br>
+ * A process with nothing left to crawl does not stop on its own, since a peer may still send it links.
+ * The process of partition 0 detects the end of the whole crawl in rounds: it asks every process for the
+ * number of links it has sent and taken, which a process answers only once it has nothing left to crawl.
+ * The crawl is over once two rounds in a row get the same counts from every process and as many links
+ * were taken as were sent, so that no process crawled and no link was in flight between the two rounds.
+ * Every process is then told to stop.
+ */
+public class LinkForwarder {
+    private static final Logger logger = LoggerFactory.getLogger(LinkForwarder.class);
+
+    /* a message starts with the number of links in a batch, or with one of these negative types */
+    private static final int PROBE = -1, STATUS = -2, STOP = -3;
+    /* longest time in milliseconds to wait before sending unsent links or messages again */
+    private static final long RETRY_INTERVAL = 100;
+
+    private final int partition;
+    private final List<InetSocketAddress> peers;
+    private final int batchSize;
+    private final long interval;
+    private final BlockingQueue<Link> inbox;
+    private final List<List<Link>> outboxes;
+    private final long[] oldestWaiting;
+    private final DataOutputStream[] connections;
+    private final Set<String> forwarded;
+    private final AtomicLong receivedLinks;
+    private long sentLinks, sentBatches, takenLinks;
+    private ServerSocket serverSocket;
+
+    /* round of the termination detection asked for by partition 0, and the last round answered */
+    private volatile int probedRound;
+    private int answeredRound;
+    private volatile boolean stopped;
+
+    /* state of partition 0: current round, the counts answered in it and in the round before */
+    private int round;
+    private boolean probing;
+    private final Map<Integer, long[]> counts, previousCounts;
+
+    /**
+     * A link to a url of the partition of another process
+     */
+    public static class Link {
+        private final String url;
+        private final int depth;
+
+        Link(String url, int depth) {
+            this.url = url;
+            this.depth = depth;
+        }
+
+        public String getUrl() {
+            return this.url;
+        }
+
+        public int getDepth() {
+            return this.depth;
+        }
+    }
+
+    /**
+     * @param partition Partition owned by this process, its position in the list of peers
+     * @param peers Addresses (<i>host:port</i>) at which the processes of every partition receive links, in partition order
+     * @param batchSize Number of links sent to a peer at once
+     * @param interval Longest time in milliseconds a link waits for its batch to fill up
+     */
+    public LinkForwarder(final int partition, final List<String> peers, final int batchSize, final long interval) {
+        this.partition = partition;
+        this.peers = new ArrayList<>();
+        for (String peer : peers)
+            this.peers.add(new InetSocketAddress(peer.substring(0, peer.lastIndexOf(':')),
+                    Integer.parseInt(peer.substring(peer.lastIndexOf(':') + 1))));
+        this.batchSize = batchSize;
+        this.interval = interval;
+        this.inbox = new LinkedBlockingQueue<>();
+        this.outboxes = new ArrayList<>();
+        for (int peer = 0; peer < peers.size(); peer++) this.outboxes.add(new ArrayList<>());
+        this.oldestWaiting = new long[peers.size()];
+        this.connections = new DataOutputStream[peers.size()];
+        this.forwarded = new HashSet<>();
+        this.receivedLinks = new AtomicLong();
+        this.counts = new HashMap<>();
+        this.previousCounts = new HashMap<>();
+    }
+
+    /**
+     * Gets the partition of a url from the hash of its host, so that all urls of a host share a partition
+     * @param url Normalized url
+     * @param partitions Number of partitions
+     * @return partition between 0 and partitions - 1
+     */
+    public static int getPartition(String url, int partitions) {
+        return Math.floorMod(getHost(url).hashCode(), partitions);
+    }
+
+    /**
+     * Gets the lower-cased host of a url, or the url itself if it has none
+     * @param url Normalized url
+     */
+    private static String getHost(String url) {
+        try {
+            String host = new URI(url).getHost();
+            if (host != null) return host.toLowerCase();
+        }
+        catch(URISyntaxException ex) {
+            /* such a url is partitioned as a whole */
+        }
+        return url;
+    }
+
+    /**
+     * Checks whether a url belongs to the partition of this process
+     * @param url Normalized url
+     */
+    public boolean owns(String url) {
+        return getPartition(url, this.peers.size()) == this.partition;
+    }
+
+    /**
+     * Starts receiving links from the other processes on a background thread
+     */
+    public void start() throws IOException {
+        this.serverSocket = new ServerSocket(this.peers.get(this.partition).getPort());
+        Thread acceptor = new Thread(this::accept, "link-receiver");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        logger.info(String.format("crawling partition %d of %d, receiving links on port %d",
+                this.partition, this.peers.size(), this.serverSocket.getLocalPort()));
+    }
+
+    private void accept() {
+        while (!this.serverSocket.isClosed()) {
+            try {
+                Socket socket = this.serverSocket.accept();
+                Thread handler = new Thread(() -> this.receive(socket), "link-receiver-handler");
+                handler.setDaemon(true);
+                handler.start();
+            }
+            catch(IOException ex) {
+                if (!this.serverSocket.isClosed()) ex.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Reads batches of links and the messages of the termination detection from one peer until it disconnects
+     * @param socket Connection from the peer
+     */
+    private void receive(Socket socket) {
+        try (socket; DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+            while (true) {
+                int count = in.readInt();
+                if (count == PROBE) this.probedRound = in.readInt();
+                else if (count == STATUS) {
+                    int peer = in.readInt(), round = in.readInt();
+                    long sent = in.readLong(), taken = in.readLong();
+                    synchronized (this) {
+                        if (this.probing && round == this.round) this.counts.put(peer, new long[] {sent, taken});
+                    }
+                }
+                else if (count == STOP) this.stopped = true;
+                else {
+                    for (int i = 0; i < count; i++) this.inbox.add(new Link(in.readUTF(), in.readInt()));
+                    this.receivedLinks.addAndGet(count);
+                }
+                synchronized (this) {
+                    this.notifyAll();
+                }
+            }
+        }
+        catch(EOFException ex) {
+            /* the peer finished its crawl */
+        }
+        catch(IOException ex) {
+            logger.warn(String.format("lost the connection of a peer: %s", ex));
+        }
+    }
+
+    /**
+     * Buffers a link for the process owning its url. A url is forwarded only once, since its owner
+     * remembers it anyway.
+     * @param url Normalized url of another partition
+     * @param depth Link depth of the url
+     */
+    public void forward(String url, int depth) {
+        if (!this.forwarded.add(url)) return;
+        int peer = getPartition(url, this.peers.size());
+        List<Link> outbox = this.outboxes.get(peer);
+        if (outbox.isEmpty()) this.oldestWaiting[peer] = System.currentTimeMillis();
+        outbox.add(new Link(url, depth));
+        if (outbox.size() >= this.batchSize) send(peer);
+    }
+
+    /**
+     * Sends the batches which are due
+     * @param all Sends every buffered link if <b>true</b>, else only the batches having waited for the forwarding interval
+     */
+    public void flush(boolean all) {
+        long now = System.currentTimeMillis();
+        for (int peer = 0; peer < this.peers.size(); peer++) {
+            if (this.outboxes.get(peer).isEmpty()) continue;
+            if (all || now - this.oldestWaiting[peer] >= this.interval) send(peer);
+        }
+    }
+
+    private void send(int peer) {
+        List<Link> outbox = this.outboxes.get(peer);
+        try {
+            DataOutputStream out = connect(peer);
+            out.writeInt(outbox.size());
+            for (Link link : outbox) {
+                out.writeUTF(link.url);
+                out.writeInt(link.depth);
+            }
+            out.flush();
+            this.sentLinks += outbox.size();
+            this.sentBatches++;
+            outbox.clear();
+        }
+        catch(IOException ex) {
+            /* the links are kept for the next attempt on a new connection */
+            logger.warn(String.format("could not forward %d links to partition %d: %s", outbox.size(), peer, ex));
+            closeConnection(peer);
+            this.oldestWaiting[peer] = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Sends a message of the termination detection to a peer
+     * @param peer Partition of the peer
+     * @param type Type of the message
+     * @param values Values following the type
+     * @return <b>true</b> if the message was sent
+     */
+    private boolean sendMessage(int peer, int type, long... values) {
+        try {
+            DataOutputStream out = connect(peer);
+            out.writeInt(type);
+            if (type == PROBE) out.writeInt((int) values[0]);
+            else if (type == STATUS) {
+                out.writeInt((int) values[0]);
+                out.writeInt((int) values[1]);
+                out.writeLong(values[2]);
+                out.writeLong(values[3]);
+            }
+            out.flush();
+            return true;
+        }
+        catch(IOException ex) {
+            logger.warn(String.format("could not reach partition %d: %s", peer, ex));
+            closeConnection(peer);
+            return false;
+        }
+    }
+
+    private DataOutputStream connect(int peer) throws IOException {
+        if (this.connections[peer] == null) {
+            Socket socket = new Socket();
+            socket.connect(this.peers.get(peer), 2000);
+            this.connections[peer] = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+        return this.connections[peer];
+    }
+
+    private void closeConnection(int peer) {
+        if (this.connections[peer] == null) return;
+        try {
+            this.connections[peer].close();
+        }
+        catch(IOException ex) {
+            /* the connection is dropped anyway */
+        }
+        this.connections[peer] = null;
+    }
+
+    /**
+     * Hands every link received so far to the crawler
+     * @param consumer Takes the received links
+     */
+    public void drain(Consumer<Link> consumer) {
+        Link link;
+        while ((link = this.inbox.poll()) != null) {
+            this.takenLinks++;
+            consumer.accept(link);
+        }
+    }
+
+    /**
+     * Waits, while this process has nothing left to crawl, until links arrive or the whole crawl is over.
+     * Meanwhile the buffered links are sent, the termination detection of partition 0 is answered, and
+     * partition 0 runs the termination detection.
+     * @return <b>true</b> if links arrived, <b>false</b> if every process has finished its crawl
+     */
+    public boolean await() throws InterruptedException {
+        while (true) {
+            flush(true);
+            boolean unsent = this.outboxes.stream().anyMatch(outbox -> !outbox.isEmpty());
+            synchronized (this) {
+                if (!this.inbox.isEmpty()) return true;
+                if (this.stopped) return false;
+                if (!unsent) {
+                    if (this.partition == 0) detectTermination();
+                    else answerProbe();
+                    if (this.stopped) return false;
+                }
+                if (this.inbox.isEmpty()) this.wait(RETRY_INTERVAL);
+            }
+        }
+    }
+
+    /**
+     * Sends the counts of this process to partition 0 if it asked for them in a round not answered yet
+     */
+    private void answerProbe() {
+        int round = this.probedRound;
+        if (round == this.answeredRound) return;
+        if (sendMessage(0, STATUS, this.partition, round, this.sentLinks, this.takenLinks)) this.answeredRound = round;
+    }
+
+    /**
+     * Starts a round of the termination detection, or ends the round once every peer has answered it.
+     * The counts of partition 0 itself are taken when the round starts.
+     */
+    private void detectTermination() {
+        if (this.probing && this.counts.size() < this.peers.size()) return;
+        if (this.probing) {
+            this.probing = false;
+            long sent = 0, taken = 0;
+            for (long[] count : this.counts.values()) {
+                sent += count[0];
+                taken += count[1];
+            }
+            boolean unchanged = this.counts.keySet().stream()
+                    .allMatch(peer -> Arrays.equals(this.counts.get(peer), this.previousCounts.get(peer)));
+            if (unchanged && sent == taken) {
+                logger.info(String.format("every partition has finished its crawl after %d forwarded links", sent));
+                for (int peer = 1; peer < this.peers.size(); peer++)
+                    if (!sendMessage(peer, STOP)) logger.warn(String.format("could not stop partition %d", peer));
+                this.stopped = true;
+                return;
+            }
+            this.previousCounts.clear();
+            this.previousCounts.putAll(this.counts);
+        }
+        this.round++;
+        this.counts.clear();
+        this.counts.put(0, new long[] {this.sentLinks, this.takenLinks});
+        this.probing = true;
+        for (int peer = 1; peer < this.peers.size(); peer++) {
+            if (!sendMessage(peer, PROBE, this.round)) {
+                /* a peer which is not up yet cannot have finished, so the round is started again later */
+                this.probing = false;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sends every buffered link, then closes all connections and stops receiving links
+     */
+    public void close() {
+        flush(true);
+        int unsent = this.outboxes.stream().mapToInt(List::size).sum();
+        if (unsent > 0) logger.warn(String.format("dropping %d links which could not be forwarded", unsent));
+        for (int peer = 0; peer < this.peers.size(); peer++) closeConnection(peer);
+        try {
+            if (this.serverSocket != null) this.serverSocket.close();
+        }
+        catch(IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("forwarded %d links in %d batches, received %d links",
+                this.sentLinks, this.sentBatches, this.receivedLinks.get());
+    }
+}
@@ -0,0 +1,169 @@
+package Vector.Space.Retrieval.System.preprocessor.crawler;
+
+import java.util.*;
+
+/**
+ * This class flags pages whose tokens are nearly the same as those of a page indexed before
+ * (e.g. print views, calendar days or the pages of a listing), so that they are not indexed again. <br>
+ * Every page gets a 64-bit SimHash fingerprint: each distinct token votes on every bit with the sign
+ * of the bit in its hash, weighted by its term frequency, so that pages sharing most of their tokens
+ * get fingerprints differing in few bits. <br>
+ * Two pages are near-duplicates if their fingerprints differ in at most <i>d</i> bits. The fingerprints
+ * are split into <i>d + 1</i> bands, and since <i>d</i> differing bits leave at least one band unchanged,
+ * only the fingerprints sharing a band with the page have to be compared.
+ */
+public class NearDuplicateDetector {
+    private final int maxDistance;
+    private final int[] bandShifts;
+    private final long[] bandMasks;
+    private final List<Map<Long, List<Integer>>> bands;
+    private long[] fingerprints;
+    private final List<String> urls;
+    private int checked, duplicates;
+    private long postingsSkipped, tokensSkipped;
+
+    /**
+     * @param maxDistance Largest number of differing bits for which two pages are near-duplicates
+     */
+    public NearDuplicateDetector(final int maxDistance) {
+        this.maxDistance = maxDistance;
+        int bandCount = Math.min(Long.SIZE, maxDistance + 1);
+        this.bandShifts = new int[bandCount];
+        this.bandMasks = new long[bandCount];
+        this.bands = new ArrayList<>();
+        for (int band = 0, shift = 0; band < bandCount; band++) {
+            int width = Long.SIZE / bandCount + (band < Long.SIZE % bandCount ? 1 : 0);
+            this.bandShifts[band] = shift;
+            this.bandMasks[band] = width == Long.SIZE ? -1L : (1L << width) - 1;
+            this.bands.add(new HashMap<>());
+            shift += width;
+        }
+        this.fingerprints = new long[16];
+        this.urls = new ArrayList<>();
+    }
+
+    /**
+     * Computes the SimHash fingerprint of a page
+     * @param tokens Preprocessed tokens of the page
+     * @return 64-bit fingerprint
+     */
+    public static long fingerprint(List<String> tokens) {
+        Map<String, Integer> termFrequencies = new HashMap<>();
+        tokens.forEach(token -> termFrequencies.merge(token, 1, Integer::sum));
+
+        int[] votes = new int[Long.SIZE];
+        termFrequencies.forEach((token, termFrequency) -> {
+            long hash = hash(token);
+            for (int bit = 0; bit < Long.SIZE; bit++)
+                votes[bit] += (hash >>> bit & 1) == 1 ? termFrequency : -termFrequency;
+        });
+        long fingerprint = 0;
+        for (int bit = 0; bit < Long.SIZE; bit++)
+            if (votes[bit] > 0) fingerprint |= 1L << bit;
+        return fingerprint;
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the token, with the bits mixed further since the fingerprint needs every bit to be uniform
+     */
+    private static long hash(String token) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < token.length(); i++) {
+            hash ^= token.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+        return hash ^ (hash >>> 31);
+    }
+
+    /**
+     * Checks a page against all pages kept so far, and keeps it if it is not a near-duplicate of any of them
+     * @param tokens Preprocessed tokens of the page
+     * @param url Normalized url of the page
+     * @return url of a page of which this page is a near-duplicate, or null if the page should be indexed
+     */
+    public String check(List<String> tokens, String url) {
+        long fingerprint = fingerprint(tokens);
+        this.checked++;
+        String original = findDuplicate(fingerprint);
+        if (original != null) {
+            this.duplicates++;
+            this.postingsSkipped += new HashSet<>(tokens).size();
+            this.tokensSkipped += tokens.size();
+            return original;
+        }
+        add(fingerprint, url);
+        return null;
+    }
+
+    /**
+     * Finds a kept page whose fingerprint is within the maximum distance of the given one
+     * @param fingerprint Fingerprint of a page
+     * @return url of the near-duplicate page, or null if there is none
+     */
+    public String findDuplicate(long fingerprint) {
+        for (int band = 0; band < this.bands.size(); band++) {
+            List<Integer> candidates = this.bands.get(band).get(getBandKey(fingerprint, band));
+            if (candidates == null) continue;
+            for (int candidate : candidates)
+                if (Long.bitCount(fingerprint ^ this.fingerprints[candidate]) <= this.maxDistance)
+                    return this.urls.get(candidate);
+        }
+        return null;
+    }
+
+    /**
+     * Keeps the fingerprint of a page, so that later pages are compared with it
+     * @param fingerprint Fingerprint of the page
+     * @param url Normalized url of the page
+     */
+    public void add(long fingerprint, String url) {
+        int id = this.urls.size();
+        if (id == this.fingerprints.length) this.fingerprints = Arrays.copyOf(this.fingerprints, id * 2);
+        this.fingerprints[id] = fingerprint;
+        this.urls.add(url);
+        for (int band = 0; band < this.bands.size(); band++)
+            this.bands.get(band).computeIfAbsent(getBandKey(fingerprint, band), key -> new ArrayList<>(1)).add(id);
+    }
+
+    private long getBandKey(long fingerprint, int band) {
+        return fingerprint >>> this.bandShifts[band] & this.bandMasks[band];
+    }
+
+    /**
+     * Get the number of pages checked
+     */
+    public int getChecked() {
+        return this.checked;
+    }
+
+    /**
+     * Get the number of pages found to be near-duplicates
+     */
+    public int getDuplicates() {
+        return this.duplicates;
+    }
+
+    /**
+     * Get the number of postings which near-duplicate pages would have added to the index
+     */
+    public long getPostingsSkipped() {
+        return this.postingsSkipped;
+    }
+
+    /**
+     * Get the number of tokens of the near-duplicate pages, which is the number of positions not indexed
+     */
+    public long getTokensSkipped() {
+        return this.tokensSkipped;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d of %d pages (%.1f%%) were near-duplicates within %d bits, " +
+                        "skipping %d postings and %d positions",
+                this.duplicates, this.checked, 100.0 * this.duplicates / Math.max(1, this.checked),
+                this.maxDistance, this.postingsSkipped, this.tokensSkipped);
+    }
+}
@@ -0,0 +1,72 @@
+package Vector.Space.Retrieval.System.preprocessor.crawler;
+
+import org.jsoup.Connection;
+
+import java.io.Serializable;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * This class holds what a refresh crawl needs to know whether a page changed since it was indexed:
+ * the <i>ETag</i> and <i>Last-Modified</i> validators sent by the server, which make the next
+ * request conditional, and a hash of the page body for servers that send neither or send the page again anyway.
+ */
+public class PageValidator implements Serializable {
+    /* the UID the first version of this class was given by default, so validators written by it can still be read */
+    private static final long serialVersionUID = 502012776148051803L;
+
+    private final String entityTag;
+    private final String lastModified;
+    private final byte[] contentHash;
+
+    public PageValidator(final String entityTag, final String lastModified, final byte[] contentHash) {
+        this.entityTag = entityTag;
+        this.lastModified = lastModified;
+        this.contentHash = contentHash;
+    }
+
+    /**
+     * Gets the validators of a fetched page
+     * @param response Response of the page
+     * @param body Bytes of the page body
+     * @return validators of the page
+     */
+    public static PageValidator of(Connection.Response response, byte[] body) {
+        return new PageValidator(response.header("ETag"), response.header("Last-Modified"), hash(body));
+    }
+
+    /**
+     * Adds the conditional request headers, so that the server can answer <i>304 Not Modified</i>
+     * without sending the page again
+     * @param connection Request for the page
+     */
+    public void addConditions(Connection connection) {
+        if (this.entityTag != null) connection.header("If-None-Match", this.entityTag);
+        if (this.lastModified != null) connection.header("If-Modified-Since", this.lastModified);
+    }
+
+    /**
+     * Checks whether a page body is the one these validators were taken from
+     * @param body Bytes of the page body
+     * @return <b>true</b> if the body has the same hash
+     */
+    public boolean sameContent(byte[] body) {
+        return Arrays.equals(this.contentHash, hash(body));
+    }
+
+    /**
+     * Computes the SHA-256 hash of a page body
+     * @param body Bytes of the page body
+     * @return hash of the body
+     */
+    public static byte[] hash(byte[] body) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(body);
+        }
+        catch(NoSuchAlgorithmException ex) {
+            /* every Java platform has SHA-256 */
+            throw new IllegalStateException(ex);
+        }
+    }
+}
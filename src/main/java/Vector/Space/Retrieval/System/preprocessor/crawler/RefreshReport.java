@@ -0,0 +1,97 @@
+package Vector.Space.Retrieval.System.preprocessor.crawler;
+
+/**
+ * This class counts what a refresh crawl did with the pages it checked
+ * and how many bytes it had to download for them
+ */
+public class RefreshReport {
+    private int checked, notModified, unchanged, reindexed, deleted, failed;
+    private long bytesDownloaded;
+    private final long start;
+
+    public RefreshReport() {
+        this.start = System.currentTimeMillis();
+    }
+
+    void addChecked(long bytes) {
+        this.checked++;
+        this.bytesDownloaded += bytes;
+    }
+
+    void addNotModified() {
+        this.notModified++;
+    }
+
+    void addUnchanged() {
+        this.unchanged++;
+    }
+
+    void addReindexed() {
+        this.reindexed++;
+    }
+
+    void addDeleted() {
+        this.deleted++;
+    }
+
+    void addFailed() {
+        this.failed++;
+    }
+
+    /**
+     * Get the number of pages requested
+     */
+    public int getChecked() {
+        return this.checked;
+    }
+
+    /**
+     * Get the number of pages for which the server answered <i>304 Not Modified</i>
+     */
+    public int getNotModified() {
+        return this.notModified;
+    }
+
+    /**
+     * Get the number of pages sent again with the same content
+     */
+    public int getUnchanged() {
+        return this.unchanged;
+    }
+
+    /**
+     * Get the number of changed pages which were parsed and indexed again
+     */
+    public int getReindexed() {
+        return this.reindexed;
+    }
+
+    /**
+     * Get the number of pages which are gone and were deleted from the index
+     */
+    public int getDeleted() {
+        return this.deleted;
+    }
+
+    /**
+     * Get the number of pages which could not be fetched and were left as they are
+     */
+    public int getFailed() {
+        return this.failed;
+    }
+
+    /**
+     * Get the number of body bytes downloaded
+     */
+    public long getBytesDownloaded() {
+        return this.bytesDownloaded;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("refresh checked %d pages in %d ms, downloaded %d bytes: %d not modified, " +
+                        "%d unchanged, %d re-indexed, %d deleted, %d failed",
+                this.checked, System.currentTimeMillis() - this.start, this.bytesDownloaded,
+                this.notModified, this.unchanged, this.reindexed, this.deleted, this.failed);
+    }
+}
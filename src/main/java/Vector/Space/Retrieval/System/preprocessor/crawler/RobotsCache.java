@@ -0,0 +1,138 @@
+package Vector.Space.Retrieval.System.preprocessor.crawler;
+
+import org.jsoup.Connection;
+import org.jsoup.Jsoup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class fetches the <i>robots.txt</i> of every host once and keeps its rules for a while,
+ * so that links can be checked against them before they enter the url frontier. <br>
+ * A host without robots.txt (a 4xx answer) allows everything. A host whose robots.txt cannot be
+ * fetched (a 5xx answer or a network error) is treated as disallowing everything for now: its urls are
+ * skipped without being remembered, and its robots.txt is requested again after a minute.
+ */
+public class RobotsCache {
+    private static final Logger logger = LoggerFactory.getLogger(RobotsCache.class);
+    private static final long ERROR_TTL = 60 * 1000;
+
+    private final String userAgent;
+    private final long ttl;
+    private final Map<String, CachedRules> rules;
+    private int fetches;
+
+    private static class CachedRules {
+        private final RobotsRules rules;
+        private final long expiresAt;
+        private final boolean available;
+
+        private CachedRules(RobotsRules rules, long expiresAt, boolean available) {
+            this.rules = rules;
+            this.expiresAt = expiresAt;
+            this.available = available;
+        }
+    }
+
+    /**
+     * @param userAgent Name of this crawler, which selects its group of rules
+     * @param ttl Milliseconds for which the rules of a host are kept
+     */
+    public RobotsCache(final String userAgent, final long ttl) {
+        this.userAgent = userAgent;
+        this.ttl = ttl;
+        this.rules = new HashMap<>();
+    }
+
+    /**
+     * Checks whether this crawler may request a url
+     * @param url Absolute url
+     * @return <b>true</b> if the robots.txt of its host allows it
+     */
+    public boolean isAllowed(String url) {
+        return check(url) == null;
+    }
+
+    /**
+     * Checks whether this crawler may request a url, telling a url disallowed by robots.txt
+     * from a url of a host whose robots.txt could not be fetched
+     * @param url Absolute url
+     * @return reason to skip the url, or null if it may be requested
+     */
+    public SkipReason check(String url) {
+        try {
+            URI uri = URI.create(url);
+            if (uri.getHost() == null) return null;
+            String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+            if (uri.getRawQuery() != null) path = path.concat("?").concat(uri.getRawQuery());
+            CachedRules cached = getCachedRules(uri);
+            if (!cached.available) return SkipReason.ROBOTS_UNAVAILABLE;
+            return cached.rules.isAllowed(path) ? null : SkipReason.ROBOTS;
+        }
+        catch(IllegalArgumentException ex) {
+            /* the crawler's own checks decide about urls which are not valid URIs */
+            return null;
+        }
+    }
+
+    /**
+     * Gets the rules of the host of a url, fetching its robots.txt if they are not cached or expired
+     * @param url Absolute url
+     * @return rules for this crawler
+     */
+    public RobotsRules getRules(String url) {
+        try {
+            return getCachedRules(URI.create(url)).rules;
+        }
+        catch(IllegalArgumentException ex) {
+            return RobotsRules.ALLOW_ALL;
+        }
+    }
+
+    private CachedRules getCachedRules(URI uri) {
+        String site = String.format("%s://%s", uri.getScheme(), uri.getRawAuthority()).toLowerCase();
+        CachedRules cached = this.rules.get(site);
+        long now = System.currentTimeMillis();
+        if (cached != null && cached.expiresAt > now) return cached;
+
+        cached = fetch(site, now);
+        this.rules.put(site, cached);
+        return cached;
+    }
+
+    private CachedRules fetch(String site, long now) {
+        this.fetches++;
+        try {
+            Connection.Response response = Jsoup.connect(site.concat("/robots.txt"))
+                    .userAgent(this.userAgent)
+                    .timeout(10000)
+                    .ignoreContentType(true)
+                    .ignoreHttpErrors(true)
+                    .followRedirects(true)
+                    .execute();
+            if (response.statusCode() >= 500) {
+                logger.info(String.format("robots.txt of %s answered %d, not crawling it for now", site, response.statusCode()));
+                return new CachedRules(RobotsRules.DISALLOW_ALL, now + Math.min(ERROR_TTL, this.ttl), false);
+            }
+            if (response.statusCode() >= 400) return new CachedRules(RobotsRules.ALLOW_ALL, now + this.ttl, true);
+            String text = new String(response.bodyAsBytes(), StandardCharsets.UTF_8);
+            return new CachedRules(RobotsRules.parse(text, this.userAgent), now + this.ttl, true);
+        }
+        catch(IOException ex) {
+            logger.warn(String.format("could not fetch robots.txt of %s: %s", site, ex));
+            return new CachedRules(RobotsRules.DISALLOW_ALL, now + Math.min(ERROR_TTL, this.ttl), false);
+        }
+    }
+
+    /**
+     * Get the number of robots.txt requests made so far
+     */
+    public int getFetchCount() {
+        return this.fetches;
+    }
+}
@@ -0,0 +1,182 @@
+package Vector.Space.Retrieval.System.preprocessor.crawler;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * This class holds the rules of a host's <i>robots.txt</i> which apply to this crawler. <br>
+ * The plain path prefixes are compiled into a character trie, so checking a path walks it once
+ * however many rules there are. The few rules having the <i>*</i> or <i>$</i> wildcards are matched
+ * as regular expressions. As in RFC 9309, the longest matching rule decides, and <i>Allow</i> wins a tie.
+ */
+public class RobotsRules {
+    public static final RobotsRules ALLOW_ALL = new RobotsRules(new Node(), new ArrayList<>(), -1);
+    public static final RobotsRules DISALLOW_ALL;
+
+    static {
+        Node root = new Node();
+        root.length = 1;
+        root.allow = false;
+        DISALLOW_ALL = new RobotsRules(root, new ArrayList<>(), -1);
+    }
+
+    private final Node root;
+    private final List<WildcardRule> wildcardRules;
+    private final long crawlDelay;
+
+    /**
+     * A node of the trie. A node ending a rule has the length of the rule, 0 otherwise.
+     */
+    private static class Node {
+        private final Map<Character, Node> children = new HashMap<>();
+        private int length;
+        private boolean allow;
+    }
+
+    private static class WildcardRule {
+        private final Pattern pattern;
+        private final int length;
+        private final boolean allow;
+
+        private WildcardRule(String path, boolean allow) {
+            StringBuilder regex = new StringBuilder();
+            for (int i = 0; i < path.length(); i++) {
+                char c = path.charAt(i);
+                if (c == '*') regex.append(".*");
+                else if (c == '$' && i == path.length() - 1) regex.append('$');
+                else regex.append(Pattern.quote(String.valueOf(c)));
+            }
+            this.pattern = Pattern.compile(regex.toString());
+            this.length = path.length();
+            this.allow = allow;
+        }
+    }
+
+    private RobotsRules(Node root, List<WildcardRule> wildcardRules, long crawlDelay) {
+        this.root = root;
+        this.wildcardRules = wildcardRules;
+        this.crawlDelay = crawlDelay;
+    }
+
+    /**
+     * Parses a robots.txt file, keeping the group of rules meant for the given user agent,
+     * or the group for all agents if no group names it. A group is meant for this crawler if its
+     * user-agent line names the product token of the user agent, ignoring case, as RFC 9309 asks.
+     * @param text Contents of robots.txt
+     * @param userAgent Name of this crawler
+     * @return rules for this crawler
+     */
+    public static RobotsRules parse(String text, String userAgent) {
+        String agent = getProductToken(userAgent);
+        List<String[]> ownRules = new ArrayList<>(), defaultRules = new ArrayList<>();
+        boolean inOwnGroup = false, inDefaultGroup = false, readingAgents = false, foundOwnGroup = false;
+
+        for (String line : text.split("\r?\n|\r")) {
+            int comment = line.indexOf('#');
+            if (comment >= 0) line = line.substring(0, comment);
+            int colon = line.indexOf(':');
+            if (colon < 0) continue;
+            String field = line.substring(0, colon).trim().toLowerCase(), value = line.substring(colon + 1).trim();
+
+            if (field.equals("user-agent")) {
+                /* consecutive user-agent lines open one group */
+                if (!readingAgents) inOwnGroup = inDefaultGroup = false;
+                readingAgents = true;
+                String name = getProductToken(value);
+                if (name.equals("*")) inDefaultGroup = true;
+                else if (!name.isEmpty() && name.equals(agent)) inOwnGroup = foundOwnGroup = true;
+                continue;
+            }
+            readingAgents = false;
+            if (!(field.equals("allow") || field.equals("disallow") || field.equals("crawl-delay"))) continue;
+            if (inOwnGroup) ownRules.add(new String[] {field, value});
+            if (inDefaultGroup) defaultRules.add(new String[] {field, value});
+        }
+        return compile(foundOwnGroup ? ownRules : defaultRules);
+    }
+
+    /**
+     * Gets the product token of a user agent, the name before any version or comment,
+     * e.g. <i>uicsearchcrawler</i> for <i>UICSearchCrawler/1.0 (+http://...)</i>
+     * @param userAgent User agent or the value of a user-agent line
+     * @return product token in lower case
+     */
+    static String getProductToken(String userAgent) {
+        String token = userAgent.trim();
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if (c == '/' || Character.isWhitespace(c)) return token.substring(0, i).toLowerCase();
+        }
+        return token.toLowerCase();
+    }
+
+    private static RobotsRules compile(List<String[]> rules) {
+        Node root = new Node();
+        List<WildcardRule> wildcardRules = new ArrayList<>();
+        long crawlDelay = -1;
+        for (String[] rule : rules) {
+            String field = rule[0], path = rule[1];
+            if (field.equals("crawl-delay")) {
+                try {
+                    crawlDelay = (long)(Double.parseDouble(path) * 1000);
+                }
+                catch(NumberFormatException ex) {
+                    /* an unreadable delay is ignored */
+                }
+                continue;
+            }
+            /* an empty disallow allows everything, which is the default anyway */
+            if (path.isEmpty()) continue;
+            boolean allow = field.equals("allow");
+            if (path.indexOf('*') >= 0 || path.endsWith("$")) {
+                wildcardRules.add(new WildcardRule(path, allow));
+                continue;
+            }
+            Node node = root;
+            for (int i = 0; i < path.length(); i++) node = node.children.computeIfAbsent(path.charAt(i), c -> new Node());
+            if (node.length == 0 || allow) {
+                node.length = path.length();
+                node.allow = allow;
+            }
+        }
+        return new RobotsRules(root, wildcardRules, crawlDelay);
+    }
+
+    /**
+     * Checks whether this crawler may request a path
+     * @param path Path of the url, with its query if it has one
+     * @return <b>true</b> if no rule disallows the path
+     */
+    public boolean isAllowed(String path) {
+        int bestLength = 0;
+        boolean allow = true;
+        Node node = this.root;
+        if (node.length > 0) {
+            bestLength = node.length;
+            allow = node.allow;
+        }
+        for (int i = 0; i < path.length() && node != null; i++) {
+            node = node.children.get(path.charAt(i));
+            if (node != null && node.length > 0) {
+                bestLength = node.length;
+                allow = node.allow;
+            }
+        }
+        for (WildcardRule rule : this.wildcardRules) {
+            if (rule.length < bestLength || (rule.length == bestLength && allow)) continue;
+            if (rule.pattern.matcher(path).lookingAt()) {
+                bestLength = rule.length;
+                allow = rule.allow;
+            }
+        }
+        return allow;
+    }
+
+    /**
+     * Gets the delay between two requests asked for by the host
+     * @return delay in milliseconds, or -1 if the host does not ask for one
+     */
+    public long getCrawlDelay() {
+        return this.crawlDelay;
+    }
+}
@@ -0,0 +1,37 @@
+package Vector.Space.Retrieval.System.preprocessor.crawler;
+
+/**
+ * The reasons for which the crawler gives up on a url without indexing it
+ */
+public enum SkipReason {
+    /** the url ends with the extension of a file which is not a web page, so it is not even requested */
+    EXTENSION(true),
+    /** the server declared a content type which is not HTML, so the body is not read */
+    CONTENT_TYPE(true),
+    /** the body is larger than the configured maximum, so the transfer is stopped there */
+    TOO_LARGE(true),
+    /** the robots.txt of the host disallows the url, so it is not even requested */
+    ROBOTS(true),
+    /** the robots.txt of the host could not be fetched, so none of its urls are requested until it can be */
+    ROBOTS_UNAVAILABLE(false),
+    /** the server answered with a client error status, e.g. 404 Not Found or 403 Forbidden */
+    HTTP_ERROR(true),
+    /** the server answered with a server error status, 429 Too Many Requests or 408 Request Timeout,
+     * which may pass, so the url may be requested again when linked again */
+    HTTP_UNAVAILABLE(false),
+    /** the page could not be fetched, e.g. after a timeout, and may be requested again when linked again */
+    FETCH_ERROR(false);
+
+    private final boolean remembered;
+
+    SkipReason(final boolean remembered) {
+        this.remembered = remembered;
+    }
+
+    /**
+     * Checks whether a url skipped for this reason is never requested again
+     */
+    public boolean isRemembered() {
+        return this.remembered;
+    }
+}
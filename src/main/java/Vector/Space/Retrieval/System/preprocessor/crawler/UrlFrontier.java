@@ -0,0 +1,234 @@
+package Vector.Space.Retrieval.System.preprocessor.crawler;
+
+import java.net.URI;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * This class is the url frontier of the crawler. It keeps one queue per host, ordered by the priority of
+ * the urls, and a scheduler of the hosts ordered by the time at which each may be requested again. <br>
+ * The next url is the best url of the host which has been ready the longest, so the crawl moves on to
+ * other hosts while a host waits out its politeness delay, instead of waiting for it or hammering it.
+ * A host may ask for a longer delay in its robots.txt. <br>
+ * Several urls can be fetched at once with {@link #pollReady()}: a host being fetched is not handed out again
+ * until its fetch is released, and its delay counts from the end of that fetch. <br>
+ * The priority of a url is its link depth from the seed, lowered by the logarithm of the number of links
+ * to it seen so far and raised by a penalty if the url matches one of the low-value patterns
+ * (e.g. calendars, print views or sorted listings). A smaller value is crawled first.
+ */
+public class UrlFrontier {
+    private final long politenessDelay;
+    private final List<Pattern> lowValuePatterns;
+    private final double lowValuePenalty;
+    private final Map<String, HostQueue> hosts;
+    private final PriorityQueue<HostQueue> readyHosts;
+    private final Set<HostQueue> fetchingHosts;
+    private final Map<String, Entry> entries;
+    private Entry polled;
+    private long sequence;
+
+    /**
+     * A url waiting in the frontier
+     */
+    private static class Entry {
+        private final String url;
+        private final int depth;
+        private final long sequence;
+        private final boolean lowValue;
+        private int inLinks;
+        private double priority;
+
+        private Entry(String url, int depth, long sequence, boolean lowValue) {
+            this.url = url;
+            this.depth = depth;
+            this.sequence = sequence;
+            this.lowValue = lowValue;
+        }
+    }
+
+    /**
+     * The urls of one host, best priority first
+     */
+    private static class HostQueue {
+        private final TreeSet<Entry> entries;
+        private long readyAt, delay;
+        private boolean fetching;
+
+        private HostQueue(long delay) {
+            this.delay = delay;
+            this.entries = new TreeSet<>(Comparator.comparingDouble((Entry entry) -> entry.priority)
+                    .thenComparingLong(entry -> entry.sequence));
+        }
+    }
+
+    /**
+     * @param politenessDelay Milliseconds between two requests to the same host
+     * @param lowValuePatterns Regular expressions of urls which are crawled later
+     * @param lowValuePenalty Priority added to a url matching a low-value pattern, in levels of link depth
+     */
+    public UrlFrontier(final long politenessDelay, final List<String> lowValuePatterns, final double lowValuePenalty) {
+        this.politenessDelay = politenessDelay;
+        this.lowValuePatterns = lowValuePatterns.stream().map(Pattern::compile).collect(Collectors.toList());
+        this.lowValuePenalty = lowValuePenalty;
+        this.hosts = new HashMap<>();
+        this.readyHosts = new PriorityQueue<>(Comparator.comparingLong(host -> host.readyAt));
+        this.fetchingHosts = new HashSet<>();
+        this.entries = new HashMap<>();
+    }
+
+    /**
+     * Adds a url to the queue of its host. If the url is already waiting, the link to it is counted
+     * in its priority instead.
+     * @param url Normalized url
+     * @param depth Number of links followed from the seed to reach the url
+     * @return <b>true</b> if the url was not waiting in the frontier
+     */
+    public boolean add(String url, int depth) {
+        HostQueue host = this.hosts.computeIfAbsent(getHost(url), h -> new HostQueue(this.politenessDelay));
+        Entry entry = this.entries.get(url);
+        if (entry != null) {
+            /* the entry is re-inserted, since its place in the queue depends on its priority */
+            host.entries.remove(entry);
+            entry.inLinks++;
+            entry.priority = getPriority(entry);
+            host.entries.add(entry);
+            return false;
+        }
+
+        entry = new Entry(url, depth, this.sequence++, isLowValue(url));
+        entry.inLinks = 1;
+        entry.priority = getPriority(entry);
+        this.entries.put(url, entry);
+        /* a host being fetched is scheduled again when its fetch is released */
+        if (host.entries.isEmpty() && !host.fetching) {
+            host.readyAt = Math.max(host.readyAt, System.currentTimeMillis());
+            this.readyHosts.add(host);
+        }
+        host.entries.add(entry);
+        return true;
+    }
+
+    /**
+     * Takes the next url to crawl, waiting until its host may be requested. Meant for fetching one url at a time.
+     * @return best url of the host ready the longest, or null if the frontier is empty
+     */
+    public String poll() throws InterruptedException {
+        HostQueue host = this.readyHosts.poll();
+        if (host == null) return null;
+        long wait = host.readyAt - System.currentTimeMillis();
+        if (wait > 0) Thread.sleep(wait);
+
+        Entry entry = host.entries.pollFirst();
+        this.entries.remove(entry.url);
+        this.polled = entry;
+        host.readyAt = System.currentTimeMillis() + host.delay;
+        if (!host.entries.isEmpty()) this.readyHosts.add(host);
+        return entry.url;
+    }
+
+    /**
+     * Takes the next url to crawl if its host may be requested now, without waiting. The host is
+     * not handed out again until {@link #release(String)} is called with the url.
+     * @return best url of the host ready the longest, or null if no host is ready
+     */
+    public String pollReady() {
+        HostQueue host = this.readyHosts.peek();
+        if (host == null || host.readyAt > System.currentTimeMillis()) return null;
+        this.readyHosts.poll();
+        Entry entry = host.entries.pollFirst();
+        this.entries.remove(entry.url);
+        this.polled = entry;
+        host.fetching = true;
+        this.fetchingHosts.add(host);
+        return entry.url;
+    }
+
+    /**
+     * Ends the fetch of a url taken by {@link #pollReady()}, so that its host may be requested again after its delay
+     * @param url Url returned by {@link #pollReady()}
+     */
+    public void release(String url) {
+        HostQueue host = this.hosts.get(getHost(url));
+        if (host == null || !host.fetching) return;
+        host.fetching = false;
+        this.fetchingHosts.remove(host);
+        host.readyAt = System.currentTimeMillis() + host.delay;
+        if (!host.entries.isEmpty()) this.readyHosts.add(host);
+    }
+
+    /**
+     * Gets the time until a host may be requested
+     * @return milliseconds until {@link #pollReady()} returns a url, or -1 if every host with urls is being fetched
+     */
+    public long getWaitMillis() {
+        HostQueue host = this.readyHosts.peek();
+        return host == null ? -1 : Math.max(0, host.readyAt - System.currentTimeMillis());
+    }
+
+    /**
+     * Sets the delay between two requests to the host of a url, which is never shorter than the politeness delay
+     * @param url Url of the host
+     * @param delay Milliseconds asked for by the host, e.g. as the crawl-delay of its robots.txt
+     */
+    public void setDelay(String url, long delay) {
+        HostQueue host = this.hosts.computeIfAbsent(getHost(url), h -> new HostQueue(this.politenessDelay));
+        host.delay = Math.max(this.politenessDelay, delay);
+    }
+
+    private double getPriority(Entry entry) {
+        return entry.depth - Math.log(entry.inLinks) / Math.log(2) + (entry.lowValue ? this.lowValuePenalty : 0);
+    }
+
+    private boolean isLowValue(String url) {
+        return this.lowValuePatterns.stream().anyMatch(pattern -> pattern.matcher(url).find());
+    }
+
+    private static String getHost(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host == null ? "" : host.toLowerCase();
+        }
+        catch(IllegalArgumentException ex) {
+            return "";
+        }
+    }
+
+    /**
+     * Checks whether a url is waiting in the frontier
+     * @param url Normalized url
+     */
+    public boolean contains(String url) {
+        return this.entries.containsKey(url);
+    }
+
+    /**
+     * Gets the link depth of a url waiting in the frontier or taken out by the last {@link #poll()} or {@link #pollReady()}.
+     * The depths of the urls crawled before are not kept, so the frontier holds only the urls waiting in it.
+     * @param url Normalized url
+     * @return number of links followed from the seed to reach the url, 0 for any other url
+     */
+    public int getDepth(String url) {
+        Entry entry = this.entries.get(url);
+        if (entry == null && this.polled != null && this.polled.url.equals(url)) entry = this.polled;
+        return entry == null ? 0 : entry.depth;
+    }
+
+    public boolean isEmpty() {
+        return this.entries.isEmpty();
+    }
+
+    /**
+     * Get the number of urls waiting in the frontier
+     */
+    public int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Get the number of hosts having urls waiting in the frontier
+     */
+    public int getHostCount() {
+        return this.readyHosts.size() + (int) this.fetchingHosts.stream().filter(host -> !host.entries.isEmpty()).count();
+    }
+}
@@ -0,0 +1,90 @@
+package Vector.Space.Retrieval.System.query;
+
+import Vector.Space.Retrieval.System.indexer.InvertedIndexer;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * This class computes the documents selected by a boolean query tree. <br>
+ * The operands of an AND are intersected starting with the rarest one, using galloping
+ * intersection, and evaluation stops as soon as the intersection becomes empty. Negated
+ * operands are removed from the intersection at the end. <br>
+ * A NOT selects from the live documents only, so deleted and replaced document IDs never match.
+ */
+public class BooleanQueryEvaluator {
+    private final InvertedIndexer indexer;
+    private final PhraseMatcher phraseMatcher;
+
+    public BooleanQueryEvaluator(final InvertedIndexer indexer, final PhraseMatcher phraseMatcher) {
+        this.indexer = indexer;
+        this.phraseMatcher = phraseMatcher;
+    }
+
+    /**
+     * Computes the documents matching a query node
+     * @param node Root of the (sub) query
+     * @return IDs of all matching documents in increasing order
+     */
+    public int[] evaluate(QueryNode node) {
+        switch (node.getType()) {
+            case TERM:
+                return this.indexer.getPostings(node.getTerms().get(0));
+            case PHRASE:
+                return this.phraseMatcher.match(node.getTerms());
+            case OR: {
+                int[] result = new int[0];
+                for (QueryNode child : node.getChildren())
+                    result = PostingsIntersection.union(result, evaluate(child));
+                return result;
+            }
+            case NOT:
+                return PostingsIntersection.difference(getAllDocuments(), evaluate(node.getChildren().get(0)));
+            default:
+                return evaluateAnd(node);
+        }
+    }
+
+    /**
+     * Intersects the operands of an AND node, leading with the rarest one
+     * @param node AND node
+     * @return IDs of the documents matching every operand and no negated operand
+     */
+    private int[] evaluateAnd(QueryNode node) {
+        List<QueryNode> included = new ArrayList<>(), excluded = new ArrayList<>();
+        node.getChildren().forEach(child -> {
+            if (child.getType() == QueryNode.Type.NOT) excluded.add(child.getChildren().get(0));
+            else included.add(child);
+        });
+        included.sort(Comparator.comparingInt(this::estimateSize));
+
+        int[] result = included.isEmpty() ? getAllDocuments() : evaluate(included.get(0));
+        for (int i = 1; i < included.size() && result.length > 0; i++)
+            result = PostingsIntersection.intersect(result, evaluate(included.get(i)));
+        for (int i = 0; i < excluded.size() && result.length > 0; i++)
+            result = PostingsIntersection.difference(result, evaluate(excluded.get(i)));
+        return result;
+    }
+
+    /**
+     * Estimates the number of documents matching a node without evaluating it,
+     * which is exact for a term and an upper bound for a phrase
+     * @param node Operand of an AND node
+     * @return estimated number of matching documents
+     */
+    private int estimateSize(QueryNode node) {
+        if (node.getType() == QueryNode.Type.TERM || node.getType() == QueryNode.Type.PHRASE)
+            return node.getTerms().stream().mapToInt(this.indexer::getDocumentFrequency).min().orElse(0);
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Gets the documents a negation selects from
+     * @return IDs of all live documents in increasing order
+     */
+    private int[] getAllDocuments() {
+        return IntStream.range(0, this.indexer.getDocumentCount()).filter(this.indexer::isLive).toArray();
+    }
+}
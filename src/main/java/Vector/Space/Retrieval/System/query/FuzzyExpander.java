@@ -0,0 +1,125 @@
+package Vector.Space.Retrieval.System.query;
+
+import Vector.Space.Retrieval.System.Constants;
+import Vector.Space.Retrieval.System.indexer.InvertedIndexer;
+import Vector.Space.Retrieval.System.indexer.TermDictionary;
+
+import java.util.*;
+
+/**
+ * This class replaces query terms which the index does not have (e.g. misspelled words) with
+ * the indexed terms within a small edit distance. <br>
+ * The neighbours of a term are found by running a {@link LevenshteinAutomaton} against the sorted
+ * term dictionary: whenever a dictionary term leads the automaton into a dead state, the iterator
+ * seeks straight to the smallest string the automaton can still accept, so whole ranges of the
+ * dictionary are skipped instead of computing the distance to every term. <br>
+ * Terms of up to 4 characters are expanded within distance 1 only, and at most
+ * {@link Constants#fuzzyExpansions} terms are kept, closest and most frequent first.
+ */
+public class FuzzyExpander {
+    private static final int SHORT_TERM_LENGTH = 4;
+
+    private final InvertedIndexer indexer;
+    private final int maxDistance;
+    private final int maxExpansions;
+
+    public FuzzyExpander(final InvertedIndexer indexer) {
+        this(indexer, Constants.fuzzyDistance, Constants.fuzzyExpansions);
+    }
+
+    /**
+     * @param indexer Indexer whose term dictionary is searched
+     * @param maxDistance Maximum edit distance of an expansion, 1 or 2
+     * @param maxExpansions Maximum number of terms a query term expands to
+     */
+    public FuzzyExpander(final InvertedIndexer indexer, final int maxDistance, final int maxExpansions) {
+        this.indexer = indexer;
+        this.maxDistance = maxDistance;
+        this.maxExpansions = maxExpansions;
+    }
+
+    /**
+     * Expands every query token which the index does not have
+     * @param tokens Preprocessed query tokens
+     * @return tokens in which every unknown term is replaced by its neighbours
+     */
+    public List<String> expandTokens(List<String> tokens) {
+        List<String> expanded = new ArrayList<>();
+        for (String token : tokens) expanded.addAll(expand(token));
+        return expanded;
+    }
+
+    /**
+     * Expands the unknown terms at the leaves of a boolean query into an OR of their neighbours
+     * @param node Root of the boolean query
+     * @return root of the rewritten query
+     */
+    public QueryNode expand(QueryNode node) {
+        if (node.getType() == QueryNode.Type.PHRASE) return node;
+        if (node.getType() == QueryNode.Type.TERM) {
+            List<String> expansions = expand(node.getTerms().get(0));
+            if (expansions.size() == 1) return QueryNode.leaf(expansions);
+            /* an OR without operands matches no document, just like the unknown term */
+            return QueryNode.of(QueryNode.Type.OR, expansions.stream()
+                    .map(term -> QueryNode.leaf(Collections.singletonList(term))).toArray(QueryNode[]::new));
+        }
+        return QueryNode.of(node.getType(), node.getChildren().stream().map(this::expand).toArray(QueryNode[]::new));
+    }
+
+    /**
+     * Finds the indexed terms close to a term
+     * @param term Preprocessed query term
+     * @return the term itself if it is indexed, otherwise its closest neighbours (possibly none)
+     */
+    public List<String> expand(String term) {
+        if (this.indexer.getDocumentFrequency(term) > 0) return Collections.singletonList(term);
+
+        int distance = term.length() <= SHORT_TERM_LENGTH ? Math.min(1, this.maxDistance) : this.maxDistance;
+        LevenshteinAutomaton automaton = new LevenshteinAutomaton(term, distance);
+        TermDictionary.TermIterator iterator = this.indexer.getTermDictionary().iterator();
+
+        /* distance in the high bits and document frequency in the low bits, so that closer and then more frequent terms come first */
+        List<Map.Entry<String, Long>> matches = new ArrayList<>();
+        int[][] states = new int[1][];
+        states[0] = automaton.start();
+        String previous = "";
+        int computed = 0;
+        boolean positioned = iterator.seekCeil("");
+        while (positioned) {
+            String candidate = iterator.term();
+            if (states.length < candidate.length() + 1) states = Arrays.copyOf(states, candidate.length() + 1);
+
+            /* sorted neighbours share long prefixes, whose states are kept from the previous term */
+            int length = 0, limit = Math.min(computed, Math.min(previous.length(), candidate.length()));
+            while (length < limit && previous.charAt(length) == candidate.charAt(length)) length++;
+            while (length < candidate.length() && automaton.canMatch(states[length])) {
+                states[length + 1] = automaton.step(states[length], candidate.charAt(length));
+                length++;
+            }
+            previous = candidate;
+            computed = length;
+
+            if (automaton.canMatch(states[length])) {
+                if (automaton.isMatch(states[length]))
+                    matches.add(new AbstractMap.SimpleEntry<>(candidate,
+                            (long)automaton.getDistance(states[length]) << 32 | (Integer.MAX_VALUE - iterator.value())));
+                positioned = iterator.next();
+                continue;
+            }
+
+            /* the prefix of 'length' characters is dead: find the smallest live string after it */
+            String next = null;
+            for (int i = length - 1; i >= 0 && next == null; i--) {
+                int c = automaton.nextLiveCharacter(states[i], candidate.charAt(i));
+                if (c >= 0) next = candidate.substring(0, i) + (char)c;
+            }
+            positioned = next != null && iterator.seekCeil(next);
+        }
+
+        matches.sort(Map.Entry.comparingByValue());
+        List<String> expansions = new ArrayList<>();
+        for (int i = 0; i < Math.min(this.maxExpansions, matches.size()); i++)
+            expansions.add(matches.get(i).getKey());
+        return expansions;
+    }
+}
@@ -0,0 +1,316 @@
+package Vector.Space.Retrieval.System.query;
+
+import Vector.Space.Retrieval.System.Constants;
+import Vector.Space.Retrieval.System.indexer.InvertedIndexer;
+import Vector.Space.Retrieval.System.query.scorer.Scorer;
+
+import java.util.*;
+import java.util.function.IntPredicate;
+
+/**
+ * This class is an alternate layout of the inverted index in which every posting holds the
+ * document's share of the score of the term, computed at build time and quantized to 8 bits. <br>
+ * The impacts are quantized on a logarithmic scale between the smallest and the largest impact of
+ * the index, and the postings of a term are grouped into segments of equal impact which are ordered
+ * by decreasing impact. A query therefore adds the largest contributions first and can stop as soon
+ * as the impacts left to process can no longer change which documents are in the top k. <br>
+ * A quantized impact is within half a level of the exact one, so a query keeps as candidates every document whose
+ * quantized score is within one level of the k-th, and the candidates are then scored exactly: the top k is the
+ * same as that of exhaustive scoring. <br>
+ * With {@link Constants#impactTolerance} above 0 a query also stops once no other document can pass
+ * the k-th score by more than that fraction, which processes fewer postings at some loss of fidelity.
+ */
+public class ImpactIndex {
+    private static final int LEVELS = 255;
+
+    private final Map<String, TermImpacts> impacts;
+    private final double[] decodedImpacts;
+    private final double levelRatio;
+    private final int documentCount;
+    private final long generation;
+    private final double tolerance;
+    private final ThreadLocal<Scratch> scratch;
+    private long postingsProcessed, postingsTotal;
+
+    /**
+     * The postings of a term, in segments of equal impact ordered by decreasing impact
+     */
+    private static class TermImpacts {
+        private final byte[] segmentImpacts;
+        private final int[] segmentEnds;
+        private final int[] documentIds;
+
+        private TermImpacts(byte[] segmentImpacts, int[] segmentEnds, int[] documentIds) {
+            this.segmentImpacts = segmentImpacts;
+            this.segmentEnds = segmentEnds;
+            this.documentIds = documentIds;
+        }
+    }
+
+    /**
+     * The per-document arrays of a query, which are allocated once per thread and cleared after every query
+     * through the list of the documents it touched, so that a query costs time in its postings and not in the collection size
+     */
+    private static class Scratch {
+        private final double[] scores;
+        private final long[] creditedTerms;
+        private final int[] touched;
+        private final boolean[] inTop;
+
+        private Scratch(int documentCount) {
+            this.scores = new double[documentCount];
+            this.creditedTerms = new long[documentCount];
+            this.touched = new int[documentCount];
+            this.inTop = new boolean[documentCount];
+        }
+
+        private void clear(int touchedCount) {
+            for (int i = 0; i < touchedCount; i++) {
+                this.scores[this.touched[i]] = 0;
+                this.creditedTerms[this.touched[i]] = 0;
+            }
+        }
+    }
+
+    private ImpactIndex(Map<String, TermImpacts> impacts, double[] decodedImpacts, double levelRatio, int documentCount, long generation) {
+        this.impacts = impacts;
+        this.decodedImpacts = decodedImpacts;
+        this.levelRatio = levelRatio;
+        this.documentCount = documentCount;
+        this.generation = generation;
+        this.tolerance = Constants.impactTolerance;
+        this.scratch = ThreadLocal.withInitial(() -> new Scratch(this.documentCount));
+    }
+
+    /**
+     * Computes and quantizes the impact of every posting of the index
+     * @param indexer Indexer having the postings
+     * @param scorer Scorer giving the document score of a term, which is divided by the document length if normalization is enabled
+     * @return impact-ordered index
+     */
+    public static ImpactIndex build(InvertedIndexer indexer, Scorer scorer) {
+        long generation = indexer.getGeneration();
+        Map<String, double[]> exactImpacts = new HashMap<>();
+        double smallest = Double.MAX_VALUE, largest = 0;
+        for (String term : indexer.getIndex().keySet()) {
+            int[] documentIds = indexer.getPostings(term);
+            double[] termImpacts = new double[documentIds.length];
+            for (int i = 0; i < documentIds.length; i++) {
+                String url = indexer.getDocument(documentIds[i]).getUrl();
+                double impact = scorer.getDocumentScore(term, url), length = indexer.getDocumentLength(documentIds[i]);
+                if (Constants.normalize && length > 0) impact /= length;
+                termImpacts[i] = impact;
+                if (impact > 0) {
+                    smallest = Math.min(smallest, impact);
+                    largest = Math.max(largest, impact);
+                }
+            }
+            exactImpacts.put(term, termImpacts);
+        }
+
+        double logSmallest = Math.log(smallest), logRange = largest > smallest ? Math.log(largest) - logSmallest : 0;
+        double[] decodedImpacts = new double[LEVELS + 1];
+        for (int level = 1; level <= LEVELS; level++)
+            decodedImpacts[level] = logRange == 0 ? largest : Math.exp(logSmallest + logRange * (level - 1) / (LEVELS - 1));
+
+        Map<String, TermImpacts> impacts = new HashMap<>();
+        exactImpacts.forEach((term, termImpacts) -> {
+            int[] documentIds = indexer.getPostings(term);
+            long[] postings = new long[documentIds.length];
+            for (int i = 0; i < documentIds.length; i++) {
+                int level = termImpacts[i] <= 0 ? 0 : logRange == 0 ? LEVELS :
+                        1 + (int)Math.round((Math.log(termImpacts[i]) - logSmallest) / logRange * (LEVELS - 1));
+                /* decreasing impact, then increasing document id */
+                postings[i] = (long)(LEVELS - Math.max(0, Math.min(LEVELS, level))) << 32 | documentIds[i];
+            }
+            Arrays.sort(postings);
+
+            List<Integer> segmentEnds = new ArrayList<>();
+            int[] sortedIds = new int[postings.length];
+            byte[] segmentImpacts = new byte[postings.length];
+            for (int i = 0; i < postings.length; i++) {
+                sortedIds[i] = (int)postings[i];
+                if (i > 0 && postings[i] >>> 32 != postings[i - 1] >>> 32) segmentEnds.add(i);
+                segmentImpacts[segmentEnds.size()] = (byte)(LEVELS - (postings[i] >>> 32));
+            }
+            if (postings.length > 0) segmentEnds.add(postings.length);
+            impacts.put(term, new TermImpacts(Arrays.copyOf(segmentImpacts, segmentEnds.size()),
+                    segmentEnds.stream().mapToInt(Integer::intValue).toArray(), sortedIds));
+        });
+        /* ratio between two adjacent levels */
+        double levelRatio = Math.exp(logRange / (LEVELS - 1));
+        return new ImpactIndex(impacts, decodedImpacts, levelRatio, indexer.getDocumentCount(), generation);
+    }
+
+    /**
+     * Checks whether this index was built from the current postings and document lengths of the given indexer
+     */
+    public boolean isCurrent(InvertedIndexer indexer) {
+        return this.generation == indexer.getGeneration();
+    }
+
+    /**
+     * Finds the k documents with the highest quantized scores, processing the segments of all
+     * query terms in decreasing order of their contribution
+     * @param queryWeights Weight of each query term
+     * @param k Number of documents to retrieve
+     * @param isLive Tells whether a document is live, deleted documents being skipped
+     * @return ids of the top k documents by quantized score, and of the other documents which may be in the top k
+     * by exact score
+     */
+    public int[] search(Map<String, Double> queryWeights, int k, IntPredicate isLive) {
+        List<String> terms = new ArrayList<>();
+        queryWeights.forEach((term, weight) -> {
+            if (this.impacts.containsKey(term) && weight > 0) terms.add(term);
+        });
+        int[] segments = new int[terms.size()];
+        double[] weights = terms.stream().mapToDouble(queryWeights::get).toArray();
+        TermImpacts[] termImpacts = terms.stream().map(this.impacts::get).toArray(TermImpacts[]::new);
+
+        Scratch scratch = this.scratch.get();
+        double[] scores = scratch.scores;
+        long[] creditedTerms = scratch.creditedTerms;
+        int[] touched = scratch.touched;
+        double[] nextContributions = new double[termImpacts.length];
+        int touchedCount = 0, sinceCheck = 0;
+        long processed = 0, total = 0;
+        for (TermImpacts term : termImpacts) total += term.documentIds.length;
+
+        try {
+            while (true) {
+                /* the next segment is the one adding the most to each of its documents */
+                int best = -1;
+                double bestContribution = 0, remaining = 0;
+                for (int i = 0; i < termImpacts.length; i++) {
+                    if (segments[i] >= termImpacts[i].segmentEnds.length) continue;
+                    double contribution = weights[i] * getImpact(termImpacts[i], segments[i]);
+                    nextContributions[i] = contribution;
+                    remaining += contribution;
+                    if (contribution > bestContribution) {
+                        best = i;
+                        bestContribution = contribution;
+                    }
+                }
+                if (best < 0) break;
+                for (int i = 0; i < termImpacts.length; i++)
+                    if (segments[i] >= termImpacts[i].segmentEnds.length) nextContributions[i] = 0;
+
+                /* checked once enough postings were added, so that checking costs no more than adding */
+                if (touchedCount >= k && sinceCheck >= touchedCount / 4) {
+                    sinceCheck = 0;
+                    if (isTopKFinal(scratch, nextContributions, touchedCount, k, remaining, this.getCandidateFraction())) break;
+                }
+
+                TermImpacts term = termImpacts[best];
+                int start = segments[best] == 0 ? 0 : term.segmentEnds[segments[best] - 1], end = term.segmentEnds[segments[best]];
+                for (int i = start; i < end; i++) {
+                    int documentId = term.documentIds[i];
+                    if (!isLive.test(documentId)) continue;
+                    /* every contribution is positive, so a document has a score once it was touched */
+                    if (scores[documentId] == 0) touched[touchedCount++] = documentId;
+                    scores[documentId] += bestContribution;
+                    if (best < Long.SIZE) creditedTerms[documentId] |= 1L << best;
+                }
+                processed += end - start;
+                sinceCheck += end - start;
+                segments[best]++;
+            }
+
+            synchronized (this) {
+                this.postingsProcessed += processed;
+                this.postingsTotal += total;
+            }
+            return getCandidates(scratch, touchedCount, k, this.getCandidateFraction());
+        }
+        finally {
+            scratch.clear(touchedCount);
+        }
+    }
+
+    private double getImpact(TermImpacts term, int segment) {
+        return this.decodedImpacts[term.segmentImpacts[segment] & 0xFF];
+    }
+
+    /**
+     * Gets the fraction of the k-th quantized score which another document has to reach to be a candidate. <br>
+     * Every quantized impact is within half a level of the exact one, so a document whose quantized score is more
+     * than one level below the k-th cannot pass the k-th document by exact score. The tolerance raises the fraction.
+     */
+    private double getCandidateFraction() {
+        return (1 + this.tolerance) / this.levelRatio;
+    }
+
+    /**
+     * The candidates can no longer change if no other document can reach the candidate fraction of the
+     * k-th score, and neither can a document not seen yet. A document can still gain the next contribution of every
+     * term whose postings have not reached it yet, since a term adds to a document only once.
+     */
+    private static boolean isTopKFinal(Scratch scratch, double[] nextContributions, int touchedCount, int k,
+                                       double remaining, double candidateFraction) {
+        if (remaining == 0) return true;
+        double[] scores = scratch.scores;
+        int[] top = getTopK(scores, scratch.touched, touchedCount, k);
+        double threshold = scores[top[top.length - 1]] * candidateFraction;
+        if (threshold <= remaining) return false;
+
+        boolean[] inTop = scratch.inTop;
+        for (int documentId : top) inTop[documentId] = true;
+        try {
+            for (int i = 0; i < touchedCount; i++) {
+                int documentId = scratch.touched[i];
+                /* a document already past the threshold is a candidate whatever it still gains */
+                if (inTop[documentId] || scores[documentId] >= threshold) continue;
+                double bound = scores[documentId];
+                for (int term = 0; term < nextContributions.length; term++)
+                    if (term >= Long.SIZE || (scratch.creditedTerms[documentId] & 1L << term) == 0) bound += nextContributions[term];
+                if (bound >= threshold) return false;
+            }
+            return true;
+        }
+        finally {
+            for (int documentId : top) inTop[documentId] = false;
+        }
+    }
+
+    /**
+     * Gets the top k documents by quantized score, followed by the other documents reaching the candidate fraction of the k-th score
+     */
+    private static int[] getCandidates(Scratch scratch, int touchedCount, int k, double candidateFraction) {
+        double[] scores = scratch.scores;
+        int[] top = getTopK(scores, scratch.touched, touchedCount, k);
+        if (top.length == 0) return top;
+        double threshold = scores[top[top.length - 1]] * candidateFraction;
+        boolean[] inTop = scratch.inTop;
+        for (int documentId : top) inTop[documentId] = true;
+        try {
+            int[] candidates = Arrays.copyOf(top, touchedCount);
+            int candidateCount = top.length;
+            for (int i = 0; i < touchedCount; i++) {
+                int documentId = scratch.touched[i];
+                if (!inTop[documentId] && scores[documentId] >= threshold) candidates[candidateCount++] = documentId;
+            }
+            return Arrays.copyOf(candidates, candidateCount);
+        }
+        finally {
+            for (int documentId : top) inTop[documentId] = false;
+        }
+    }
+
+    private static int[] getTopK(double[] scores, int[] touched, int touchedCount, int k) {
+        PriorityQueue<Integer> top = new PriorityQueue<>(Comparator.comparingDouble(documentId -> scores[documentId]));
+        for (int i = 0; i < touchedCount; i++) {
+            top.add(touched[i]);
+            if (top.size() > k) top.poll();
+        }
+        int[] documentIds = new int[top.size()];
+        for (int i = documentIds.length - 1; i >= 0; i--) documentIds[i] = top.poll();
+        return documentIds;
+    }
+
+    /**
+     * Get the fraction of the postings of all queries so far which had to be processed
+     */
+    public synchronized double getProcessedFraction() {
+        return this.postingsTotal == 0 ? 0 : (double)this.postingsProcessed / this.postingsTotal;
+    }
+}
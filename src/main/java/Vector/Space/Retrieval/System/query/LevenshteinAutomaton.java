@@ -0,0 +1,106 @@
+package Vector.Space.Retrieval.System.query;
+
+import java.util.Arrays;
+
+/**
+ * This class is an automaton accepting every string within a maximum edit distance of a term. <br>
+ * A state is the last row of the edit distance table between the term and the characters read
+ * so far, with every value capped at the maximum distance + 1. A state is dead once no value in
+ * the row is within the maximum distance, because no suffix can bring the distance back down. <br>
+ * Characters which do not occur in the term all lead to the same state, so the automaton only has
+ * to try the characters of the term and one other character to find the next live transition.
+ */
+public class LevenshteinAutomaton {
+    private final char[] term;
+    private final char[] alphabet;
+    private final int maxDistance;
+
+    /**
+     * @param term Term whose neighbours are accepted
+     * @param maxDistance Maximum number of insertions, deletions and substitutions
+     */
+    public LevenshteinAutomaton(String term, int maxDistance) {
+        this.term = term.toCharArray();
+        this.maxDistance = maxDistance;
+        char[] alphabet = term.toCharArray();
+        Arrays.sort(alphabet);
+        int distinct = 0;
+        for (int i = 0; i < alphabet.length; i++)
+            if (i == 0 || alphabet[i] != alphabet[i - 1]) alphabet[distinct++] = alphabet[i];
+        this.alphabet = Arrays.copyOf(alphabet, distinct);
+    }
+
+    /**
+     * Get the state before reading any character
+     */
+    public int[] start() {
+        int[] state = new int[this.term.length + 1];
+        for (int i = 0; i < state.length; i++) state[i] = Math.min(i, this.maxDistance + 1);
+        return state;
+    }
+
+    /**
+     * Get the state after reading one more character
+     * @param state Current state
+     * @param c Character read
+     * @return next state
+     */
+    public int[] step(int[] state, char c) {
+        int[] next = new int[state.length];
+        next[0] = Math.min(state[0] + 1, this.maxDistance + 1);
+        for (int i = 1; i < state.length; i++) {
+            int substitution = state[i - 1] + (this.term[i - 1] == c ? 0 : 1);
+            next[i] = Math.min(Math.min(substitution, state[i] + 1), Math.min(next[i - 1] + 1, this.maxDistance + 1));
+        }
+        return next;
+    }
+
+    /**
+     * Checks whether the characters read so far are within the maximum distance of the term
+     */
+    public boolean isMatch(int[] state) {
+        return state[state.length - 1] <= this.maxDistance;
+    }
+
+    /**
+     * Get the edit distance between the characters read so far and the term
+     * @return distance, or the maximum distance + 1 if it is larger than the maximum
+     */
+    public int getDistance(int[] state) {
+        return state[state.length - 1];
+    }
+
+    /**
+     * Checks whether some continuation of the characters read so far can still be accepted
+     */
+    public boolean canMatch(int[] state) {
+        for (int distance : state)
+            if (distance <= this.maxDistance) return true;
+        return false;
+    }
+
+    /**
+     * Finds the smallest character greater than the given one which leads to a live state
+     * @param state Current state
+     * @param after Character which the next character must be greater than
+     * @return the character, or -1 if every greater character leads to a dead state
+     */
+    public int nextLiveCharacter(int[] state, char after) {
+        if (after == Character.MAX_VALUE) return -1;
+        /* the smallest character greater than 'after' which is not in the term stands for all of them */
+        int other = after + 1;
+        while (other <= Character.MAX_VALUE && Arrays.binarySearch(this.alphabet, (char)other) >= 0) other++;
+        boolean otherTried = other > Character.MAX_VALUE;
+
+        int index = Arrays.binarySearch(this.alphabet, (char)(after + 1));
+        for (index = index < 0 ? -index - 1 : index; index < this.alphabet.length; index++) {
+            if (!otherTried && other < this.alphabet[index]) {
+                otherTried = true;
+                if (canMatch(step(state, (char)other))) return other;
+            }
+            if (canMatch(step(state, this.alphabet[index]))) return this.alphabet[index];
+        }
+        if (!otherTried && canMatch(step(state, (char)other))) return other;
+        return -1;
+    }
+}
@@ -0,0 +1,52 @@
+package Vector.Space.Retrieval.System.query;
+
+import java.util.List;
+
+/**
+ * This class holds a query after parsing: the tokens used to score documents,
+ * the quoted phrases which every retrieved document must contain and, for a boolean
+ * query, the tree of operators which selects the retrieved documents
+ */
+public class ParsedQuery {
+    private final List<String> tokens;
+    private final List<List<String>> phrases;
+    private final QueryNode booleanQuery;
+
+    public ParsedQuery(final List<String> tokens, final List<List<String>> phrases) {
+        this(tokens, phrases, null);
+    }
+
+    public ParsedQuery(final List<String> tokens, final List<List<String>> phrases, final QueryNode booleanQuery) {
+        this.tokens = tokens;
+        this.phrases = phrases;
+        this.booleanQuery = booleanQuery;
+    }
+
+    /**
+     * Get the preprocessed tokens of the whole query (including the phrase tokens)
+     */
+    public List<String> getTokens() {
+        return this.tokens;
+    }
+
+    /**
+     * Get the preprocessed tokens of every quoted phrase
+     */
+    public List<List<String>> getPhrases() {
+        return this.phrases;
+    }
+
+    /**
+     * Checks whether the query used boolean operators
+     */
+    public boolean isBoolean() {
+        return this.booleanQuery != null;
+    }
+
+    /**
+     * Get the root of the boolean query tree, or null if this is not a boolean query
+     */
+    public QueryNode getBooleanQuery() {
+        return this.booleanQuery;
+    }
+}
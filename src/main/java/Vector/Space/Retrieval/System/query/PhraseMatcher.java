@@ -0,0 +1,123 @@
+package Vector.Space.Retrieval.System.query;
+
+import Vector.Space.Retrieval.System.indexer.BigramPostings;
+import Vector.Space.Retrieval.System.indexer.InvertedIndexer;
+import Vector.Space.Retrieval.System.indexer.PhraseIndex;
+import Vector.Space.Retrieval.System.preprocessor.IndexItem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * This class finds the documents containing a phrase using the positional index. <br>
+ * The phrase is covered by pairs of adjacent terms from the phrase index wherever a pair is
+ * indexed, and by single terms of the positional index elsewhere. The postings lists of these
+ * parts are intersected starting with the shortest one, and positions are decoded only for
+ * the documents which contain every part.
+ */
+public class PhraseMatcher {
+    private final InvertedIndexer indexer;
+
+    /**
+     * This class is one part of a phrase: a single term or a pair of adjacent terms
+     * found at a fixed offset from the start of the phrase
+     */
+    private class PhrasePart {
+        private final int offset;
+        private final String term;
+        private final BigramPostings.Decoded pair;
+
+        private PhrasePart(final int offset, final String term, final BigramPostings.Decoded pair) {
+            this.offset = offset;
+            this.term = term;
+            this.pair = pair;
+        }
+
+        private int[] getDocumentIds() {
+            return this.pair != null ? this.pair.getDocumentIds() : indexer.getPostings(this.term);
+        }
+
+        private int[] getPositions(int documentId) {
+            if (this.pair != null) return this.pair.getPositions(documentId);
+            IndexItem indexItem = indexer.getIndexItem(this.term, documentId);
+            return indexItem == null || !indexItem.hasPositions() ? new int[0] : indexItem.getPositions();
+        }
+    }
+
+    public PhraseMatcher(final InvertedIndexer indexer) {
+        this.indexer = indexer;
+    }
+
+    /**
+     * Computes the documents in which the terms appear consecutively
+     * @param phrase Preprocessed tokens of the phrase
+     * @return IDs of all matching documents in increasing order
+     */
+    public int[] match(List<String> phrase) {
+        if (phrase.size() == 1) return this.indexer.getPostings(phrase.get(0));
+
+        List<PhrasePart> parts = getParts(phrase);
+        List<int[]> postings = new ArrayList<>();
+        parts.forEach(part -> postings.add(part.getDocumentIds()));
+        postings.sort(Comparator.comparingInt(documentIds -> documentIds.length));
+
+        int[] candidates = postings.get(0);
+        for (int i = 1; i < postings.size() && candidates.length > 0; i++)
+            candidates = PostingsIntersection.intersect(candidates, postings.get(i));
+
+        return Arrays.stream(candidates).filter(documentId -> containsPhrase(parts, documentId)).toArray();
+    }
+
+    /**
+     * Covers the phrase with indexed pairs of adjacent terms where possible and single terms elsewhere
+     * @param phrase Preprocessed tokens of the phrase (at least 2)
+     * @return parts of the phrase along with their offsets
+     */
+    private List<PhrasePart> getParts(List<String> phrase) {
+        PhraseIndex phraseIndex = this.indexer.getPhraseIndex();
+        List<PhrasePart> parts = new ArrayList<>();
+        int i = 0;
+        while (i < phrase.size()) {
+            /* the last term may share a pair with the term before it */
+            int pairStart = i + 1 < phrase.size() ? i : i - 1;
+            if (phraseIndex != null && phraseIndex.covers(phrase.get(pairStart), phrase.get(pairStart + 1))) {
+                BigramPostings pair = phraseIndex.getPostings(phrase.get(pairStart), phrase.get(pairStart + 1));
+                parts.add(new PhrasePart(pairStart, null, pair.decode()));
+                i = pairStart + 2;
+            }
+            else {
+                parts.add(new PhrasePart(i, phrase.get(i), null));
+                i++;
+            }
+        }
+        return parts;
+    }
+
+    /**
+     * Checks the positions of the phrase parts in a document which contains all of them
+     * @param parts Parts covering the phrase
+     * @param documentId ID of the candidate document
+     * @return <b>true</b> if the parts appear at their offsets somewhere in the document
+     */
+    private boolean containsPhrase(List<PhrasePart> parts, int documentId) {
+        int[][] positions = new int[parts.size()][];
+        int rarest = 0;
+        for (int i = 0; i < parts.size(); i++) {
+            positions[i] = parts.get(i).getPositions(documentId);
+            if (positions[i].length == 0) return false;
+            if (positions[i].length < positions[rarest].length) rarest = i;
+        }
+
+        /* every occurrence of the rarest part fixes where the phrase would have to start */
+        for (int position : positions[rarest]) {
+            int start = position - parts.get(rarest).offset;
+            boolean matched = start >= 0;
+            for (int i = 0; i < parts.size() && matched; i++)
+                matched = i == rarest || Arrays.binarySearch(positions[i], start + parts.get(i).offset) >= 0;
+            if (matched) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,96 @@
+package Vector.Space.Retrieval.System.query;
+
+import java.util.Arrays;
+
+/**
+ * This class combines postings lists, i.e. lists of document IDs in increasing order. <br>
+ * Intersection walks the shorter list and finds each of its document IDs in the longer list
+ * by galloping (exponential) search from the last match, so its cost grows with the length
+ * of the shorter list and only logarithmically with the length of the longer one.
+ */
+public class PostingsIntersection {
+
+    /**
+     * Computes the document IDs present in both postings lists
+     * @param first Document IDs in increasing order
+     * @param second Document IDs in increasing order
+     * @return common document IDs in increasing order
+     */
+    public static int[] intersect(int[] first, int[] second) {
+        int[] shorter = first.length <= second.length ? first : second;
+        int[] longer = shorter == first ? second : first;
+        int[] result = new int[shorter.length];
+        int count = 0, position = 0;
+
+        for (int documentId : shorter) {
+            position = gallop(longer, position, documentId);
+            if (position == longer.length) break;
+            if (longer[position] == documentId) result[count++] = documentId;
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Computes the document IDs of the first list which are not in the second list
+     * @param first Document IDs in increasing order
+     * @param excluded Document IDs in increasing order
+     * @return remaining document IDs in increasing order
+     */
+    public static int[] difference(int[] first, int[] excluded) {
+        int[] result = new int[first.length];
+        int count = 0, position = 0;
+
+        for (int documentId : first) {
+            position = gallop(excluded, position, documentId);
+            if (position == excluded.length || excluded[position] != documentId) result[count++] = documentId;
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Computes the document IDs present in either postings list
+     * @param first Document IDs in increasing order
+     * @param second Document IDs in increasing order
+     * @return all document IDs in increasing order
+     */
+    public static int[] union(int[] first, int[] second) {
+        int[] result = new int[first.length + second.length];
+        int i = 0, j = 0, count = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) result[count++] = first[i++];
+            else if (first[i] > second[j]) result[count++] = second[j++];
+            else {
+                result[count++] = first[i++];
+                j++;
+            }
+        }
+        while (i < first.length) result[count++] = first[i++];
+        while (j < second.length) result[count++] = second[j++];
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Finds the first position at or after <i>from</i> whose document ID is not smaller than the target.
+     * The step doubles until it passes the target and the last step is then binary searched.
+     * @param postings Document IDs in increasing order
+     * @param from Position to start searching at
+     * @param target Document ID being searched
+     * @return position of the first document ID >= target, or the length of the list if there is none
+     */
+    static int gallop(int[] postings, int from, int target) {
+        if (from >= postings.length || postings[from] >= target) return from;
+        int low = from, step = 1;
+        while (low + step < postings.length && postings[low + step] < target) {
+            low += step;
+            step <<= 1;
+        }
+        /* postings[low] < target, and postings[high] >= target if high is inside the list */
+        int high = Math.min(low + step, postings.length);
+        while (high - low > 1) {
+            int middle = (low + high) >>> 1;
+            if (postings[middle] < target) low = middle;
+            else high = middle;
+        }
+        return high;
+    }
+}
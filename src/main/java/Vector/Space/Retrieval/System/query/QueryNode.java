@@ -0,0 +1,66 @@
+package Vector.Space.Retrieval.System.query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class is a node of a parsed boolean query. Leaves are single terms or phrases,
+ * and inner nodes combine their children with AND, OR or NOT.
+ */
+public class QueryNode {
+    public enum Type { TERM, PHRASE, AND, OR, NOT }
+
+    private final Type type;
+    private final List<String> terms;
+    private final List<QueryNode> children;
+
+    private QueryNode(final Type type, final List<String> terms, final List<QueryNode> children) {
+        this.type = type;
+        this.terms = terms;
+        this.children = children;
+    }
+
+    /**
+     * Creates a leaf matching the documents which contain a term, or a phrase if there are several terms
+     * @param terms Preprocessed tokens of the leaf
+     */
+    public static QueryNode leaf(List<String> terms) {
+        return new QueryNode(terms.size() == 1 ? Type.TERM : Type.PHRASE, terms, Collections.emptyList());
+    }
+
+    /**
+     * Creates a node combining its children
+     * @param type AND, OR or NOT (which has exactly one child)
+     * @param children Operands of the node
+     */
+    public static QueryNode of(Type type, QueryNode... children) {
+        return new QueryNode(type, Collections.emptyList(), new ArrayList<>(Arrays.asList(children)));
+    }
+
+    public Type getType() {
+        return this.type;
+    }
+
+    /**
+     * Get the term (or the phrase terms) of a leaf
+     */
+    public List<String> getTerms() {
+        return this.terms;
+    }
+
+    public List<QueryNode> getChildren() {
+        return this.children;
+    }
+
+    /**
+     * Collects the terms of all leaves which are not negated, which are the terms used to score a document
+     * @param scoringTerms List to which the terms are added
+     */
+    public void collectScoringTerms(List<String> scoringTerms) {
+        if (this.type == Type.NOT) return;
+        scoringTerms.addAll(this.terms);
+        this.children.forEach(child -> child.collectScoringTerms(scoringTerms));
+    }
+}
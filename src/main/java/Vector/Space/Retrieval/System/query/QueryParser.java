@@ -0,0 +1,135 @@
+package Vector.Space.Retrieval.System.query;
+
+import Vector.Space.Retrieval.System.preprocessor.Tokenizer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * This class parses the query sent by the client. Text enclosed in double quotes
+ * (e.g. <i>"heat transfer" effects</i>) is a phrase whose tokens must appear
+ * next to each other in a document. <br>
+ * A query using the upper-case operators AND, OR, NOT or parentheses is a boolean query,
+ * e.g. <i>(shock OR wave) AND "boundary layer" NOT supersonic</i>. NOT binds tightest and OR loosest,
+ * operands written next to each other without an operator are combined with OR, and
+ * <i>a NOT b</i> is read as <i>a AND NOT b</i>. Operators inside a quoted phrase are words of the phrase,
+ * and a query having only negated operands matches no documents, since it leaves no terms to score them by.
+ */
+public class QueryParser {
+    private static final Pattern phrasePattern = Pattern.compile("\"([^\"]*)\"");
+    private static final Pattern operatorPattern = Pattern.compile("\\b(AND|OR|NOT)\\b|[()]");
+    private static final Pattern lexemePattern = Pattern.compile("\\(|\\)|\"[^\"]*\"|[^\\s()\"]+");
+    private final Tokenizer tokenizer;
+
+    public QueryParser(final Tokenizer tokenizer) {
+        this.tokenizer = tokenizer;
+    }
+
+    /**
+     * Splits the query into its tokens and its quoted phrases,
+     * or into a tree of operators if it is a boolean query
+     * @param query Free-text query
+     * @return parsed query
+     */
+    public ParsedQuery parse(String query) {
+        if (operatorPattern.matcher(phrasePattern.matcher(query).replaceAll(" ")).find()) return parseBoolean(query);
+
+        List<List<String>> phrases = new ArrayList<>();
+        Matcher matcher = phrasePattern.matcher(query);
+        while (matcher.find()) {
+            List<String> phrase = this.tokenizer.preprocessTokens(this.tokenizer.tokenize(matcher.group(1)));
+            if (!phrase.isEmpty()) phrases.add(phrase);
+        }
+        return new ParsedQuery(this.tokenizer.preprocessTokens(this.tokenizer.tokenize(query)), phrases);
+    }
+
+    /**
+     * Parses a boolean query into a tree of operators
+     * @param query Query having AND, OR, NOT or parentheses
+     * @return parsed query holding the tree and the terms of its non-negated leaves
+     */
+    private ParsedQuery parseBoolean(String query) {
+        List<String> lexemes = new ArrayList<>();
+        Matcher matcher = lexemePattern.matcher(query);
+        while (matcher.find()) lexemes.add(matcher.group());
+
+        int[] position = {0};
+        List<QueryNode> parts = new ArrayList<>();
+        while (position[0] < lexemes.size()) {
+            QueryNode part = parseOr(lexemes, position);
+            if (part != null) parts.add(part);
+            position[0]++; /* skip an unbalanced ')' */
+        }
+        QueryNode root = combine(QueryNode.Type.OR, parts);
+        List<String> scoringTerms = new ArrayList<>();
+        if (root != null) root.collectScoringTerms(scoringTerms);
+        /* e.g. NOT x would select every other document, all of them with a similarity of 0 */
+        if (scoringTerms.isEmpty()) root = null;
+        return new ParsedQuery(scoringTerms, new ArrayList<>(), root);
+    }
+
+    /**
+     * or := and ((OR)? and)*
+     */
+    private QueryNode parseOr(List<String> lexemes, int[] position) {
+        List<QueryNode> operands = new ArrayList<>();
+        while (position[0] < lexemes.size() && !lexemes.get(position[0]).equals(")")) {
+            if (lexemes.get(position[0]).equals("OR")) {
+                position[0]++;
+                continue;
+            }
+            QueryNode operand = parseAnd(lexemes, position);
+            if (operand != null) operands.add(operand);
+        }
+        return combine(QueryNode.Type.OR, operands);
+    }
+
+    /**
+     * and := unary ((AND | NOT unary) unary)*
+     */
+    private QueryNode parseAnd(List<String> lexemes, int[] position) {
+        List<QueryNode> operands = new ArrayList<>();
+        QueryNode first = parseUnary(lexemes, position);
+        if (first != null) operands.add(first);
+
+        while (position[0] < lexemes.size()) {
+            String lexeme = lexemes.get(position[0]);
+            if (lexeme.equals("AND")) position[0]++;
+            else if (!lexeme.equals("NOT")) break;
+            QueryNode operand = parseUnary(lexemes, position);
+            if (operand != null) operands.add(operand);
+        }
+        return combine(QueryNode.Type.AND, operands);
+    }
+
+    /**
+     * unary := NOT unary | '(' or ')' | phrase | word
+     */
+    private QueryNode parseUnary(List<String> lexemes, int[] position) {
+        if (position[0] >= lexemes.size()) return null;
+        String lexeme = lexemes.get(position[0]++);
+
+        if (lexeme.equals("NOT")) {
+            QueryNode operand = parseUnary(lexemes, position);
+            return operand == null ? null : QueryNode.of(QueryNode.Type.NOT, operand);
+        }
+        if (lexeme.equals("(")) {
+            QueryNode group = parseOr(lexemes, position);
+            if (position[0] < lexemes.size()) position[0]++; /* skip ')' */
+            return group;
+        }
+        if (lexeme.equals(")") || lexeme.equals("AND") || lexeme.equals("OR")) return null;
+
+        /* a word removed by preprocessing (e.g. a stop word) does not restrict the query */
+        List<String> terms = this.tokenizer.preprocessTokens(this.tokenizer.tokenize(lexeme.replace("\"", " ")));
+        return terms.isEmpty() ? null : QueryNode.leaf(terms);
+    }
+
+    private static QueryNode combine(QueryNode.Type type, List<QueryNode> operands) {
+        if (operands.isEmpty()) return null;
+        if (operands.size() == 1) return operands.get(0);
+        return QueryNode.of(type, operands.toArray(new QueryNode[0]));
+    }
+}
@@ -1,7 +1,9 @@
 package Vector.Space.Retrieval.System.query;
 
 import Vector.Space.Retrieval.System.Constants;
+import Vector.Space.Retrieval.System.indexer.ChampionLists;
 import Vector.Space.Retrieval.System.indexer.InvertedIndexer;
+import Vector.Space.Retrieval.System.indexer.TermStatistics;
 
 import Vector.Space.Retrieval.System.preprocessor.IndexItem;
 import Vector.Space.Retrieval.System.preprocessor.WebDocument;
@@ -29,11 +31,20 @@ public class QueryProcessor {
     private final InvertedIndexer indexer;
     private final Tokenizer tokenizer;
     private final Scorer scorer;
+    private final QueryParser queryParser;
+    private final PhraseMatcher phraseMatcher;
+    private final BooleanQueryEvaluator booleanQueryEvaluator;
+    private final FuzzyExpander fuzzyExpander;
+    private ImpactIndex impactIndex;
 
     public QueryProcessor(final InvertedIndexer indexer) {
         this.indexer = indexer;
         this.tokenizer = new Tokenizer();
         this.scorer = getCurrentScorer(this.indexer);
+        this.queryParser = new QueryParser(this.tokenizer);
+        this.phraseMatcher = new PhraseMatcher(this.indexer);
+        this.booleanQueryEvaluator = new BooleanQueryEvaluator(this.indexer, this.phraseMatcher);
+        this.fuzzyExpander = new FuzzyExpander(this.indexer);
 //        ((ch.qos.logback.classic.Logger)logger).setLevel(Level.OFF);
     }
 
@@ -46,6 +57,176 @@ public class QueryProcessor {
         return this.tokenizer.preprocessTokens(this.tokenizer.tokenize(query));
     }
 
+    /**
+     * Parses a query sent by the client
+     * @param query Free-text or boolean query
+     * @return parsed query
+     */
+    public ParsedQuery parseQuery(String query) {
+        return this.queryParser.parse(query);
+    }
+
+    /**
+     * Parses the query sent by the client and ranks the matching documents. <br>
+     * If the query has quoted phrases only the documents containing every phrase are scored,
+     * and if it is a boolean query only the documents selected by its operators are scored.
+     * In fuzzy mode query terms missing from the index are replaced by their closest indexed terms.
+     * If champion lists are enabled a free-text query is answered from the champion tier when it has at least k documents.
+     * @param query Free-text query, possibly having quoted phrases
+     * @param k Number of documents to retrieve
+     * @return ordered map of document -> similarity value in non-increasing order of similarity values
+     */
+    public Map<WebDocument, Double> search(String query, int k) {
+        return search(query, k, null);
+    }
+
+    /**
+     * Parses the query sent by the client and ranks the matching documents using the given
+     * collection-wide term statistics
+     * @param query Free-text query, possibly having quoted phrases
+     * @param k Number of documents to retrieve
+     * @param termStatistics Statistics merged across all shards, or null to use this index's statistics
+     * @return ordered map of document -> similarity value in non-increasing order of similarity values
+     */
+    public Map<WebDocument, Double> search(String query, int k, TermStatistics termStatistics) {
+        ParsedQuery parsedQuery = this.queryParser.parse(query);
+        if (Constants.fuzzy) parsedQuery = expand(parsedQuery);
+        if (parsedQuery.isBoolean()) {
+            long start = System.nanoTime();
+            int[] candidates = this.booleanQueryEvaluator.evaluate(parsedQuery.getBooleanQuery());
+            Map<WebDocument, Double> rankedMap = scoreDocuments(parsedQuery.getTokens(), candidates, k, termStatistics);
+            logger.info(String.format("boolean query matched %d documents in %.3f ms",
+                    candidates.length, (System.nanoTime() - start) / 1e6));
+            return rankedMap;
+        }
+        if (parsedQuery.getPhrases().isEmpty() && this.indexer.getChampionLists() != null) {
+            Map<WebDocument, Double> rankedMap = getChampionRankedMapOfDocuments(parsedQuery.getTokens(), k, termStatistics);
+            if (rankedMap != null) return rankedMap;
+        }
+        /* impacts are computed with this index's statistics, so merged shard statistics need the exact scorer */
+        if (parsedQuery.getPhrases().isEmpty() && Constants.impactOrdered && termStatistics == null)
+            return getImpactRankedMapOfDocuments(parsedQuery.getTokens(), k);
+        if (parsedQuery.getPhrases().isEmpty())
+            return getRankedMapOfDocuments(parsedQuery.getTokens(), k, termStatistics);
+
+        long start = System.nanoTime();
+        int[] candidates = null;
+        for (List<String> phrase : parsedQuery.getPhrases()) {
+            int[] matches = this.phraseMatcher.match(phrase);
+            candidates = candidates == null ? matches : PostingsIntersection.intersect(candidates, matches);
+        }
+        Map<WebDocument, Double> rankedMap = scoreDocuments(parsedQuery.getTokens(), candidates, k, termStatistics);
+        logger.info(String.format("phrase query matched %d documents in %.3f ms",
+                candidates.length, (System.nanoTime() - start) / 1e6));
+        return rankedMap;
+    }
+
+    /**
+     * Replaces the terms of a parsed query which the index does not have by their closest indexed terms.
+     * Phrases are left as they are, since a phrase has to match exactly.
+     * @param parsedQuery Query as parsed
+     * @return query with expanded terms
+     */
+    private ParsedQuery expand(ParsedQuery parsedQuery) {
+        long start = System.nanoTime();
+        ParsedQuery expanded;
+        if (parsedQuery.isBoolean()) {
+            QueryNode root = this.fuzzyExpander.expand(parsedQuery.getBooleanQuery());
+            List<String> scoringTerms = new ArrayList<>();
+            root.collectScoringTerms(scoringTerms);
+            expanded = new ParsedQuery(scoringTerms, parsedQuery.getPhrases(), root);
+        }
+        else expanded = new ParsedQuery(this.fuzzyExpander.expandTokens(parsedQuery.getTokens()), parsedQuery.getPhrases());
+        if (!expanded.getTokens().equals(parsedQuery.getTokens()))
+            logger.info(String.format("fuzzy expansion %s -> %s in %.3f ms",
+                    parsedQuery.getTokens(), expanded.getTokens(), (System.nanoTime() - start) / 1e6));
+        return expanded;
+    }
+
+    /**
+     * Computes the similarity of a query with the given documents only, skipping deleted documents. <br>
+     * A document having none of the query tokens (e.g. one selected by a NOT) has no similarity and is left out,
+     * so that fewer than k matching documents are not padded with unrelated ones.
+     * @param queryTokens List of all tokens for the given query
+     * @param documentIds IDs of the documents to score
+     * @param k Number of documents to retrieve
+     * @param termStatistics Statistics merged across all shards, or null to use this index's statistics
+     * @return ordered map of document -> similarity value in non-increasing order of similarity values
+     */
+    public Map<WebDocument, Double> scoreDocuments(List<String> queryTokens, int[] documentIds, int k,
+                                                   TermStatistics termStatistics) {
+        Map<WebDocument, Double> similarityMap = new HashMap<>();
+        Scorer currentScorer = this.getCurrentScorer(this.indexer, termStatistics);
+        currentScorer.prepareQueryTermFrequencyMap(queryTokens);
+
+        for (int documentId : documentIds) {
+            if (!this.indexer.isLive(documentId)) continue;
+            WebDocument document = this.indexer.getDocument(documentId);
+            double similarityValue = 0.0;
+            for (String currentToken : queryTokens) {
+                if (this.indexer.getIndexItem(currentToken, documentId) != null)
+                    similarityValue += currentScorer.getDocumentScore(currentToken, document.getUrl()) *
+                            currentScorer.getQueryScore(currentToken);
+            }
+            if (similarityValue > 0) similarityMap.put(document, normalize(similarityValue, documentId));
+        }
+
+        return getRankedMap(similarityMap, k);
+    }
+
+    /**
+     * Scores only the documents in the champion lists of the query tokens
+     * @param queryTokens List of all tokens for the given query
+     * @param k Number of documents to retrieve
+     * @param termStatistics Statistics merged across all shards, or null to use this index's statistics
+     * @return ordered map of document -> similarity value, or null if the champions are fewer than k
+     * documents and the query has to be answered from the full index
+     */
+    public Map<WebDocument, Double> getChampionRankedMapOfDocuments(List<String> queryTokens, int k,
+                                                                    TermStatistics termStatistics) {
+        ChampionLists championLists = this.indexer.getChampionLists();
+        int[] candidates = new int[0];
+        for (String token : new HashSet<>(queryTokens))
+            candidates = PostingsIntersection.union(candidates, championLists.getChampions(token));
+        if (candidates.length < k) return null;
+        return scoreDocuments(queryTokens, candidates, k, termStatistics);
+    }
+
+    /**
+     * Selects the top k documents from the impact-ordered index, stopping early once the
+     * remaining impacts cannot change the top k, and then scores only those documents exactly
+     * @param queryTokens List of all tokens for the given query
+     * @param k Number of documents to retrieve
+     * @return ordered map of document -> similarity value in non-increasing order of similarity values
+     */
+    public Map<WebDocument, Double> getImpactRankedMapOfDocuments(List<String> queryTokens, int k) {
+        long start = System.nanoTime();
+        ImpactIndex impactIndex = getImpactIndex();
+        Map<String, Double> queryWeights = new HashMap<>();
+        Scorer currentScorer = this.getCurrentScorer(this.indexer, null);
+        currentScorer.prepareQueryTermFrequencyMap(queryTokens);
+        for (String token : queryTokens)
+            /* a repeated token adds its score once per occurrence, as in exhaustive scoring */
+            if (this.indexer.getDocumentFrequency(token) > 0) queryWeights.merge(token, currentScorer.getQueryScore(token), Double::sum);
+        int[] documentIds = impactIndex.search(queryWeights, k, this.indexer::isLive);
+        Map<WebDocument, Double> rankedMap = scoreDocuments(queryTokens, documentIds, k, null);
+        logger.info(String.format("impact-ordered query processed %.1f%% of postings so far, took %.3f ms",
+                100 * impactIndex.getProcessedFraction(), (System.nanoTime() - start) / 1e6));
+        return rankedMap;
+    }
+
+    /**
+     * Gets the impact-ordered index, building it again if documents were indexed since it was built
+     */
+    private synchronized ImpactIndex getImpactIndex() {
+        if (this.impactIndex == null || !this.impactIndex.isCurrent(this.indexer)) {
+            long start = System.nanoTime();
+            this.impactIndex = ImpactIndex.build(this.indexer, getCurrentScorer(this.indexer));
+            logger.info(String.format("built impact-ordered index in %d ms", (System.nanoTime() - start) / 1000000));
+        }
+        return this.impactIndex;
+    }
+
     /**
      * Computes the similarity of a query with all documents in the collection that have at least 1 token
      * in common with the query
@@ -53,23 +234,36 @@ public class QueryProcessor {
      * @return ordered map of document -> similarity value in non-increasing order of similarity values
      */
     public Map<WebDocument, Double> getRankedMapOfDocuments(List<String> queryTokens, int k) {
+        return getRankedMapOfDocuments(queryTokens, k, null);
+    }
+
+    /**
+     * Computes the similarity of a query with all documents in this index using the given
+     * collection-wide term statistics for the IDF of each query token
+     * @param queryTokens List of all tokens for the given query
+     * @param k Number of documents to retrieve
+     * @param termStatistics Statistics merged across all shards, or null to use this index's statistics
+     * @return ordered map of document -> similarity value in non-increasing order of similarity values
+     */
+    public Map<WebDocument, Double> getRankedMapOfDocuments(List<String> queryTokens, int k, TermStatistics termStatistics) {
         Map<String, Map<String, IndexItem>> invertedIndex = this.indexer.getIndex();
-        Map<WebDocument, Double> similarityMap = new HashMap<>();
-        Scorer currentScorer = this.getScorer();
+        Scorer currentScorer = this.getCurrentScorer(this.indexer, termStatistics);
         currentScorer.prepareQueryTermFrequencyMap(queryTokens);
 
+        /* similarity values are accumulated by document ID, so that normalizing them reads the lengths array */
+        double[] similarityValues = new double[this.indexer.getDocumentCount()];
+        boolean[] matched = new boolean[similarityValues.length];
         queryTokens.forEach(currentToken -> {
             if (invertedIndex.containsKey(currentToken)) {
                 invertedIndex.get(currentToken).forEach((documentUrl, indexItem) -> {
+                    if (!this.indexer.isLive(indexItem.getDocumentId())) return;
                     try {
-                        WebDocument document = indexItem.getDocument();
                         double similarityValue =
                                 currentScorer.getDocumentScore(currentToken, documentUrl) *
                                         currentScorer.getQueryScore(currentToken);
 
-                        if (!similarityMap.containsKey(document)) similarityMap.put(document, 0.0);
-                        similarityMap.put(document, similarityMap.get(document) + similarityValue);
-
+                        similarityValues[indexItem.getDocumentId()] += similarityValue;
+                        matched[indexItem.getDocumentId()] = true;
                     }
                     catch(Exception e) {
                         e.printStackTrace();
@@ -79,14 +273,26 @@ public class QueryProcessor {
             else logger.info(String.format("Index does not have an entry for term %s%n", currentToken));
         });
 
-        if (Constants.normalize) {
-            /* divide each computed similarity value by that document's euclidean normalized length */
-            similarityMap.forEach((document, simValue) -> similarityMap.put(document, simValue / indexer.getDocumentLength(document.getUrl())));
-        }
-
+        Map<WebDocument, Double> similarityMap = new HashMap<>();
+        for (int documentId = 0; documentId < similarityValues.length; documentId++)
+            if (matched[documentId])
+                similarityMap.put(this.indexer.getDocument(documentId), normalize(similarityValues[documentId], documentId));
         return getRankedMap(similarityMap, k);
     }
 
+    /**
+     * Divides a computed similarity value by the document's euclidean normalized length
+     * if normalization is enabled, and adds the document's static score weighted by {@link Constants#staticScoreWeight}
+     * @param similarityValue Similarity value of the document
+     * @param documentId ID of the document
+     * @return normalized similarity value
+     */
+    private double normalize(double similarityValue, int documentId) {
+        double normalized = Constants.normalize ? similarityValue / this.indexer.getDocumentLength(documentId) : similarityValue;
+        if (Constants.staticScoreWeight > 0) normalized += Constants.staticScoreWeight * this.indexer.getStaticScore(documentId);
+        return normalized;
+    }
+
     /**
      * Computes the reverse-sorted map of retrieved documents in terms of similarity values
      * @param queryDocumentSimilarityMap Unordered Map of document -> similarity values
@@ -132,6 +338,17 @@ public class QueryProcessor {
         return new TFIDFScorer(indexer);
     }
 
+    /**
+     * Creates a scorer for one query, since queries from several clients are processed concurrently
+     * and a scorer holds the query's term frequencies and statistics
+     * @param indexer Indexer holding the documents to score
+     * @param termStatistics Statistics merged across all shards, or null to use this index's statistics
+     * @return new scorer
+     */
+    public Scorer getCurrentScorer(final InvertedIndexer indexer, final TermStatistics termStatistics) {
+        return new TFIDFScorer(indexer, termStatistics);
+    }
+
     /**
      * Computes a map of token -> number of occurrences of token in given query
      * @param tokens List of all tokens in the query
@@ -1,11 +1,22 @@
 package Vector.Space.Retrieval.System.query.scorer;
 
+import Vector.Space.Retrieval.System.indexer.TermStatistics;
+
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 public abstract class Scorer {
     Map<String, Integer> termFrequencyMap = new HashMap<>();
+    final TermStatistics termStatistics;
+
+    /**
+     * @param termStatistics Merged statistics of all shards to be used instead of the local index statistics,
+     *                       or null to use the local index
+     */
+    protected Scorer(final TermStatistics termStatistics) {
+        this.termStatistics = termStatistics;
+    }
 
     public abstract double getDocumentScore(String term, String documentUrl);
     public abstract double getQueryScore(String term);
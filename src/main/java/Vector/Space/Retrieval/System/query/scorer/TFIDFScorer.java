@@ -2,11 +2,21 @@ package Vector.Space.Retrieval.System.query.scorer;
 
 import Vector.Space.Retrieval.System.Constants;
 import Vector.Space.Retrieval.System.indexer.InvertedIndexer;
+import Vector.Space.Retrieval.System.indexer.TermStatistics;
 
 public class TFIDFScorer extends Scorer {
     private final InvertedIndexer indexer;
 
     public TFIDFScorer(InvertedIndexer indexer) {
+        this(indexer, null);
+    }
+
+    /**
+     * @param indexer Indexer holding the local index
+     * @param termStatistics Merged statistics of all shards, or null to use the local index
+     */
+    public TFIDFScorer(InvertedIndexer indexer, TermStatistics termStatistics) {
+        super(termStatistics);
         this.indexer = indexer;
     }
 
@@ -14,7 +24,7 @@ public class TFIDFScorer extends Scorer {
     public double getDocumentScore(String term, String documentUrl) {
         try {
             int tf = this.indexer.getTermFrequency(term, documentUrl);
-            double idf = this.indexer.getInverseDocumentFrequency(term);
+            double idf = this.getInverseDocumentFrequency(term);
             if (Constants.weighting.equalsIgnoreCase("tf"))
                 return tf;
             return tf * idf;
@@ -28,7 +38,7 @@ public class TFIDFScorer extends Scorer {
     @Override
     public double getQueryScore(String term) {
         try {
-            double idf = this.indexer.getInverseDocumentFrequency(term);
+            double idf = this.getInverseDocumentFrequency(term);
             if (Constants.weighting.equalsIgnoreCase("tf"))
                 return getQueryTermFrequency(term);
             return getQueryTermFrequency(term) * idf;
@@ -38,4 +48,15 @@ public class TFIDFScorer extends Scorer {
         }
         return 0.0;
     }
+
+    /**
+     * Computes the IDF of a term from the merged shard statistics if they have the term,
+     * otherwise from the local index (e.g. for a term added by fuzzy expansion on this shard)
+     * @param term The term whose IDF is to be found
+     * @return IDF(term)
+     */
+    private double getInverseDocumentFrequency(String term) throws Exception {
+        if (this.termStatistics != null && this.termStatistics.getDocumentFrequency(term) > 0) return this.termStatistics.getInverseDocumentFrequency(term);
+        return this.indexer.getInverseDocumentFrequency(term);
+    }
 }
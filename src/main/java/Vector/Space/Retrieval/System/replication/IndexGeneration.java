@@ -0,0 +1,137 @@
+package Vector.Space.Retrieval.System.replication;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+/**
+ * This class is the manifest of one generation of the index published by the primary server.
+ * It lists every index file of the generation along with its size and checksum so that a
+ * replica can tell which files changed since the generation it already has.
+ */
+public class IndexGeneration {
+    private final long generation;
+    private final long timestamp;
+    private final List<IndexFile> files;
+
+    /**
+     * This class describes one file of an index generation
+     */
+    public static class IndexFile {
+        private final String name;
+        private final long size;
+        private final long checksum;
+
+        @JsonCreator
+        public IndexFile(@JsonProperty("name") String name, @JsonProperty("size") long size,
+                         @JsonProperty("checksum") long checksum) {
+            this.name = name;
+            this.size = size;
+            this.checksum = checksum;
+        }
+
+        /**
+         * Get the name of the file inside the generation
+         */
+        public String getName() {
+            return this.name;
+        }
+
+        /**
+         * Get the size of the file in bytes
+         */
+        public long getSize() {
+            return this.size;
+        }
+
+        /**
+         * Get the CRC32 checksum of the file contents
+         */
+        public long getChecksum() {
+            return this.checksum;
+        }
+
+        /**
+         * Checks whether this entry describes the same contents as another entry
+         * @param other Entry of another generation
+         * @return <b>true</b> if both files have the same name, size and checksum
+         */
+        public boolean sameContents(IndexFile other) {
+            return other != null && this.name.equals(other.name) &&
+                    this.size == other.size && this.checksum == other.checksum;
+        }
+    }
+
+    @JsonCreator
+    public IndexGeneration(@JsonProperty("generation") long generation, @JsonProperty("timestamp") long timestamp,
+                           @JsonProperty("files") List<IndexFile> files) {
+        this.generation = generation;
+        this.timestamp = timestamp;
+        this.files = files;
+    }
+
+    /**
+     * Get the number of this generation, which increases every time the primary publishes a changed index
+     */
+    public long getGeneration() {
+        return this.generation;
+    }
+
+    /**
+     * Get the time (epoch milliseconds) at which the primary published this generation
+     */
+    public long getTimestamp() {
+        return this.timestamp;
+    }
+
+    /**
+     * Get the files of this generation
+     */
+    public List<IndexFile> getFiles() {
+        return this.files;
+    }
+
+    /**
+     * Finds the entry of a file in this generation
+     * @param name Name of the file
+     * @return Entry of the file if this generation has it
+     */
+    public Optional<IndexFile> getFile(String name) {
+        return this.files.stream().filter(file -> file.getName().equals(name)).findFirst();
+    }
+
+    /**
+     * Builds the manifest entries of the given files
+     * @param paths Paths of the index files
+     * @return List of name, size and checksum of every file
+     */
+    public static List<IndexFile> describe(List<Path> paths) throws IOException {
+        List<IndexFile> files = new ArrayList<>();
+        for (Path path : paths)
+            files.add(new IndexFile(path.getFileName().toString(), Files.size(path), checksum(path)));
+        return files;
+    }
+
+    /**
+     * Computes the CRC32 checksum of a file
+     * @param path Path of the file
+     * @return checksum of the file contents
+     */
+    public static long checksum(Path path) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[1 << 16];
+        try (InputStream in = Files.newInputStream(path)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) crc.update(buffer, 0, read);
+        }
+        return crc.getValue();
+    }
+}
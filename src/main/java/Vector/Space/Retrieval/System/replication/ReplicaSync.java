@@ -0,0 +1,222 @@
+package Vector.Space.Retrieval.System.replication;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.net.Socket;
+import java.nio.file.*;
+import java.util.Comparator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * This class runs on a replica server, which never crawls or indexes by itself. It periodically
+ * asks the primary for its latest index generation and, when there is a newer one, copies only
+ * the files whose checksum changed into a new generation directory. Unchanged files are copied
+ * from the current generation. The directory is renamed into place only once every file is
+ * complete, and then handed to the listener which switches the server to the new index.
+ */
+public class ReplicaSync {
+    private static final String GENERATION_PREFIX = "generation-", MANIFEST_FILE = "manifest.json";
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaSync.class);
+
+    private final String primaryHost;
+    private final int primaryPort;
+    private final Path directory;
+    private final long interval;
+    private final Consumer<Path> listener;
+    private final ObjectMapper mapper;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicLong bytesTransferred, filesTransferred;
+    private volatile long lagMillis;
+    private IndexGeneration current;
+    private Path currentDirectory;
+
+    /**
+     * @param primary host:port on which the primary serves its index generations
+     * @param directory Directory in which this replica keeps its generations
+     * @param interval Milliseconds between two polls of the primary
+     * @param listener Called with the directory of every new generation
+     */
+    public ReplicaSync(final String primary, final Path directory, final long interval, final Consumer<Path> listener) {
+        this.primaryHost = primary.substring(0, primary.lastIndexOf(':'));
+        this.primaryPort = Integer.parseInt(primary.substring(primary.lastIndexOf(':') + 1));
+        this.directory = directory;
+        this.interval = interval;
+        this.listener = listener;
+        this.mapper = new ObjectMapper();
+        this.bytesTransferred = new AtomicLong();
+        this.filesTransferred = new AtomicLong();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Loads the newest complete generation already on disk (if any) and starts polling the primary
+     */
+    public void start() throws IOException {
+        Files.createDirectories(this.directory);
+        try (Stream<Path> generations = Files.list(this.directory)) {
+            Path latest = generations
+                    .filter(path -> path.getFileName().toString().startsWith(GENERATION_PREFIX))
+                    .filter(path -> !path.getFileName().toString().endsWith(".tmp"))
+                    .filter(path -> Files.exists(path.resolve(MANIFEST_FILE)))
+                    .max(Comparator.comparingLong(ReplicaSync::getGenerationNumber))
+                    .orElse(null);
+            if (latest != null) {
+                this.current = this.mapper.readValue(latest.resolve(MANIFEST_FILE).toFile(), IndexGeneration.class);
+                this.currentDirectory = latest;
+                logger.info(String.format("loading local index generation %d", this.current.getGeneration()));
+                this.listener.accept(latest);
+            }
+        }
+        this.scheduler.scheduleWithFixedDelay(this::poll, 0, this.interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Checks the primary for a newer generation and replicates it
+     */
+    private void poll() {
+        try (Socket socket = new Socket(this.primaryHost, this.primaryPort);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            out.writeUTF(ReplicationSource.MANIFEST);
+            out.flush();
+            IndexGeneration latest = this.mapper.readValue(in.readUTF(), IndexGeneration.class);
+
+            if (latest.getGeneration() > 0 && (this.current == null || latest.getGeneration() > this.current.getGeneration()))
+                replicate(latest, in, out);
+
+            out.writeUTF(ReplicationSource.BYE);
+            out.flush();
+        }
+        catch(IOException ex) {
+            logger.info(String.format("could not replicate from primary %s:%d - %s",
+                    this.primaryHost, this.primaryPort, ex.getMessage()));
+        }
+    }
+
+    /**
+     * Copies a generation from the primary, fetching only the files which changed,
+     * and switches to it once it is complete
+     * @param generation Manifest of the generation to replicate
+     */
+    private void replicate(IndexGeneration generation, DataInputStream in, DataOutputStream out) throws IOException {
+        long start = System.currentTimeMillis(), bytes = 0;
+        int fetched = 0;
+        Path target = this.directory.resolve(GENERATION_PREFIX + generation.getGeneration());
+        Path staging = this.directory.resolve(target.getFileName() + ".tmp");
+        deleteDirectory(staging);
+        Files.createDirectories(staging);
+
+        for (IndexGeneration.IndexFile file : generation.getFiles()) {
+            Path destination = staging.resolve(file.getName());
+            IndexGeneration.IndexFile currentFile = this.current == null ? null : this.current.getFile(file.getName()).orElse(null);
+            if (file.sameContents(currentFile)) {
+                Files.copy(this.currentDirectory.resolve(file.getName()), destination);
+                continue;
+            }
+
+            out.writeUTF(ReplicationSource.FETCH);
+            out.writeUTF(file.getName());
+            out.flush();
+            bytes += receiveFile(file, in, destination);
+            fetched++;
+        }
+
+        this.mapper.writeValue(staging.resolve(MANIFEST_FILE).toFile(), generation);
+        Files.move(staging, target, StandardCopyOption.ATOMIC_MOVE);
+        this.listener.accept(target);
+
+        Path previousDirectory = this.currentDirectory;
+        this.current = generation;
+        this.currentDirectory = target;
+        if (previousDirectory != null) deleteDirectory(previousDirectory);
+
+        this.bytesTransferred.addAndGet(bytes);
+        this.filesTransferred.addAndGet(fetched);
+        this.lagMillis = System.currentTimeMillis() - generation.getTimestamp();
+        logger.info(String.format("switched to index generation %d - fetched %d of %d files (%d bytes) in %d ms, replication lag %d ms",
+                generation.getGeneration(), fetched, generation.getFiles().size(), bytes,
+                System.currentTimeMillis() - start, this.lagMillis));
+    }
+
+    /**
+     * Receives one file from the primary and verifies its checksum
+     * @param file Manifest entry of the file
+     * @param in Stream from the primary
+     * @param destination Path to write the file to
+     * @return number of bytes received
+     */
+    private long receiveFile(IndexGeneration.IndexFile file, DataInputStream in, Path destination) throws IOException {
+        long size = in.readLong();
+        if (size < 0) throw new IOException(String.format("primary no longer has file %s", file.getName()));
+        long checksum = in.readLong();
+
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[1 << 16];
+        try (OutputStream fileOut = new BufferedOutputStream(Files.newOutputStream(destination))) {
+            for (long remaining = size; remaining > 0; ) {
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) throw new EOFException();
+                crc.update(buffer, 0, read);
+                fileOut.write(buffer, 0, read);
+                remaining -= read;
+            }
+        }
+        /* the primary may have published a newer index after sending its manifest */
+        if (crc.getValue() != checksum || checksum != file.getChecksum())
+            throw new IOException(String.format("file %s changed on the primary during replication", file.getName()));
+        return size;
+    }
+
+    private static long getGenerationNumber(Path path) {
+        return Long.parseLong(path.getFileName().toString().substring(GENERATION_PREFIX.length()));
+    }
+
+    private static void deleteDirectory(Path path) throws IOException {
+        if (!Files.exists(path)) return;
+        try (Stream<Path> paths = Files.walk(path)) {
+            for (Path p : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) Files.delete(p);
+        }
+    }
+
+    /**
+     * Get the total number of bytes fetched from the primary
+     */
+    public long getBytesTransferred() {
+        return this.bytesTransferred.get();
+    }
+
+    /**
+     * Get the total number of files fetched from the primary
+     */
+    public long getFilesTransferred() {
+        return this.filesTransferred.get();
+    }
+
+    /**
+     * Get the milliseconds between the publication of the current generation on the primary
+     * and the switch to it on this replica
+     */
+    public long getLagMillis() {
+        return this.lagMillis;
+    }
+
+    /**
+     * Stops polling the primary
+     */
+    public void stop() {
+        this.scheduler.shutdownNow();
+    }
+}
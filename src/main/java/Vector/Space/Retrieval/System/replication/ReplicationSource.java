@@ -0,0 +1,166 @@
+package Vector.Space.Retrieval.System.replication;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * This class runs on the primary server, which crawls and builds the index. It publishes
+ * every newly written index as a new generation and serves the manifest and the files
+ * of the latest generation to replica servers over a plain socket. <br>
+ * A replica sends <i>MANIFEST</i> to get the latest {@link IndexGeneration} and
+ * <i>FETCH name</i> to get one file, which is sent as its size, its checksum and its bytes.
+ */
+public class ReplicationSource {
+    static final String MANIFEST = "MANIFEST", FETCH = "FETCH", BYE = "BYE";
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicationSource.class);
+    private final int port;
+    private final ObjectMapper mapper;
+    private final Map<String, Path> files;
+    private volatile IndexGeneration generation;
+    private ServerSocket serverSocket;
+
+    public ReplicationSource(final int port) {
+        this.port = port;
+        this.mapper = new ObjectMapper();
+        this.files = new HashMap<>();
+        this.generation = new IndexGeneration(0, System.currentTimeMillis(), new ArrayList<>());
+    }
+
+    /**
+     * Starts accepting replica connections on a background thread
+     */
+    public void start() throws IOException {
+        this.serverSocket = new ServerSocket(this.port);
+        Thread acceptor = new Thread(this::accept, "replication-source");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        logger.info(String.format("serving index generations to replicas on port %d", this.port));
+    }
+
+    /**
+     * Publishes the current contents of the index files as a new generation
+     * if any of them changed since the last published generation
+     * @param paths Paths of all index files
+     */
+    public synchronized void publish(List<Path> paths) {
+        try {
+            List<IndexGeneration.IndexFile> entries = IndexGeneration.describe(paths);
+            boolean changed = entries.size() != this.generation.getFiles().size() ||
+                    entries.stream().anyMatch(entry ->
+                            !entry.sameContents(this.generation.getFile(entry.getName()).orElse(null)));
+            if (!changed) return;
+
+            this.files.clear();
+            paths.forEach(path -> this.files.put(path.getFileName().toString(), path));
+            this.generation = new IndexGeneration(this.generation.getGeneration() + 1, System.currentTimeMillis(), entries);
+            logger.info(String.format("published index generation %d", this.generation.getGeneration()));
+        }
+        catch(IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * Get the latest published generation
+     */
+    public IndexGeneration getGeneration() {
+        return this.generation;
+    }
+
+    private void accept() {
+        while (!this.serverSocket.isClosed()) {
+            try {
+                Socket socket = this.serverSocket.accept();
+                Thread handler = new Thread(() -> this.serve(socket), "replication-handler");
+                handler.setDaemon(true);
+                handler.start();
+            }
+            catch(IOException ex) {
+                if (!this.serverSocket.isClosed()) ex.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Answers the commands of one replica until it disconnects
+     * @param socket Connection to the replica
+     */
+    private void serve(Socket socket) {
+        try (socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            String command;
+            while (!(command = in.readUTF()).equals(BYE)) {
+                if (command.equals(MANIFEST)) out.writeUTF(this.mapper.writeValueAsString(this.generation));
+                else if (command.equals(FETCH)) sendFile(in.readUTF(), out);
+                out.flush();
+            }
+        }
+        catch(EOFException ex) {
+            logger.info("replica disconnected");
+        }
+        catch(IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * Sends the size, checksum and bytes of an index file. The file is read through one open
+     * channel, so a file which is atomically replaced meanwhile is still sent consistently.
+     * @param name Name of the requested file
+     * @param out Stream to the replica
+     */
+    private void sendFile(String name, DataOutputStream out) throws IOException {
+        Path path;
+        synchronized (this) {
+            path = this.files.get(name);
+        }
+        if (path == null) {
+            out.writeLong(-1);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            CRC32 crc = new CRC32();
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+            for (long position = 0; position < size; buffer.clear()) {
+                int read = channel.read(buffer, position);
+                if (read < 0) break;
+                buffer.flip();
+                crc.update(buffer);
+                position += read;
+            }
+
+            out.writeLong(size);
+            out.writeLong(crc.getValue());
+            WritableByteChannel outChannel = Channels.newChannel(out);
+            for (long position = 0; position < size; )
+                position += channel.transferTo(position, size - position, outChannel);
+        }
+    }
+
+    /**
+     * Stops accepting replica connections
+     */
+    public void stop() throws IOException {
+        if (this.serverSocket != null) this.serverSocket.close();
+    }
+}
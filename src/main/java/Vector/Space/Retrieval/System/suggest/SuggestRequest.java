@@ -0,0 +1,34 @@
+package Vector.Space.Retrieval.System.suggest;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * This class represents a message sent by the client on every keystroke in the search box
+ */
+public class SuggestRequest {
+    public static final String SUGGEST = "suggest";
+
+    private final String prefix;
+    private final int n;
+
+    @JsonCreator
+    public SuggestRequest(@JsonProperty("prefix") String prefix, @JsonProperty("n") int n) {
+        this.prefix = prefix == null ? "" : prefix;
+        this.n = n;
+    }
+
+    /**
+     * Get the text typed so far
+     */
+    public String getPrefix() {
+        return this.prefix;
+    }
+
+    /**
+     * Get the number of suggestions desired
+     */
+    public int getN() {
+        return this.n;
+    }
+}
@@ -0,0 +1,37 @@
+package Vector.Space.Retrieval.System.suggest;
+
+import java.util.List;
+
+/**
+ * This class represents the completions sent back to the client for a typed prefix
+ */
+public class SuggestResponse {
+    private final String prefix;
+    private final List<String> suggestions;
+
+    public SuggestResponse(String prefix, List<String> suggestions) {
+        this.prefix = prefix;
+        this.suggestions = suggestions;
+    }
+
+    /**
+     * Get the kind of response, so that the client can tell it apart from search results
+     */
+    public String getType() {
+        return SuggestRequest.SUGGEST;
+    }
+
+    /**
+     * Get the prefix these suggestions were computed for
+     */
+    public String getPrefix() {
+        return this.prefix;
+    }
+
+    /**
+     * Get the suggested words, best first
+     */
+    public List<String> getSuggestions() {
+        return this.suggestions;
+    }
+}
@@ -0,0 +1,150 @@
+package Vector.Space.Retrieval.System.suggest;
+
+import Vector.Space.Retrieval.System.Constants;
+import Vector.Space.Retrieval.System.indexer.InvertedIndexer;
+import Vector.Space.Retrieval.System.indexer.TermDictionary;
+import Vector.Space.Retrieval.System.metrics.LatencyHistogram;
+import Vector.Space.Retrieval.System.preprocessor.Tokenizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class completes the word being typed in the search box from the unstemmed vocabulary
+ * collected by the crawler, which is read from its sorted table instead of being copied onto the heap. <br>
+ * Words are ranked either by the document frequency of their preprocessed form ("frequency")
+ * or by how often they occurred in the queries received so far ("popularity"), with the other
+ * measure breaking ties. The suggestions are served from a {@link SuggestionTrie} which is rebuilt
+ * in the background once the query log has changed, and swapped in without blocking lookups.
+ */
+public class SuggestionService {
+    private static final Logger logger = LoggerFactory.getLogger(SuggestionService.class);
+
+    private final InvertedIndexer indexer;
+    private final Tokenizer tokenizer;
+    private final TermDictionary vocabulary;
+    private final Map<String, Integer> documentFrequencies;
+    private final Map<String, LongAdder> queryLog;
+    private final LatencyHistogram latency;
+    private volatile SuggestionTrie trie;
+    private volatile boolean queryLogChanged;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param indexer Indexer whose document frequencies rank the words
+     * @param vocabulary Unstemmed words which can be suggested
+     */
+    public SuggestionService(InvertedIndexer indexer, TermDictionary vocabulary) {
+        this.indexer = indexer;
+        this.tokenizer = new Tokenizer();
+        this.vocabulary = vocabulary;
+        this.documentFrequencies = new HashMap<>();
+        this.queryLog = new ConcurrentHashMap<>();
+        this.latency = new LatencyHistogram();
+        this.trie = new SuggestionTrie(Collections.emptyMap(), Constants.suggestionCapacity);
+    }
+
+    /**
+     * Builds the first trie and, if configured, starts rebuilding it periodically to take in the query log
+     */
+    public void start() {
+        rebuild();
+        if (Constants.suggestionRefresh <= 0) return;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "suggestion-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleWithFixedDelay(() -> {
+            if (this.queryLogChanged) rebuild();
+            if (this.latency.getCount() > 0)
+                logger.info(String.format("suggest latency %s", this.latency.describe()));
+        }, Constants.suggestionRefresh, Constants.suggestionRefresh, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the periodic rebuilds
+     */
+    public void stop() {
+        if (this.scheduler != null) this.scheduler.shutdownNow();
+    }
+
+    /**
+     * Computes the weight of every word and swaps in a new trie
+     */
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        this.queryLogChanged = false;
+        boolean popularity = Constants.suggestionRanking.equalsIgnoreCase("popularity");
+        Map<String, Long> weights = new HashMap<>();
+
+        TermDictionary.TermIterator iterator = this.vocabulary.iterator();
+        while (iterator.next()) {
+            String word = iterator.term();
+            int documentFrequency = getDocumentFrequency(word);
+            LongAdder queries = this.queryLog.get(word);
+            long queryCount = Math.min(queries == null ? 0 : queries.sum(), Integer.MAX_VALUE);
+            /* words which match no document are never suggested */
+            if (documentFrequency == 0) continue;
+            weights.put(word, popularity ?
+                    queryCount << 32 | documentFrequency : (long)documentFrequency << 32 | queryCount);
+        }
+
+        this.trie = new SuggestionTrie(weights, Constants.suggestionCapacity);
+        logger.info(String.format("built suggestion trie of %d words and %d nodes in %d ms",
+                this.trie.size(), this.trie.getNodeCount(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+    }
+
+    /**
+     * The document frequency of a word is the one of its stemmed form, which many words may share
+     */
+    private int getDocumentFrequency(String word) {
+        Integer documentFrequency = this.documentFrequencies.get(word);
+        if (documentFrequency == null) {
+            List<String> terms = this.tokenizer.preprocessTokens(Collections.singletonList(word));
+            documentFrequency = terms.isEmpty() ? 0 : this.indexer.getDocumentFrequency(terms.get(0));
+            this.documentFrequencies.put(word, documentFrequency);
+        }
+        return documentFrequency;
+    }
+
+    /**
+     * Counts the words of a query sent by a client for the popularity ranking
+     * @param query Query string as typed by the client
+     */
+    public void recordQuery(String query) {
+        for (String word : this.tokenizer.tokenize(query))
+            if (this.vocabulary.get(word) >= 0) {
+                this.queryLog.computeIfAbsent(word, w -> new LongAdder()).increment();
+                this.queryLogChanged = true;
+            }
+    }
+
+    /**
+     * Gets completions of the last word of the typed text
+     * @param prefix Text typed so far
+     * @param count Number of suggestions desired, at most the configured capacity
+     * @return Words starting with the prefix, best first
+     */
+    public List<String> suggest(String prefix, int count) {
+        long start = System.nanoTime();
+        String word = prefix.substring(prefix.lastIndexOf(' ') + 1).toLowerCase();
+        List<String> suggestions = word.isEmpty() ?
+                Collections.emptyList() : this.trie.suggest(word, count > 0 ? count : Constants.suggestionCapacity);
+        this.latency.record(System.nanoTime() - start);
+        return suggestions;
+    }
+
+    /**
+     * Get the latencies of all lookups served so far
+     */
+    public LatencyHistogram getLatency() {
+        return this.latency;
+    }
+}
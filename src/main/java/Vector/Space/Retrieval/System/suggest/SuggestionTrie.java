@@ -0,0 +1,157 @@
+package Vector.Space.Retrieval.System.suggest;
+
+import java.util.*;
+
+/**
+ * This class is an immutable trie over a set of weighted words in which every node stores
+ * the best words of its whole subtree. <br>
+ * A lookup therefore only walks down the characters of the prefix and copies the list of the
+ * node it ends on, so its cost depends on the length of the prefix and not on the number of
+ * words below it. <br>
+ * All nodes are flattened into arrays after the build: the children of a node are a sorted
+ * range of labels searched with binary search, and its best words are a range of word ids.
+ */
+public class SuggestionTrie {
+    private final String[] words;
+    private final int[] childStart, topStart;
+    private final char[] childLabels;
+    private final int[] childNodes, topWords;
+    private final int capacity;
+
+    /**
+     * Node used only while building the trie
+     */
+    private static class BuildNode {
+        private final TreeMap<Character, BuildNode> children = new TreeMap<>();
+        private int word = -1;
+        private int[] top;
+    }
+
+    /**
+     * Builds the trie and precomputes the best words of every node
+     * @param weights Weight of each word, a higher weight ranks a word first
+     * @param capacity Number of words kept at each node, which bounds the number of suggestions per lookup
+     */
+    public SuggestionTrie(Map<String, Long> weights, int capacity) {
+        this.capacity = capacity;
+        this.words = weights.keySet().toArray(new String[0]);
+        long[] wordWeights = new long[this.words.length];
+        for (int word = 0; word < this.words.length; word++)
+            wordWeights[word] = weights.get(this.words[word]);
+
+        Comparator<Integer> ranking = (a, b) -> wordWeights[a] != wordWeights[b] ?
+                Long.compare(wordWeights[b], wordWeights[a]) : this.words[a].compareTo(this.words[b]);
+
+        BuildNode root = new BuildNode();
+        int nodeCount = 1;
+        for (int word = 0; word < this.words.length; word++) {
+            BuildNode node = root;
+            for (char c : this.words[word].toCharArray()) {
+                BuildNode child = node.children.get(c);
+                if (child == null) {
+                    node.children.put(c, child = new BuildNode());
+                    nodeCount++;
+                }
+                node = child;
+            }
+            node.word = word;
+        }
+
+        this.childStart = new int[nodeCount + 1];
+        this.topStart = new int[nodeCount + 1];
+        this.childLabels = new char[nodeCount - 1];
+        this.childNodes = new int[nodeCount - 1];
+
+        /* number the nodes breadth first so that the children of a node form one contiguous range */
+        List<BuildNode> order = new ArrayList<>(nodeCount);
+        order.add(root);
+        int edges = 0;
+        for (int node = 0; node < order.size(); node++) {
+            this.childStart[node] = edges;
+            for (Map.Entry<Character, BuildNode> child : order.get(node).children.entrySet()) {
+                this.childLabels[edges] = child.getKey();
+                this.childNodes[edges++] = order.size();
+                order.add(child.getValue());
+            }
+        }
+        this.childStart[nodeCount] = edges;
+
+        /* children come after their parent in breadth first order, so walking backwards sees them first */
+        int totalTop = 0;
+        PriorityQueue<Integer> best = new PriorityQueue<>(ranking.reversed());
+        for (int node = nodeCount - 1; node >= 0; node--) {
+            BuildNode current = order.get(node);
+            best.clear();
+            if (current.word >= 0) offer(best, current.word, ranking);
+            for (BuildNode child : current.children.values())
+                for (int word : child.top) offer(best, word, ranking);
+            current.top = new int[best.size()];
+            for (int i = current.top.length - 1; i >= 0; i--)
+                current.top[i] = best.poll();
+            totalTop += current.top.length;
+        }
+
+        this.topWords = new int[totalTop];
+        int offset = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            this.topStart[node] = offset;
+            int[] top = order.get(node).top;
+            System.arraycopy(top, 0, this.topWords, offset, top.length);
+            offset += top.length;
+        }
+        this.topStart[nodeCount] = offset;
+    }
+
+    private void offer(PriorityQueue<Integer> best, int word, Comparator<Integer> ranking) {
+        if (best.size() < this.capacity)
+            best.add(word);
+        else if (ranking.compare(word, best.peek()) < 0) {
+            best.poll();
+            best.add(word);
+        }
+    }
+
+    /**
+     * Gets the best words which start with the given prefix
+     * @param prefix Typed prefix
+     * @param count Number of words desired, at most the capacity of the trie
+     * @return Words in decreasing order of weight
+     */
+    public List<String> suggest(String prefix, int count) {
+        int node = 0;
+        for (int i = 0; i < prefix.length() && node >= 0; i++)
+            node = getChild(node, prefix.charAt(i));
+        if (node < 0) return Collections.emptyList();
+
+        int start = this.topStart[node], end = Math.min(this.topStart[node + 1], start + count);
+        List<String> suggestions = new ArrayList<>(Math.max(0, end - start));
+        for (int i = start; i < end; i++)
+            suggestions.add(this.words[this.topWords[i]]);
+        return suggestions;
+    }
+
+    private int getChild(int node, char label) {
+        int low = this.childStart[node], high = this.childStart[node + 1] - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (this.childLabels[middle] < label) low = middle + 1;
+            else if (this.childLabels[middle] > label) high = middle - 1;
+            else return this.childNodes[middle];
+        }
+        return -1;
+    }
+
+    /**
+     * Get the number of words in this trie
+     */
+    public int size() {
+        return this.words.length;
+    }
+
+    /**
+     * Get the number of nodes in this trie
+     */
+    public int getNodeCount() {
+        return this.childStart.length - 1;
+    }
+}
@@ -0,0 +1,85 @@
+package Vector.Space.Retrieval.System.cluster;
+
+import Vector.Space.Retrieval.System.indexer.InvertedIndexer;
+import Vector.Space.Retrieval.System.indexer.TermStatistics;
+import Vector.Space.Retrieval.System.preprocessor.WebDocument;
+import Vector.Space.Retrieval.System.query.QueryProcessor;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Answers the requests of a broker the way two shards of one collection would
+ */
+public class ShardServiceTest {
+    private static final String[] WORDS = {"wing", "lift", "drag", "flap", "shock", "wave", "flow", "heat", "plate", "cone"};
+
+    private static void index(InvertedIndexer indexer, String url, List<String> tokens) {
+        indexer.addToIndex(tokens, url, url, "");
+        indexer.setCollectionSize(indexer.getCollectionSize() + 1);
+    }
+
+    private static ShardResponse handle(ShardService shard, String type, List<String> terms, TermStatistics statistics) {
+        return shard.handle(new ShardRequest(type, 1, String.join(" ", terms == null ? Collections.emptyList() : terms),
+                terms, 10, statistics == null ? 0 : statistics.getCollectionSize(),
+                statistics == null ? null : statistics.getDocumentFrequencies()));
+    }
+
+    @Test public void testShardsScoreOnTheScaleOfTheWholeCollection() {
+        InvertedIndexer whole = new InvertedIndexer();
+        InvertedIndexer[] parts = {new InvertedIndexer(), new InvertedIndexer()};
+        Random random = new Random(7);
+        for (int document = 0; document < 60; document++) {
+            List<String> tokens = new ArrayList<>();
+            /* the first shard mostly has the first words and the second shard the last ones, so their local IDFs differ */
+            for (int i = 0; i < 8; i++) tokens.add(WORDS[Math.min(WORDS.length - 1, random.nextInt(6) + (document % 2) * 4)]);
+            index(whole, "doc" + document, tokens);
+            index(parts[document % 2], "doc" + document, tokens);
+        }
+        whole.constructDocumentVectorTable();
+        ShardService[] shards = new ShardService[parts.length];
+        for (int shard = 0; shard < parts.length; shard++) {
+            parts[shard].constructDocumentVectorTable();
+            shards[shard] = new ShardService(parts[shard], new QueryProcessor(parts[shard]));
+        }
+
+        /* what the broker does before the first query */
+        TermStatistics statistics = new TermStatistics();
+        for (ShardService shard : shards) {
+            ShardResponse response = handle(shard, ShardRequest.STATS, null, null);
+            assertFalse(response.isGlobalLengths());
+            statistics.merge(response.getCollectionSize(), response.getDocumentFrequencies());
+        }
+        assertEquals(60, statistics.getCollectionSize());
+        for (ShardService shard : shards) assertTrue(handle(shard, ShardRequest.NORMS, null, statistics).isGlobalLengths());
+
+        List<String> query = Arrays.asList("wing", "cone");
+        Map<String, Double> expected = new HashMap<>();
+        for (Map.Entry<WebDocument, Double> entry : new QueryProcessor(whole).search(String.join(" ", query), 60).entrySet())
+            expected.put(entry.getKey().getUrl(), entry.getValue());
+        Map<String, Double> merged = new HashMap<>();
+        for (ShardService shard : shards) {
+            ShardResponse response = handle(shard, ShardRequest.SEARCH, query, statistics);
+            assertTrue(response.isGlobalLengths());
+            response.getResults().forEach(document -> merged.put(document.getUrl(), document.getScore()));
+        }
+        assertFalse(merged.isEmpty());
+        for (Map.Entry<String, Double> entry : merged.entrySet())
+            assertEquals(entry.getKey(), expected.get(entry.getKey()), entry.getValue(), 1e-6 * expected.get(entry.getKey()));
+
+        /* a shard which indexes another document asks for the lengths to be computed again */
+        index(parts[0], "doc60", Arrays.asList("wing", "lift"));
+        assertFalse(handle(shards[0], ShardRequest.STATS, query, null).isGlobalLengths());
+    }
+
+    @Test public void testUnknownRequestGetsAnError() {
+        ShardService shard = new ShardService(new InvertedIndexer(), new QueryProcessor(new InvertedIndexer()));
+        ShardResponse response = handle(shard, "rank", Collections.singletonList("wing"), null);
+        assertEquals("rank", response.getType());
+        assertNotNull(response.getError());
+        assertFalse(ShardRequest.isShardRequest("rank"));
+        assertTrue(ShardRequest.isShardRequest(ShardRequest.NORMS));
+    }
+}
@@ -0,0 +1,80 @@
+package Vector.Space.Retrieval.System.indexer;
+
+import Vector.Space.Retrieval.System.Constants;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Champion lists kept up to date through adds and deletes
+ */
+public class ChampionListsTest {
+    private static final String[] WORDS = {"wing", "lift", "drag", "flap", "shock", "wave", "flow", "heat"};
+
+    private static void index(InvertedIndexer indexer, String url, List<String> tokens) {
+        indexer.addToIndex(tokens, url, url, "");
+        indexer.setCollectionSize(indexer.getCollectionSize() + 1);
+    }
+
+    private static List<String> tokens(Random random) {
+        List<String> tokens = new ArrayList<>();
+        for (int i = 2 + random.nextInt(10); i > 0; i--) tokens.add(WORDS[random.nextInt(WORDS.length)]);
+        return tokens;
+    }
+
+    private static void assertSameAsRebuilt(InvertedIndexer indexer, ChampionLists champions) {
+        ChampionLists rebuilt = new ChampionLists(Constants.championListSize);
+        rebuilt.build(indexer);
+        for (String term : WORDS) assertEquals(term, Arrays.toString(rebuilt.getChampions(term)), Arrays.toString(champions.getChampions(term)));
+    }
+
+    @Test public void testOnlyTheTermsOfChangedDocumentsArePickedAgain() {
+        int championListSize = Constants.championListSize;
+        Constants.championListSize = 3;
+        try {
+            InvertedIndexer indexer = new InvertedIndexer();
+            Random random = new Random(4);
+            for (int document = 0; document < 30; document++) index(indexer, "doc" + document, tokens(random));
+            indexer.constructDocumentVectorTable();
+            ChampionLists champions = indexer.getChampionLists();
+            assertEquals(0, champions.getStaleCount());
+            for (String term : WORDS) assertEquals(3, champions.getChampions(term).length);
+
+            /* a document made of one term outweighs every other document of the term */
+            index(indexer, "wing", Arrays.asList("wing", "wing", "wing", "wing"));
+            index(indexer, "rotor", Arrays.asList("rotor", "rotor"));
+            assertSame(champions, indexer.getChampionLists());
+            assertEquals(2, champions.getStaleCount());
+            assertArrayEquals(new int[] {indexer.getDocumentId("rotor")}, champions.getChampions("rotor"));
+            int[] wing = champions.getChampions("wing");
+            assertEquals(3, wing.length);
+            assertTrue(Arrays.binarySearch(wing, indexer.getDocumentId("wing")) >= 0);
+            assertEquals(0, champions.getStaleCount());
+
+            /* deleting a champion marks its lists only */
+            int champion = champions.getChampions("drag")[0];
+            String url = indexer.getDocument(champion).getUrl();
+            indexer.deleteDocument(url);
+            assertSame(champions, indexer.getChampionLists());
+            assertTrue(champions.getStaleCount() > 0);
+            assertTrue(Arrays.binarySearch(champions.getChampions("drag"), champion) < 0);
+            assertEquals(3, champions.getChampions("drag").length);
+
+            for (int document = 0; document < 20; document++) {
+                if (random.nextBoolean()) index(indexer, "doc" + random.nextInt(40), tokens(random));
+                else indexer.deleteDocument("doc" + random.nextInt(40));
+            }
+            assertSameAsRebuilt(indexer, champions);
+
+            /* new lengths change every weight, so the tier is built again once */
+            indexer.constructDocumentVectorTable();
+            assertFalse(champions == indexer.getChampionLists());
+            assertSameAsRebuilt(indexer, indexer.getChampionLists());
+        }
+        finally {
+            Constants.championListSize = championListSize;
+        }
+    }
+}
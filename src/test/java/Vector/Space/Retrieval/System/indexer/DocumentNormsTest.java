@@ -0,0 +1,44 @@
+package Vector.Space.Retrieval.System.indexer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DocumentNormsTest {
+    @Test public void testEncodings() {
+        double[] norms = {1.5, 0, 2.25, 40.0, 7.0};
+        DocumentNorms doubles = DocumentNorms.encode(norms, "double");
+        DocumentNorms floats = DocumentNorms.encode(norms, "float");
+        DocumentNorms bytes = DocumentNorms.encode(norms, "byte");
+        for (int documentId = 0; documentId < norms.length; documentId++) {
+            assertEquals(norms[documentId], doubles.get(documentId), 0);
+            assertEquals(norms[documentId], floats.get(documentId), 1e-6);
+            /* half a step of a log scale of 254 steps from 1.5 to 40 */
+            assertEquals(norms[documentId], bytes.get(documentId), norms[documentId] * 0.007);
+        }
+        assertEquals(0, doubles.get(-1), 0);
+        assertEquals(0, doubles.get(norms.length), 0);
+    }
+
+    @Test public void testAppendKeepsEveryLength() {
+        for (String encoding : new String[] {"double", "float", "byte"}) {
+            DocumentNorms norms = DocumentNorms.encode(new double[0], encoding);
+            for (int documentId = 0; documentId < 1000; documentId++) {
+                norms = norms.append(1 + documentId % 97, encoding);
+                assertEquals(documentId + 1, norms.size());
+            }
+            /* byte lengths encoded again with a wider range may move by another half step each time */
+            for (int documentId = 0; documentId < 1000; documentId++)
+                assertEquals(encoding, 1 + documentId % 97, norms.get(documentId), (1 + documentId % 97) * 0.03);
+        }
+    }
+
+    @Test public void testAppendLeavesEarlierCopiesUnchanged() {
+        DocumentNorms first = DocumentNorms.encode(new double[] {1, 2, 3, 4}, "double").append(5, "double");
+        DocumentNorms second = first.append(6, "double");
+        assertEquals(5, first.size());
+        assertEquals(0, first.get(5), 0);
+        assertEquals(6, second.get(5), 0);
+        assertEquals(5, second.get(4), 0);
+    }
+}
@@ -0,0 +1,78 @@
+package Vector.Space.Retrieval.System.indexer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DocumentOrderingTest {
+    @Test public void testUrlKeyReversesTheHost() {
+        assertEquals("edu.uic.cs/people/faculty", DocumentOrdering.getUrlKey("https://cs.uic.edu/people/faculty"));
+        assertEquals("edu.uic", DocumentOrdering.getUrlKey("http://uic.edu"));
+        assertEquals("cranfield0001", DocumentOrdering.getUrlKey("cranfield0001"));
+    }
+
+    /**
+     * Checks that the new IDs number the live documents 0, 1, 2, ... and give deleted documents none
+     */
+    private static void assertPermutation(InvertedIndexer indexer, int[] newIds) {
+        assertEquals(indexer.getDocumentCount(), newIds.length);
+        boolean[] taken = new boolean[newIds.length];
+        int liveCount = 0;
+        for (int documentId = 0; documentId < newIds.length; documentId++) {
+            if (!indexer.isLive(documentId)) {
+                assertEquals(-1, newIds[documentId]);
+                continue;
+            }
+            liveCount++;
+            assertTrue(newIds[documentId] >= 0 && !taken[newIds[documentId]]);
+            taken[newIds[documentId]] = true;
+        }
+        for (int newId = 0; newId < liveCount; newId++) assertTrue(taken[newId]);
+    }
+
+    @Test public void testUrlOrderGroupsTheSitesAndSkipsDeletedDocuments() {
+        InvertedIndexer indexer = new InvertedIndexer();
+        String[] urls = {"https://www.uic.edu/b", "https://cs.uic.edu/a", "https://www.uic.edu/a", "https://cs.uic.edu/gone", "https://ece.uic.edu/a"};
+        for (String url : urls) indexer.addToIndex(Arrays.asList("wing", "flow"), url, "", "");
+        indexer.deleteDocument("https://cs.uic.edu/gone");
+        int[] newIds = DocumentOrdering.byUrl(indexer);
+
+        assertPermutation(indexer, newIds);
+        assertArrayEquals(new int[] {3, 0, 2, -1, 1}, newIds);
+    }
+
+    @Test public void testBisectionSeparatesDocumentsOfDifferentTopics() {
+        InvertedIndexer indexer = new InvertedIndexer();
+        /* two topics alternating in url order, so that every gap of a topic term is 2 */
+        List<String> aircraft = Arrays.asList("wing", "lift", "drag", "flap", "airfoil", "thrust");
+        List<String> geology = Arrays.asList("magma", "basalt", "glacier", "fault", "quartz", "mantle");
+        for (int document = 0; document < 200; document++) {
+            List<String> topic = document % 2 == 0 ? aircraft : geology;
+            List<String> tokens = new ArrayList<>();
+            for (int i = 0; i < 4; i++) tokens.add(topic.get((document / 2 + i) % topic.size()));
+            indexer.addToIndex(tokens, String.format("http://example.com/%03d", document), "", "");
+        }
+        indexer.deleteDocument("http://example.com/007");
+        int[] newIds = DocumentOrdering.byBisection(indexer);
+        assertPermutation(indexer, newIds);
+
+        /* most documents of the first half of the new order are of one topic */
+        int half = (indexer.getDocumentCount() - 1) / 2, aircraftInFirstHalf = 0, aircraftCount = 0;
+        for (int documentId = 0; documentId < newIds.length; documentId++) {
+            if (newIds[documentId] < 0 || documentId % 2 != 0) continue;
+            aircraftCount++;
+            if (newIds[documentId] < half) aircraftInFirstHalf++;
+        }
+        int share = Math.max(aircraftInFirstHalf, aircraftCount - aircraftInFirstHalf);
+        assertTrue(String.valueOf(share), share >= aircraftCount * 9 / 10);
+
+        long sizeBefore = indexer.getPostingsSizeInBytes();
+        indexer.reorderDocuments("bisection");
+        assertTrue(indexer.getPostingsSizeInBytes() <= sizeBefore);
+        assertEquals(199, indexer.getDocumentCount());
+    }
+}
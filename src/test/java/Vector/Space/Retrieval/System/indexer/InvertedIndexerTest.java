@@ -0,0 +1,130 @@
+package Vector.Space.Retrieval.System.indexer;
+
+import Vector.Space.Retrieval.System.preprocessor.WebDocument;
+import Vector.Space.Retrieval.System.query.QueryProcessor;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Deletes, updates and compactions of the live-docs index
+ */
+public class InvertedIndexerTest {
+    /**
+     * Indexes a document the way the crawler does, counting it in the collection size. The delete of the
+     * old version of an updated document has lowered the collection size, so every document counts once.
+     */
+    private static void index(InvertedIndexer indexer, String url, String... tokens) {
+        indexer.addToIndex(Arrays.asList(tokens), url, url, "");
+        indexer.setCollectionSize(indexer.getCollectionSize() + 1);
+    }
+
+    private static Set<String> search(InvertedIndexer indexer, String... terms) {
+        Set<String> urls = new HashSet<>();
+        for (WebDocument document : new QueryProcessor(indexer).getRankedMapOfDocuments(Arrays.asList(terms), 10).keySet())
+            urls.add(document.getUrl());
+        return urls;
+    }
+
+    @Test public void testDeletedDocumentIsNotRetrieved() {
+        InvertedIndexer indexer = new InvertedIndexer();
+        index(indexer, "a", "wing", "lift");
+        index(indexer, "b", "wing", "drag");
+        index(indexer, "c", "flap", "lift");
+        assertEquals(new HashSet<>(Arrays.asList("a", "b")), search(indexer, "wing"));
+
+        assertTrue(indexer.deleteDocument("a"));
+        assertFalse(indexer.deleteDocument("a"));
+        assertEquals(-1, indexer.getDocumentId("a"));
+        assertEquals(2, indexer.getLiveDocumentCount());
+        assertEquals(2, indexer.getCollectionSize());
+        assertEquals(1, indexer.getDeletedCount());
+        assertEquals(Collections.singleton("b"), search(indexer, "wing"));
+        assertEquals(Collections.singleton("c"), search(indexer, "lift"));
+    }
+
+    @Test public void testUpdateKeepsOneLiveDocumentIdPerUrl() {
+        InvertedIndexer indexer = new InvertedIndexer();
+        index(indexer, "a", "wing", "lift");
+        index(indexer, "b", "wing", "drag");
+        int oldId = indexer.getDocumentId("a");
+        index(indexer, "a", "wing", "flap");
+        int newId = indexer.getDocumentId("a");
+
+        assertNotEquals(oldId, newId);
+        assertFalse(indexer.isLive(oldId));
+        assertTrue(indexer.isLive(newId));
+        assertEquals(2, indexer.getLiveDocumentCount());
+        assertEquals(2, indexer.getCollectionSize());
+        assertNull(indexer.getIndexItem("wing", oldId));
+        assertNotNull(indexer.getIndexItem("wing", newId));
+        /* the posting of the old version stays until a compaction, but no longer counts */
+        assertArrayEquals(new int[] {oldId}, indexer.getPostings("lift"));
+        assertEquals(0, indexer.getDocumentFrequency("lift"));
+        assertEquals(2, indexer.getDocumentFrequency("wing"));
+        assertEquals(1, indexer.getDocumentFrequency("flap"));
+        assertTrue(search(indexer, "lift").isEmpty());
+        assertEquals(Collections.singleton("a"), search(indexer, "flap"));
+    }
+
+    @Test public void testDocumentFrequencyAfterDelete() throws Exception {
+        InvertedIndexer indexer = new InvertedIndexer();
+        index(indexer, "a", "flow", "wing");
+        index(indexer, "b", "flow", "drag");
+        index(indexer, "c", "flow");
+        index(indexer, "d", "flow", "shock");
+        indexer.deleteDocument("d");
+
+        /* a term in every live document, which the postings of the deleted one would take past the collection size */
+        assertEquals(3, indexer.getCollectionSize());
+        assertEquals(3, indexer.getDocumentFrequency("flow"));
+        assertEquals(4, indexer.getIndex().get("flow").size());
+        assertEquals(1, indexer.getInverseDocumentFrequency("flow"), 0);
+        assertEquals(Math.log10(3), indexer.getInverseDocumentFrequency("wing"), 1e-12);
+        assertEquals(0, indexer.getDocumentFrequency("shock"));
+        try {
+            indexer.getInverseDocumentFrequency("shock");
+            fail("a term of deleted documents only has no IDF");
+        }
+        catch (Exception expected) {
+        }
+        assertEquals(3, indexer.getTermDictionary().get("flow"));
+    }
+
+    @Test public void testCompactionRenumbersPostingsLengthsAndStaticScores() {
+        InvertedIndexer indexer = new InvertedIndexer();
+        index(indexer, "a", "flow", "wing", "wing");
+        index(indexer, "b", "flow", "drag");
+        index(indexer, "c", "wing", "shock", "shock");
+        index(indexer, "d", "drag", "flap");
+        indexer.setStaticScores(new double[] {0.1, 0.2, 0.3, 0.4});
+        Map<String, Double> lengths = new HashMap<>();
+        for (String url : Arrays.asList("a", "c", "d")) lengths.put(url, indexer.getDocumentLength(url));
+        indexer.deleteDocument("b");
+        indexer.compact();
+
+        assertEquals(3, indexer.getDocumentCount());
+        assertEquals(0, indexer.getDeletedCount());
+        assertEquals(Arrays.asList(0, 1, 2), Arrays.asList(indexer.getDocumentId("a"), indexer.getDocumentId("c"), indexer.getDocumentId("d")));
+        assertArrayEquals(new int[] {0, 1}, indexer.getPostings("wing"));
+        assertArrayEquals(new int[] {0}, indexer.getPostings("flow"));
+        assertArrayEquals(new int[] {2}, indexer.getPostings("drag"));
+        assertEquals(2, indexer.getIndexItem("shock", 1).getTermFrequency());
+        assertEquals(1, indexer.getDocumentFrequency("drag"));
+        for (int documentId = 0; documentId < 3; documentId++) assertTrue(indexer.isLive(documentId));
+
+        for (String url : lengths.keySet()) assertEquals(url, lengths.get(url), indexer.getDocumentLength(url), 1e-6);
+        Map<String, Double> staticScores = indexer.getStaticScoreVector();
+        assertEquals(0.1, staticScores.get("a"), 0);
+        assertEquals(0.3, staticScores.get("c"), 0);
+        assertEquals(0.4, staticScores.get("d"), 0);
+        assertEquals(1.0, indexer.getStaticScore(indexer.getDocumentId("d")), 0);
+
+        /* the compacted index keeps counting the way it did */
+        indexer.deleteDocument("c");
+        assertEquals(0, indexer.getDocumentFrequency("shock"));
+        assertEquals(1, indexer.getDocumentFrequency("wing"));
+    }
+}
@@ -0,0 +1,69 @@
+package Vector.Space.Retrieval.System.indexer;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Links recorded by url and built into a graph by document ID
+ */
+public class LinkGraphTest {
+    private static final Map<String, Integer> DOCUMENTS = new HashMap<>();
+    static {
+        DOCUMENTS.put("http://a.edu", 0);
+        DOCUMENTS.put("http://b.edu", 1);
+        DOCUMENTS.put("http://c.edu", 2);
+        DOCUMENTS.put("http://d.edu", 3);
+    }
+
+    private static LinkGraph build(LinkGraph.Builder builder) {
+        return builder.build(url -> DOCUMENTS.getOrDefault(url, -1), DOCUMENTS.size());
+    }
+
+    @Test public void testOnlyLinksBetweenIndexedDocumentsAreKept() {
+        LinkGraph.Builder builder = new LinkGraph.Builder()
+                .addLinks("http://c.edu", Arrays.asList("http://a.edu", "http://b.edu", "http://a.edu", "http://c.edu"))
+                .addLinks("http://a.edu", Arrays.asList("http://b.edu", "http://outside.org"))
+                .addLinks("http://outside.org", Collections.singletonList("http://d.edu"));
+        assertEquals(7, builder.getLinkCount());
+
+        LinkGraph graph = build(builder);
+        assertEquals(4, graph.getDocumentCount());
+        /* the repeated link, the link to itself and the links from and to the page which was not indexed are dropped */
+        assertEquals(3, graph.getLinkCount());
+        assertArrayEquals(new int[] {1}, graph.getLinks(0));
+        assertArrayEquals(new int[0], graph.getLinks(1));
+        assertArrayEquals(new int[] {0, 1}, graph.getLinks(2));
+        assertArrayEquals(new int[0], graph.getLinks(3));
+        assertEquals(2, graph.getOutDegree(2));
+        assertEquals(4L * (5 + 3), graph.getSizeInBytes());
+    }
+
+    @Test public void testTransposeListsInLinks() {
+        LinkGraph graph = build(new LinkGraph.Builder()
+                .addLinks("http://a.edu", Arrays.asList("http://b.edu", "http://c.edu"))
+                .addLinks("http://b.edu", Collections.singletonList("http://c.edu"))
+                .addLinks("http://d.edu", Collections.singletonList("http://c.edu")));
+        LinkGraph inLinks = graph.transpose();
+        assertArrayEquals(new int[0], inLinks.getLinks(0));
+        assertArrayEquals(new int[] {0}, inLinks.getLinks(1));
+        assertArrayEquals(new int[] {0, 1, 3}, inLinks.getLinks(2));
+        assertEquals(graph.getLinkCount(), inLinks.getLinkCount());
+        for (int documentId = 0; documentId < 4; documentId++)
+            assertArrayEquals(graph.getLinks(documentId), inLinks.transpose().getLinks(documentId));
+    }
+
+    @Test public void testBuildersOfSeveralCrawlsCombine() {
+        LinkGraph.Builder first = new LinkGraph.Builder().addLinks("http://a.edu", Collections.singletonList("http://b.edu"));
+        LinkGraph.Builder second = new LinkGraph.Builder()
+                .addLinks("http://d.edu", Arrays.asList("http://a.edu", "http://b.edu"))
+                .addLinks("http://a.edu", Collections.singletonList("http://b.edu"));
+        LinkGraph graph = build(first.addAll(second));
+        assertEquals(4, first.getLinkCount());
+        assertArrayEquals(new int[] {1}, graph.getLinks(0));
+        assertArrayEquals(new int[] {0, 1}, graph.getLinks(3));
+        assertEquals(3, graph.getLinkCount());
+    }
+}
@@ -0,0 +1,81 @@
+package Vector.Space.Retrieval.System.indexer;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * PageRank of small graphs, checked against known ranks and a plain power iteration
+ */
+public class PageRankTest {
+    private static LinkGraph graph(int documentCount, List<Set<Integer>> links) {
+        LinkGraph.Builder builder = new LinkGraph.Builder();
+        for (int source = 0; source < links.size(); source++) {
+            List<String> urls = new ArrayList<>();
+            for (int target : links.get(source)) urls.add(Integer.toString(target));
+            builder.addLinks(Integer.toString(source), urls);
+        }
+        return builder.build(Integer::parseInt, documentCount);
+    }
+
+    /**
+     * Power iteration over sets of links, spreading the rank of documents without links over all documents
+     */
+    private static double[] referenceRanks(List<Set<Integer>> links, double damping, int iterations) {
+        int size = links.size();
+        double[] ranks = new double[size];
+        Arrays.fill(ranks, 1.0 / size);
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            double dangling = 0;
+            for (int i = 0; i < size; i++) if (links.get(i).isEmpty()) dangling += ranks[i];
+            double[] next = new double[size];
+            Arrays.fill(next, (1 - damping + damping * dangling) / size);
+            for (int i = 0; i < size; i++) for (int j : links.get(i)) next[j] += damping * ranks[i] / links.get(i).size();
+            ranks = next;
+        }
+        return ranks;
+    }
+
+    @Test public void testCycleHasEqualRanks() {
+        List<Set<Integer>> links = Arrays.asList(Collections.singleton(1), Collections.singleton(2), Collections.singleton(0));
+        double[] ranks = PageRank.compute(graph(3, links), 0.85);
+        for (double rank : ranks) assertEquals(1.0 / 3, rank, 1e-9);
+    }
+
+    @Test public void testStarCenterRanksFirst() {
+        /* every leaf links to the center, which links to nothing */
+        List<Set<Integer>> links = new ArrayList<>();
+        links.add(Collections.emptySet());
+        for (int leaf = 1; leaf <= 4; leaf++) links.add(Collections.singleton(0));
+        double[] ranks = PageRank.compute(graph(5, links), 0.85);
+        for (int leaf = 1; leaf <= 4; leaf++) {
+            assertTrue(ranks[0] > ranks[leaf]);
+            assertEquals(ranks[1], ranks[leaf], 1e-12);
+        }
+        assertEquals(1, Arrays.stream(ranks).sum(), 1e-9);
+    }
+
+    @Test public void testMatchesPowerIteration() {
+        Random random = new Random(1);
+        int size = 300;
+        List<Set<Integer>> links = new ArrayList<>();
+        for (int source = 0; source < size; source++) {
+            Set<Integer> targets = new TreeSet<>();
+            /* some documents have no links, and a few documents get most of the links */
+            for (int i = random.nextInt(6); i > 0; i--) {
+                int target = (int) Math.abs(random.nextGaussian() * 40) % size;
+                if (target != source) targets.add(target);
+            }
+            links.add(targets);
+        }
+        double[] ranks = PageRank.compute(graph(size, links), 0.85, 1e-14, 200), expected = referenceRanks(links, 0.85, 200);
+        for (int documentId = 0; documentId < size; documentId++) assertEquals(expected[documentId], ranks[documentId], 1e-12);
+        assertEquals(1, Arrays.stream(ranks).sum(), 1e-9);
+    }
+
+    @Test public void testEmptyGraph() {
+        assertEquals(0, PageRank.compute(graph(0, Collections.emptyList()), 0.85).length);
+    }
+}
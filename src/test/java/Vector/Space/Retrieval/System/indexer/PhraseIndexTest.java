@@ -0,0 +1,53 @@
+package Vector.Space.Retrieval.System.indexer;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Pairs indexed by the phrase index and their postings
+ */
+public class PhraseIndexTest {
+    private static InvertedIndexer index() {
+        InvertedIndexer indexer = new InvertedIndexer();
+        indexer.addToIndex(Arrays.asList("heat", "transfer", "flat", "plate"), "d0", "", "");
+        indexer.addToIndex(Arrays.asList("transfer", "heat", "plate", "flat"), "d1", "", "");
+        indexer.addToIndex(Arrays.asList("heat", "transfer", "heat", "flow"), "d2", "", "");
+        indexer.addToIndex(Arrays.asList("flat", "plate", "heat", "transfer", "flat", "plate"), "d3", "", "");
+        return indexer;
+    }
+
+    @Test public void testOnlyFrequentPairsAreIndexed() {
+        PhraseIndex phraseIndex = new PhraseIndex(2);
+        phraseIndex.build(index());
+        assertTrue(phraseIndex.covers("heat", "transfer"));
+        assertTrue(phraseIndex.covers("transfer", "heat"));
+        assertTrue(phraseIndex.covers("flat", "plate"));
+        assertTrue(phraseIndex.covers("transfer", "flat"));
+        /* both terms are in at least 2 documents, but the pair is in one */
+        assertFalse(phraseIndex.covers("plate", "heat"));
+        assertFalse(phraseIndex.covers("heat", "plate"));
+        assertFalse(phraseIndex.covers("plate", "flat"));
+        /* flow is in one document */
+        assertFalse(phraseIndex.covers("heat", "flow"));
+
+        BigramPostings postings = phraseIndex.getPostings("heat", "transfer");
+        assertEquals(3, postings.getDocumentFrequency());
+        assertArrayEquals(new int[] {0, 2, 3}, postings.decode().getDocumentIds());
+        assertArrayEquals(new int[] {0}, postings.decode().getPositions(2));
+        assertArrayEquals(new int[] {2}, postings.decode().getPositions(3));
+        assertArrayEquals(new int[0], postings.decode().getPositions(1));
+        assertSame(postings.decode(), postings.decode());
+    }
+
+    @Test public void testDeletedDocumentsDoNotCount() {
+        InvertedIndexer indexer = index();
+        indexer.deleteDocument("d2");
+        PhraseIndex phraseIndex = new PhraseIndex(2);
+        phraseIndex.build(indexer);
+        assertArrayEquals(new int[] {0, 3}, phraseIndex.getPostings("heat", "transfer").decode().getDocumentIds());
+        assertFalse(phraseIndex.covers("transfer", "heat"));
+    }
+}
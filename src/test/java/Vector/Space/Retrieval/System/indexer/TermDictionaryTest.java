@@ -0,0 +1,86 @@
+package Vector.Space.Retrieval.System.indexer;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class TermDictionaryTest {
+    /* more terms than fit in one block, sharing prefixes, with terms beyond ASCII */
+    private static Map<String, Long> getTerms() {
+        Map<String, Long> terms = new HashMap<>();
+        for (int i = 0; i < 300; i++) terms.put(String.format("term%03d", i), (long) i * 1000);
+        for (String term : new String[] {"a", "ab", "abc", "abd", "b", "zeta", "\u00e9t\u00e9", "\u6f22\u5b57"})
+            terms.put(term, (long) term.length());
+        return terms;
+    }
+
+    @Test public void testLookups() {
+        Map<String, Long> terms = getTerms();
+        TermDictionary dictionary = TermDictionary.of(terms);
+        assertEquals(terms.size(), dictionary.size());
+        for (Map.Entry<String, Long> term : terms.entrySet()) assertEquals(term.getKey(), (long) term.getValue(), dictionary.get(term.getKey()));
+        for (String missing : new String[] {"", "aa", "abe", "term300", "term1", "zz", "\u00e9"})
+            assertEquals(missing, -1, dictionary.get(missing));
+    }
+
+    @Test public void testIterationIsInByteOrder() {
+        TermDictionary dictionary = TermDictionary.of(getTerms());
+        List<String> iterated = new ArrayList<>();
+        TermDictionary.TermIterator iterator = dictionary.iterator();
+        while (iterator.next()) {
+            assertEquals(iterated.size(), iterator.ordinal());
+            iterated.add(iterator.term());
+        }
+        List<String> sorted = new ArrayList<>(getTerms().keySet());
+        /* UTF-8 byte order is code point order, which matches the string order for these terms */
+        Collections.sort(sorted);
+        assertEquals(sorted, iterated);
+    }
+
+    @Test public void testPrefixAndRange() {
+        TermDictionary dictionary = TermDictionary.of(getTerms());
+        List<String> found = new ArrayList<>();
+        dictionary.prefix("ab", (term, value) -> found.add(term));
+        assertEquals(Arrays.asList("ab", "abc", "abd"), found);
+        found.clear();
+        dictionary.prefix("term29", (term, value) -> found.add(term));
+        assertEquals(10, found.size());
+        found.clear();
+        dictionary.range("term014", "term017", (term, value) -> found.add(term));
+        assertEquals(Arrays.asList("term014", "term015", "term016"), found);
+        found.clear();
+        dictionary.prefix("x", (term, value) -> found.add(term));
+        assertTrue(found.isEmpty());
+    }
+
+    @Test public void testWrittenDictionaryIsMappedBack() throws IOException {
+        Path path = Files.createTempFile("terms", ".dict");
+        try {
+            TermDictionary.of(getTerms()).write(path);
+            TermDictionary mapped = TermDictionary.open(path);
+            for (Map.Entry<String, Long> term : getTerms().entrySet()) assertEquals((long) term.getValue(), mapped.get(term.getKey()));
+        }
+        finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test public void testBuilderRejectsTermsOutOfOrder() {
+        TermDictionary.Builder builder = new TermDictionary.Builder().add("wing", 1);
+        for (String term : new String[] {"flow", "wing"}) {
+            try {
+                builder.add(term, 2);
+                fail(term);
+            }
+            catch(IllegalArgumentException ex) {
+                /* expected */
+            }
+        }
+        assertEquals(1, builder.add("wings", 2).build().get("wing"));
+    }
+}
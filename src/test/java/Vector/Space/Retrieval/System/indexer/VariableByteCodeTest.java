@@ -0,0 +1,51 @@
+package Vector.Space.Retrieval.System.indexer;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class VariableByteCodeTest {
+    @Test public void testEncodedLengths() {
+        assertEquals(1, VariableByteCode.getEncodedLength(0));
+        assertEquals(1, VariableByteCode.getEncodedLength(127));
+        assertEquals(2, VariableByteCode.getEncodedLength(128));
+        assertEquals(2, VariableByteCode.getEncodedLength(16383));
+        assertEquals(3, VariableByteCode.getEncodedLength(16384));
+        assertEquals(5, VariableByteCode.getEncodedLength(Integer.MAX_VALUE));
+    }
+
+    @Test public void testWriteAndReadRoundTrip() {
+        int[] values = {0, 1, 127, 128, 300, 16383, 16384, 2097151, 2097152, Integer.MAX_VALUE};
+        byte[] buffer = new byte[5 * values.length];
+        int length = 0;
+        for (int value : values) {
+            int end = VariableByteCode.write(value, buffer, length);
+            assertEquals(VariableByteCode.getEncodedLength(value), end - length);
+            length = end;
+        }
+        int[] offset = {0};
+        for (int value : values) assertEquals(value, VariableByteCode.read(buffer, offset));
+        assertEquals(length, offset[0]);
+    }
+
+    @Test public void testAppendedGapsDecodeToTheSortedValues() {
+        Random random = new Random(3);
+        int[] values = new int[1000];
+        byte[] buffer = null;
+        int length = 0, previous = 0;
+        for (int i = 0; i < values.length; i++) {
+            /* mostly small gaps with a few large ones */
+            values[i] = previous + (i % 50 == 0 ? random.nextInt(1 << 20) : random.nextInt(100));
+            buffer = VariableByteCode.append(values[i] - previous, buffer, length);
+            length += VariableByteCode.getEncodedLength(values[i] - previous);
+            previous = values[i];
+        }
+        assertArrayEquals(values, VariableByteCode.decodeGaps(buffer, length, values.length));
+        /* fewer bytes than the count needs give the values they hold */
+        assertArrayEquals(new int[] {values[0], values[1]},
+                VariableByteCode.decodeGaps(buffer, VariableByteCode.getEncodedLength(values[0]) +
+                        VariableByteCode.getEncodedLength(values[1] - values[0]), values.length));
+    }
+}
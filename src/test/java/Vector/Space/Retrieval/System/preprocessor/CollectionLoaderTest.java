@@ -0,0 +1,86 @@
+package Vector.Space.Retrieval.System.preprocessor;
+
+import Vector.Space.Retrieval.System.indexer.InvertedIndexer;
+import Vector.Space.Retrieval.System.preprocessor.crawler.Crawler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class CollectionLoaderTest {
+    private Path directory;
+
+    @Before public void createDirectory() throws IOException {
+        this.directory = Files.createTempDirectory("collection");
+    }
+
+    @After public void deleteDirectory() throws IOException {
+        try (Stream<Path> paths = Files.walk(this.directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private void write(String fileName, String content) throws IOException {
+        Files.writeString(this.directory.resolve(fileName), content);
+    }
+
+    private static String stem(String word) {
+        return new Tokenizer().preprocessTokens(Collections.singletonList(word)).get(0);
+    }
+
+    private static String getTitle(InvertedIndexer indexer, String url) {
+        int documentId = indexer.getDocumentId(url);
+        assertTrue(url, documentId >= 0);
+        return indexer.getDocument(documentId).getTitle();
+    }
+
+    @Test public void testSectionsAreFoundByTheirTags() throws IOException {
+        write("a-trec", "<DOC>\n<DOCNO> first </DOCNO>\n<TITLE>\nwing\nflutter\n</TITLE>\n<TEXT>\nsupersonic aircraft\n</TEXT>\n</DOC>\n" +
+                "<DOC>\n<DOCNO>second</DOCNO>\n<TEXT>\nvolcanic eruption\n</TEXT>\n</DOC>\n");
+        write("b-single", "<DOC>\n<DOCNO>\n7\n</DOCNO>\n<TITLE>boundary layers</TITLE>\n<TEXT>\nlaminar\n</TEXT>\n</DOC>\n");
+        write("c-unclosed", "<TITLE>glacier</TITLE>\n<TEXT>\nglaciers carve valleys");
+        write("d-plain", "medieval castles . had moats and drawbridges");
+        InvertedIndexer indexer = new InvertedIndexer();
+        CollectionLoader.Report report = new CollectionLoader(2).load(this.directory, indexer);
+
+        assertEquals(5, report.getDocuments());
+        assertEquals("wing flutter", getTitle(indexer, "first"));
+        assertEquals("", getTitle(indexer, "second"));
+        /* a file of one document is known by its name rather than its number */
+        assertEquals("boundary layers", getTitle(indexer, "b-single"));
+        assertEquals("glacier", getTitle(indexer, "c-unclosed"));
+        assertEquals("medieval castles", getTitle(indexer, "d-plain"));
+        assertEquals(1, indexer.getTermFrequency(stem("supersonic"), "first"));
+        assertEquals(0, indexer.getTermFrequency(stem("volcanic"), "first"));
+        assertEquals(1, indexer.getTermFrequency(stem("volcanic"), "second"));
+        assertEquals(1, indexer.getTermFrequency(stem("valleys"), "c-unclosed"));
+        /* the title of a tagged document is indexed, but the first sentence of plain text only once, with the content */
+        assertEquals(1, indexer.getTermFrequency(stem("flutter"), "first"));
+        assertEquals(1, indexer.getTermFrequency(stem("castles"), "d-plain"));
+        assertEquals(1, indexer.getTermFrequency(stem("moats"), "d-plain"));
+        /* the documents are numbered in the order of the files whatever the number of threads */
+        assertEquals(0, indexer.getDocumentId("first"));
+        assertEquals(1, indexer.getDocumentId("second"));
+        assertEquals(4, indexer.getDocumentId("d-plain"));
+    }
+
+    @Test public void testCrawlerCountsTheLoadedWords() throws IOException {
+        write("a", "<TEXT>\nwings and wings\n</TEXT>");
+        write("b", "<TEXT>\nwings of the aircraft\n</TEXT>");
+        Crawler crawler = new Crawler(0);
+        new CollectionLoader(1).load(this.directory, crawler);
+
+        assertEquals(2, crawler.getCorpusStatistics().getDocumentCount());
+        assertEquals(2, crawler.getVocabulary().get("wings"));
+        assertEquals(1, crawler.getVocabulary().get("aircraft"));
+        assertEquals(-1, crawler.getVocabulary().get("the"));
+    }
+}
@@ -0,0 +1,48 @@
+package Vector.Space.Retrieval.System.preprocessor;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class CorpusStatisticsTest {
+    @Test public void testFrequentTermsAndStopWordCandidates() {
+        CorpusStatistics statistics = new CorpusStatistics(3, 1024, 4);
+        statistics.addDocument(Arrays.asList("flow", "flow", "flow", "flow", "wing"));
+        statistics.addDocument(Arrays.asList("flow", "the", "shock"));
+        statistics.addDocument(Arrays.asList("the", "wing", "layer"));
+        statistics.addDocument(Arrays.asList("the", "boundary"));
+
+        assertEquals(4, statistics.getDocumentCount());
+        assertEquals(13, statistics.getTokenCount());
+        Map<String, Long> frequent = statistics.getFrequentTerms();
+        assertEquals(Arrays.asList("flow", "the", "wing"), new ArrayList<>(frequent.keySet()));
+        assertEquals(5L, (long) frequent.get("flow"));
+        /* "flow" occurs most often but in only half of the documents */
+        assertEquals(Arrays.asList("the"), new ArrayList<>(statistics.getStopWordCandidates(0.75).keySet()));
+        assertEquals(3L, (long) statistics.getStopWordCandidates(0.75).get("the"));
+        assertEquals(6, statistics.getDistinctTermCount());
+    }
+
+    @Test public void testHeapsLawOfAGrowingVocabulary() {
+        CorpusStatistics statistics = new CorpusStatistics(10, 1024, 4);
+        assertTrue(Double.isNaN(statistics.getHeapsLaw()[1]));
+        /* every document of 100 tokens brings new terms so that V = 10 n^0.5 */
+        int distinct = 0;
+        for (int document = 1; document <= 500; document++) {
+            int target = (int) Math.round(10 * Math.sqrt(100.0 * document));
+            List<String> terms = new ArrayList<>();
+            for (int i = 0; i < 100; i++) terms.add("term" + (distinct < target ? distinct++ : i % Math.max(1, distinct)));
+            statistics.addDocument(terms);
+        }
+        double[] heapsLaw = statistics.getHeapsLaw();
+        assertEquals(0.5, heapsLaw[1], 0.05);
+        assertEquals(distinct, statistics.getDistinctTermCount(), distinct * 0.03);
+        /* the growth curve keeps a bounded number of points however many documents are added */
+        assertTrue(statistics.getVocabularyGrowth().length <= 64);
+    }
+}
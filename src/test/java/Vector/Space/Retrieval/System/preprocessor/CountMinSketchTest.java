@@ -0,0 +1,47 @@
+package Vector.Space.Retrieval.System.preprocessor;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CountMinSketchTest {
+    @Test public void testEstimatesNeverUndercount() {
+        CountMinSketch sketch = new CountMinSketch(256, 4);
+        Map<String, Long> counts = new HashMap<>();
+        Random random = new Random(1);
+        for (int i = 0; i < 20000; i++) {
+            /* a skewed stream, a few terms very frequent and many rare */
+            String term = "term" + (int) Math.pow(random.nextInt(1000), 2) / 1000;
+            long estimate = sketch.add(term, 1);
+            long count = counts.merge(term, 1L, Long::sum);
+            assertTrue(estimate >= count);
+        }
+        assertEquals(20000, sketch.getTotal());
+        int beyondBound = 0;
+        for (Map.Entry<String, Long> term : counts.entrySet()) {
+            long estimate = sketch.estimate(term.getKey());
+            assertTrue(estimate >= term.getValue());
+            if (estimate - term.getValue() > sketch.getErrorBound()) beyondBound++;
+        }
+        /* each estimate exceeds the bound with a probability of e^-4, below 2% */
+        assertTrue(beyondBound <= counts.size() / 50);
+    }
+
+    @Test public void testWidthIsRoundedUpToAPowerOfTwo() {
+        assertEquals(8L * 256 * 3, new CountMinSketch(200, 3).getSizeInBytes());
+        assertEquals(8L * 256 * 3, new CountMinSketch(256, 3).getSizeInBytes());
+    }
+
+    @Test public void testUnseenTermsOfASparseSketchAreZero() {
+        CountMinSketch sketch = new CountMinSketch(1 << 16, 4);
+        sketch.add("lift", 3);
+        sketch.add("drag", 2);
+        assertEquals(3, sketch.estimate("lift"));
+        assertEquals(2, sketch.estimate("drag"));
+        assertEquals(0, sketch.estimate("thrust"));
+    }
+}
@@ -0,0 +1,38 @@
+package Vector.Space.Retrieval.System.preprocessor;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class DocumentParserTest {
+    @Test public void testStartTags() {
+        assertTrue(DocumentParser.isStartTag("<TEXT>"));
+        assertTrue(DocumentParser.isStartTag("<DOCNO>"));
+        for (String line : new String[] {"</TEXT>", "<text>", "<>", "<TEXT", "TEXT>", " <TEXT>", "<TE XT>", "<T1>", ""})
+            assertFalse(line, DocumentParser.isStartTag(line));
+    }
+
+    @Test public void testGetTextStopsAtTheEndTag() throws IOException {
+        BufferedReader reader = new BufferedReader(new StringReader("  lift and drag \nof wings\n</TEXT>\nafter\n"));
+        assertEquals(Arrays.asList("lift and drag", "of wings"), new DocumentParser().getText(reader, "TEXT"));
+        assertEquals("after", reader.readLine());
+    }
+
+    @Test public void testGetTextStopsAtTheEndOfAnUnclosedSection() throws IOException {
+        BufferedReader reader = new BufferedReader(new StringReader("lift\ndrag"));
+        assertEquals(Arrays.asList("lift", "drag"), new DocumentParser().getText(reader, "TEXT"));
+        assertEquals(Collections.emptyList(), new DocumentParser().getText(new BufferedReader(new StringReader("")), "TEXT"));
+    }
+
+    @Test public void testCollectionIsReadUntilTheFirstMissingDocument() {
+        DocumentParser parser = new DocumentParser();
+        assertTrue(parser.parseAndRetrieveText("cranfieldDocs", "cranfield").size() > 1400);
+        assertTrue(parser.parseAndRetrieveText("cranfieldDocs", "missing").isEmpty());
+    }
+}
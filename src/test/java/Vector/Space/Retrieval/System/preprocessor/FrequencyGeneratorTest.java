@@ -0,0 +1,38 @@
+package Vector.Space.Retrieval.System.preprocessor;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class FrequencyGeneratorTest {
+    private final FrequencyGenerator generator = new FrequencyGenerator();
+
+    @Test public void testEveryOccurrenceIsCounted() {
+        Map<String, Integer> expected = new HashMap<>();
+        expected.put("a", 2);
+        expected.put("b", 1);
+        assertEquals(expected, this.generator.getFrequencyMap(Arrays.asList("a", "a", "b")));
+        assertTrue(this.generator.getFrequencyMap(Collections.emptyList()).isEmpty());
+    }
+
+    @Test public void testRankedListBreaksTiesAlphabetically() {
+        List<String> tokens = Arrays.asList("wing", "flow", "drag", "flow", "wing", "lift", "flow");
+        assertEquals(Arrays.asList("flow", "wing", "drag"), this.generator.getRankedListOfWords(tokens, 3));
+        assertEquals(Arrays.asList("flow", "wing", "drag", "lift"), this.generator.getRankedListOfWords(tokens, 10));
+        assertTrue(this.generator.getRankedListOfWords(tokens, 0).isEmpty());
+    }
+
+    @Test public void testInvertedFrequencyMap() {
+        Map<Integer, List<String>> inverted = this.generator.getInvertedFrequencyMap(
+                this.generator.getFrequencyMap(Arrays.asList("a", "a", "b", "c")));
+        assertEquals(Collections.singletonList("a"), inverted.get(2));
+        assertEquals(Arrays.asList("b", "c"), inverted.get(1).stream().sorted().collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,122 @@
+package Vector.Space.Retrieval.System.preprocessor;
+
+import Vector.Space.Retrieval.System.indexer.InvertedIndexer;
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class IndexItemTest {
+    /**
+     * The first version of the index item, which had no document ID and no positions
+     */
+    static class FirstIndexItem implements Serializable {
+        private static final long serialVersionUID = -8955372654338852519L;
+        private final WebDocument document;
+        private final int termFrequency;
+
+        FirstIndexItem(WebDocument document, int termFrequency) {
+            this.document = document;
+            this.termFrequency = termFrequency;
+        }
+    }
+
+    private static byte[] serialize(Object object) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        }
+    }
+
+    /**
+     * Writes an item of the first version as if it were of the class IndexItem,
+     * by replacing the class name in the stream along with its length
+     */
+    private static byte[] serializeFirstVersion(FirstIndexItem item) throws IOException {
+        byte[] bytes = serialize(item);
+        byte[] from = FirstIndexItem.class.getName().getBytes(StandardCharsets.UTF_8);
+        byte[] to = IndexItem.class.getName().getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream patched = new ByteArrayOutputStream();
+        for (int i = 0; i < bytes.length; i++) {
+            if (i + 2 + from.length <= bytes.length && ((bytes[i] & 0xFF) << 8 | bytes[i + 1] & 0xFF) == from.length &&
+                    new String(bytes, i + 2, from.length, StandardCharsets.UTF_8).equals(FirstIndexItem.class.getName())) {
+                patched.write(to.length >>> 8);
+                patched.write(to.length & 0xFF);
+                patched.write(to, 0, to.length);
+                i += 1 + from.length;
+            }
+            else patched.write(bytes[i]);
+        }
+        return patched.toByteArray();
+    }
+
+    @Test public void testPositionsRoundTrip() {
+        IndexItem indexItem = new IndexItem(new WebDocument("a"), 4, 0);
+        int[] positions = {0, 3, 130, 131, 20000};
+        for (int position : positions) {
+            indexItem.setTermFrequency(indexItem.getTermFrequency() + 1);
+            indexItem.addPosition(position);
+        }
+        assertTrue(indexItem.hasPositions());
+        assertArrayEquals(positions, indexItem.getPositions());
+        assertEquals(1 + 1 + 1 + 1 + 3, indexItem.getPositionsSizeInBytes());
+
+        IndexItem renumbered = indexItem.withDocumentId(9);
+        assertEquals(9, renumbered.getDocumentId());
+        assertEquals(4, indexItem.getDocumentId());
+        assertArrayEquals(positions, renumbered.getPositions());
+        assertEquals(5, renumbered.getTermFrequency());
+    }
+
+    @Test public void testSerializedItemKeepsItsPositions() throws Exception {
+        IndexItem indexItem = new IndexItem(new WebDocument("a", "Title", ""), 2, 0);
+        for (int position : new int[] {1, 5, 400}) {
+            indexItem.setTermFrequency(indexItem.getTermFrequency() + 1);
+            indexItem.addPosition(position);
+        }
+        IndexItem read = (IndexItem) deserialize(serialize(indexItem));
+        assertEquals(2, read.getDocumentId());
+        assertEquals(3, read.getTermFrequency());
+        assertEquals("Title", read.getDocument().getTitle());
+        assertArrayEquals(new int[] {1, 5, 400}, read.getPositions());
+        assertEquals(indexItem.getPositionsSizeInBytes(), read.getPositionsSizeInBytes());
+
+        /* an item without positions reads back without them */
+        read = (IndexItem) deserialize(serialize(new IndexItem(new WebDocument("b"), 0, 7)));
+        assertFalse(read.hasPositions());
+        assertEquals(0, read.getPositions().length);
+    }
+
+    @Test public void testFirstVersionIsReadAndNumbered() throws Exception {
+        IndexItem read = (IndexItem) deserialize(serializeFirstVersion(new FirstIndexItem(new WebDocument("b"), 3)));
+        assertEquals(-1, read.getDocumentId());
+        assertEquals(3, read.getTermFrequency());
+        assertEquals("b", read.getDocument().getUrl());
+        assertFalse(read.hasPositions());
+        assertEquals(0, read.getPositionsSizeInBytes());
+
+        /* the indexer numbers the documents of such an index in url order */
+        Map<String, Map<String, IndexItem>> index = new HashMap<>();
+        for (String url : new String[] {"c", "a", "b"}) {
+            IndexItem item = (IndexItem) deserialize(serializeFirstVersion(new FirstIndexItem(new WebDocument(url), 1)));
+            index.computeIfAbsent("wing", term -> new HashMap<>()).put(url, item);
+        }
+        InvertedIndexer indexer = new InvertedIndexer();
+        indexer.setIndex(index);
+        assertEquals(0, indexer.getDocumentId("a"));
+        assertEquals(1, indexer.getDocumentId("b"));
+        assertEquals(2, indexer.getDocumentId("c"));
+        assertArrayEquals(new int[] {0, 1, 2}, indexer.getPostings("wing"));
+    }
+}
@@ -0,0 +1,19 @@
+package Vector.Space.Retrieval.System.preprocessor;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class TokenizerTest {
+    private final Tokenizer tokenizer = new Tokenizer();
+
+    @Test public void testPunctuationAndDigitsAreDropped() {
+        assertEquals(Arrays.asList("mach", "flow", "ratio", "wings"), this.tokenizer.tokenize("Mach-2 (flow), ratio=3.5 \"wings\" 42 a"));
+    }
+
+    @Test public void testLineBreaksSeparateTokens() {
+        assertEquals(Arrays.asList("lift", "drag", "wing", "flap", "slat"), this.tokenizer.tokenize("lift\ndrag\r\nwing\fflap\tslat"));
+    }
+}
@@ -0,0 +1,17 @@
+package Vector.Space.Retrieval.System.preprocessor.crawler;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CrawlMetricsTest {
+    @Test public void testFinishStopsTheClock() throws InterruptedException {
+        CrawlMetrics metrics = new CrawlMetrics();
+        assertTrue(metrics.snapshot().isRunning());
+        metrics.finish();
+        CrawlMetrics.Snapshot finished = metrics.snapshot();
+        assertFalse(finished.isRunning());
+        Thread.sleep(20);
+        assertEquals(finished.getElapsedSeconds(), metrics.snapshot().getElapsedSeconds(), 0);
+    }
+}
@@ -0,0 +1,173 @@
+package Vector.Space.Retrieval.System.preprocessor.crawler;
+
+import Vector.Space.Retrieval.System.Constants;
+import Vector.Space.Retrieval.System.indexer.InvertedIndexer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.*;
+
+/**
+ * Crawls and refreshes pages from a local HTTP server which changes them in between
+ */
+public class CrawlerRefreshTest {
+    /**
+     * A page of the local site: its status, body and the ETag it is sent with, if any
+     */
+    private static class Page {
+        private final int status;
+        private final String body, entityTag;
+
+        private Page(int status, String body, String entityTag) {
+            this.status = status;
+            this.body = body;
+            this.entityTag = entityTag;
+        }
+    }
+
+    private final Map<String, Page> pages = new ConcurrentHashMap<>();
+    private HttpServer server;
+    private String site;
+
+    @Before public void startServer() throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.createContext("/", this::serve);
+        this.server.start();
+        this.site = "http://127.0.0.1:" + this.server.getAddress().getPort();
+    }
+
+    @After public void stopServer() {
+        this.server.stop(0);
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath().replaceAll("/$", "");
+        Page page = this.pages.getOrDefault(path, new Page(404, "not found", null));
+        String condition = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (page.entityTag != null) exchange.getResponseHeaders().set("ETag", page.entityTag);
+        if (page.entityTag != null && page.entityTag.equals(condition)) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+        byte[] body = page.body.getBytes(StandardCharsets.UTF_8);
+        /* error pages are often plain text, which must not be taken for a page that stopped being HTML */
+        exchange.getResponseHeaders().set("Content-Type", page.status >= 400 ? "text/plain" : "text/html; charset=utf-8");
+        exchange.sendResponseHeaders(page.status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static String html(String title, String text) {
+        return String.format("<html><head><title>%s</title></head><body><p>%s</p></body></html>", title, text);
+    }
+
+    private void put(String path, int status, String body, String entityTag) {
+        this.pages.put(path, new Page(status, body, entityTag));
+    }
+
+    @Test public void testRefreshDownloadsAndIndexesOnlyWhatChanged() {
+        put("/tagged", 200, html("Tagged", "aircraft wings generate lift through pressure differences over airfoils"), "\"v1\"");
+        put("/same", 200, html("Same", "volcanic eruptions release magma ash and sulfur gases into the atmosphere"), null);
+        put("/changed", 200, html("Changed", "medieval castles had moats drawbridges and thick stone walls"), null);
+        put("/gone", 200, html("Gone", "coral reefs shelter fish turtles and countless invertebrates"), null);
+        put("/removed", 200, html("Removed", "jazz musicians improvise melodies over chord progressions"), null);
+        put("/busy", 200, html("Busy", "honeybees pollinate orchards and produce wax and honey"), null);
+        put("/throttled", 200, html("Throttled", "chess openings trade material for tempo and central control"), null);
+
+        Crawler crawler = new Crawler(10);
+        for (String path : this.pages.keySet()) crawler.crawl(this.site + path);
+        InvertedIndexer indexer = crawler.getIndexer();
+        assertEquals(7, indexer.getLiveDocumentCount());
+        int changedId = indexer.getDocumentId(this.site + "/changed");
+
+        put("/changed", 200, html("Changed", "glaciers carve valleys with steep walls as compacted snow turns into ice"), null);
+        put("/gone", 404, "not found", null);
+        put("/removed", 410, "gone", null);
+        put("/busy", 503, "try again later", null);
+        put("/throttled", 429, "slow down", null);
+        RefreshReport report = crawler.refreshPages();
+
+        assertEquals(7, report.getChecked());
+        assertEquals(1, report.getNotModified());
+        assertEquals(1, report.getUnchanged());
+        assertEquals(1, report.getReindexed());
+        assertEquals(2, report.getDeleted());
+        assertEquals(2, report.getFailed());
+        assertEquals(5, indexer.getLiveDocumentCount());
+        assertNotEquals(-1, indexer.getDocumentId(this.site + "/busy"));
+        assertNotEquals(-1, indexer.getDocumentId(this.site + "/throttled"));
+        assertEquals(-1, indexer.getDocumentId(this.site + "/gone"));
+        assertEquals(-1, indexer.getDocumentId(this.site + "/removed"));
+        assertNotEquals(changedId, indexer.getDocumentId(this.site + "/changed"));
+        assertTrue(indexer.getIndex().containsKey("glacier"));
+        /* the vocabulary counts only the pages in the index now */
+        assertEquals(1, crawler.getVocabulary().get("walls"));
+        assertEquals(1, crawler.getVocabulary().get("glaciers"));
+        assertEquals(1, crawler.getVocabulary().get("honeybees"));
+        assertEquals(-1, crawler.getVocabulary().get("medieval"));
+        assertEquals(-1, crawler.getVocabulary().get("coral"));
+
+        /* pages deleted by the first refresh are not requested again, and pages which failed are checked again */
+        put("/busy", 200, html("Busy", "honeybees pollinate orchards and produce wax and honey"), null);
+        report = crawler.refreshPages();
+        assertEquals(5, report.getChecked());
+        assertEquals(1, report.getNotModified());
+        assertEquals(3, report.getUnchanged());
+        assertEquals(0, report.getReindexed());
+        assertEquals(1, report.getFailed());
+    }
+
+    @Test public void testOnlyClientErrorsAreRemembered() {
+        put("/busy", 503, "try again later", null);
+        put("/throttled", 429, "slow down", null);
+        put("/forbidden", 403, "forbidden", null);
+        Crawler crawler = new Crawler(10);
+        for (String path : this.pages.keySet()) crawler.crawl(this.site + path);
+        crawler.crawl(this.site + "/missing");
+
+        assertNull(crawler.getSkipReason(this.site + "/busy"));
+        assertNull(crawler.getSkipReason(this.site + "/throttled"));
+        assertEquals(SkipReason.HTTP_ERROR, crawler.getSkipReason(this.site + "/forbidden"));
+        assertEquals(SkipReason.HTTP_ERROR, crawler.getSkipReason(this.site + "/missing"));
+        assertEquals(2L, (long) crawler.getSkipCounts().get(SkipReason.HTTP_UNAVAILABLE));
+        assertEquals(2L, (long) crawler.getSkipCounts().get(SkipReason.HTTP_ERROR));
+    }
+
+    @Test public void testNearDuplicatePageIsNotIndexedWithTheDefaultDistance() {
+        String text = "the boundary layer of a flat plate thickens downstream as viscous shear slows the flow near the wall " +
+                "until the laminar layer becomes unstable and transition to turbulence mixes momentum across the layer " +
+                "so that skin friction rises while the velocity profile grows fuller and the displacement thickness " +
+                "changes how the outer inviscid flow sees the plate surface and its pressure gradient along the chord " +
+                "while heat transfer from the heated wall follows a thermal layer whose thickness depends on the prandtl " +
+                "number of the fluid and on the reynolds number based on distance from the leading edge where the layer " +
+                "starts with zero thickness and grows with the square root of that distance for laminar flow and faster " +
+                "once the eddies of turbulent flow carry fluid from the outer stream toward the surface of the body";
+        put("/layer", 200, html("Boundary layer", text), null);
+        put("/layer/print", 200, html("Boundary layer", text + " printed"), null);
+        put("/other", 200, html("Shock waves", "a normal shock wave raises pressure density and temperature while " +
+                "the supersonic flow behind it becomes subsonic and the total pressure drops across the wave"), null);
+
+        assertTrue(Constants.nearDuplicateDistance >= 0);
+        Crawler crawler = new Crawler(10);
+        crawler.crawl(this.site + "/layer");
+        crawler.crawl(this.site + "/layer/print");
+        crawler.crawl(this.site + "/other");
+        InvertedIndexer indexer = crawler.getIndexer();
+        assertEquals(2, indexer.getLiveDocumentCount());
+        assertNotEquals(-1, indexer.getDocumentId(this.site + "/layer"));
+        assertEquals(-1, indexer.getDocumentId(this.site + "/layer/print"));
+        assertNotEquals(-1, indexer.getDocumentId(this.site + "/other"));
+    }
+}
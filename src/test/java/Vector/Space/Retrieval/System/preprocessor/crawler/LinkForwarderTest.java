@@ -0,0 +1,92 @@
+package Vector.Space.Retrieval.System.preprocessor.crawler;
+
+import org.junit.Test;
+
+import java.net.ServerSocket;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Partitions urls by host and ends a distributed crawl only once every process is done
+ */
+public class LinkForwarderTest {
+    /**
+     * Gets a url of a host which the given partition owns
+     */
+    private static String getUrl(int partition, int partitions, int page) {
+        for (int host = 0; ; host++) {
+            String url = String.format("http://host%d.uic.edu/p%d", host, page);
+            if (LinkForwarder.getPartition(url, partitions) == partition) return url;
+        }
+    }
+
+    private static int getFreePort() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    @Test public void testCrawlEndsOnlyOnceNoProcessHasLinksLeft() throws Exception {
+        int partitions = 3, pages = 12;
+        List<String> peers = new ArrayList<>();
+        for (int partition = 0; partition < partitions; partition++) peers.add("localhost:" + getFreePort());
+        LinkForwarder[] forwarders = new LinkForwarder[partitions];
+        for (int partition = 0; partition < partitions; partition++) {
+            forwarders[partition] = new LinkForwarder(partition, peers, 1, 0);
+            forwarders[partition].start();
+        }
+
+        /* every page links to the next one on another partition, and takes a while to crawl, so the others wait idle meanwhile */
+        AtomicInteger crawled = new AtomicInteger();
+        List<Thread> crawlers = new ArrayList<>();
+        for (int partition = 0; partition < partitions; partition++) {
+            LinkForwarder forwarder = forwarders[partition];
+            int owner = partition;
+            Thread crawler = new Thread(() -> {
+                try {
+                    if (owner == 0) forwarder.forward(getUrl(1, partitions, 1), 1);
+                    do {
+                        List<LinkForwarder.Link> links = new ArrayList<>();
+                        forwarder.drain(links::add);
+                        for (LinkForwarder.Link link : links) {
+                            assertTrue(forwarder.owns(link.getUrl()));
+                            Thread.sleep(150);
+                            crawled.incrementAndGet();
+                            if (link.getDepth() < pages)
+                                forwarder.forward(getUrl((owner + 1) % partitions, partitions, link.getDepth() + 1), link.getDepth() + 1);
+                        }
+                    } while (forwarder.await());
+                }
+                catch(InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            crawler.start();
+            crawlers.add(crawler);
+        }
+        for (Thread crawler : crawlers) crawler.join(20000);
+        for (LinkForwarder forwarder : forwarders) forwarder.close();
+
+        for (Thread crawler : crawlers) assertFalse(crawler.isAlive());
+        assertEquals(pages, crawled.get());
+    }
+
+    @Test public void testUrlsOfAHostShareAPartition() {
+        for (int host = 1; host <= 20; host++) {
+            int partition = LinkForwarder.getPartition(String.format("http://host%d.uic.edu", host), 3);
+            assertTrue(partition >= 0 && partition < 3);
+            for (String path : new String[] {"/a", "/b/c", "/d?e=f", ":8080/g"})
+                assertEquals(partition, LinkForwarder.getPartition(String.format("http://host%d.uic.edu%s", host, path), 3));
+            assertEquals(partition, LinkForwarder.getPartition(String.format("https://HOST%d.uic.edu/h", host), 3));
+        }
+    }
+
+    @Test public void testHostsAreSpreadOverPartitions() {
+        Set<Integer> partitions = new HashSet<>();
+        for (int host = 1; host <= 20; host++) partitions.add(LinkForwarder.getPartition(String.format("http://host%d.uic.edu/", host), 3));
+        assertEquals(3, partitions.size());
+        assertEquals(LinkForwarder.getPartition("not a url", 3), LinkForwarder.getPartition("not a url", 3));
+    }
+}
@@ -0,0 +1,72 @@
+package Vector.Space.Retrieval.System.preprocessor.crawler;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class NearDuplicateDetectorTest {
+    private static List<String> words(String prefix, int count) {
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < count; i++) words.add(prefix + i);
+        return words;
+    }
+
+    @Test public void testFingerprintIgnoresTokenOrder() {
+        List<String> tokens = new ArrayList<>(Arrays.asList("shock", "wave", "shock", "flow", "layer"));
+        long fingerprint = NearDuplicateDetector.fingerprint(tokens);
+        Collections.reverse(tokens);
+        assertEquals(fingerprint, NearDuplicateDetector.fingerprint(tokens));
+    }
+
+    @Test public void testSlightlyChangedPageIsNearDuplicate() {
+        List<String> page = words("term", 200), changed = new ArrayList<>(page);
+        changed.add("printed");
+        assertTrue(Long.bitCount(NearDuplicateDetector.fingerprint(page) ^ NearDuplicateDetector.fingerprint(changed)) <= 3);
+
+        NearDuplicateDetector detector = new NearDuplicateDetector(3);
+        assertNull(detector.check(page, "original"));
+        assertEquals("original", detector.check(changed, "copy"));
+        assertNull(detector.check(words("other", 200), "other"));
+        assertEquals(3, detector.getChecked());
+        assertEquals(1, detector.getDuplicates());
+        assertEquals(201, detector.getPostingsSkipped());
+    }
+
+    @Test public void testBandsFindEveryFingerprintWithinTheDistance() {
+        Random random = new Random(7);
+        for (int maxDistance : new int[] {0, 3, 6}) {
+            NearDuplicateDetector detector = new NearDuplicateDetector(maxDistance);
+            long[] kept = new long[50];
+            for (int i = 0; i < kept.length; i++) {
+                kept[i] = random.nextLong();
+                detector.add(kept[i], "page" + i);
+            }
+            for (int i = 0; i < kept.length; i++) {
+                /* flip distinct random bits of a kept fingerprint */
+                long near = kept[i], far;
+                int flipped = 0;
+                while (flipped < maxDistance) {
+                    long bit = 1L << random.nextInt(Long.SIZE);
+                    if (((near ^ kept[i]) & bit) == 0) {
+                        near ^= bit;
+                        flipped++;
+                    }
+                }
+                far = near;
+                while (Long.bitCount(far ^ kept[i]) <= maxDistance) far ^= 1L << random.nextInt(Long.SIZE);
+                assertEquals("page" + i, detector.findDuplicate(near));
+                String found = detector.findDuplicate(far);
+                if (found != null) {
+                    int other = Integer.parseInt(found.substring(4));
+                    assertTrue(Long.bitCount(far ^ kept[other]) <= maxDistance);
+                }
+            }
+        }
+    }
+}
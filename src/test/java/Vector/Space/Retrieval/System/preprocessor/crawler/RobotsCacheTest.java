@@ -0,0 +1,82 @@
+package Vector.Space.Retrieval.System.preprocessor.crawler;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks urls against the robots.txt served by a local HTTP server
+ */
+public class RobotsCacheTest {
+    private HttpServer server;
+    private String site;
+    private volatile int status;
+    private volatile String robots;
+
+    @Before public void startServer() throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.createContext("/robots.txt", this::serve);
+        this.server.start();
+        this.site = "http://127.0.0.1:" + this.server.getAddress().getPort();
+        this.status = 200;
+        this.robots = "User-agent: *\nDisallow: /private\nCrawl-delay: 1\n";
+    }
+
+    @After public void stopServer() {
+        this.server.stop(0);
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        byte[] body = this.robots.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain");
+        exchange.sendResponseHeaders(this.status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @Test public void testRulesAreFetchedOncePerHost() {
+        RobotsCache cache = new RobotsCache("UICSearchCrawler", 60000);
+        assertNull(cache.check(this.site + "/public"));
+        assertEquals(SkipReason.ROBOTS, cache.check(this.site + "/private/page"));
+        assertFalse(cache.isAllowed(this.site + "/private"));
+        assertEquals(1000, cache.getRules(this.site + "/").getCrawlDelay());
+        assertEquals(1, cache.getFetchCount());
+    }
+
+    @Test public void testMissingRobotsAllowsEverything() {
+        this.status = 404;
+        RobotsCache cache = new RobotsCache("UICSearchCrawler", 60000);
+        assertNull(cache.check(this.site + "/private/page"));
+    }
+
+    @Test public void testServerErrorIsTemporary() {
+        this.status = 503;
+        /* a time to live of zero fetches robots.txt again on every check */
+        RobotsCache cache = new RobotsCache("UICSearchCrawler", 0);
+        assertEquals(SkipReason.ROBOTS_UNAVAILABLE, cache.check(this.site + "/public"));
+        assertFalse(SkipReason.ROBOTS_UNAVAILABLE.isRemembered());
+        this.status = 200;
+        assertNull(cache.check(this.site + "/public"));
+        assertEquals(SkipReason.ROBOTS, cache.check(this.site + "/private"));
+    }
+
+    @Test public void testUnreachableHostIsTemporary() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        RobotsCache cache = new RobotsCache("UICSearchCrawler", 60000);
+        assertEquals(SkipReason.ROBOTS_UNAVAILABLE, cache.check("http://127.0.0.1:" + port + "/page"));
+    }
+}
@@ -0,0 +1,57 @@
+package Vector.Space.Retrieval.System.preprocessor.crawler;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RobotsRulesTest {
+    private static final String ROBOTS = String.join("\n",
+            "# comments and unknown fields are ignored",
+            "User-agent: *",
+            "Disallow: /private",
+            "Sitemap: https://example.edu/sitemap.xml",
+            "",
+            "User-agent: UICSearchCrawler/2.0",
+            "User-agent: OtherBot",
+            "Disallow: /",
+            "Allow: /public",
+            "Disallow: /public/drafts",
+            "Disallow: /public/*.pdf$",
+            "Allow: /*?print=",
+            "Crawl-delay: 2.5");
+
+    @Test public void testOwnGroupIsChosenByProductToken() {
+        RobotsRules rules = RobotsRules.parse(ROBOTS, "uicsearchcrawler");
+        assertFalse(rules.isAllowed("/people"));
+        assertTrue(rules.isAllowed("/public/index.html"));
+        assertEquals(2500, rules.getCrawlDelay());
+    }
+
+    @Test public void testAgentContainingAnotherNameUsesTheDefaultGroup() {
+        /* "bot" is part of "OtherBot", but only an exact product token selects a group */
+        RobotsRules rules = RobotsRules.parse(ROBOTS, "Bot/1.0");
+        assertTrue(rules.isAllowed("/people"));
+        assertFalse(rules.isAllowed("/private/notes"));
+        assertEquals(-1, rules.getCrawlDelay());
+        assertTrue(RobotsRules.parse("User-agent: Crawler\nDisallow: /", "UICSearchCrawler").isAllowed("/people"));
+    }
+
+    @Test public void testLongestRuleDecides() {
+        RobotsRules rules = RobotsRules.parse(ROBOTS, "UICSearchCrawler/1.0 (+https://example.edu/bot)");
+        assertFalse(rules.isAllowed("/public/drafts/one"));
+        assertFalse(rules.isAllowed("/public/paper.pdf"));
+        assertTrue(rules.isAllowed("/public/paper.pdf?download=1"));
+        assertTrue(rules.isAllowed("/news?print=1"));
+    }
+
+    @Test public void testAllowWinsATie() {
+        RobotsRules rules = RobotsRules.parse("User-agent: *\nDisallow: /page\nAllow: /page\n", "UICSearchCrawler");
+        assertTrue(rules.isAllowed("/page"));
+        assertTrue(RobotsRules.parse("User-agent: *\nDisallow:\n", "UICSearchCrawler").isAllowed("/anything"));
+    }
+
+    @Test public void testProductToken() {
+        assertEquals("uicsearchcrawler", RobotsRules.getProductToken(" UICSearchCrawler/1.0 (+https://example.edu)"));
+        assertEquals("*", RobotsRules.getProductToken("*"));
+    }
+}
@@ -0,0 +1,75 @@
+package Vector.Space.Retrieval.System.preprocessor.crawler;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class UrlFrontierTest {
+    @Test public void testBetterPriorityFirstAndHostsTakeTurns() throws InterruptedException {
+        /* a host polled becomes ready again after the other host, which has been waiting since it was added */
+        UrlFrontier frontier = new UrlFrontier(1, Collections.singletonList("calendar"), 3);
+        frontier.add("http://a.edu/deep", 3);
+        frontier.add("http://a.edu/calendar", 1);
+        frontier.add("http://a.edu/top", 1);
+        frontier.add("http://b.edu/top", 2);
+        assertFalse(frontier.add("http://a.edu/deep", 3));
+        assertEquals(4, frontier.size());
+        assertEquals(2, frontier.getHostCount());
+
+        assertEquals("http://a.edu/top", frontier.poll());
+        assertEquals("http://b.edu/top", frontier.poll());
+        /* two links to the deep url lower its priority below that of the calendar */
+        assertEquals("http://a.edu/deep", frontier.poll());
+        assertEquals("http://a.edu/calendar", frontier.poll());
+        assertNull(frontier.poll());
+        assertTrue(frontier.isEmpty());
+    }
+
+    @Test public void testDepthIsKeptOnlyForWaitingAndLastPolledUrl() throws InterruptedException {
+        UrlFrontier frontier = new UrlFrontier(0, Collections.emptyList(), 0);
+        frontier.add("http://a.edu/one", 1);
+        frontier.add("http://b.edu/two", 2);
+        assertEquals(2, frontier.getDepth("http://b.edu/two"));
+        String first = frontier.poll();
+        assertEquals(1, frontier.getDepth(first));
+        frontier.poll();
+        assertEquals(0, frontier.getDepth(first));
+        assertEquals(2, frontier.getDepth("http://b.edu/two"));
+        assertEquals(0, frontier.getDepth("http://c.edu/never"));
+    }
+
+    @Test public void testPollReadyHandsOutEveryReadyHostOnce() throws InterruptedException {
+        UrlFrontier frontier = new UrlFrontier(50, Collections.emptyList(), 0);
+        frontier.add("http://a.edu/one", 1);
+        frontier.add("http://a.edu/two", 1);
+        frontier.add("http://b.edu/one", 1);
+
+        /* both hosts are fetched at once, but not two urls of the same host */
+        assertEquals("http://a.edu/one", frontier.pollReady());
+        assertEquals(1, frontier.getDepth("http://a.edu/one"));
+        assertEquals("http://b.edu/one", frontier.pollReady());
+        assertNull(frontier.pollReady());
+        assertEquals(-1, frontier.getWaitMillis());
+        assertEquals(1, frontier.getHostCount());
+
+        /* a url found while its host is fetched waits for the fetch to end */
+        frontier.add("http://b.edu/two", 2);
+        assertNull(frontier.pollReady());
+        frontier.release("http://a.edu/one");
+        long wait = frontier.getWaitMillis();
+        assertTrue(wait > 0 && wait <= 50);
+        assertNull(frontier.pollReady());
+        Thread.sleep(wait + 5);
+        assertEquals("http://a.edu/two", frontier.pollReady());
+        frontier.release("http://b.edu/one");
+        Thread.sleep(55);
+        assertEquals("http://b.edu/two", frontier.pollReady());
+        frontier.release("http://a.edu/two");
+        frontier.release("http://b.edu/two");
+        assertTrue(frontier.isEmpty());
+        assertNull(frontier.pollReady());
+        assertEquals(-1, frontier.getWaitMillis());
+    }
+}
@@ -0,0 +1,45 @@
+package Vector.Space.Retrieval.System.query;
+
+import Vector.Space.Retrieval.System.indexer.InvertedIndexer;
+import Vector.Space.Retrieval.System.preprocessor.Tokenizer;
+import Vector.Space.Retrieval.System.preprocessor.WebDocument;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class BooleanQueryEvaluatorTest {
+    private static InvertedIndexer index() {
+        InvertedIndexer indexer = new InvertedIndexer();
+        String[][] documents = {{"wing", "lift"}, {"wing", "drag"}, {"flap", "lift"}, {"flap", "drag"}, {"cone", "shock"}, {"cone", "shock"}};
+        for (int document = 0; document < documents.length; document++) {
+            indexer.addToIndex(Arrays.asList(documents[document]), "d" + document, "", "");
+            indexer.setCollectionSize(indexer.getCollectionSize() + 1);
+        }
+        indexer.deleteDocument("d5");
+        indexer.constructDocumentVectorTable();
+        return indexer;
+    }
+
+    @Test public void testNegationSelectsLiveDocumentsOnly() {
+        InvertedIndexer indexer = index();
+        BooleanQueryEvaluator evaluator = new BooleanQueryEvaluator(indexer, new PhraseMatcher(indexer));
+        QueryParser parser = new QueryParser(new Tokenizer());
+        /* d5 is deleted, so no negation selects it */
+        assertArrayEquals(new int[] {0, 1, 2, 4}, evaluator.evaluate(parser.parse("wing OR NOT drag").getBooleanQuery()));
+        QueryNode notDrag = QueryNode.of(QueryNode.Type.NOT, QueryNode.leaf(Collections.singletonList("drag")));
+        assertArrayEquals(new int[] {0, 2, 4}, evaluator.evaluate(notDrag));
+        assertArrayEquals(new int[] {2, 4}, evaluator.evaluate(QueryNode.of(QueryNode.Type.AND, notDrag,
+                QueryNode.of(QueryNode.Type.NOT, QueryNode.leaf(Collections.singletonList("wing"))))));
+        assertArrayEquals(new int[] {0}, evaluator.evaluate(parser.parse("wing NOT drag").getBooleanQuery()));
+    }
+
+    @Test public void testDocumentsWithoutQueryTermsAreNotRanked() {
+        QueryProcessor queryProcessor = new QueryProcessor(index());
+        Set<String> urls = new HashSet<>();
+        for (WebDocument document : queryProcessor.search("wing OR NOT drag", 10).keySet()) urls.add(document.getUrl());
+        assertEquals(new HashSet<>(Arrays.asList("d0", "d1")), urls);
+        assertTrue(queryProcessor.search("cone NOT shock", 10).isEmpty());
+    }
+}
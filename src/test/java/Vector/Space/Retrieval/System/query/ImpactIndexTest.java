@@ -0,0 +1,94 @@
+package Vector.Space.Retrieval.System.query;
+
+import Vector.Space.Retrieval.System.indexer.InvertedIndexer;
+import Vector.Space.Retrieval.System.preprocessor.WebDocument;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Impact-ordered search against exhaustive scoring on a small index
+ */
+public class ImpactIndexTest {
+    private static final String[] WORDS = {"wing", "lift", "drag", "flap", "shock", "wave", "flow", "heat", "plate", "cone", "jet", "nozzle"};
+
+    private static InvertedIndexer index(int documentCount, long seed) {
+        InvertedIndexer indexer = new InvertedIndexer();
+        Random random = new Random(seed);
+        for (int document = 0; document < documentCount; document++) {
+            List<String> tokens = new ArrayList<>();
+            /* skewed term frequencies, so that the IDFs and impacts differ */
+            for (int i = 3 + random.nextInt(12); i > 0; i--)
+                tokens.add(WORDS[(int) (WORDS.length * Math.pow(random.nextDouble(), 2))]);
+            indexer.addToIndex(tokens, "doc" + document, "", "");
+            indexer.setCollectionSize(indexer.getCollectionSize() + 1);
+        }
+        indexer.constructDocumentVectorTable();
+        return indexer;
+    }
+
+    private static List<String> urls(Map<WebDocument, Double> rankedMap) {
+        List<String> urls = new ArrayList<>();
+        rankedMap.keySet().forEach(document -> urls.add(document.getUrl()));
+        return urls;
+    }
+
+    /**
+     * Gets the documents scoring above the last one, whose order does not depend on how ties are broken
+     */
+    private static Set<String> aboveLast(Map<WebDocument, Double> rankedMap) {
+        double last = rankedMap.values().stream().mapToDouble(Double::doubleValue).min().orElse(0);
+        Set<String> urls = new HashSet<>();
+        rankedMap.forEach((document, score) -> {
+            if (score > last + 1e-12) urls.add(document.getUrl());
+        });
+        return urls;
+    }
+
+    private static void assertSameTopK(QueryProcessor queryProcessor, List<String> query, int k) {
+        Map<WebDocument, Double> exact = queryProcessor.getRankedMapOfDocuments(query, k);
+        Map<WebDocument, Double> impact = queryProcessor.getImpactRankedMapOfDocuments(query, k);
+        String label = query + " k=" + k;
+        List<Double> exactScores = new ArrayList<>(exact.values()), impactScores = new ArrayList<>(impact.values());
+        assertEquals(label, exactScores.size(), impactScores.size());
+        for (int i = 0; i < exactScores.size(); i++) assertEquals(label, exactScores.get(i), impactScores.get(i), 1e-12);
+        assertEquals(label, aboveLast(exact), aboveLast(impact));
+    }
+
+    @Test public void testTopKMatchesExhaustiveScoring() {
+        InvertedIndexer indexer = index(200, 11);
+        QueryProcessor queryProcessor = new QueryProcessor(indexer);
+        Random random = new Random(12);
+        for (int i = 0; i < 100; i++) {
+            List<String> query = new ArrayList<>();
+            for (int length = 1 + random.nextInt(4); length > 0; length--) query.add(WORDS[random.nextInt(WORDS.length)]);
+            for (int k : new int[] {1, 5, 10}) assertSameTopK(queryProcessor, query, k);
+        }
+    }
+
+    @Test public void testDeletedDocumentsAreSkipped() {
+        InvertedIndexer indexer = index(60, 21);
+        QueryProcessor queryProcessor = new QueryProcessor(indexer);
+        List<String> query = Arrays.asList("nozzle", "jet");
+        List<String> before = urls(queryProcessor.getImpactRankedMapOfDocuments(query, 3));
+        assertFalse(before.isEmpty());
+
+        indexer.deleteDocument(before.get(0));
+        List<String> after = urls(queryProcessor.getImpactRankedMapOfDocuments(query, 3));
+        assertFalse(after.contains(before.get(0)));
+        assertSameTopK(queryProcessor, query, 3);
+    }
+
+    @Test public void testSearchReturnsEveryMatchingDocumentWhenKIsLarge() {
+        InvertedIndexer indexer = index(40, 31);
+        ImpactIndex impactIndex = ImpactIndex.build(indexer, new QueryProcessor(indexer).getCurrentScorer(indexer));
+        int[] documentIds = impactIndex.search(Collections.singletonMap("cone", 1.0), 1000, documentId -> true);
+        int[] postings = indexer.getPostings("cone").clone();
+        Arrays.sort(documentIds);
+        assertArrayEquals(postings, documentIds);
+        assertTrue(impactIndex.isCurrent(indexer));
+        assertEquals(0, impactIndex.search(Collections.singletonMap("rotor", 1.0), 10, documentId -> true).length);
+    }
+}
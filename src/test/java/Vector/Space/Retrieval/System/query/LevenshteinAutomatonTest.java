@@ -0,0 +1,95 @@
+package Vector.Space.Retrieval.System.query;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+public class LevenshteinAutomatonTest {
+    private static int distance(String first, String second) {
+        int[] previous = new int[second.length() + 1], current = new int[second.length() + 1];
+        for (int j = 0; j <= second.length(); j++) previous[j] = j;
+        for (int i = 1; i <= first.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= second.length(); j++)
+                current[j] = Math.min(previous[j - 1] + (first.charAt(i - 1) == second.charAt(j - 1) ? 0 : 1),
+                        Math.min(previous[j], current[j - 1]) + 1);
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[second.length()];
+    }
+
+    private static String randomWord(Random random) {
+        StringBuilder word = new StringBuilder();
+        int length = random.nextInt(7);
+        for (int i = 0; i < length; i++) word.append((char) ('a' + random.nextInt(4)));
+        return word.toString();
+    }
+
+    @Test public void testAcceptsExactlyTheWordsWithinTheDistance() {
+        Random random = new Random(1);
+        for (int round = 0; round < 2000; round++) {
+            String term = randomWord(random), word = randomWord(random);
+            int maxDistance = random.nextInt(3);
+            LevenshteinAutomaton automaton = new LevenshteinAutomaton(term, maxDistance);
+            int[] state = automaton.start();
+            for (int i = 0; i < word.length(); i++) state = automaton.step(state, word.charAt(i));
+            int expected = distance(term, word);
+            assertEquals(term + " " + word, expected <= maxDistance, automaton.isMatch(state));
+            assertEquals(term + " " + word, Math.min(expected, maxDistance + 1), automaton.getDistance(state));
+        }
+    }
+
+    @Test public void testDeadStatesCannotMatch() {
+        LevenshteinAutomaton automaton = new LevenshteinAutomaton("wing", 1);
+        int[] state = automaton.start();
+        for (char c : "xy".toCharArray()) state = automaton.step(state, c);
+        assertFalse(automaton.canMatch(state));
+        assertTrue(automaton.canMatch(automaton.step(automaton.start(), 'x')));
+    }
+
+    /**
+     * Walks a sorted dictionary with the automaton like a fuzzy expansion does, skipping from every dead
+     * prefix to the next live character, and checks that the same words are found as by a full scan
+     */
+    @Test public void testNextLiveCharacterSkipsOnlyDeadPrefixes() {
+        Random random = new Random(2);
+        TreeSet<String> dictionary = new TreeSet<>();
+        for (int i = 0; i < 3000; i++) dictionary.add(randomWord(random));
+        for (String term : new String[] {"abc", "dab", "a", "cccc"}) {
+            LevenshteinAutomaton automaton = new LevenshteinAutomaton(term, 1);
+            List<String> expected = new ArrayList<>(), found = new ArrayList<>();
+            for (String word : dictionary) if (distance(term, word) <= 1) expected.add(word);
+            for (String word : dictionary) {
+                int[] state = automaton.start();
+                boolean live = true;
+                for (int i = 0; i < word.length() && live; i++) {
+                    int[] next = automaton.step(state, word.charAt(i));
+                    if (!automaton.canMatch(next)) {
+                        /* the next live character after the one of the word must not be needed by this word */
+                        int skip = automaton.nextLiveCharacter(state, word.charAt(i));
+                        assertTrue(skip == -1 || skip > word.charAt(i));
+                        live = false;
+                    }
+                    state = next;
+                }
+                if (live && automaton.isMatch(state)) found.add(word);
+            }
+            assertEquals(term, expected, found);
+
+            /* from the start, the characters of the term leading to a live state are all found, one after the other */
+            int[] start = automaton.start();
+            TreeSet<Character> live = new TreeSet<>();
+            for (int c = automaton.nextLiveCharacter(start, (char) 0); c >= 0; c = automaton.nextLiveCharacter(start, (char) c))
+                live.add((char) c);
+            for (char c : term.toCharArray()) assertEquals(term + " " + c, automaton.canMatch(automaton.step(start, c)), live.contains(c));
+            for (char c : live) assertTrue(automaton.canMatch(automaton.step(start, c)));
+        }
+    }
+}
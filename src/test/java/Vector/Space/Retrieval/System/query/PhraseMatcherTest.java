@@ -0,0 +1,56 @@
+package Vector.Space.Retrieval.System.query;
+
+import Vector.Space.Retrieval.System.Constants;
+import Vector.Space.Retrieval.System.indexer.InvertedIndexer;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class PhraseMatcherTest {
+    private static InvertedIndexer index() {
+        InvertedIndexer indexer = new InvertedIndexer();
+        indexer.addToIndex(Arrays.asList("heat", "transfer", "flat", "plate"), "d0", "", "");
+        indexer.addToIndex(Arrays.asList("transfer", "heat", "plate", "flat"), "d1", "", "");
+        indexer.addToIndex(Arrays.asList("heat", "transfer", "heat", "flow"), "d2", "", "");
+        indexer.addToIndex(Arrays.asList("flat", "plate", "heat", "transfer", "flat", "plate"), "d3", "", "");
+        return indexer;
+    }
+
+    private static void assertMatches(InvertedIndexer indexer) {
+        PhraseMatcher matcher = new PhraseMatcher(indexer);
+        assertArrayEquals(new int[] {0, 2, 3}, matcher.match(Arrays.asList("heat", "transfer")));
+        assertArrayEquals(new int[] {1, 2}, matcher.match(Arrays.asList("transfer", "heat")));
+        assertArrayEquals(new int[] {0, 3}, matcher.match(Arrays.asList("flat", "plate")));
+        assertArrayEquals(new int[] {3}, matcher.match(Arrays.asList("plate", "heat")));
+        assertArrayEquals(new int[] {0, 3}, matcher.match(Arrays.asList("heat", "transfer", "flat")));
+        /* the last term shares a pair with the term before it */
+        assertArrayEquals(new int[] {0, 3}, matcher.match(Arrays.asList("transfer", "flat", "plate")));
+        assertArrayEquals(new int[] {3}, matcher.match(Arrays.asList("flat", "plate", "heat", "transfer", "flat")));
+        assertArrayEquals(new int[] {1}, matcher.match(Arrays.asList("heat", "plate")));
+        assertArrayEquals(new int[0], matcher.match(Arrays.asList("plate", "transfer")));
+        assertArrayEquals(new int[0], matcher.match(Arrays.asList("heat", "wing")));
+        assertArrayEquals(new int[] {2}, matcher.match(Arrays.asList("flow")));
+    }
+
+    @Test public void testPhrasesFromPositions() {
+        InvertedIndexer indexer = index();
+        assertNull(indexer.getPhraseIndex());
+        assertMatches(indexer);
+    }
+
+    @Test public void testPhrasesThroughThePairIndex() {
+        int threshold = Constants.bigramThreshold;
+        try {
+            Constants.bigramThreshold = 2;
+            InvertedIndexer indexer = index();
+            indexer.buildPhraseIndex();
+            assertNotNull(indexer.getPhraseIndex());
+            assertMatches(indexer);
+        }
+        finally {
+            Constants.bigramThreshold = threshold;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package Vector.Space.Retrieval.System.query;
+
+import Vector.Space.Retrieval.System.preprocessor.Tokenizer;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class QueryParserTest {
+    private final Tokenizer tokenizer = new Tokenizer();
+    private final QueryParser parser = new QueryParser(this.tokenizer);
+
+    private List<String> preprocess(String text) {
+        return this.tokenizer.preprocessTokens(this.tokenizer.tokenize(text));
+    }
+
+    @Test public void testPhraseIsParsedAsFreeText() {
+        ParsedQuery query = this.parser.parse("\"heat transfer\" wings");
+        assertFalse(query.isBoolean());
+        assertEquals(Collections.singletonList(preprocess("heat transfer")), query.getPhrases());
+        assertEquals(preprocess("heat transfer wings"), query.getTokens());
+    }
+
+    @Test public void testOperatorsInsideQuotesAreWords() {
+        ParsedQuery query = this.parser.parse("\"lift AND drag\" wings");
+        assertFalse(query.isBoolean());
+        assertEquals(1, query.getPhrases().size());
+    }
+
+    @Test public void testOperatorsOutsideQuotes() {
+        ParsedQuery query = this.parser.parse("\"boundary layer\" AND shock NOT supersonic");
+        assertTrue(query.isBoolean());
+        QueryNode root = query.getBooleanQuery();
+        assertEquals(QueryNode.Type.AND, root.getType());
+        assertEquals(3, root.getChildren().size());
+        assertEquals(QueryNode.Type.PHRASE, root.getChildren().get(0).getType());
+        assertEquals(QueryNode.Type.NOT, root.getChildren().get(2).getType());
+        assertEquals(preprocess("boundary layer shock"), query.getTokens());
+    }
+
+    @Test public void testOrBindsLooserThanAnd() {
+        QueryNode root = this.parser.parse("shock OR wave AND flow").getBooleanQuery();
+        assertEquals(QueryNode.Type.OR, root.getType());
+        assertEquals(QueryNode.Type.TERM, root.getChildren().get(0).getType());
+        assertEquals(QueryNode.Type.AND, root.getChildren().get(1).getType());
+    }
+
+    @Test public void testOnlyNegatedOperandsMatchNothing() {
+        for (String text : new String[] {"NOT shock", "NOT shock NOT wave", "(NOT shock) AND (NOT wave)"}) {
+            ParsedQuery query = this.parser.parse(text);
+            assertFalse(text, query.isBoolean());
+            assertTrue(text, query.getTokens().isEmpty());
+            assertTrue(text, query.getPhrases().isEmpty());
+        }
+    }
+}
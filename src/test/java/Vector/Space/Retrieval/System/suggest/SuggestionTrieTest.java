@@ -0,0 +1,72 @@
+package Vector.Space.Retrieval.System.suggest;
+
+import org.junit.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Lookups of the top-k trie, checked against a scan of all the words
+ */
+public class SuggestionTrieTest {
+    private static List<String> scan(Map<String, Long> weights, String prefix, int count) {
+        return weights.keySet().stream()
+                .filter(word -> word.startsWith(prefix))
+                .sorted(Comparator.comparing((String word) -> -weights.get(word)).thenComparing(word -> word))
+                .limit(count)
+                .collect(Collectors.toList());
+    }
+
+    @Test public void testSuggestionsAreRankedByWeightThenWord() {
+        Map<String, Long> weights = new HashMap<>();
+        weights.put("wing", 5L);
+        weights.put("wind", 9L);
+        weights.put("wine", 5L);
+        weights.put("win", 1L);
+        weights.put("drag", 7L);
+        SuggestionTrie trie = new SuggestionTrie(weights, 3);
+
+        assertEquals(Arrays.asList("wind", "wine", "wing"), trie.suggest("w", 3));
+        assertEquals(Arrays.asList("wind", "wine"), trie.suggest("win", 2));
+        assertEquals(Collections.singletonList("wing"), trie.suggest("wing", 3));
+        assertEquals(Arrays.asList("wind", "drag", "wine"), trie.suggest("", 3));
+        assertTrue(trie.suggest("lift", 3).isEmpty());
+        assertTrue(trie.suggest("wings", 3).isEmpty());
+        assertEquals(5, trie.size());
+        /* root, w-i-n and its children d, e, g, and d-r-a-g */
+        assertEquals(11, trie.getNodeCount());
+    }
+
+    @Test public void testCapacityBoundsTheSuggestions() {
+        Map<String, Long> weights = new HashMap<>();
+        for (int i = 0; i < 20; i++) weights.put("flow" + (char) ('a' + i), (long) i);
+        SuggestionTrie trie = new SuggestionTrie(weights, 4);
+        assertEquals(Arrays.asList("flowt", "flows", "flowr", "flowq"), trie.suggest("fl", 10));
+    }
+
+    @Test public void testEmptyTrie() {
+        SuggestionTrie trie = new SuggestionTrie(Collections.emptyMap(), 5);
+        assertTrue(trie.suggest("", 5).isEmpty());
+        assertTrue(trie.suggest("a", 5).isEmpty());
+    }
+
+    @Test public void testMatchesAScanOfAllWords() {
+        Random random = new Random(3);
+        Map<String, Long> weights = new HashMap<>();
+        while (weights.size() < 2000) {
+            StringBuilder word = new StringBuilder();
+            for (int length = 1 + random.nextInt(7); length > 0; length--) word.append((char) ('a' + random.nextInt(5)));
+            weights.put(word.toString(), (long) random.nextInt(50));
+        }
+        SuggestionTrie trie = new SuggestionTrie(weights, 10);
+        List<String> words = new ArrayList<>(weights.keySet());
+        for (int i = 0; i < 500; i++) {
+            String word = words.get(random.nextInt(words.size()));
+            String prefix = word.substring(0, random.nextInt(word.length() + 1));
+            int count = 1 + random.nextInt(10);
+            assertEquals(prefix, scan(weights, prefix, count), trie.suggest(prefix, count));
+        }
+    }
+}